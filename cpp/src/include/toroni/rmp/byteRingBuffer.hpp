@@ -6,6 +6,7 @@
 #ifndef TORONI_RMP_BYTERINGBUFFER_HPP
 #define TORONI_RMP_BYTERINGBUFFER_HPP
 
+#include "layout.hpp"
 #include "stream.hpp"
 
 namespace toroni {
@@ -17,17 +18,24 @@ namespace rmp {
  */
 struct ByteRingBuffer {
   /*
-   * Header
+   * Header, one cache line each for the config, writerMtx, freePos, each stats
+   * counter and notificationSeq. See layout.hpp.
    */
+  const uint64_t layoutWord;         // See layout.hpp
   const uint64_t configBufSizeBytes; // Size of the ring buffer in bytes
-  traits::RobustProcMutex writerMtx; // Robust mutex for single-writer
-  PositionAtomic freePos{0};         // Next free byte position in ring buffer
+  alignas(layout::CACHE_LINE_SIZE)
+      traits::RobustProcMutex writerMtx; // Robust mutex for single-writer
+  alignas(layout::CACHE_LINE_SIZE)
+      PositionAtomic freePos{0}; // Next free byte position in ring buffer
   struct {
-    StatCounter backPressureCount{0};
-    StatCounter notificationCount{0};
+    alignas(layout::CACHE_LINE_SIZE) StatCounter backPressureCount{0};
+    alignas(layout::CACHE_LINE_SIZE) StatCounter notificationCount{0};
   } stats;
+  alignas(layout::CACHE_LINE_SIZE) std::atomic<uint32_t> notificationSeq{
+      0}; // Incremented by writers notifying with a futex
   const bool initialized; // Whether this structure is completely initialized on
-                          // a zero-initialized shared memory
+                          // a zero-initialized shared memory, last so that it
+                          // is set after the fields it guards
   /*
    *  Ring buffer of configBufSizeBytes
    */
@@ -48,7 +56,17 @@ struct ByteRingBuffer {
    * @param  bufSizeBytes:
    */
   explicit ByteRingBuffer(uint64_t bufSizeBytes)
-      : configBufSizeBytes(bufSizeBytes), initialized(true) {}
+      : layoutWord(layout::Word()), configBufSizeBytes(bufSizeBytes),
+        initialized(true) {}
+
+  /**
+   * @brief  Whether initialized with this layout
+   * @note A segment of another layout is not initialized.
+   * @retval True if initialized
+   */
+  bool Initialized() const {
+    return initialized && layoutWord == layout::Word();
+  }
 
   // Ring buffer access
   /**
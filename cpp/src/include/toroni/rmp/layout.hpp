@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+#ifndef TORONI_RMP_LAYOUT_HPP
+#define TORONI_RMP_LAYOUT_HPP
+
+#include <cstddef>
+#include <cstdint>
+
+namespace toroni {
+namespace rmp {
+
+/**
+ * @brief  Shared memory layout of ByteRingBuffer and ReaderInfo
+ * @note Version 1 puts freePos, each stats counter and the position of each
+ * reader on its own cache line, so that updating one of them does not
+ * invalidate the others on other cores. Version 0 is the packed layout of
+ * segments created before the layout word, which only the Java Layout.PACKED
+ * still opens. The first word of a segment is the layout word, so that
+ * processes of another layout see it as not initialized.
+ */
+namespace layout {
+constexpr size_t CACHE_LINE_SIZE = 64;
+constexpr uint16_t VERSION = 1;
+
+/**
+ * @brief  Returns the layout word of a segment
+ * @note "TORONI" in the upper 48 bits, the version in the lower 16 bits. The
+ * first word of a packed segment is a buffer size or a counter, never this.
+ * @param  version:
+ * @retval Layout word
+ */
+constexpr uint64_t Word(uint16_t version = VERSION) {
+  return 0x544F524F4E49ull << 16 | version;
+}
+} // namespace layout
+
+} // namespace rmp
+} // namespace toroni
+
+#endif // TORONI_RMP_LAYOUT_HPP
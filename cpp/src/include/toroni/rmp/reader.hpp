@@ -44,7 +44,7 @@ private:
 inline Reader::Reader(const ByteRingBuffer *ringBuf)
     : _ringBuf(ringBuf), _ringBufData(&(*ringBuf)[0]),
       _indexMask(detail::IndexMask(ringBuf->configBufSizeBytes)) {
-  if (!_ringBuf->initialized) {
+  if (!_ringBuf->Initialized()) {
     throw exception("Ring buffer not initialized");
   }
 }
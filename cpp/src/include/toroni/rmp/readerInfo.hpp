@@ -6,6 +6,7 @@
 #ifndef TORONI_RMP_READERINFO_HPP
 #define TORONI_RMP_READERINFO_HPP
 
+#include "layout.hpp"
 #include "stream.hpp"
 
 #include <atomic>
@@ -20,18 +21,21 @@ namespace rmp {
  * * once in the process-lifetime.
  * @retval None
  */
-class ReaderInfo {
+class alignas(layout::CACHE_LINE_SIZE) ReaderInfo {
 public:
   /*
-   * Header
+   * Header, one cache line. See layout.hpp.
    */
   struct Info {
     traits::RobustProcMutex lock; // Held for duration of proc reader
-    PositionAtomic position{0};   // Position of proc reader
+    alignas(layout::CACHE_LINE_SIZE)
+        PositionAtomic position{0}; // Position of proc reader, with isActive
+                                    // on its own cache line
     std::atomic<uint8_t> isActive{false};
     // Whether used by at least one channel reader
   };
 
+  const uint64_t layoutWord{layout::Word()}; // See layout.hpp
   struct {
     StatCounter expiredReaders{0};
   } stats;
@@ -39,6 +43,8 @@ public:
   const uint16_t configMaxReaders;
   const std::atomic<uint32_t>& readersMinMax() const { return _readersMinMax; };
 
+  bool Initialized() const;
+
   using ReaderId = int;
   static inline const ReaderId INVALID_READER_ID{-1};
 
@@ -51,9 +57,12 @@ public:
   void GetActiveRange(uint16_t &min, uint16_t &max) const;
   const Info &Get(ReaderId readerId) const;
   Info &Get(ReaderId readerId);
+  std::atomic<uint32_t> &SleepingReaders() { return _sleepingReaders; }
 
 private:
   std::atomic<uint32_t> _readersMinMax; // Range of active readers. [Min,Max)
+  std::atomic<uint32_t> _sleepingReaders{0}; // Readers about to block or
+                                             // blocked on a notification
 
   Info *InfoPtr() {
     return reinterpret_cast<Info *>(
@@ -89,6 +98,15 @@ inline ReaderInfo::ReaderInfo(uint16_t configMaxReaders)
   initialized = true;
 }
 
+/**
+ * @brief  Whether initialized with this layout
+ * @note A segment of another layout is not initialized.
+ * @retval True if initialized
+ */
+inline bool ReaderInfo::Initialized() const {
+  return initialized && layoutWord == layout::Word();
+}
+
 /**
  * @brief Allocates a ReaderInfo slot and returns its id
  * @note Inter-proces and termination safe.
@@ -7,6 +7,7 @@
 #define TORONI_RMP_READERWITHBACKPRESSURE_HPP
 
 #include "reader.hpp"
+#include "toroni/exclusiveLock.hpp"
 #include "toroni/exception.hpp"
 
 #include <cassert>
@@ -54,7 +55,7 @@ inline ReaderWithBackpressure::ReaderWithBackpressure(
     : _ringBuf(ringBuf), _reader(ringBuf), _readerInfo(readerInfo),
       _indexMask(detail::IndexMask(ringBuf->configBufSizeBytes)) {
 
-  if (!_readerInfo->initialized) {
+  if (!_readerInfo->Initialized()) {
     throw exception("Rmp reader info not initialized");
   }
 
@@ -81,6 +82,11 @@ inline ReaderWithBackpressure::~ReaderWithBackpressure() {
  * @retval None
  */
 inline void ReaderWithBackpressure::Activate() {
+  // under the writer lock, so the position is not behind positions that
+  // writers have already checked for backpressure
+  ExclusiveLock<traits::RobustProcMutex> lk(
+      const_cast<ByteRingBuffer *>(_ringBuf)->writerMtx);
+
   // init local reader pos with stream position
   _readerPos = _ringBuf->freePos.load();
   _readerInfo->Activate(_procReaderId, _readerPos);
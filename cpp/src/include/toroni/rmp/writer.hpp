@@ -52,7 +52,7 @@ private:
 inline Writer::Writer(ByteRingBuffer *ringBuf, const ReaderInfo *readerInfo)
     : _ringBuf(ringBuf), _ringBufData(&(*ringBuf)[0]), _readerInfo(readerInfo),
       _indexMask(detail::IndexMask(ringBuf->configBufSizeBytes)) {
-  if (!_ringBuf->initialized) {
+  if (!_ringBuf->Initialized()) {
     throw exception("Ring buffer not initialized");
   }
 }
@@ -44,6 +44,8 @@ public:
 
   TopicMsgBinaryPtr CreateMessage(const char *channelName, const void *msg,
                                   size_t msgLen, bool postToDescendants);
+  TopicMsgBinaryPtr CreateMessage(const EncodedTopic &channel, const void *msg,
+                                  size_t msgLen, bool postToDescendants);
 
   void Post(const TopicMsgBinaryPtr &rbMsg);
 
@@ -127,6 +129,34 @@ inline TopicMsgBinaryPtr AsyncWriter::CreateMessage(const char *channelName,
   return rbMsg;
 }
 
+/**
+ * @brief  Create a version 1 topic message, which readers filter by hash
+ * @note   Encoding the channel once and reusing it avoids encoding it per
+ * message.
+ * @param  &channel:
+ * @param  *msg: Pointer to message data
+ * @param  msgLen: Size of message data
+ * @param  postToDescendants: Whether to post to descendants.
+ * @retval Topic message. Throws if message data is too big.
+ */
+inline TopicMsgBinaryPtr AsyncWriter::CreateMessage(const EncodedTopic &channel,
+                                                    const void *msg,
+                                                    size_t msgLen,
+                                                    bool postToDescendants) {
+  assert(msgLen != 0);
+
+  const size_t topicMsgLen = TopicMsgBinarySerializer::SizeOf(channel, msgLen);
+
+  if (topicMsgLen > _rbWriter.GetMaxMessageSize()) {
+    throw exception("Message size exceeds ringbuffer size");
+  }
+
+  TopicMsgBinaryPtr rbMsg = std::make_shared<TopicMsgBinary>(topicMsgLen);
+  TopicMsgBinarySerializer::Serialize(&(*rbMsg)[0], _readerInfo->readerGen,
+                                      postToDescendants, channel, msg, msgLen);
+  return rbMsg;
+}
+
 /**
  * @brief  Posts a message and returns immediateliy.
  * * @note   Invokes enqueueWorkFn with ProcWriter if none is running. The
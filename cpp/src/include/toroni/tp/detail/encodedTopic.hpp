@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+#ifndef TORONI_TP_DETAIL_ENCODEDTOPIC_HPP
+#define TORONI_TP_DETAIL_ENCODEDTOPIC_HPP
+
+#include "toroni/exception.hpp"
+
+#include <cstdint>
+#include <string>
+#include <vector>
+
+namespace toroni {
+namespace tp {
+
+/**
+ * @brief  A topic encoded once for the version 1 topic message header
+ * @note   Holds the 64-bit FNV-1a hashes of all prefixes of the topic and of
+ * its ancestors, i.e. of the prefixes ending before each '/' after the first
+ * byte. See TopicMsgBinarySerializer. Same as the Java EncodedTopic.
+ * @retval None
+ */
+class EncodedTopic {
+public:
+  static constexpr size_t MAX_LENGTH = 0xffff;
+  static constexpr size_t MAX_ANCESTORS = 0xff;
+
+  explicit EncodedTopic(const std::string &name);
+
+  const std::string &Name() const { return _name; }
+  size_t Length() const { return _name.size(); }
+  uint64_t Hash() const { return _prefixHashes[_name.size()]; }
+  uint64_t PrefixHash(size_t length) const { return _prefixHashes[length]; }
+  const std::vector<uint64_t> &AncestorHashes() const {
+    return _ancestorHashes;
+  }
+  int AncestorIndex() const;
+
+private:
+  static constexpr uint64_t FNV_OFFSET_BASIS = 0xcbf29ce484222325ULL;
+  static constexpr uint64_t FNV_PRIME = 0x100000001b3ULL;
+
+  std::string _name;
+  std::vector<uint64_t> _prefixHashes; // of _name[0, i) for i in [0, length]
+  std::vector<uint64_t> _ancestorHashes;
+};
+
+/**
+ * @brief  Encode a topic
+ * @note
+ * @param  &name: Topic
+ * @retval None. Throws if the topic is longer than MAX_LENGTH.
+ */
+inline EncodedTopic::EncodedTopic(const std::string &name)
+    : _name(name), _prefixHashes(name.size() + 1) {
+  if (name.size() > MAX_LENGTH) {
+    throw exception("Topic is too long");
+  }
+
+  _prefixHashes[0] = FNV_OFFSET_BASIS;
+  for (size_t i = 0; i < name.size(); i++) {
+    if (i > 0 && name[i] == '/' && _ancestorHashes.size() < MAX_ANCESTORS) {
+      _ancestorHashes.push_back(_prefixHashes[i]);
+    }
+    _prefixHashes[i + 1] =
+        (_prefixHashes[i] ^ static_cast<uint8_t>(name[i])) * FNV_PRIME;
+  }
+}
+
+/**
+ * @brief  The index of this topic among the ancestors of its descendants
+ * @note   A descendant /x/y/z has ancestors /x, /x/y, so this topic /x/y is
+ * the one after its own ancestors
+ * @retval The index, or -1 if it is not an ancestor in the message header
+ */
+inline int EncodedTopic::AncestorIndex() const {
+  return !_name.empty() && _ancestorHashes.size() < MAX_ANCESTORS
+             ? static_cast<int>(_ancestorHashes.size())
+             : -1;
+}
+
+} // namespace tp
+} // namespace toroni
+
+#endif // TORONI_TP_DETAIL_ENCODEDTOPIC_HPP
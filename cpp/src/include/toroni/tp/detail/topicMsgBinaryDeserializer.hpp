@@ -9,6 +9,7 @@
 #include "topicMsgBinarySerializer.hpp"
 #include "toroni/tp/topicMsgBinary.hpp"
 
+#include <algorithm>
 #include <cassert>
 #include <cstring>
 
@@ -20,13 +21,32 @@ struct TopicMsgBinaryDeserializer {
                                    const std::string &channelName,
                                    bool handleDescendants);
 
+  static bool DeserializeAndFilter(const char *&data, uint32_t &dataSize,
+                                   uint64_t readerGen,
+                                   const EncodedTopic &channel,
+                                   bool handleDescendants);
+
   static bool TopicMatches(const std::string &readerChannel,
                            bool handleDescendents, const char *writerChannel,
                            size_t writerChannelLength, bool postToDescendents);
+
+  static bool TopicMatches(const EncodedTopic &readerChannel,
+                           bool handleDescendents, const char *data);
+
+  static uint8_t Version(const char *data);
+  static bool IsValid(const char *data, uint32_t dataSize);
+  static bool PostToDescendants(const char *data);
+  static const char *Topic(const char *data);
+  static size_t TopicLength(const char *data, const char *topic);
+  static const char *Message(const char *data, const char *topic,
+                             size_t topicLength);
+
+private:
+  static uint64_t ReadU64(const char *p);
 };
 
 /**
- * @brief  Deserialize a message if its topic matches
+ * @brief  Deserialize a message of either version if its topic matches
  * @note
  * @param  *&data: Pointer to the data within the message
  * @param  &dataSize: Size of the data within the message
@@ -38,25 +58,20 @@ struct TopicMsgBinaryDeserializer {
 inline bool TopicMsgBinaryDeserializer::DeserializeAndFilter(
     const char *&data, uint32_t &dataSize, uint64_t readerGen,
     const std::string &channelName, bool handleDescendants) {
-  assert(dataSize >= TopicMsgBinarySerializer::SizeOf("", 0));
+  assert(IsValid(data, dataSize));
 
-  auto readerGenPtr = reinterpret_cast<const uint64_t *>(data);
-  if (*readerGenPtr < readerGen) {
+  if (ReadU64(data) < readerGen) {
     return false;
   }
-  readerGenPtr++;
-
-  auto pdPtr = reinterpret_cast<const char *>(readerGenPtr);
-  bool writerPd = *pdPtr;
-  pdPtr++;
 
-  const char *writerChName = pdPtr;
-  size_t writerChNameLen = strlen(writerChName);
+  const bool writerPd = PostToDescendants(data);
+  const char *writerChName = Topic(data);
+  const size_t writerChNameLen = TopicLength(data, writerChName);
 
   if (TopicMatches(channelName, handleDescendants, writerChName,
                    writerChNameLen, writerPd)) {
     const char *odata = data;
-    data = writerChName + writerChNameLen + 1;
+    data = Message(data, writerChName, writerChNameLen);
     dataSize -= data - odata;
 
     return true;
@@ -65,6 +80,128 @@ inline bool TopicMsgBinaryDeserializer::DeserializeAndFilter(
   return false;
 }
 
+/**
+ * @brief  Same as DeserializeAndFilter with a channel name but rejects most
+ * non-matching version 1 messages by comparing hashes
+ * @note   See TopicMatches with an EncodedTopic
+ * @param  *&data: Pointer to the data within the message
+ * @param  &dataSize: Size of the data within the message
+ * @param  readerGen: Ignore messages younger than the reader
+ * @param  &channel: The expected channel
+ * @param  handleDescendants:
+ * @retval True if topic matches. False otherwise.
+ */
+inline bool TopicMsgBinaryDeserializer::DeserializeAndFilter(
+    const char *&data, uint32_t &dataSize, uint64_t readerGen,
+    const EncodedTopic &channel, bool handleDescendants) {
+  assert(IsValid(data, dataSize));
+
+  if (ReadU64(data) < readerGen) {
+    return false;
+  }
+
+  if (TopicMatches(channel, handleDescendants, data)) {
+    const char *odata = data;
+    const char *writerChName = Topic(data);
+    data = Message(data, writerChName, TopicLength(data, writerChName));
+    dataSize -= data - odata;
+
+    return true;
+  }
+
+  return false;
+}
+
+/**
+ * @brief  The version of the topic message header
+ */
+inline uint8_t TopicMsgBinaryDeserializer::Version(const char *data) {
+  return (static_cast<uint8_t>(data[8]) &
+          TopicMsgBinarySerializer::VERSION_MASK) >>
+         4;
+}
+
+/**
+ * @brief  Whether a message holds the header of its version and its topic
+ * @note   Checks the version byte, then the header of the version, then the
+ * ancestor hashes and the topic, so that the other functions read within
+ * dataSize
+ * @param  *data: Topic message
+ * @param  dataSize: Size of the message
+ * @retval False if the message is truncated or of an unknown version
+ */
+inline bool TopicMsgBinaryDeserializer::IsValid(const char *data,
+                                                uint32_t dataSize) {
+  if (dataSize <= 8) {
+    return false;
+  }
+
+  switch (Version(data)) {
+  case 0:
+    return dataSize >= TopicMsgBinarySerializer::SizeOf("", 0) &&
+           memchr(data + 9, 0, dataSize - 9) != nullptr;
+  case 1: {
+    if (dataSize < TopicMsgBinarySerializer::HEADER_V1_SIZE) {
+      return false;
+    }
+    const char *topic = Topic(data);
+    return static_cast<uint32_t>(topic - data) + TopicLength(data, topic) <=
+           dataSize;
+  }
+  default:
+    return false;
+  }
+}
+
+/**
+ * @brief  Whether the writer posts to descendants
+ */
+inline bool TopicMsgBinaryDeserializer::PostToDescendants(const char *data) {
+  return (static_cast<uint8_t>(data[8]) &
+          TopicMsgBinarySerializer::FLAG_POST_TO_DESCENDANTS) != 0;
+}
+
+/**
+ * @brief  The first byte of the topic
+ */
+inline const char *TopicMsgBinaryDeserializer::Topic(const char *data) {
+  if (Version(data) == 0) {
+    return data + 9;
+  }
+
+  return data + TopicMsgBinarySerializer::HEADER_V1_SIZE +
+         static_cast<uint8_t>(data[9]) * 8;
+}
+
+/**
+ * @brief  The length of the topic
+ */
+inline size_t TopicMsgBinaryDeserializer::TopicLength(const char *data,
+                                                      const char *topic) {
+  if (Version(data) == 0) {
+    return strlen(topic);
+  }
+
+  uint16_t result;
+  memcpy(&result, data + 10, 2);
+  return result;
+}
+
+/**
+ * @brief  The first byte of the message data
+ */
+inline const char *TopicMsgBinaryDeserializer::Message(const char *data,
+                                                       const char *topic,
+                                                       size_t topicLength) {
+  return topic + topicLength + (Version(data) == 0 ? 1 : 0);
+}
+
+inline uint64_t TopicMsgBinaryDeserializer::ReadU64(const char *p) {
+  uint64_t result;
+  memcpy(&result, p, 8);
+  return result;
+}
+
 /**
  * @brief  Match writer+postToDescendents and reader+handleDescendents topics
  * @note
@@ -100,6 +237,63 @@ inline bool TopicMsgBinaryDeserializer::TopicMatches(
   return false;
 }
 
+/**
+ * @brief  Match the topic of a message against a reader topic
+ * @note   For version 1 messages most non-matching topics are rejected with a
+ * single hash compare depending on their lengths:
+ * - same length: the topic hash;
+ * - writer topic longer: if the reader handles descendants, the ancestor hash
+ * the reader topic would be;
+ * - reader topic longer: if the writer posts to descendants, the reader topic
+ * prefix hash.
+ * Matching hashes are confirmed by comparing bytes.
+ * @param  &readerChannel:
+ * @param  handleDescendents:
+ * @param  *data: Topic message
+ * @retval True if they match, false otherwise
+ */
+inline bool TopicMsgBinaryDeserializer::TopicMatches(
+    const EncodedTopic &readerChannel, bool handleDescendents,
+    const char *data) {
+  const bool writerPd = PostToDescendants(data);
+  const char *writerChannel = Topic(data);
+  const size_t writerLen = TopicLength(data, writerChannel);
+
+  if (Version(data) == 0) {
+    return TopicMatches(readerChannel.Name(), handleDescendents, writerChannel,
+                        writerLen, writerPd);
+  }
+
+  const size_t readerLen = readerChannel.Length();
+
+  if (readerLen == writerLen) {
+    if (ReadU64(data + 12) != readerChannel.Hash()) {
+      return false;
+    }
+  } else if (readerLen < writerLen) {
+    if (!handleDescendents) {
+      return false;
+    }
+
+    const int ancestorInd = readerChannel.AncestorIndex();
+    if (ancestorInd >= 0 && ancestorInd < static_cast<uint8_t>(data[9]) &&
+        writerChannel[readerLen] == '/' &&
+        ReadU64(data + TopicMsgBinarySerializer::HEADER_V1_SIZE +
+                ancestorInd * 8) != readerChannel.Hash()) {
+      return false;
+    }
+    // otherwise the reader topic is not an ancestor in the header, compare
+    // bytes
+  } else {
+    if (!writerPd || ReadU64(data + 12) != readerChannel.PrefixHash(writerLen)) {
+      return false;
+    }
+  }
+
+  return memcmp(readerChannel.Name().data(), writerChannel,
+                std::min(readerLen, writerLen)) == 0;
+}
+
 } // namespace tp
 } // namespace toroni
 
@@ -6,6 +6,7 @@
 #ifndef TORONI_TP_DETAIL_TOPICMSGBINARYSERIALIZER_HPP
 #define TORONI_TP_DETAIL_TOPICMSGBINARYSERIALIZER_HPP
 
+#include "encodedTopic.hpp"
 #include "toroni/tp/topicMsgBinary.hpp"
 
 #include <cstring>
@@ -14,18 +15,40 @@ namespace toroni {
 namespace tp {
 /**
  * @brief  Binary serializer/deserializer for a topic message
- * @note   The layout is as follows:
+ * @note   The layout of version 0 is as follows:
  * 8b readerGen
  * 1b postToDescendants
  * Xb channelName (zero-terminated)
  * Yb data (to end of dataLen)
+ * The layout of version 1, which lets readers filter by hash, is as follows
+ * (integers are little-endian):
+ * 8b readerGen
+ * 1b flags: version in the high 4 bits, postToDescendants in the lowest
+ * 1b ancestorCount
+ * 2b channelName length
+ * 8b channelName hash
+ * ancestorCount * 8b ancestor hashes, see EncodedTopic
+ * Xb channelName
+ * Yb data (to end of dataLen)
+ * Readers accept both versions. A writer should use version 1 only once all
+ * readers of the ring buffer do.
  * @retval None
  */
 struct TopicMsgBinarySerializer {
+  static constexpr uint8_t FLAG_POST_TO_DESCENDANTS = 0x01;
+  static constexpr uint8_t VERSION_MASK = 0xf0;
+  static constexpr uint8_t VERSION_1 = 0x10;
+  static constexpr uint32_t HEADER_V1_SIZE = 8 + 1 + 1 + 2 + 8;
+
   static uint32_t SizeOf(const std::string &channelName, uint32_t dataLen);
   static void Serialize(char *dst, uint64_t readerGen, bool postToDescendants,
                         const std::string &channelName, const void *data,
                         uint32_t dataLen);
+
+  static uint32_t SizeOf(const EncodedTopic &channel, uint32_t dataLen);
+  static void Serialize(char *dst, uint64_t readerGen, bool postToDescendants,
+                        const EncodedTopic &channel, const void *data,
+                        uint32_t dataLen);
 };
 
 /**
@@ -71,6 +94,62 @@ inline void TopicMsgBinarySerializer::Serialize(char *dst, uint64_t readerGen,
   memcpy(pdPtr, data, dataLen);
 }
 
+/**
+ * @brief  The size in bytes of the version 1 topic message including system
+ * data
+ * @note
+ * @param  &channel: Topic
+ * @param  dataLen: Data size in bytes
+ * @retval Size in bytes
+ */
+inline uint32_t TopicMsgBinarySerializer::SizeOf(const EncodedTopic &channel,
+                                                 uint32_t dataLen) {
+  return HEADER_V1_SIZE + channel.AncestorHashes().size() * 8 +
+         channel.Length() + dataLen;
+}
+
+/**
+ * @brief  Serialize to binary a version 1 topic message
+ * @note
+ * @param  *dst: Pre-allocated memory to serialize onto
+ * @param  readerGen:
+ * @param  postToDescendants:
+ * @param  &channel:
+ * @param  *data:
+ * @param  dataLen:
+ * @retval None
+ */
+inline void TopicMsgBinarySerializer::Serialize(char *dst, uint64_t readerGen,
+                                                bool postToDescendants,
+                                                const EncodedTopic &channel,
+                                                const void *data,
+                                                uint32_t dataLen) {
+  memcpy(dst, &readerGen, 8);
+  dst += 8;
+
+  *dst++ = static_cast<char>(VERSION_1 |
+                             (postToDescendants ? FLAG_POST_TO_DESCENDANTS : 0));
+  *dst++ = static_cast<char>(channel.AncestorHashes().size());
+
+  const auto chLen = static_cast<uint16_t>(channel.Length());
+  memcpy(dst, &chLen, 2);
+  dst += 2;
+
+  const uint64_t hash = channel.Hash();
+  memcpy(dst, &hash, 8);
+  dst += 8;
+
+  for (const uint64_t ancestorHash : channel.AncestorHashes()) {
+    memcpy(dst, &ancestorHash, 8);
+    dst += 8;
+  }
+
+  memcpy(dst, channel.Name().data(), chLen);
+  dst += chLen;
+
+  memcpy(dst, data, dataLen);
+}
+
 } // namespace tp
 } // namespace toroni
 
@@ -14,6 +14,7 @@
 #include "toroni/tp/reader.hpp"
 
 #include "config.hpp"
+#include "latencyHistogram.hpp"
 #include "log.hpp"
 
 #include <new>
@@ -43,6 +44,16 @@ struct AgentStats {
   atomic<uint64_t> readersReady;
   atomic<uint64_t> writersReady;
   atomic<uint64_t> readerRuns;
+  // updated by the Java agent only
+  atomic<uint64_t> idleSpinWakeups;
+  atomic<uint64_t> idleYieldWakeups;
+  atomic<uint64_t> idleParkWakeups;
+  atomic<uint64_t> idleNotificationWakeups;
+  atomic<uint64_t> suppressedNotifications;
+  // merged LatencyHistogram of all readers
+  atomic<uint64_t> latencyNsMax;
+  atomic<uint64_t> latencyOverThreshold;
+  atomic<uint64_t> latencyBuckets[LatencyHistogram::BUCKETS];
 };
 
 SharedMemory *RingBufShm() {
@@ -303,12 +314,16 @@ public:
 
   void OnChannelRead(const void *data, size_t) {
     _rcvedCount++;
-    _latencySumNs += NowNanoSec() - *static_cast<const size_t *>(data);
+    size_t latencyNs = NowNanoSec() - *static_cast<const size_t *>(data);
+    _latencySumNs += latencyNs;
+    _histogram.Record(latencyNs);
     LOG(trace, "latenct rcv");
   }
 
   void Result() const {
-    printf("%.3f\n", AvgLatencyMs());
+    printf("%.3f_", AvgLatencyMs());
+    ReadHistogram().Print();
+    printf("\n");
 
     if (GetOptExtResult()) {
       printf("_");
@@ -321,13 +336,23 @@ public:
     return (1.0 * bs->latencyNsSum / MS_NANOSEC) / bs->msgCount;
   }
 
+  static LatencyHistogram ReadHistogram() {
+    auto bs = AgentStatsPtr();
+    return LatencyHistogram::Read(bs->latencyBuckets, bs->latencyNsMax,
+                                  bs->latencyOverThreshold);
+  }
+
   ~LatencyTest() {
     AgentStatsPtr()->latencyNsSum += _latencySumNs;
     AgentStatsPtr()->msgCount += _rcvedCount;
+    _histogram.AddTo(AgentStatsPtr()->latencyBuckets,
+                     AgentStatsPtr()->latencyNsMax,
+                     AgentStatsPtr()->latencyOverThreshold);
   }
 
 private:
   size_t _latencySumNs{0};
+  LatencyHistogram _histogram{GetOptLatencyThresholdUs() * 1000};
 };
 
 class RobustWriterTest : public ThroughputTest {
@@ -387,6 +412,9 @@ void RunStat() {
   printf("Sum throughput-first-last-duration: %.5f (ms) \n",
          1.0 * as->firstLastDurationNsSum / MS_NANOSEC);
   printf("Avg-latency: %.3f (ms)\n", LatencyTest::AvgLatencyMs());
+  printf("Latency percentiles: ");
+  LatencyTest::ReadHistogram().Print();
+  printf(" (ms, OVER=count above %lu us)\n", GetOptLatencyThresholdUs());
   printf("Avg-throughput-first-last: %.3f (Kmsg/sec)\n",
          ThroughputTest::AvgThroughputKMsgSec());
   printf("Readers ready: %lu\n", as->readersReady.load());
@@ -417,11 +445,13 @@ void RunLayout()
 {
    {
       OffsetPrinter op("RingBuf", RingBufPtr());
+      op.Offset("layoutWord", &(RingBufPtr()->layoutWord));
       op.Offset("configBufSizeBytes", &(RingBufPtr()->configBufSizeBytes));
       op.Offset("writerMtx", &(RingBufPtr()->writerMtx));
       op.Offset("freePos", &(RingBufPtr()->freePos));
       op.Offset("backPressureCount", &(RingBufPtr()->stats.backPressureCount));
       op.Offset("notificationCount", &(RingBufPtr()->stats.notificationCount));
+      op.Offset("notificationSeq", &(RingBufPtr()->notificationSeq));
       op.Offset("initialized", &(RingBufPtr()->initialized));
       op.Offset("index0", &(RingBufPtr()->operator[](0)));
    }
@@ -430,6 +460,7 @@ void RunLayout()
       OffsetPrinter op("ReaderInfo", ReaderInfoPtr());
       op.Offset("readerGen", &(ReaderInfoPtr()->readerGen));
       op.Offset("initialized", &(ReaderInfoPtr()->initialized));
+      op.Offset("layoutWord", &(ReaderInfoPtr()->rmpReaderInfo.layoutWord));
       op.Offset("expiredReaders", &(ReaderInfoPtr()->rmpReaderInfo.stats.expiredReaders));
       op.Offset("configMaxReaders", &(ReaderInfoPtr()->rmpReaderInfo.configMaxReaders));
       op.Offset("readersMinMax", &(ReaderInfoPtr()->rmpReaderInfo.readersMinMax()));
@@ -450,6 +481,8 @@ void RunLayout()
       op.Offset("readersReady", &(AgentStatsPtr()->readersReady));
       op.Offset("writersReady", &(AgentStatsPtr()->writersReady));
       op.Offset("readerRuns", &(AgentStatsPtr()->readerRuns));
+      op.Offset("latencyNsMax", &(AgentStatsPtr()->latencyNsMax));
+      op.Offset("latencyBuckets", &(AgentStatsPtr()->latencyBuckets));
    }
 }
 
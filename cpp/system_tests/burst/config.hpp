@@ -56,6 +56,11 @@ size_t GetOptMessagesSizeBytes() {
   return val;
 }
 
+size_t GetOptLatencyThresholdUs() {
+  static size_t val = GetOptInt("TORONI_AGENT_LATENCY_THRESHOLD_US", 1000);
+  return val;
+}
+
 size_t GetOptBackpressureSleepMs() {
   static size_t val = GetOptInt("TORONI_AGENT_BACKPRESSURE_SLEEP_MS", 5);
   return val;
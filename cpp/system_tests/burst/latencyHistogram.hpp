@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+#ifndef TORONI_CPP_SYSTEM_TESTS_BURST_LATENCY_HISTOGRAM_HPP
+#define TORONI_CPP_SYSTEM_TESTS_BURST_LATENCY_HISTOGRAM_HPP
+
+#include <algorithm>
+#include <array>
+#include <atomic>
+#include <cmath>
+#include <cstdint>
+#include <cstdio>
+
+/**
+ * @brief Fixed-size log-linear latency histogram, HdrHistogram style. Same
+ * bucketing as the Java agent's LatencyHistogram so that readers of both
+ * languages can merge into AgentStats.
+ *
+ * Values below 2^SUB_BUCKET_BITS ns are counted exactly. Each power of two
+ * above is split into 2^(SUB_BUCKET_BITS - 1) linear buckets. Values of
+ * 2^MAX_VALUE_BITS ns or more are counted in the last bucket, the maximum is
+ * exact.
+ */
+class LatencyHistogram {
+public:
+  static constexpr int SUB_BUCKET_BITS = 7;
+  static constexpr int MAX_VALUE_BITS = 40;
+  static constexpr size_t BUCKETS =
+      (MAX_VALUE_BITS - SUB_BUCKET_BITS) * (1 << (SUB_BUCKET_BITS - 1)) +
+      (1 << SUB_BUCKET_BITS);
+
+  explicit LatencyHistogram(uint64_t thresholdNs) : _thresholdNs(thresholdNs) {}
+
+  void Record(uint64_t valueNs) {
+    _counts[BucketIndex(valueNs)]++;
+    _count++;
+    _maxNs = std::max(_maxNs, valueNs);
+    if (valueNs > _thresholdNs) {
+      _overThreshold++;
+    }
+  }
+
+  /**
+   * @brief Atomically adds the recorded values to a shared histogram.
+   */
+  void AddTo(std::atomic<uint64_t> *buckets, std::atomic<uint64_t> &maxNs,
+             std::atomic<uint64_t> &overThreshold) const {
+    for (size_t i = 0; i < BUCKETS; i++) {
+      if (_counts[i] != 0) {
+        buckets[i] += _counts[i];
+      }
+    }
+
+    uint64_t max = maxNs.load();
+    while (_maxNs > max && !maxNs.compare_exchange_weak(max, _maxNs))
+      ;
+
+    overThreshold += _overThreshold;
+  }
+
+  /**
+   * @brief Copy of a shared histogram.
+   */
+  static LatencyHistogram Read(const std::atomic<uint64_t> *buckets,
+                               const std::atomic<uint64_t> &maxNs,
+                               const std::atomic<uint64_t> &overThreshold) {
+    LatencyHistogram histogram(UINT64_MAX);
+
+    for (size_t i = 0; i < BUCKETS; i++) {
+      histogram._counts[i] = buckets[i].load();
+      histogram._count += histogram._counts[i];
+    }
+    histogram._maxNs = maxNs.load();
+    histogram._overThreshold = overThreshold.load();
+
+    return histogram;
+  }
+
+  uint64_t ValueAtPercentile(double percentile) const {
+    uint64_t rank =
+        std::max<uint64_t>(1, std::ceil(percentile / 100 * _count));
+    uint64_t seen = 0;
+
+    for (size_t i = 0; i < BUCKETS; i++) {
+      seen += _counts[i];
+      if (seen >= rank) {
+        return std::min(HighestEquivalentValue(i), _maxNs);
+      }
+    }
+
+    return _maxNs;
+  }
+
+  /**
+   * @brief Prints p50, p90, p99, p99.9, max in ms and the count above the
+   * threshold, in the same format as the Java agent.
+   */
+  void Print() const {
+    printf("P50=%.3f_P90=%.3f_P99=%.3f_P999=%.3f_MAX=%.3f_OVER=%lu",
+           ToMs(ValueAtPercentile(50)), ToMs(ValueAtPercentile(90)),
+           ToMs(ValueAtPercentile(99)), ToMs(ValueAtPercentile(99.9)),
+           ToMs(_maxNs), _overThreshold);
+  }
+
+private:
+  static constexpr uint64_t SUB_BUCKET_COUNT = 1ULL << SUB_BUCKET_BITS;
+  static constexpr uint64_t HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+  static size_t BucketIndex(uint64_t valueNs) {
+    if (valueNs < SUB_BUCKET_COUNT) {
+      return valueNs;
+    }
+
+    int msb = 63 - __builtin_clzll(valueNs);
+    if (msb >= MAX_VALUE_BITS) {
+      return BUCKETS - 1;
+    }
+
+    int shift = msb - (SUB_BUCKET_BITS - 1);
+    return shift * HALF_SUB_BUCKET_COUNT + (valueNs >> shift);
+  }
+
+  static uint64_t HighestEquivalentValue(size_t index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+
+    int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+    uint64_t subBucket =
+        (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT +
+        HALF_SUB_BUCKET_COUNT;
+
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  static double ToMs(uint64_t ns) { return 1.0 * ns / (1000 * 1000); }
+
+  std::array<uint64_t, BUCKETS> _counts{};
+  uint64_t _thresholdNs;
+  uint64_t _count{0};
+  uint64_t _maxNs{0};
+  uint64_t _overThreshold{0};
+};
+
+#endif // TORONI_CPP_SYSTEM_TESTS_BURST_LATENCY_HISTOGRAM_HPP
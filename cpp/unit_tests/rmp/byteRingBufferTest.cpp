@@ -5,6 +5,7 @@
 
 #include "byteRingBufferTest.hpp"
 
+using namespace toroni::rmp;
 using namespace toroni::rmp::unit_tests;
 TEST_F(ByteRingBufferTest, Initialized) {
   EXPECT_TRUE(ringBuf->initialized);
@@ -13,6 +14,29 @@ TEST_F(ByteRingBufferTest, Initialized) {
   EXPECT_EQ(ringBuf->stats.notificationCount, 0);
 }
 
+TEST_F(ByteRingBufferTest, Layout) {
+  EXPECT_TRUE(ringBuf->Initialized());
+  EXPECT_EQ(ringBuf->layoutWord, layout::Word());
+
+  // the hot fields are on cache lines of their own
+  auto line = [this](const void *p) {
+    return (static_cast<const char *>(p) - reinterpret_cast<char *>(ringBuf)) /
+           layout::CACHE_LINE_SIZE;
+  };
+  EXPECT_NE(line(&ringBuf->writerMtx), line(&ringBuf->freePos));
+  EXPECT_NE(line(&ringBuf->freePos), line(&ringBuf->stats.backPressureCount));
+  EXPECT_NE(line(&ringBuf->stats.backPressureCount),
+            line(&ringBuf->stats.notificationCount));
+  EXPECT_NE(line(&ringBuf->stats.notificationCount),
+            line(&ringBuf->notificationSeq));
+  EXPECT_NE(line(&ringBuf->notificationSeq), line(&(*ringBuf)[0]));
+  EXPECT_EQ(sizeof(ByteRingBuffer) % layout::CACHE_LINE_SIZE, 0);
+
+  // another layout is not initialized
+  const_cast<uint64_t &>(ringBuf->layoutWord) = ringBufSizeBytes;
+  EXPECT_FALSE(ringBuf->Initialized());
+}
+
 TEST_F(ByteRingBufferTest, SetGet) {
   for (int i = 0; i < ringBufSizeBytes; i++) {
     char v = i % 256;
@@ -20,6 +20,29 @@ TEST_F(ReaderInfoTest, Initialization) {
   EXPECT_GE(min, max);
 }
 
+TEST_F(ReaderInfoTest, Layout) {
+  EXPECT_TRUE(readerInfo->Initialized());
+  EXPECT_EQ(readerInfo->layoutWord, layout::Word());
+
+  // the positions of readers are on cache lines of their own
+  auto line = [this](const void *p) {
+    return (static_cast<const char *>(p) -
+            reinterpret_cast<char *>(readerInfo)) /
+           layout::CACHE_LINE_SIZE;
+  };
+  for (int i = 0; i < readerSlots; i++) {
+    EXPECT_NE(line(&readerInfo->Get(i).lock),
+              line(&readerInfo->Get(i).position));
+    EXPECT_EQ(line(&readerInfo->Get(i).position),
+              line(&readerInfo->Get(i).isActive));
+    if (i > 0) {
+      EXPECT_NE(line(&readerInfo->Get(i - 1).position),
+                line(&readerInfo->Get(i).lock));
+    }
+  }
+  EXPECT_EQ(sizeof(ReaderInfo::Info) % layout::CACHE_LINE_SIZE, 0);
+}
+
 TEST_F(ReaderInfoTest, ActivateDeactivateRange) {
   uint16_t min, max;
 
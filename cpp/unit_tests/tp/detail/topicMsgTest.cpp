@@ -112,4 +112,107 @@ TEST(TopicMsg, AssertOnInvalid) {
   EXPECT_DEBUG_DEATH(TopicMsgBinaryDeserializer::DeserializeAndFilter(
                          outData, outDataLen, 5, "", true),
                      "");
-}
\ No newline at end of file
+}
+
+static vector<char> SerializeV1(uint64_t readerGen, bool postToDescendants,
+                                const string &topic, const string &data) {
+  const EncodedTopic channel{topic};
+  vector<char> binary(TopicMsgBinarySerializer::SizeOf(channel, data.size()));
+  TopicMsgBinarySerializer::Serialize(binary.data(), readerGen,
+                                      postToDescendants, channel, data.c_str(),
+                                      data.size());
+  return binary;
+}
+
+TEST(TopicMsg, SerializeV1Layout) {
+  // same bytes as the Java TopicMessageTest.serializeV1Layout test
+  const vector<char> binary = SerializeV1(5, true, "/a/b", "ab");
+  const vector<uint8_t> expected = {
+      0x05, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, // readerGen
+      0x11,                                           // version 1, pd
+      0x01,                                           // ancestorCount
+      0x04, 0x00,                                     // channelName length
+      0xcc, 0xe0, 0x8e, 0xb3, 0x9c, 0x28, 0x3e, 0x36, // hash of /a/b
+      0x2d, 0xd9, 0x9c, 0xb4, 0x07, 0x67, 0xd6, 0x07, // hash of /a
+      '/',  'a',  '/',  'b',                          // channelName
+      'a',  'b'};                                     // data
+
+  EXPECT_EQ(vector<uint8_t>(binary.begin(), binary.end()), expected);
+  EXPECT_EQ(TopicMsgBinaryDeserializer::Version(binary.data()), 1);
+}
+
+TEST(TopicMsg, V1SameAsTopicMatches) {
+  const vector<string> topics{"",       "/",       "/a",  "/a/", "/a/b1",
+                              "/a/b2", "/a/b1/c", "/ab", "/b",  "a/b"};
+
+  for (const auto &writerTopic : topics) {
+    for (bool postToDescendants : {false, true}) {
+      const vector<char> binary =
+          SerializeV1(5, postToDescendants, writerTopic, "ab");
+
+      for (const auto &readerTopic : topics) {
+        for (bool handleDescendants : {false, true}) {
+          const bool expected = TopicMatches(readerTopic, handleDescendants,
+                                             writerTopic, postToDescendants);
+
+          EXPECT_EQ(TopicMsgBinaryDeserializer::TopicMatches(
+                        EncodedTopic{readerTopic}, handleDescendants,
+                        binary.data()),
+                    expected)
+              << readerTopic << " " << handleDescendants << " " << writerTopic
+              << " " << postToDescendants;
+
+          const char *outData = binary.data();
+          uint32_t outDataLen = binary.size();
+          EXPECT_EQ(TopicMsgBinaryDeserializer::DeserializeAndFilter(
+                        outData, outDataLen, 5, readerTopic, handleDescendants),
+                    expected);
+          if (expected) {
+            EXPECT_EQ(string(outData, outDataLen), "ab");
+          }
+        }
+      }
+    }
+  }
+}
+
+TEST(TopicMsg, V1DeserializeEncodedTopic) {
+  const vector<char> binary = SerializeV1(5, false, "/a/b", "ab");
+  const char *outData = binary.data();
+  uint32_t outDataLen = binary.size();
+
+  EXPECT_TRUE(TopicMsgBinaryDeserializer::DeserializeAndFilter(
+      outData, outDataLen, 5, EncodedTopic{"/a"}, true));
+  EXPECT_EQ(string(outData, outDataLen), "ab");
+
+  outData = binary.data();
+  outDataLen = binary.size();
+  EXPECT_FALSE(TopicMsgBinaryDeserializer::DeserializeAndFilter(
+      outData, outDataLen, 7, EncodedTopic{"/a"}, true));
+  EXPECT_FALSE(TopicMsgBinaryDeserializer::DeserializeAndFilter(
+      outData, outDataLen, 5, EncodedTopic{"/a/c"}, true));
+}
+
+TEST(TopicMsg, V1Truncated) {
+  const vector<char> binary = SerializeV1(5, false, "/a/b", "");
+  EXPECT_TRUE(
+      TopicMsgBinaryDeserializer::IsValid(binary.data(), binary.size()));
+
+  // cut in the header, the ancestor hashes or the topic
+  for (uint32_t size = 0; size < binary.size(); size++) {
+    const vector<char> truncated(binary.begin(), binary.begin() + size);
+    EXPECT_FALSE(TopicMsgBinaryDeserializer::IsValid(truncated.data(), size))
+        << size;
+
+    const char *outData = truncated.data();
+    uint32_t outDataLen = size;
+    EXPECT_DEBUG_DEATH(TopicMsgBinaryDeserializer::DeserializeAndFilter(
+                           outData, outDataLen, 5, EncodedTopic{"/a"}, true),
+                       "");
+  }
+
+  vector<char> unknownVersion = binary;
+  unknownVersion[8] = 0x20;
+  EXPECT_FALSE(TopicMsgBinaryDeserializer::IsValid(unknownVersion.data(),
+                                                   unknownVersion.size()));
+}
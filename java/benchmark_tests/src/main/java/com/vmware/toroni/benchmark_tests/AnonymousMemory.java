@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import static com.sun.jna.platform.linux.Mman.MAP_ANONYMOUS;
+import static com.sun.jna.platform.linux.Mman.MAP_FAILED;
+import static com.sun.jna.platform.linux.Mman.MAP_SHARED;
+import static com.sun.jna.platform.linux.Mman.PROT_READ;
+import static com.sun.jna.platform.linux.Mman.PROT_WRITE;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.unix.LibCAPI;
+import com.sun.jna.platform.unix.LibCUtil;
+
+/**
+ * Anonymous shared mapping used in place of a named shared memory so that the
+ * benchmarks measure the protocol and not the shm setup.
+ */
+class AnonymousMemory {
+
+  private final Pointer _ptr;
+  private final long _length;
+
+  AnonymousMemory(long length) {
+    _length = length;
+    _ptr = LibCUtil.mmap(null, length, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_ANONYMOUS, -1, 0);
+    if (_ptr == MAP_FAILED) {
+      throw new Error("mmap");
+    }
+  }
+
+  /**
+   * @return a pointer to the mapped memory
+   */
+  Pointer ptr() {
+    return _ptr;
+  }
+
+  /**
+   * Unmaps the memory.
+   */
+  void unmap() {
+    if (LibC.INSTANCE.munmap(_ptr, new LibCAPI.size_t(_length)) != 0) {
+      throw new Error("munmap");
+    }
+  }
+
+  /**
+   * Interface for LibC. Required for JNA.
+   */
+  private interface LibC extends LibCAPI, Library {
+    LibC INSTANCE = Native.load("c", LibC.class);
+  }
+}
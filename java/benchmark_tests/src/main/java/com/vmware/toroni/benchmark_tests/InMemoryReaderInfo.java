@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import com.vmware.toroni.rmp.Layout;
+import com.vmware.toroni.tp.ReaderInfo;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+/**
+ * An initialized TP ReaderInfo (and its RMP ReaderInfo) in anonymous memory.
+ */
+public class InMemoryReaderInfo {
+
+  private final AnonymousMemory _mem;
+  private final ReaderInfo _readerInfo;
+
+  public InMemoryReaderInfo(int readerInfoSlots) {
+    this(readerInfoSlots, Layout.ALIGNED);
+  }
+
+  public InMemoryReaderInfo(int readerInfoSlots, int layout) {
+    _mem = new AnonymousMemory(ReaderInfo.size((short) readerInfoSlots, PthreadRobustMutex.getSize(), layout));
+    _readerInfo = new ReaderInfo(_mem.ptr(), (short) readerInfoSlots, new PthreadRobustMutex(), layout);
+    _readerInfo.initialize();
+  }
+
+  public ReaderInfo get() {
+    return _readerInfo;
+  }
+
+  public com.vmware.toroni.rmp.ReaderInfo getRmp() {
+    return _readerInfo.rmpReaderInfo;
+  }
+
+  public void destroy() {
+    _mem.unmap();
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.Layout;
+import com.vmware.toroni.traits.RobustMutex;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+/**
+ * An initialized ByteRingBuffer in anonymous memory.
+ */
+public class InMemoryRingBuf {
+
+  private final AnonymousMemory _mem;
+  private final ByteRingBuffer _ringBuf;
+
+  public InMemoryRingBuf(long bufSizeBytes) {
+    this(bufSizeBytes, new PthreadRobustMutex());
+  }
+
+  public InMemoryRingBuf(long bufSizeBytes, RobustMutex mtx) {
+    this(bufSizeBytes, mtx, Layout.ALIGNED);
+  }
+
+  public InMemoryRingBuf(long bufSizeBytes, RobustMutex mtx, int layout) {
+    _mem = new AnonymousMemory(ByteRingBuffer.size(bufSizeBytes, mtx.size(), layout));
+    _ringBuf = new ByteRingBuffer(_mem.ptr(), bufSizeBytes, mtx, layout);
+    _ringBuf.initialize();
+  }
+
+  public ByteRingBuffer get() {
+    return _ringBuf;
+  }
+
+  public void destroy() {
+    _mem.unmap();
+  }
+}
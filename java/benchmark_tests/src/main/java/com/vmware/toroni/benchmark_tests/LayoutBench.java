@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.CopyConfirmCallback;
+import com.vmware.toroni.rmp.Layout;
+import com.vmware.toroni.rmp.Reader;
+import com.vmware.toroni.rmp.ReaderWithBackpressure;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+
+/**
+ * One writer and {@link #READERS} readers of one ring buffer with the
+ * {@code packed} or the {@code aligned} layout, see {@link Layout}. With the
+ * packed layout every position update of a reader invalidates the positions of
+ * the adjacent readers and {@code freePos} on the other cores, which the
+ * writer scans on every message. The difference shows with at least as many
+ * cores as threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBench {
+
+  static final int READERS = 7;
+  static final byte[] MSG = new byte[64];
+
+  static final BackPressureCallback NO_BP_HANDLER = new BackPressureCallback() {
+
+    @Override
+    public boolean writeOrWait(long bpPos, long freePos) {
+      return false;
+    }
+
+  };
+
+  static final CopyConfirmCallback DISCARD = new CopyConfirmCallback() {
+
+    @Override
+    public boolean copy(long index, int length) {
+      return false;
+    }
+
+    @Override
+    public void confirm() {
+    }
+
+  };
+
+  @State(Scope.Group)
+  public static class RingBuf {
+    @Param({ "packed", "aligned" })
+    public String layout;
+
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Writer writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      int l = layout.equals("packed") ? Layout.PACKED : Layout.ALIGNED;
+
+      ringBuf = new InMemoryRingBuf(1024 * 1024, new DirectPthreadRobustMutex(), l);
+      readerInfo = new InMemoryReaderInfo(READERS, l);
+      writer = new Writer(ringBuf.get(), readerInfo.getRmp());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadReader {
+    ReaderWithBackpressure reader;
+
+    @Setup(Level.Trial)
+    public void setup(RingBuf s) throws Exception {
+      reader = new ReaderWithBackpressure(s.ringBuf.get(), s.readerInfo.getRmp());
+      reader.activate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      reader.destroy();
+    }
+  }
+
+  @Benchmark
+  @Group("ringBuf")
+  @GroupThreads(1)
+  public void write(RingBuf s) {
+    s.writer.writeEx(MSG, NO_BP_HANDLER);
+  }
+
+  @Benchmark
+  @Group("ringBuf")
+  @GroupThreads(READERS)
+  public Reader.Result read(ThreadReader r) {
+    Reader.Result res = r.reader.readEx(DISCARD);
+    if (res == Reader.Result.EXPIRED_POSITION) {
+      r.reader.activate();
+    }
+
+    return res;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.traits.concurrent.BoundedMpscMessageQueue;
+import com.vmware.toroni.traits.concurrent.LockFreeMpscMessageQueue;
+import com.vmware.toroni.traits.concurrent.MpscMessageQueue;
+
+/**
+ * AsyncWriter message queue benchmarks: several threads post while a single
+ * drainer drains. {@code synchronized} is MpscMessageQueue, {@code lockFree}
+ * LockFreeMpscMessageQueue and {@code bounded} BoundedMpscMessageQueue, which
+ * drops messages when full.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageQueueBench {
+
+  static final byte[] MSG = new byte[64];
+
+  @State(Scope.Group)
+  public static class Queue {
+    @Param({ "synchronized", "lockFree", "bounded" })
+    public String impl;
+
+    MpscMessageQueue<byte[]> syncQueue;
+    LockFreeMpscMessageQueue<byte[]> lockFreeQueue;
+    BoundedMpscMessageQueue<byte[]> boundedQueue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      syncQueue = new MpscMessageQueue<>();
+      lockFreeQueue = new LockFreeMpscMessageQueue<>();
+      boundedQueue = new BoundedMpscMessageQueue<>(64 * 1024);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Batch {
+    ArrayList<byte[]> batch = new ArrayList<>();
+  }
+
+  @Benchmark
+  @Group("mpsc")
+  @GroupThreads(3)
+  public boolean enqueue(Queue q) {
+    switch (q.impl) {
+    case "synchronized":
+      return q.syncQueue.enqueue(MSG);
+    case "lockFree":
+      return q.lockFreeQueue.enqueue(MSG);
+    default:
+      return q.boundedQueue.tryEnqueue(MSG) == BoundedMpscMessageQueue.EnqueueResult.START_DRAINER;
+    }
+  }
+
+  @Benchmark
+  @Group("mpsc")
+  @GroupThreads(1)
+  public int drain(Queue q, Batch b) {
+    switch (q.impl) {
+    case "synchronized":
+      return q.syncQueue.drain().size();
+    case "lockFree":
+      b.batch.clear();
+      return q.lockFreeQueue.drainTo(b.batch);
+    default:
+      b.batch.clear();
+      return q.boundedQueue.drainTo(b.batch);
+    }
+  }
+}
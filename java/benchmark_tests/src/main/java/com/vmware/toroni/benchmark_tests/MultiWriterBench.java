@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.LockFreeWriter;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.rmp.WriterInfo;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+/**
+ * Writing to one ring buffer from several threads, each with a writer of its
+ * own, with the ring buffer lock ({@code lock}) or with
+ * {@link LockFreeWriter}s ({@code lockFree}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(MultiWriterBench.THREADS)
+public class MultiWriterBench {
+
+  static final int THREADS = 4;
+  static final byte[] MSG = new byte[64];
+
+  static final BackPressureCallback NO_BP_HANDLER = new BackPressureCallback() {
+
+    @Override
+    public boolean writeOrWait(long bpPos, long freePos) {
+      return false;
+    }
+
+  };
+
+  @State(Scope.Benchmark)
+  public static class RingBuf {
+    @Param({ "lock", "lockFree" })
+    public String impl;
+
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    AnonymousMemory writerInfoMem;
+    WriterInfo writerInfo;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      ringBuf = new InMemoryRingBuf(4 * 1024 * 1024, new DirectPthreadRobustMutex());
+      readerInfo = new InMemoryReaderInfo(1);
+
+      writerInfoMem = new AnonymousMemory(WriterInfo.size((short) THREADS, PthreadRobustMutex.getSize()));
+      writerInfo = new WriterInfo(writerInfoMem.ptr(), (short) THREADS, new PthreadRobustMutex());
+      writerInfo.initialize(ringBuf.get().getFreePos());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+      writerInfoMem.unmap();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadWriter {
+    Writer writer;
+    LockFreeWriter lockFreeWriter;
+
+    @Setup(Level.Trial)
+    public void setup(RingBuf s) throws Exception {
+      if (s.impl.equals("lock")) {
+        writer = new Writer(s.ringBuf.get(), s.readerInfo.getRmp());
+      } else {
+        lockFreeWriter = new LockFreeWriter(s.ringBuf.get(), s.readerInfo.getRmp(), s.writerInfo);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (lockFreeWriter != null) {
+        lockFreeWriter.destroy();
+      }
+    }
+  }
+
+  @Benchmark
+  public void write(ThreadWriter w) {
+    if (w.writer != null) {
+      w.writer.writeEx(MSG, NO_BP_HANDLER);
+    } else {
+      w.lockFreeWriter.writeEx(MSG, NO_BP_HANDLER);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.CopyConfirmHandler;
+import com.vmware.toroni.rmp.ReadCallback;
+import com.vmware.toroni.rmp.Reader;
+import com.vmware.toroni.rmp.ReaderWithBackpressure;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.traits.DatagramChannelNotification;
+import com.vmware.toroni.traits.MulticastUdpNotification;
+import com.vmware.toroni.traits.Notification;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+import com.vmware.toroni.traits.posix.FutexNotification;
+
+/**
+ * Reader wakeup benchmarks comparing {@link MulticastUdpNotification}
+ * ({@code udp}), {@link DatagramChannelNotification} ({@code nio}) and
+ * {@link FutexNotification} ({@code futex}).
+ * {@code pingPong} is the round trip of two wakeups between two threads,
+ * {@code rmpTransferWithNotificationOnBp} is the Java equivalent of
+ * cpp/benchmark_tests/rmp/notificationBench.cpp, except that the writer waits
+ * for the reader on backpressure instead of expiring it.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationBench {
+
+  /**
+   * A notification used by one sending and one waiting thread. Each futex
+   * thread needs its own instance, the UDP socket is shared.
+   */
+  static class Channel {
+    final Notification sender;
+    final Notification waiter;
+    final InMemoryRingBuf ringBuf;
+
+    Channel(String impl, String mcastIp, short port) throws Exception {
+      ringBuf = new InMemoryRingBuf(1024 * 1024, new DirectPthreadRobustMutex());
+
+      switch (impl) {
+      case "udp":
+        sender = new MulticastUdpNotification(mcastIp, port, "127.0.0.1");
+        waiter = sender;
+        break;
+      case "nio":
+        sender = new DatagramChannelNotification(mcastIp, port, "127.0.0.1");
+        waiter = sender;
+        break;
+      case "futex":
+        sender = new FutexNotification(ringBuf.get().getNotificationSeqPointer());
+        waiter = new FutexNotification(ringBuf.get().getNotificationSeqPointer());
+        break;
+      default:
+        throw new IllegalArgumentException(impl);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PingPong {
+    @Param({ "udp", "nio", "futex" })
+    public String impl;
+
+    Channel ping;
+    Channel pong;
+    Thread echoThread;
+    volatile boolean stop;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      ping = new Channel(impl, "226.1.1.1", (short) 3334);
+      pong = new Channel(impl, "226.1.1.2", (short) 3335);
+      stop = false;
+
+      echoThread = new Thread(new Runnable() {
+
+        @Override
+        public void run() {
+          while (true) {
+            ping.waiter.waitForNotification();
+            if (stop) {
+              break;
+            }
+            pong.sender.sendNotification();
+          }
+        }
+
+      });
+      echoThread.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+      stop = true;
+      ping.sender.sendNotification();
+      echoThread.join();
+      ping.ringBuf.destroy();
+      pong.ringBuf.destroy();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void pingPong(PingPong s) {
+    s.ping.sender.sendNotification();
+    s.pong.waiter.waitForNotification();
+  }
+
+  @State(Scope.Thread)
+  public static class Transfer {
+    @Param({ "udp", "nio", "futex" })
+    public String impl;
+
+    @Param({ "1", "4" })
+    public int bufMB;
+
+    @Param({ "100" })
+    public int msgsK;
+
+    @Param({ "10" })
+    public int msgSize;
+
+    @Param({ "1", "2" })
+    public int sleepMs;
+
+    Channel channel;
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Writer writer;
+    ReaderWithBackpressure reader;
+    Thread readerThread;
+    byte[] msg;
+    int msgCount;
+    volatile int rcvCount;
+    volatile boolean stop;
+    volatile boolean readerExpired;
+    Semaphore done = new Semaphore(0);
+    BackPressureCallback bpHandler;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      channel = new Channel(impl, "226.1.1.1", (short) 3334);
+      ringBuf = new InMemoryRingBuf(bufMB * 1024L * 1024L, new DirectPthreadRobustMutex());
+      readerInfo = new InMemoryReaderInfo(1);
+      writer = new Writer(ringBuf.get(), readerInfo.getRmp());
+      reader = new ReaderWithBackpressure(ringBuf.get(), readerInfo.getRmp());
+      reader.activate();
+      msg = new byte[msgSize];
+      msgCount = 1000 * msgsK;
+      stop = false;
+
+      final CopyConfirmHandler cch = new CopyConfirmHandler(ringBuf.get(), new ReadCallback() {
+
+        @Override
+        public void messageRecieved(byte[] data, int length) {
+          // notify writer all messages are received
+          if (++rcvCount == msgCount) {
+            done.release();
+          }
+        }
+
+      });
+
+      readerThread = new Thread(new Runnable() {
+
+        @Override
+        public void run() {
+          while (!stop) {
+            channel.waiter.waitForNotification();
+
+            if (reader.readEx(cch) == Reader.Result.EXPIRED_POSITION) {
+              readerExpired = true;
+              done.release();
+              break;
+            }
+          }
+        }
+
+      });
+      readerThread.start();
+
+      bpHandler = new BackPressureCallback() {
+
+        @Override
+        public boolean writeOrWait(long bpPos, long freePos) {
+          // notify on backpressure
+          channel.sender.sendNotification();
+
+          // give reader some time to catch up
+          try {
+            Thread.sleep(sleepMs);
+          } catch (InterruptedException e) {
+            throw new Error(e);
+          }
+
+          return true;
+        }
+
+      };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+      stop = true;
+      channel.sender.sendNotification();
+      readerThread.join();
+      ringBuf.destroy();
+      readerInfo.destroy();
+      channel.ringBuf.destroy();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void rmpTransferWithNotificationOnBp(Transfer s) throws Exception {
+    s.rcvCount = 0;
+
+    for (int i = 1; i <= s.msgCount; i++) {
+      s.writer.writeEx(s.msg, s.bpHandler);
+    }
+
+    // notify after last message
+    s.channel.sender.sendNotification();
+
+    // wait until reader gets all messages
+    s.done.acquire();
+
+    if (s.readerExpired) {
+      throw new IllegalStateException("Reader expired");
+    }
+  }
+}
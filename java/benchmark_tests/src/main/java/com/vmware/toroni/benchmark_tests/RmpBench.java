@@ -0,0 +1,283 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.CopyConfirmHandler;
+import com.vmware.toroni.rmp.ReadCallback;
+import com.vmware.toroni.rmp.ReadViewCallback;
+import com.vmware.toroni.rmp.Reader;
+import com.vmware.toroni.rmp.ReaderInfoInfo;
+import com.vmware.toroni.rmp.ViewConfirmHandler;
+import com.vmware.toroni.rmp.Writer;
+
+/**
+ * Reliable Message Protocol (RMP) benchmarks. Java equivalents of
+ * cpp/benchmark_tests/rmp/rmpBench.cpp. Run with {@code -prof gc} to see the
+ * allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RmpBench {
+
+  static final byte[] MSG = new byte[64];
+
+  static final BackPressureCallback NO_BP_HANDLER = new BackPressureCallback() {
+
+    @Override
+    public boolean writeOrWait(long bpPos, long freePos) {
+      return false;
+    }
+
+  };
+
+  static CopyConfirmHandler blackholeHandler(InMemoryRingBuf ringBuf, Blackhole bh) {
+    return new CopyConfirmHandler(ringBuf.get(), new ReadCallback() {
+
+      @Override
+      public void messageRecieved(byte[] data, int length) {
+        bh.consume(length);
+      }
+
+    });
+  }
+
+  @State(Scope.Thread)
+  public static class WriteWithActiveReaders {
+    @Param({ "0", "64", "128", "192", "256" })
+    public int activeReaders;
+
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Writer writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      ringBuf = new InMemoryRingBuf(4 * 1024 * 1024);
+      readerInfo = new InMemoryReaderInfo(256);
+      writer = new Writer(ringBuf.get(), readerInfo.getRmp());
+
+      for (int i = 0; i < activeReaders; i++) {
+        readerInfo.getRmp().activate(i, 0);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+    }
+  }
+
+  @Benchmark
+  public void rmpWriteWithActiveReaders(WriteWithActiveReaders s) {
+    s.writer.writeEx(MSG, NO_BP_HANDLER);
+  }
+
+  @State(Scope.Thread)
+  public static class WriteWithBufSizeMB {
+    @Param({ "1", "4", "16", "256" })
+    public int bufSizeMB;
+
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Writer writer;
+    Reader reader;
+    ReaderInfoInfo readerPos;
+    CopyConfirmHandler cch;
+    Reader.ResultPosPair result = new Reader.ResultPosPair();
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole bh) throws Exception {
+      ringBuf = new InMemoryRingBuf(bufSizeMB * 1024L * 1024L);
+      readerInfo = new InMemoryReaderInfo(256);
+      writer = new Writer(ringBuf.get(), readerInfo.getRmp());
+      reader = new Reader(ringBuf.get());
+      // an inactive slot, used only to receive the reader position
+      readerPos = readerInfo.getRmp().getInfo(0);
+      cch = blackholeHandler(ringBuf, bh);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+    }
+  }
+
+  @Benchmark
+  public void rmpWriteWithBufSizeMB(WriteWithBufSizeMB s) {
+    s.writer.writeEx(MSG, NO_BP_HANDLER);
+  }
+
+  @Benchmark
+  public Reader.Result rmpSweepingWriteReadWithBufSizeMB(WriteWithBufSizeMB s) {
+    s.writer.writeEx(MSG, NO_BP_HANDLER);
+    return s.reader.readEx(s.result.pos, s.readerPos, s.cch, s.result).res;
+  }
+
+  @State(Scope.Thread)
+  public static class WriteBatch {
+    @Param({ "1", "16", "64" })
+    public int batchSize;
+
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Writer writer;
+    List<byte[]> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      ringBuf = new InMemoryRingBuf(4 * 1024 * 1024);
+      readerInfo = new InMemoryReaderInfo(256);
+      writer = new Writer(ringBuf.get(), readerInfo.getRmp());
+      batch = new ArrayList<>();
+      for (int i = 0; i < batchSize; i++) {
+        batch.add(MSG);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+    }
+  }
+
+  /** Writes the batch one message at a time, taking the lock per message. */
+  @Benchmark
+  public void rmpWriteBatchOneByOne(WriteBatch s) {
+    for (int i = 0; i < s.batch.size(); i++) {
+      s.writer.writeEx(s.batch.get(i), NO_BP_HANDLER);
+    }
+  }
+
+  @Benchmark
+  public void rmpWriteBatch(WriteBatch s) {
+    s.writer.writeBatch(s.batch, NO_BP_HANDLER);
+  }
+
+  /**
+   * Encodes a struct of {@code fields} longs, e.g. a market data update, into
+   * the ring buffer.
+   */
+  @State(Scope.Thread)
+  public static class Encode {
+    @Param({ "8", "64" })
+    public int fields;
+
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Writer writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      ringBuf = new InMemoryRingBuf(4 * 1024 * 1024);
+      readerInfo = new InMemoryReaderInfo(256);
+      writer = new Writer(ringBuf.get(), readerInfo.getRmp());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+    }
+  }
+
+  /** Encodes into a new array, then writes it. */
+  @Benchmark
+  public void rmpEncodeWrite(Encode s) {
+    ByteBuffer bb = ByteBuffer.allocate(s.fields * Long.BYTES);
+    for (int i = 0; i < s.fields; i++) {
+      bb.putLong(i);
+    }
+    s.writer.writeEx(bb.array(), NO_BP_HANDLER);
+  }
+
+  /** Encodes in place in the ring buffer. */
+  @Benchmark
+  public void rmpEncodeClaimCommit(Encode s) {
+    ByteBuffer bb = s.writer.claim(s.fields * Long.BYTES, NO_BP_HANDLER);
+    for (int i = 0; i < s.fields; i++) {
+      bb.putLong(i);
+    }
+    s.writer.commit();
+  }
+
+  @State(Scope.Thread)
+  public static class Read {
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Reader reader;
+    ReaderInfoInfo readerPos;
+    CopyConfirmHandler cch;
+    ViewConfirmHandler vch;
+    Reader.ResultPosPair result = new Reader.ResultPosPair();
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole bh) throws Exception {
+      ringBuf = new InMemoryRingBuf(4 * 1024 * 1024);
+      readerInfo = new InMemoryReaderInfo(256);
+      reader = new Reader(ringBuf.get());
+      readerPos = readerInfo.getRmp().getInfo(0);
+      cch = blackholeHandler(ringBuf, bh);
+      vch = new ViewConfirmHandler(ringBuf.get(), new ReadViewCallback() {
+
+        @Override
+        public boolean messageViewed(ByteBuffer data) {
+          bh.consume(data.remaining());
+          return true;
+        }
+
+        @Override
+        public void messageConfirmed() {
+        }
+
+      });
+
+      new Writer(ringBuf.get(), readerInfo.getRmp()).writeEx(MSG, NO_BP_HANDLER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+    }
+  }
+
+  @Benchmark
+  public Reader.Result rmpRead(Read s) {
+    return s.reader.readEx(0, s.readerPos, s.cch, s.result).res;
+  }
+
+  @Benchmark
+  public Reader.Result rmpReadView(Read s) {
+    return s.reader.readEx(0, s.readerPos, s.vch, s.result).res;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.traits.RobustMutex;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+/**
+ * Uncontended robust mutex benchmarks comparing the JNA Library proxy
+ * ({@code jna}) with JNA direct mapping ({@code direct}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobustMutexBench {
+
+  static RobustMutex newMutex(String impl) {
+    switch (impl) {
+    case "jna":
+      return new PthreadRobustMutex();
+    case "direct":
+      return new DirectPthreadRobustMutex();
+    default:
+      throw new IllegalArgumentException(impl);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Mutex {
+    @Param({ "jna", "direct" })
+    public String impl;
+
+    AnonymousMemory mem;
+    RobustMutex mtx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      mtx = newMutex(impl);
+      mem = new AnonymousMemory(mtx.size());
+      mtx.initialize(mem.ptr());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      mem.unmap();
+    }
+  }
+
+  @Benchmark
+  public void lockUnlock(Mutex s) {
+    s.mtx.lock();
+    s.mtx.unlock();
+  }
+
+  @Benchmark
+  public void tryLockUnlock(Mutex s) {
+    if (s.mtx.tryLock()) {
+      s.mtx.unlock();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Write {
+    @Param({ "jna", "direct" })
+    public String impl;
+
+    InMemoryRingBuf ringBuf;
+    InMemoryReaderInfo readerInfo;
+    Writer writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      ringBuf = new InMemoryRingBuf(4 * 1024 * 1024, newMutex(impl));
+      readerInfo = new InMemoryReaderInfo(256);
+      writer = new Writer(ringBuf.get(), readerInfo.getRmp());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      ringBuf.destroy();
+      readerInfo.destroy();
+    }
+  }
+
+  @Benchmark
+  public void rmpWrite(Write s) {
+    s.writer.writeEx(RmpBench.MSG, RmpBench.NO_BP_HANDLER);
+  }
+}
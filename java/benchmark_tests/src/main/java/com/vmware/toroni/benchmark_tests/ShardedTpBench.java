@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.tp.AsyncWriter;
+import com.vmware.toroni.tp.ReaderInfo;
+import com.vmware.toroni.tp.ShardedAsyncWriter;
+import com.vmware.toroni.tp.TopicPublisher;
+import com.vmware.toroni.tp.TopicShards;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+
+/**
+ * Publishing from several threads, each to a topic of its own, with one ring
+ * buffer ({@code shards=1}) or with the topics spread over as many shards as
+ * threads, so that writers do not contend on the ring buffer lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(ShardedTpBench.THREADS)
+public class ShardedTpBench {
+
+  static final int THREADS = 4;
+  static final byte[] MSG = new byte[64];
+
+  @State(Scope.Benchmark)
+  public static class Shards {
+    @Param({ "1", "4" })
+    public int shards;
+
+    InMemoryRingBuf[] ringBufs;
+    InMemoryReaderInfo[] readerInfos;
+    ShardedAsyncWriter writer;
+    AtomicInteger nextThread = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+      ringBufs = new InMemoryRingBuf[shards];
+      readerInfos = new InMemoryReaderInfo[shards];
+      ByteRingBuffer[] rbs = new ByteRingBuffer[shards];
+      ReaderInfo[] ris = new ReaderInfo[shards];
+
+      for (int i = 0; i < shards; i++) {
+        ringBufs[i] = new InMemoryRingBuf(4 * 1024 * 1024, new DirectPthreadRobustMutex());
+        readerInfos[i] = new InMemoryReaderInfo(1);
+        rbs[i] = ringBufs[i].get();
+        ris[i] = readerInfos[i].get();
+      }
+
+      writer = ShardedAsyncWriter.create(new TopicShards(rbs, ris), new ShardedAsyncWriter.WriterFactory() {
+
+        @Override
+        public AsyncWriter create(int shard, ByteRingBuffer ringBuf, ReaderInfo readerInfo) {
+          // only publishers are used
+          return AsyncWriter.create(ringBuf, readerInfo, null, new AsyncWriter.DrainMsgToFn() {
+
+            @Override
+            public void run(List<byte[]> batch) {
+            }
+
+          }, null, new BackPressureCallback() {
+
+            @Override
+            public boolean writeOrWait(long bpPos, long freePos) {
+              return false;
+            }
+
+          }, new Runnable() {
+
+            @Override
+            public void run() {
+            }
+
+          });
+        }
+
+      });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      for (int i = 0; i < shards; i++) {
+        ringBufs[i].destroy();
+        readerInfos[i].destroy();
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Publisher {
+    TopicPublisher publisher;
+
+    @Setup(Level.Trial)
+    public void setup(Shards s) {
+      // a topic in the shard of this thread
+      int shard = s.nextThread.getAndIncrement() % s.shards;
+      TopicShards shards = s.writer.getShards();
+      EncodedTopic topic;
+      for (int i = 0;; i++) {
+        topic = new EncodedTopic("/t" + i + "/channel");
+        if (shards.shardOf(topic) == shard) {
+          break;
+        }
+      }
+
+      publisher = s.writer.createPublisher(topic, false);
+    }
+  }
+
+  @Benchmark
+  public void publish(Publisher p) throws Exception {
+    p.publisher.publish(MSG, false);
+  }
+}
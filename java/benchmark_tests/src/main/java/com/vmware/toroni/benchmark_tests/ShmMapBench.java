@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import static com.sun.jna.platform.linux.Fcntl.S_IRUSR;
+import static com.sun.jna.platform.linux.Fcntl.S_IWUSR;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.traits.SharedMemory;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+import com.vmware.toroni.traits.posix.PosixSharedMemoryFactory;
+
+/**
+ * Writing to a ring buffer in POSIX shared memory mapped with each of the
+ * PosixSharedMemoryFactory map options. {@code firstPass} writes over a freshly
+ * mapped segment once, so it includes the page faults that the options move
+ * out of the hot path, but not the cost of mapping; {@code steadyState} writes
+ * over pages that are already faulted in.
+ */
+@Fork(1)
+public class ShmMapBench {
+
+  static final String SHM_NAME = "toroni-bench-map";
+  static final long BUF_SIZE = 64 * 1024 * 1024;
+  static final byte[] MSG = new byte[1024];
+
+  static final BackPressureCallback NO_BP_HANDLER = new BackPressureCallback() {
+
+    @Override
+    public boolean writeOrWait(long bpPos, long freePos) {
+      return false;
+    }
+
+  };
+
+  @State(Scope.Thread)
+  public static class Mapping {
+    @Param({ "none", "populate", "preTouch", "hugePages", "hugePagesPopulate", "lock" })
+    public String options;
+
+    SharedMemory shm;
+    Writer writer;
+    InMemoryReaderInfo readerInfo = new InMemoryReaderInfo(1);
+
+    int mapOptions() {
+      switch (options) {
+      case "none":
+        return 0;
+      case "populate":
+        return PosixSharedMemoryFactory.POPULATE;
+      case "preTouch":
+        return PosixSharedMemoryFactory.PRE_TOUCH;
+      case "hugePages":
+        return PosixSharedMemoryFactory.HUGE_PAGES;
+      case "hugePagesPopulate":
+        return PosixSharedMemoryFactory.HUGE_PAGES | PosixSharedMemoryFactory.POPULATE;
+      case "lock":
+        return PosixSharedMemoryFactory.LOCK;
+      default:
+        throw new IllegalArgumentException(options);
+      }
+    }
+
+    // a fresh segment for each iteration, so that each first pass faults
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+      shm = PosixSharedMemoryFactory.createOrOpen(SHM_NAME,
+          ByteRingBuffer.size(BUF_SIZE, DirectPthreadRobustMutex.getSize()), S_IRUSR | S_IWUSR, mapOptions());
+
+      ByteRingBuffer ringBuf = new ByteRingBuffer(shm.ptr(), BUF_SIZE, new DirectPthreadRobustMutex());
+      ringBuf.initialize();
+      writer = new Writer(ringBuf, readerInfo.getRmp());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+      shm.unlink();
+      shm.unmap();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 10)
+  public void firstPass(Mapping m) {
+    for (long written = 0; written < BUF_SIZE; written += MSG.length) {
+      m.writer.writeEx(MSG, NO_BP_HANDLER);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  public void steadyState(Mapping m) {
+    m.writer.writeEx(MSG, NO_BP_HANDLER);
+  }
+}
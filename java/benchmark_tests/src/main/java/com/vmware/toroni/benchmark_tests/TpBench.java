@@ -0,0 +1,284 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.tp.AsyncWriter;
+import com.vmware.toroni.tp.ChannelReader;
+import com.vmware.toroni.tp.Reader;
+import com.vmware.toroni.tp.TopicPublisher;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+import com.vmware.toroni.tp.detail.TopicIndex;
+import com.vmware.toroni.tp.detail.TopicMsgDeserializer;
+import com.vmware.toroni.tp.detail.TopicMsgSerializer;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+
+/**
+ * Topic Protocol (TP) benchmarks. Java equivalents of
+ * cpp/benchmark_tests/tp/tpBench.cpp.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TpBench {
+
+  static final String CHANNEL = "/channel/foo/bar";
+  static final EncodedTopic CHANNEL_V1 = new EncodedTopic(CHANNEL);
+  static final EncodedTopic NO_MATCH_V1 = new EncodedTopic("/channel/foo/baz");
+  static final byte[] MSG = new byte[64];
+
+  InMemoryRingBuf ringBuf;
+  InMemoryReaderInfo readerInfo;
+  ArrayList<byte[]> msgQueue;
+  AsyncWriter writer;
+  byte[] tpMsg;
+  byte[] tpMsgV1;
+  Writer rmpWriter;
+  TopicPublisher publisher;
+  BackPressureCallback noBackPressure;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    ringBuf = new InMemoryRingBuf(4 * 1024 * 1024, new DirectPthreadRobustMutex());
+    readerInfo = new InMemoryReaderInfo(1);
+    msgQueue = new ArrayList<>();
+
+    writer = AsyncWriter.create(ringBuf.get(), readerInfo.get(),
+        new AsyncWriter.EnqueueMsgFn() {
+
+          @Override
+          public boolean run(byte[] topicMsg) {
+            msgQueue.add(topicMsg);
+            return true;
+          }
+
+        },
+        new AsyncWriter.DrainMsgFn() {
+
+          @Override
+          public ArrayList<byte[]> run() {
+            ArrayList<byte[]> tmp = msgQueue;
+            msgQueue = new ArrayList<>();
+            return tmp;
+          }
+
+        },
+        new AsyncWriter.EnqueueWorkFn() {
+
+          @Override
+          public void run(Runnable workFn) {
+            workFn.run();
+          }
+
+        },
+        new BackPressureCallback() {
+
+          @Override
+          public boolean writeOrWait(long bpPos, long freePos) {
+            return false;
+          }
+
+        },
+        new Runnable() {
+
+          @Override
+          public void run() {
+          }
+
+        });
+
+    tpMsg = writer.createMessage(CHANNEL, MSG, true);
+    tpMsgV1 = writer.createMessage(CHANNEL_V1, MSG, true);
+
+    rmpWriter = new Writer(ringBuf.get(), readerInfo.get().rmpReaderInfo);
+    publisher = writer.createPublisher(CHANNEL, true);
+    noBackPressure = new BackPressureCallback() {
+
+      @Override
+      public boolean writeOrWait(long bpPos, long freePos) {
+        return false;
+      }
+
+    };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ringBuf.destroy();
+    readerInfo.destroy();
+  }
+
+  @State(Scope.Thread)
+  public static class SweepReader {
+    Reader reader;
+
+    @Setup(Level.Trial)
+    public void setup(TpBench tp, Blackhole bh) {
+      Reader.EnqueueSerialFn workFn = new Reader.EnqueueSerialFn() {
+
+        @Override
+        public void run(Runnable fn) {
+          fn.run();
+        }
+
+      };
+      reader = Reader.create(tp.ringBuf.get(), tp.readerInfo.get(), workFn, workFn,
+          new Reader.ChannelReaderEventCallback() {
+
+            @Override
+            public void run(Reader.ChannelReaderEventType et) {
+            }
+
+          });
+      reader.createChannelReader(CHANNEL, new ChannelReader.Handler() {
+
+        @Override
+        public void run(ByteBuffer data) {
+          bh.consume(data);
+        }
+
+      }, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      reader.destroy();
+    }
+  }
+
+  @Benchmark
+  public byte[] createMessage() throws Exception {
+    return writer.createMessage(CHANNEL, MSG, true);
+  }
+
+  @Benchmark
+  public void postProcWriter() {
+    writer.post(tpMsg);
+  }
+
+  @Benchmark
+  public void sweepPostRead(SweepReader s) {
+    writer.post(tpMsg);
+    s.reader.run();
+  }
+
+  /** Synchronous write of a message created per call. */
+  @Benchmark
+  public void createMessageWrite() throws Exception {
+    rmpWriter.writeEx(writer.createMessage(CHANNEL, MSG, true), noBackPressure);
+  }
+
+  @Benchmark
+  public void publish() throws Exception {
+    publisher.publish(MSG, false);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    byte[] rbMsg = new byte[TopicMsgSerializer.sizeOf(CHANNEL, MSG.length)];
+    TopicMsgSerializer.serialize(rbMsg, 0, true, CHANNEL, MSG);
+    return rbMsg;
+  }
+
+  @Benchmark
+  public boolean deserializeAndFilterMatch() {
+    return TopicMsgDeserializer.deserializeAndFilter(tpMsg, tpMsg.length, 0, CHANNEL, false).result;
+  }
+
+  @Benchmark
+  public boolean deserializeAndFilterNoMatch() {
+    return TopicMsgDeserializer.deserializeAndFilter(tpMsg, tpMsg.length, 0, "/channel/foo/baz", false).result;
+  }
+
+  @Benchmark
+  public byte[] serializeV1() {
+    byte[] rbMsg = new byte[TopicMsgSerializer.sizeOf(CHANNEL_V1, MSG.length)];
+    TopicMsgSerializer.serialize(rbMsg, 0, true, CHANNEL_V1, MSG);
+    return rbMsg;
+  }
+
+  @Benchmark
+  public boolean deserializeAndFilterV1Match() {
+    return TopicMsgDeserializer.deserializeAndFilter(tpMsgV1, tpMsgV1.length, 0, CHANNEL_V1, false).result;
+  }
+
+  @Benchmark
+  public boolean deserializeAndFilterV1NoMatch() {
+    return TopicMsgDeserializer.deserializeAndFilter(tpMsgV1, tpMsgV1.length, 0, NO_MATCH_V1, false).result;
+  }
+
+  /**
+   * Channel readers on /channel/foo/0 ... /channel/foo/(n-1) and
+   * /channel/foo/bar, i.e. the message matches one of them.
+   */
+  @State(Scope.Thread)
+  public static class ChannelReaders {
+    @Param({ "1", "16", "256" })
+    public int channelReaders;
+
+    ArrayList<ChannelReader> list;
+    TopicIndex index;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole bh) {
+      ChannelReader.Handler handler = new ChannelReader.Handler() {
+
+        @Override
+        public void run(ByteBuffer data) {
+          bh.consume(data);
+        }
+
+      };
+
+      list = new ArrayList<>();
+      for (int i = 0; i < channelReaders - 1; i++) {
+        list.add(new ChannelReader("/channel/foo/" + i, handler, false, 0));
+      }
+      list.add(new ChannelReader(CHANNEL, handler, false, 0));
+      index = new TopicIndex(list);
+    }
+  }
+
+  /** Dispatch as tp.Reader did before the topic index. */
+  @Benchmark
+  public void dispatchDeserializeEach(ChannelReaders s) {
+    for (ChannelReader cr : s.list) {
+      TopicMsgDeserializer.ResultMessagePair deserialized = TopicMsgDeserializer.deserializeAndFilter(
+          tpMsg, tpMsg.length, cr._readerGen, cr._name, cr._handleDescendants);
+      if (deserialized.result) {
+        cr._handler.run(deserialized.message);
+      }
+    }
+  }
+
+  @Benchmark
+  public int dispatchTopicIndex(ChannelReaders s) {
+    return s.index.dispatch(tpMsg, tpMsg.length);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.benchmark_tests;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.toroni.traits.concurrent.ExecutorSerialWorkItemQueue;
+import com.vmware.toroni.traits.concurrent.SerialWorkItemQueue;
+
+/**
+ * Serial work item queue benchmarks: the cost of enqueueing a no-op work item
+ * that is run by a thread owned by the queue ({@code thread}) or by a pool
+ * ({@code executor}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkItemQueueBench {
+
+  static final Runnable NOOP = new Runnable() {
+
+    @Override
+    public void run() {
+    }
+
+  };
+
+  @State(Scope.Thread)
+  public static class Queue {
+    @Param({ "thread", "executor" })
+    public String impl;
+
+    SerialWorkItemQueue threadQueue;
+    ExecutorService pool;
+    ExecutorSerialWorkItemQueue executorQueue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      if (impl.equals("thread")) {
+        threadQueue = SerialWorkItemQueue.start();
+      } else {
+        pool = Executors.newFixedThreadPool(1);
+        executorQueue = ExecutorSerialWorkItemQueue.create(pool, 64 * 1024);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (impl.equals("thread")) {
+        threadQueue.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+      } else {
+        executorQueue.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+        pool.shutdown();
+      }
+    }
+  }
+
+  @Benchmark
+  public void enqueue(Queue q) {
+    if (q.threadQueue != null) {
+      q.threadQueue.enqueue(NOOP);
+    } else {
+      q.executorQueue.enqueue(NOOP);
+    }
+  }
+}
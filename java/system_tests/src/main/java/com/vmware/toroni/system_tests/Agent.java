@@ -11,23 +11,34 @@ import static com.sun.jna.platform.linux.Fcntl.S_IWUSR;
 import com.sun.jna.Pointer;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.vmware.toroni.metrics.Metrics;
+import com.vmware.toroni.metrics.MetricsMXBean;
+import com.vmware.toroni.metrics.ReaderMetrics;
+import com.vmware.toroni.metrics.WriterMetrics;
 import com.vmware.toroni.rmp.BackPressureCallback;
 import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.SleeperAwareNotification;
 import com.vmware.toroni.tp.AsyncWriter;
 import com.vmware.toroni.tp.ChannelReader;
 import com.vmware.toroni.tp.Reader.ChannelReaderEventType;
+import com.vmware.toroni.traits.BackoffIdleStrategy;
+import com.vmware.toroni.traits.DatagramChannelNotification;
+import com.vmware.toroni.traits.IdleStrategy;
 import com.vmware.toroni.traits.MulticastUdpNotification;
-import com.vmware.toroni.traits.posix.PosixSharedMemoryFactory;
-import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+import com.vmware.toroni.traits.Notification;
+import com.vmware.toroni.traits.posix.FutexNotification;
+import com.vmware.toroni.traits.posix.SharedMemoryBackends;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
 import com.vmware.toroni.traits.SharedMemory;
-import com.vmware.toroni.traits.concurrent.MpscMessageQueue;
+import com.vmware.toroni.traits.SharedMemoryFactory;
+import com.vmware.toroni.traits.concurrent.LockFreeMpscMessageQueue;
 
 public class Agent {
 
@@ -42,25 +53,37 @@ public class Agent {
   static final SharedMemory ringBufShm;
   static final SharedMemory readerInfoShm;
   static final SharedMemory statsShm;
+  static final SharedMemory metricsShm; // null if metrics are not collected
   static final ByteRingBuffer ringBuf;
   static final com.vmware.toroni.tp.ReaderInfo readerInfo;
   static final com.vmware.toroni.rmp.ReaderInfo rmpReaderInfo;
   static final AgentStats agentStats;
-  static final MulticastUdpNotification udpNotification;
+  static final Notification notification;
+  static final Metrics metrics; // null if not collected
 
   static {
     try {
-      ringBufShm = PosixSharedMemoryFactory.createOrOpen(
+      // The processes of a run open the segments by name, which memfd
+      // segments do not have.
+      if (Config.getOptShmBackend().startsWith(SharedMemoryBackends.MEMFD)) {
+        throw new Exception("Shared memory backend cannot be opened by name");
+      }
+
+      SharedMemoryFactory shmFactory = SharedMemoryBackends.create(Config.getOptShmBackend(),
+          Config.getOptShmMapOptions());
+      SharedMemoryFactory statsShmFactory = SharedMemoryBackends.create(Config.getOptShmBackend(), 0);
+
+      ringBufShm = shmFactory.createOrOpen(
           "toroni-burst-rb",
-          ByteRingBuffer.size(Config.getOptRingBufSize(), PthreadRobustMutex.getSize()),
+          ByteRingBuffer.size(Config.getOptRingBufSize(), DirectPthreadRobustMutex.getSize()),
           S_IRUSR | S_IWUSR);
 
-      readerInfoShm = PosixSharedMemoryFactory.createOrOpen(
+      readerInfoShm = shmFactory.createOrOpen(
           "toroni-burst-ri",
-          com.vmware.toroni.tp.ReaderInfo.size((short) Config.getOptMaxReaders(), PthreadRobustMutex.getSize()),
+          com.vmware.toroni.tp.ReaderInfo.size((short) Config.getOptMaxReaders(), DirectPthreadRobustMutex.getSize()),
           S_IRUSR | S_IWUSR);
 
-      statsShm = PosixSharedMemoryFactory.createOrOpen(
+      statsShm = statsShmFactory.createOrOpen(
           "toroni-burst-s",
           AgentStats.size(),
           S_IRUSR | S_IWUSR);
@@ -68,18 +91,41 @@ public class Agent {
       ringBuf = new ByteRingBuffer(
           ringBufShm.ptr(),
           Config.getOptRingBufSize(),
-          new PthreadRobustMutex());
+          new DirectPthreadRobustMutex());
 
       short maxReaders = (short) Config.getOptMaxReaders();
 
       readerInfo = new com.vmware.toroni.tp.ReaderInfo(readerInfoShm.ptr(), maxReaders,
-          new PthreadRobustMutex());
+          new DirectPthreadRobustMutex());
 
       rmpReaderInfo = readerInfo.rmpReaderInfo;
 
       agentStats = new AgentStats(statsShm.ptr());
 
-      udpNotification = new MulticastUdpNotification("224.1.1.1", (short) 3334, "127.0.0.1");
+      if (Config.getOptMetrics()) {
+        short writerSlots = (short) Config.getOptWriters();
+
+        metricsShm = statsShmFactory.createOrOpen(
+            "toroni-burst-m",
+            Metrics.size(maxReaders, writerSlots),
+            S_IRUSR | S_IWUSR);
+        metrics = new Metrics(metricsShm.ptr(), maxReaders, writerSlots);
+      } else {
+        metricsShm = null;
+        metrics = null;
+      }
+
+      switch (Config.getOptNotification()) {
+        case NIO:
+          notification = new DatagramChannelNotification("224.1.1.1", (short) 3334, "127.0.0.1");
+          break;
+        case FUTEX:
+          notification = new FutexNotification(ringBuf.getNotificationSeqPointer());
+          break;
+        default:
+          notification = new MulticastUdpNotification("224.1.1.1", (short) 3334, "127.0.0.1");
+          break;
+      }
     } catch (Exception e) {
       throw new Error(e);
     }
@@ -95,6 +141,10 @@ public class Agent {
     LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "init readerInfo done");
     agentStats.initialize();
     LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "init agentStats done");
+    if (metrics != null) {
+      metrics.initialize();
+      LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "init metrics done");
+    }
     LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "init end");
 
     LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "init took "
@@ -105,6 +155,10 @@ public class Agent {
     LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "writer start");
     long startMs = System.currentTimeMillis();
 
+    final SleeperAwareNotification sleeperAwareNotification = new SleeperAwareNotification(notification,
+        rmpReaderInfo, null);
+    final Notification writerNotification = Config.getOptNotifySleepersOnly() ? sleeperAwareNotification
+        : notification;
     final AtomicLong notificationNs = new AtomicLong(0);
     Runnable notifyCb = new Runnable() {
 
@@ -112,14 +166,15 @@ public class Agent {
       public void run() {
         LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "write notify start");
         long startNs = System.nanoTime();
-        udpNotification.sendNotification();
+        writerNotification.sendNotification();
         notificationNs.set(notificationNs.addAndGet(System.nanoTime() - startNs));
         LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "writer notify end");
       }
 
     };
 
-    MpscMessageQueue<byte[]> msqQueue = new MpscMessageQueue<>();
+    WriterMetrics writerMetrics = metrics != null ? metrics.allocWriter() : null;
+    LockFreeMpscMessageQueue<byte[]> msqQueue = new LockFreeMpscMessageQueue<>();
     final AtomicReference<Runnable> wrk = new AtomicReference<>();
     AsyncWriter writer = AsyncWriter.create(
         ringBuf, readerInfo,
@@ -131,11 +186,11 @@ public class Agent {
           }
 
         },
-        new AsyncWriter.DrainMsgFn() {
+        new AsyncWriter.DrainMsgToFn() {
 
           @Override
-          public ArrayList<byte[]> run() {
-            return msqQueue.drain();
+          public void run(List<byte[]> batch) {
+            msqQueue.drainTo(batch);
           }
 
         },
@@ -157,7 +212,8 @@ public class Agent {
           }
 
         },
-        notifyCb);
+        notifyCb,
+        writerMetrics);
 
     testPolicy.initWriter(writer);
     testPolicy.syncAllWriters();
@@ -183,6 +239,11 @@ public class Agent {
 
     agentStats.incWriterDurationNsSum(elapsedTimeInNs);
     agentStats.incNotificationNsSum(notificationNs.get());
+    agentStats.incSuppressedNotifications(sleeperAwareNotification.getSuppressed());
+
+    if (writerMetrics != null) {
+      writerMetrics.free();
+    }
 
     LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "writer end");
   }
@@ -193,6 +254,7 @@ public class Agent {
     long startMs = System.currentTimeMillis();
 
     AtomicBoolean readerExpired = new AtomicBoolean(false);
+    ReaderMetrics readerMetrics = metrics != null ? metrics.allocReader() : null;
 
     com.vmware.toroni.tp.Reader reader = com.vmware.toroni.tp.Reader.create(
         ringBuf, readerInfo,
@@ -223,7 +285,8 @@ public class Agent {
             }
           }
 
-        });
+        },
+        readerMetrics);
 
     reader.createChannelReader(
         "channel",
@@ -237,6 +300,21 @@ public class Agent {
         },
         false);
 
+    IdleStrategy.AvailableFn availableFn = new IdleStrategy.AvailableFn() {
+
+      @Override
+      public boolean run() {
+        return reader.messagesAvailable();
+      }
+
+    };
+    Notification readerNotification = Config.getOptNotifySleepersOnly()
+        ? new SleeperAwareNotification(notification, rmpReaderInfo, availableFn)
+        : notification;
+    BackoffIdleStrategy idleStrategy = new BackoffIdleStrategy(readerNotification, availableFn,
+        Config.getOptIdleSpins(), Config.getOptIdleYields(), Config.getOptIdleMinParkUs() * 1000,
+        Config.getOptIdleMaxParkUs() * 1000);
+
     long runCount = 0;
     agentStats.incReadersReady(1);
 
@@ -246,7 +324,7 @@ public class Agent {
 
     while (testPolicy.readMore()) {
       LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "reader wait start");
-      udpNotification.waitForNotification();
+      idleStrategy.idle();
       LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "reader wait end");
 
       long readingStartMs = System.currentTimeMillis();
@@ -260,7 +338,15 @@ public class Agent {
 
     reader.destroy();
 
+    if (readerMetrics != null) {
+      readerMetrics.free();
+    }
+
     agentStats.incReaderRuns(runCount);
+    agentStats.incIdleSpinWakeups(idleStrategy.getSpinWakeups());
+    agentStats.incIdleYieldWakeups(idleStrategy.getYieldWakeups());
+    agentStats.incIdleParkWakeups(idleStrategy.getParkWakeups());
+    agentStats.incIdleNotificationWakeups(idleStrategy.getNotificationWakeups());
     LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "reader end");
   }
 
@@ -269,6 +355,9 @@ public class Agent {
       ringBufShm.unlink();
       readerInfoShm.unlink();
       statsShm.unlink();
+      if (metricsShm != null) {
+        metricsShm.unlink();
+      }
     } catch (Exception e) {
       throw new Error(e);
     }
@@ -302,10 +391,29 @@ public class Agent {
     System.out.println("Sum throughput-first-last-duration: " +
         (double) agentStats.getFirstLastDurationNsSum() / MS_NANOSEC + " (ms)");
     System.out.println("Avg-latency: " + LatencyTest.avgLatencyMs() + " (ms)");
+    System.out.println("Latency percentiles: " + LatencyHistogram.read(agentStats).format()
+        + " (ms, OVER=count above " + Config.getOptLatencyThresholdUs() + " us)");
     System.out.println("Avg-throughput-first-last: " +
         ThroughputTest.avgThroughputKMsgSec() + " (Kmsg/sec)");
     System.out.println("Readers ready: " + agentStats.getReadersReady());
     System.out.println("Recieved messages: " + agentStats.getMsgCount());
+    System.out.println("Suppressed notifications: " + agentStats.getSuppressedNotifications());
+    System.out.println("Reader idle wakeups spin/yield/park/notification: " + agentStats.getIdleSpinWakeups()
+        + "/" + agentStats.getIdleYieldWakeups() + "/" + agentStats.getIdleParkWakeups() + "/"
+        + agentStats.getIdleNotificationWakeups());
+
+    if (metrics != null) {
+      MetricsMXBean totals = metrics.getTotals();
+      System.out.println("Metrics reader messages/bytes/passes/expiries: " + totals.getReaderMessages() + "/"
+          + totals.getReaderBytes() + "/" + totals.getReadPasses() + "/" + totals.getReaderExpiries());
+      System.out.println("Metrics writer messages/bytes: " + totals.getWriterMessages() + "/"
+          + totals.getWriterBytes());
+      System.out.println("Metrics backpressure waits: " + totals.getBackpressureWaits() + ", "
+          + (double) totals.getBackpressureWaitNs() / MS_NANOSEC + " (ms)");
+      System.out.println("Metrics lock acquires: " + totals.getLockAcquires() + ", wait "
+          + (double) totals.getLockWaitNs() / MS_NANOSEC + " (ms), hold "
+          + (double) totals.getLockHoldNs() / MS_NANOSEC + " (ms)");
+    }
   }
 
   public static int runCmpReceivedMessages(long arg2) {
@@ -20,6 +20,14 @@ public class AgentStats {
   public static final long READERS_READY_OFFSET = MSG_COUNT_OFFSET + Long.BYTES;
   public static final long WRITERS_READY_OFFSET = READERS_READY_OFFSET + Long.BYTES;
   public static final long READER_RUNS_OFFSET = WRITERS_READY_OFFSET + Long.BYTES;
+  public static final long IDLE_SPIN_WAKEUPS_OFFSET = READER_RUNS_OFFSET + Long.BYTES;
+  public static final long IDLE_YIELD_WAKEUPS_OFFSET = IDLE_SPIN_WAKEUPS_OFFSET + Long.BYTES;
+  public static final long IDLE_PARK_WAKEUPS_OFFSET = IDLE_YIELD_WAKEUPS_OFFSET + Long.BYTES;
+  public static final long IDLE_NOTIFICATION_WAKEUPS_OFFSET = IDLE_PARK_WAKEUPS_OFFSET + Long.BYTES;
+  public static final long SUPPRESSED_NOTIFICATIONS_OFFSET = IDLE_NOTIFICATION_WAKEUPS_OFFSET + Long.BYTES;
+  public static final long LATENCY_NS_MAX_OFFSET = SUPPRESSED_NOTIFICATIONS_OFFSET + Long.BYTES;
+  public static final long LATENCY_OVER_THRESHOLD_OFFSET = LATENCY_NS_MAX_OFFSET + Long.BYTES;
+  public static final long LATENCY_BUCKETS_OFFSET = LATENCY_OVER_THRESHOLD_OFFSET + Long.BYTES;
 
   public final long STATS_ADDRESS;
   public final long LATENCY_NS_SUM_ADDRESS;
@@ -30,6 +38,14 @@ public class AgentStats {
   public final long READERS_READY_ADDRESS;
   public final long WRITERS_READY_ADDRESS;
   public final long READER_RUNS_ADDRESS;
+  public final long IDLE_SPIN_WAKEUPS_ADDRESS;
+  public final long IDLE_YIELD_WAKEUPS_ADDRESS;
+  public final long IDLE_PARK_WAKEUPS_ADDRESS;
+  public final long IDLE_NOTIFICATION_WAKEUPS_ADDRESS;
+  public final long SUPPRESSED_NOTIFICATIONS_ADDRESS;
+  public final long LATENCY_NS_MAX_ADDRESS;
+  public final long LATENCY_OVER_THRESHOLD_ADDRESS;
+  public final long LATENCY_BUCKETS_ADDRESS;
 
   private static Unsafe _unsafe;
 
@@ -56,10 +72,18 @@ public class AgentStats {
     READERS_READY_ADDRESS = STATS_ADDRESS + READERS_READY_OFFSET;
     WRITERS_READY_ADDRESS = STATS_ADDRESS + WRITERS_READY_OFFSET;
     READER_RUNS_ADDRESS = STATS_ADDRESS + READER_RUNS_OFFSET;
+    IDLE_SPIN_WAKEUPS_ADDRESS = STATS_ADDRESS + IDLE_SPIN_WAKEUPS_OFFSET;
+    IDLE_YIELD_WAKEUPS_ADDRESS = STATS_ADDRESS + IDLE_YIELD_WAKEUPS_OFFSET;
+    IDLE_PARK_WAKEUPS_ADDRESS = STATS_ADDRESS + IDLE_PARK_WAKEUPS_OFFSET;
+    IDLE_NOTIFICATION_WAKEUPS_ADDRESS = STATS_ADDRESS + IDLE_NOTIFICATION_WAKEUPS_OFFSET;
+    SUPPRESSED_NOTIFICATIONS_ADDRESS = STATS_ADDRESS + SUPPRESSED_NOTIFICATIONS_OFFSET;
+    LATENCY_NS_MAX_ADDRESS = STATS_ADDRESS + LATENCY_NS_MAX_OFFSET;
+    LATENCY_OVER_THRESHOLD_ADDRESS = STATS_ADDRESS + LATENCY_OVER_THRESHOLD_OFFSET;
+    LATENCY_BUCKETS_ADDRESS = STATS_ADDRESS + LATENCY_BUCKETS_OFFSET;
   }
 
   public static long size() {
-    return Long.BYTES * 8;
+    return Long.BYTES * (15 + LatencyHistogram.BUCKETS);
   }
 
   public void initialize() {
@@ -71,6 +95,17 @@ public class AgentStats {
     setReadersReady(0);
     setWritersReady(0);
     setReaderRuns(0);
+    setIdleSpinWakeups(0);
+    setIdleYieldWakeups(0);
+    setIdleParkWakeups(0);
+    setIdleNotificationWakeups(0);
+    setSuppressedNotifications(0);
+    setLatencyNsMax(0);
+    setLatencyOverThreshold(0);
+
+    for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+      _unsafe.putLongVolatile(null, LATENCY_BUCKETS_ADDRESS + i * Long.BYTES, 0);
+    }
   }
 
   public long getLatencyNsSum() {
@@ -183,4 +218,125 @@ public class AgentStats {
   public void incReaderRuns(long value) {
     _unsafe.getAndAddLong(null, READER_RUNS_ADDRESS, value);
   }
-}
\ No newline at end of file
+
+  public long getIdleSpinWakeups() {
+    return _unsafe.getLongVolatile(null, IDLE_SPIN_WAKEUPS_ADDRESS);
+  }
+
+  public void setIdleSpinWakeups(long value) {
+    _unsafe.putLongVolatile(null, IDLE_SPIN_WAKEUPS_ADDRESS, value);
+  }
+
+  /*
+   * Atomically increase value with new {@code value}
+   */
+  public void incIdleSpinWakeups(long value) {
+    _unsafe.getAndAddLong(null, IDLE_SPIN_WAKEUPS_ADDRESS, value);
+  }
+
+  public long getIdleYieldWakeups() {
+    return _unsafe.getLongVolatile(null, IDLE_YIELD_WAKEUPS_ADDRESS);
+  }
+
+  public void setIdleYieldWakeups(long value) {
+    _unsafe.putLongVolatile(null, IDLE_YIELD_WAKEUPS_ADDRESS, value);
+  }
+
+  /*
+   * Atomically increase value with new {@code value}
+   */
+  public void incIdleYieldWakeups(long value) {
+    _unsafe.getAndAddLong(null, IDLE_YIELD_WAKEUPS_ADDRESS, value);
+  }
+
+  public long getIdleParkWakeups() {
+    return _unsafe.getLongVolatile(null, IDLE_PARK_WAKEUPS_ADDRESS);
+  }
+
+  public void setIdleParkWakeups(long value) {
+    _unsafe.putLongVolatile(null, IDLE_PARK_WAKEUPS_ADDRESS, value);
+  }
+
+  /*
+   * Atomically increase value with new {@code value}
+   */
+  public void incIdleParkWakeups(long value) {
+    _unsafe.getAndAddLong(null, IDLE_PARK_WAKEUPS_ADDRESS, value);
+  }
+
+  public long getIdleNotificationWakeups() {
+    return _unsafe.getLongVolatile(null, IDLE_NOTIFICATION_WAKEUPS_ADDRESS);
+  }
+
+  public void setIdleNotificationWakeups(long value) {
+    _unsafe.putLongVolatile(null, IDLE_NOTIFICATION_WAKEUPS_ADDRESS, value);
+  }
+
+  /*
+   * Atomically increase value with new {@code value}
+   */
+  public void incIdleNotificationWakeups(long value) {
+    _unsafe.getAndAddLong(null, IDLE_NOTIFICATION_WAKEUPS_ADDRESS, value);
+  }
+
+  public long getSuppressedNotifications() {
+    return _unsafe.getLongVolatile(null, SUPPRESSED_NOTIFICATIONS_ADDRESS);
+  }
+
+  public void setSuppressedNotifications(long value) {
+    _unsafe.putLongVolatile(null, SUPPRESSED_NOTIFICATIONS_ADDRESS, value);
+  }
+
+  /*
+   * Atomically increase value with new {@code value}
+   */
+  public void incSuppressedNotifications(long value) {
+    _unsafe.getAndAddLong(null, SUPPRESSED_NOTIFICATIONS_ADDRESS, value);
+  }
+
+  public long getLatencyNsMax() {
+    return _unsafe.getLongVolatile(null, LATENCY_NS_MAX_ADDRESS);
+  }
+
+  public void setLatencyNsMax(long value) {
+    _unsafe.putLongVolatile(null, LATENCY_NS_MAX_ADDRESS, value);
+  }
+
+  /*
+   * Atomically raise value to {@code value} if it is greater
+   */
+  public void maxLatencyNsMax(long value) {
+    long max;
+    do {
+      max = getLatencyNsMax();
+    } while (value > max && !_unsafe.compareAndSwapLong(null, LATENCY_NS_MAX_ADDRESS, max, value));
+  }
+
+  public long getLatencyOverThreshold() {
+    return _unsafe.getLongVolatile(null, LATENCY_OVER_THRESHOLD_ADDRESS);
+  }
+
+  public void setLatencyOverThreshold(long value) {
+    _unsafe.putLongVolatile(null, LATENCY_OVER_THRESHOLD_ADDRESS, value);
+  }
+
+  /*
+   * Atomically increase value with new {@code value}
+   */
+  public void incLatencyOverThreshold(long value) {
+    _unsafe.getAndAddLong(null, LATENCY_OVER_THRESHOLD_ADDRESS, value);
+  }
+
+  public long getLatencyBucket(int index) {
+    assert (index >= 0 && index < LatencyHistogram.BUCKETS);
+    return _unsafe.getLongVolatile(null, LATENCY_BUCKETS_ADDRESS + index * Long.BYTES);
+  }
+
+  /*
+   * Atomically increase the count of bucket {@code index} with {@code value}
+   */
+  public void incLatencyBucket(int index, long value) {
+    assert (index >= 0 && index < LatencyHistogram.BUCKETS);
+    _unsafe.getAndAddLong(null, LATENCY_BUCKETS_ADDRESS + index * Long.BYTES, value);
+  }
+}
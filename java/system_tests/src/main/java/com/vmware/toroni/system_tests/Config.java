@@ -5,6 +5,9 @@
 
 package com.vmware.toroni.system_tests;
 
+import com.vmware.toroni.traits.posix.PosixSharedMemoryFactory;
+import com.vmware.toroni.traits.posix.SharedMemoryBackends;
+
 public class Config {
 
   public static String getOptString(String optName, String defaultValue) {
@@ -76,6 +79,66 @@ public class Config {
     return getOptLong("TORONI_AGENT_ITERATIONS", 1);
   }
 
+  public static long getOptIdleSpins() {
+    return getOptLong("TORONI_AGENT_IDLE_SPINS", 0);
+  }
+
+  public static long getOptIdleYields() {
+    return getOptLong("TORONI_AGENT_IDLE_YIELDS", 0);
+  }
+
+  public static long getOptIdleMinParkUs() {
+    return getOptLong("TORONI_AGENT_IDLE_MIN_PARK_US", 0);
+  }
+
+  public static long getOptIdleMaxParkUs() {
+    return getOptLong("TORONI_AGENT_IDLE_MAX_PARK_US", 0);
+  }
+
+  public static boolean getOptNotifySleepersOnly() {
+    return getOptLong("TORONI_AGENT_NOTIFY_SLEEPERS_ONLY", 0) != 0;
+  }
+
+  public static long getOptLatencyThresholdUs() {
+    return getOptLong("TORONI_AGENT_LATENCY_THRESHOLD_US", 1000);
+  }
+
+  public static boolean getOptMetrics() {
+    return getOptLong("TORONI_AGENT_METRICS", 0) != 0;
+  }
+
+  /**
+   * @return the backend of the shared memory segments, see
+   *         SharedMemoryBackends, e.g. {@code shm}, {@code file:/var/tmp} or
+   *         {@code hugetlbfs:/dev/hugepages}
+   */
+  public static String getOptShmBackend() {
+    return getOptString("TORONI_AGENT_SHM_BACKEND", SharedMemoryBackends.SHM);
+  }
+
+  /**
+   * @return the PosixSharedMemoryFactory map options of the ring buffer and
+   *         reader info segments
+   */
+  public static int getOptShmMapOptions() {
+    int mapOptions = 0;
+
+    if (getOptLong("TORONI_AGENT_SHM_POPULATE", 0) != 0) {
+      mapOptions |= PosixSharedMemoryFactory.POPULATE;
+    }
+    if (getOptLong("TORONI_AGENT_SHM_PRE_TOUCH", 0) != 0) {
+      mapOptions |= PosixSharedMemoryFactory.PRE_TOUCH;
+    }
+    if (getOptLong("TORONI_AGENT_SHM_HUGE_PAGES", 0) != 0) {
+      mapOptions |= PosixSharedMemoryFactory.HUGE_PAGES;
+    }
+    if (getOptLong("TORONI_AGENT_SHM_LOCK", 0) != 0) {
+      mapOptions |= PosixSharedMemoryFactory.LOCK;
+    }
+
+    return mapOptions;
+  }
+
   public static enum TestFlavour {
     UNKNOWN, FIRST_LAST_DURATION, LATENCY, ROBUST_WRITER, ROBUST_READER
   }
@@ -98,4 +161,24 @@ public class Config {
     return TestFlavour.UNKNOWN;
   }
 
+  public static enum NotificationType {
+    UNKNOWN, UDP, NIO, FUTEX
+  }
+
+  public static NotificationType getOptNotification() {
+    String val = getOptString("TORONI_AGENT_NOTIFICATION", "UDP");
+
+    if (val.equals("UDP")) {
+      return NotificationType.UDP;
+    } else if (val.equals("NIO")) {
+      return NotificationType.NIO;
+    } else if (val.equals("FUTEX")) {
+      return NotificationType.FUTEX;
+    } else {
+      assert (false);
+    }
+
+    return NotificationType.UNKNOWN;
+  }
+
 }
\ No newline at end of file
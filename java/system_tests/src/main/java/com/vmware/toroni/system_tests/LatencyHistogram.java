@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.system_tests;
+
+/**
+ * Fixed-size log-linear latency histogram, HdrHistogram style. Values below
+ * 2^SUB_BUCKET_BITS ns are counted exactly. Each power of two above is split
+ * into 2^(SUB_BUCKET_BITS - 1) linear buckets, so values are counted with a
+ * relative error below 1/2^(SUB_BUCKET_BITS - 1). Values of 2^MAX_VALUE_BITS
+ * ns or more are counted in the last bucket, the maximum is exact.
+ *
+ * Recording does not allocate. Histograms of reader processes are merged by
+ * adding bucket counts in {@link AgentStats}, see {@link #addTo} and
+ * {@link #read}.
+ */
+public class LatencyHistogram {
+
+  public static final int SUB_BUCKET_BITS = 7;
+  public static final int MAX_VALUE_BITS = 40; // ~18 minutes
+  public static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS) * (1 << (SUB_BUCKET_BITS - 1))
+      + (1 << SUB_BUCKET_BITS);
+
+  private static final long SUB_BUCKET_COUNT = 1L << SUB_BUCKET_BITS;
+  private static final long HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+  private final long[] _counts = new long[BUCKETS];
+  private final long _thresholdNs;
+  private long _count;
+  private long _maxNs;
+  private long _overThreshold;
+
+  /**
+   * @param thresholdNs: values above it are also counted separately
+   */
+  public LatencyHistogram(long thresholdNs) {
+    _thresholdNs = thresholdNs;
+  }
+
+  /**
+   * Records a latency.
+   *
+   * @param valueNs
+   */
+  public void record(long valueNs) {
+    if (valueNs < 0) {
+      valueNs = 0;
+    }
+
+    _counts[bucketIndex(valueNs)]++;
+    _count++;
+
+    if (valueNs > _maxNs) {
+      _maxNs = valueNs;
+    }
+    if (valueNs > _thresholdNs) {
+      _overThreshold++;
+    }
+  }
+
+  /**
+   * Atomically adds the recorded values to the histogram in {@code stats}.
+   *
+   * @param stats
+   */
+  public void addTo(AgentStats stats) {
+    for (int i = 0; i < BUCKETS; i++) {
+      if (_counts[i] != 0) {
+        stats.incLatencyBucket(i, _counts[i]);
+      }
+    }
+
+    stats.maxLatencyNsMax(_maxNs);
+    stats.incLatencyOverThreshold(_overThreshold);
+  }
+
+  /**
+   * @param stats
+   * @return a copy of the merged histogram in {@code stats}
+   */
+  public static LatencyHistogram read(AgentStats stats) {
+    LatencyHistogram histogram = new LatencyHistogram(Long.MAX_VALUE);
+
+    for (int i = 0; i < BUCKETS; i++) {
+      histogram._counts[i] = stats.getLatencyBucket(i);
+      histogram._count += histogram._counts[i];
+    }
+
+    histogram._maxNs = stats.getLatencyNsMax();
+    histogram._overThreshold = stats.getLatencyOverThreshold();
+
+    return histogram;
+  }
+
+  /**
+   * @return the number of recorded values
+   */
+  public long getCount() {
+    return _count;
+  }
+
+  /**
+   * @return the maximal recorded value
+   */
+  public long getMaxNs() {
+    return _maxNs;
+  }
+
+  /**
+   * @return the number of recorded values above the threshold
+   */
+  public long getOverThreshold() {
+    return _overThreshold;
+  }
+
+  /**
+   * @param percentile: in [0, 100]
+   * @return the largest value equivalent to the one at {@code percentile}, at
+   *         most the maximum; 0 if nothing is recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * _count));
+    long seen = 0;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += _counts[i];
+
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), _maxNs);
+      }
+    }
+
+    return _maxNs;
+  }
+
+  /**
+   * @return p50, p90, p99, p99.9, max and the count above the threshold, e.g.
+   *         {@code P50=0.012_P90=0.020_P99=0.110_P999=1.200_MAX=3.000_OVER=2}
+   *         with latencies in ms
+   */
+  public String format() {
+    return String.format("P50=%.3f_P90=%.3f_P99=%.3f_P999=%.3f_MAX=%.3f_OVER=%d",
+        toMs(getValueAtPercentile(50)), toMs(getValueAtPercentile(90)), toMs(getValueAtPercentile(99)),
+        toMs(getValueAtPercentile(99.9)), toMs(_maxNs), _overThreshold);
+  }
+
+  static int bucketIndex(long valueNs) {
+    if (valueNs < SUB_BUCKET_COUNT) {
+      return (int) valueNs;
+    }
+
+    int msb = 63 - Long.numberOfLeadingZeros(valueNs);
+    if (msb >= MAX_VALUE_BITS) {
+      return BUCKETS - 1;
+    }
+
+    int shift = msb - (SUB_BUCKET_BITS - 1);
+    return (int) (shift * HALF_SUB_BUCKET_COUNT + (valueNs >>> shift));
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+
+    int shift = (int) ((index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT) + 1;
+    long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  private static double toMs(long ns) {
+    return (double) ns / Agent.MS_NANOSEC;
+  }
+}
@@ -13,6 +13,7 @@ import com.vmware.toroni.tp.AsyncWriter;
 public class LatencyTest extends BaseTest {
 
   private long _latencySumNs = 0;
+  private final LatencyHistogram _histogram = new LatencyHistogram(Config.getOptLatencyThresholdUs() * 1000);
 
   public void initWriter(AsyncWriter w) {
     _writer = w;
@@ -39,12 +40,15 @@ public class LatencyTest extends BaseTest {
   public void onChannelReader(ByteBuffer dataBB) {
     _recievedCount++;
     dataBB.order(ByteOrder.LITTLE_ENDIAN);
-    _latencySumNs += System.nanoTime() - dataBB.getLong();
+    long latencyNs = System.nanoTime() - dataBB.getLong();
+    _latencySumNs += latencyNs;
+    _histogram.record(latencyNs);
     Agent.LOGGER.info("PROCESS_ID [ " + ProcessHandle.current().pid() + " ] " + "latency rcv" + _recievedCount);
   }
 
   public void result() {
-    System.out.println(avgLatencyMs());
+    System.out.format("%.3f_", avgLatencyMs());
+    System.out.println(LatencyHistogram.read(Agent.agentStats).format());
 
     if (Config.getOptExtResult() == 1) {
       System.out.print("_");
@@ -62,6 +66,7 @@ public class LatencyTest extends BaseTest {
 
     as.incLatencyNsSum(_latencySumNs);
     as.incMsgCount(_recievedCount);
+    _histogram.addTo(as);
   }
 
 }
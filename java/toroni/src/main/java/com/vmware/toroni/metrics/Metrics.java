@@ -0,0 +1,205 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+
+import javax.management.ObjectName;
+
+import com.sun.jna.Pointer;
+
+import sun.misc.Unsafe;
+
+/**
+ * Optional shared-memory segment of reader and writer counters. Each slot is
+ * padded to a cache line so that updates of different readers and writers do
+ * not contend, and is allocated to one reader or writer (group) at a time.
+ * Any process mapping the segment, e.g. a monitoring tool through
+ * {@link #registerMBean}, can read all slots.
+ */
+public class Metrics {
+
+  public static final int CACHE_LINE_SIZE = 64;
+
+  public static final long INITIALIZED_OFFSET;
+  public static final long READER_SLOTS_OFFSET;
+  public static final long WRITER_SLOTS_OFFSET;
+  public static final long FIRST_SLOT_OFFSET;
+
+  public final long METRICS_ADDRESS;
+  public final long INITIALIZED_ADDRESS;
+  public final long READER_SLOTS_ADDRESS;
+  public final long WRITER_SLOTS_ADDRESS;
+
+  private Pointer _metricsPointer;
+  private short _readerSlots;
+  private short _writerSlots;
+  private ReaderMetrics[] _readers;
+  private WriterMetrics[] _writers;
+  private static Unsafe _unsafe;
+
+  /**
+   * Initialize _unsafe with the Unsafe object.
+   */
+  static {
+    try {
+      Field f = Unsafe.class.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      _unsafe = (Unsafe) f.get(null);
+    } catch (Exception e) {
+      System.out.println("Unsafe couldn't be loaded!");
+    }
+
+    INITIALIZED_OFFSET = 0;
+    READER_SLOTS_OFFSET = INITIALIZED_OFFSET + Long.BYTES;
+    WRITER_SLOTS_OFFSET = READER_SLOTS_OFFSET + Short.BYTES;
+    FIRST_SLOT_OFFSET = CACHE_LINE_SIZE; // header padded to a cache line
+  }
+
+  public Metrics(Pointer metricsPointer, short readerSlots, short writerSlots) {
+    _metricsPointer = metricsPointer;
+    _readerSlots = readerSlots;
+    _writerSlots = writerSlots;
+    _readers = new ReaderMetrics[readerSlots];
+    _writers = new WriterMetrics[writerSlots];
+
+    METRICS_ADDRESS = Pointer.nativeValue(_metricsPointer);
+    INITIALIZED_ADDRESS = METRICS_ADDRESS + INITIALIZED_OFFSET;
+    READER_SLOTS_ADDRESS = METRICS_ADDRESS + READER_SLOTS_OFFSET;
+    WRITER_SLOTS_ADDRESS = METRICS_ADDRESS + WRITER_SLOTS_OFFSET;
+
+    long slotAddress = METRICS_ADDRESS + FIRST_SLOT_OFFSET;
+    for (int i = 0; i < readerSlots; i++, slotAddress += CACHE_LINE_SIZE) {
+      _readers[i] = new ReaderMetrics(slotAddress);
+    }
+    for (int i = 0; i < writerSlots; i++, slotAddress += CACHE_LINE_SIZE) {
+      _writers[i] = new WriterMetrics(slotAddress);
+    }
+  }
+
+  /**
+   * @param readerSlots: number of reader slots
+   * @param writerSlots: number of writer slots
+   * @return the size in bytes of a Metrics object in memory
+   */
+  public static long size(short readerSlots, short writerSlots) {
+    return FIRST_SLOT_OFFSET + (readerSlots + writerSlots) * (long) CACHE_LINE_SIZE;
+  }
+
+  /**
+   * Initialize the memory for a non-initialized Metrics.
+   */
+  public void initialize() {
+    _unsafe.putShort(READER_SLOTS_ADDRESS, _readerSlots);
+    _unsafe.putShort(WRITER_SLOTS_ADDRESS, _writerSlots);
+
+    for (ReaderMetrics reader : _readers) {
+      reader.initialize(ReaderMetrics.COUNTERS);
+    }
+    for (WriterMetrics writer : _writers) {
+      writer.initialize(WriterMetrics.COUNTERS);
+    }
+
+    _unsafe.putLongVolatile(null, INITIALIZED_ADDRESS, 1);
+  }
+
+  /**
+   * @return true if initialized
+   */
+  public boolean getInitialized() {
+    return _unsafe.getLongVolatile(null, INITIALIZED_ADDRESS) != 0;
+  }
+
+  /**
+   * Allocates a reader slot to the current process. Slots of dead processes
+   * are reclaimed.
+   *
+   * @return the slot; null if none is free
+   */
+  public ReaderMetrics allocReader() {
+    return alloc(_readers);
+  }
+
+  /**
+   * Allocates a writer slot to the current process. Slots of dead processes
+   * are reclaimed.
+   *
+   * @return the slot; null if none is free
+   */
+  public WriterMetrics allocWriter() {
+    return alloc(_writers);
+  }
+
+  /**
+   * @param slot: id of the slot
+   * @return the reader slot, free or not
+   */
+  public ReaderMetrics getReader(int slot) {
+    assert (slot >= 0 && slot < _readerSlots);
+    return _readers[slot];
+  }
+
+  /**
+   * @param slot: id of the slot
+   * @return the writer slot, free or not
+   */
+  public WriterMetrics getWriter(int slot) {
+    assert (slot >= 0 && slot < _writerSlots);
+    return _writers[slot];
+  }
+
+  /**
+   * @return the number of reader slots
+   */
+  public short getReaderSlots() {
+    return _readerSlots;
+  }
+
+  /**
+   * @return the number of writer slots
+   */
+  public short getWriterSlots() {
+    return _writerSlots;
+  }
+
+  /**
+   * @return a view of the totals over all slots, as exposed by
+   *         {@link #registerMBean}
+   */
+  public MetricsMXBean getTotals() {
+    return new MetricsMXBeanImpl(this);
+  }
+
+  /**
+   * Registers a {@link MetricsMXBean} with the platform MBean server as
+   * {@code com.vmware.toroni:type=Metrics,name=<name>}.
+   *
+   * @param name: name of the segment, e.g. its shared memory name
+   * @return the registered object name
+   */
+  public ObjectName registerMBean(String name) {
+    try {
+      ObjectName objectName = ObjectName.getInstance("com.vmware.toroni:type=Metrics,name=" + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(getTotals(), objectName);
+      return objectName;
+    } catch (Exception e) {
+      throw new Error("Couldn't register metrics MBean", e);
+    }
+  }
+
+  private static <T extends MetricsSlot> T alloc(T[] slots) {
+    long pid = ProcessHandle.current().pid();
+
+    for (T slot : slots) {
+      if (slot.tryAlloc(pid)) {
+        return slot;
+      }
+    }
+
+    return null;
+  }
+}
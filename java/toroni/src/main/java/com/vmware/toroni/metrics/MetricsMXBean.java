@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.metrics;
+
+/**
+ * JMX view of a {@link Metrics} segment. Totals are summed over all slots,
+ * free or not.
+ */
+public interface MetricsMXBean {
+
+  int getActiveReaders();
+
+  int getActiveWriters();
+
+  long getReaderMessages();
+
+  long getReaderBytes();
+
+  long getReadPasses();
+
+  long getReaderExpiries();
+
+  long getWriterMessages();
+
+  long getWriterBytes();
+
+  long getBackpressureWaits();
+
+  long getBackpressureWaitNs();
+
+  long getLockAcquires();
+
+  long getLockWaitNs();
+
+  long getLockHoldNs();
+
+  /**
+   * @return messages read per reader slot
+   */
+  long[] getReaderMessagesPerSlot();
+
+  /**
+   * @return messages written per writer slot
+   */
+  long[] getWriterMessagesPerSlot();
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.metrics;
+
+class MetricsMXBeanImpl implements MetricsMXBean {
+
+  private final Metrics _metrics;
+
+  MetricsMXBeanImpl(Metrics metrics) {
+    _metrics = metrics;
+  }
+
+  @Override
+  public int getActiveReaders() {
+    int active = 0;
+    for (int i = 0; i < _metrics.getReaderSlots(); i++) {
+      if (_metrics.getReader(i).getOwnerPid() != MetricsSlot.NO_OWNER) {
+        active++;
+      }
+    }
+    return active;
+  }
+
+  @Override
+  public int getActiveWriters() {
+    int active = 0;
+    for (int i = 0; i < _metrics.getWriterSlots(); i++) {
+      if (_metrics.getWriter(i).getOwnerPid() != MetricsSlot.NO_OWNER) {
+        active++;
+      }
+    }
+    return active;
+  }
+
+  @Override
+  public long getReaderMessages() {
+    return sumReaders(ReaderMetrics.MESSAGES);
+  }
+
+  @Override
+  public long getReaderBytes() {
+    return sumReaders(ReaderMetrics.BYTES);
+  }
+
+  @Override
+  public long getReadPasses() {
+    return sumReaders(ReaderMetrics.READ_PASSES);
+  }
+
+  @Override
+  public long getReaderExpiries() {
+    return sumReaders(ReaderMetrics.EXPIRIES);
+  }
+
+  @Override
+  public long getWriterMessages() {
+    return sumWriters(WriterMetrics.MESSAGES);
+  }
+
+  @Override
+  public long getWriterBytes() {
+    return sumWriters(WriterMetrics.BYTES);
+  }
+
+  @Override
+  public long getBackpressureWaits() {
+    return sumWriters(WriterMetrics.BACKPRESSURE_WAITS);
+  }
+
+  @Override
+  public long getBackpressureWaitNs() {
+    return sumWriters(WriterMetrics.BACKPRESSURE_WAIT_NS);
+  }
+
+  @Override
+  public long getLockAcquires() {
+    return sumWriters(WriterMetrics.LOCK_ACQUIRES);
+  }
+
+  @Override
+  public long getLockWaitNs() {
+    return sumWriters(WriterMetrics.LOCK_WAIT_NS);
+  }
+
+  @Override
+  public long getLockHoldNs() {
+    return sumWriters(WriterMetrics.LOCK_HOLD_NS);
+  }
+
+  @Override
+  public long[] getReaderMessagesPerSlot() {
+    long[] messages = new long[_metrics.getReaderSlots()];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = _metrics.getReader(i).get(ReaderMetrics.MESSAGES);
+    }
+    return messages;
+  }
+
+  @Override
+  public long[] getWriterMessagesPerSlot() {
+    long[] messages = new long[_metrics.getWriterSlots()];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = _metrics.getWriter(i).get(WriterMetrics.MESSAGES);
+    }
+    return messages;
+  }
+
+  private long sumReaders(int counter) {
+    long sum = 0;
+    for (int i = 0; i < _metrics.getReaderSlots(); i++) {
+      sum += _metrics.getReader(i).get(counter);
+    }
+    return sum;
+  }
+
+  private long sumWriters(int counter) {
+    long sum = 0;
+    for (int i = 0; i < _metrics.getWriterSlots(); i++) {
+      sum += _metrics.getWriter(i).get(counter);
+    }
+    return sum;
+  }
+}
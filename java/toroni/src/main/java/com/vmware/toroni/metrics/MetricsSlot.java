@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.metrics;
+
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+/**
+ * A cache-line-padded slot of counters in the {@link Metrics} segment, owned
+ * by one process from {@link Metrics#allocReader} or
+ * {@link Metrics#allocWriter} until {@link #free}. Only one thread at a time
+ * updates a slot, so counters are updated with plain reads and ordered writes
+ * instead of atomic instructions. They are never reset, so they add up over the
+ * owners of the slot.
+ */
+public abstract class MetricsSlot {
+
+  public static final long OWNER_PID_OFFSET = 0;
+  public static final long FIRST_COUNTER_OFFSET = OWNER_PID_OFFSET + Long.BYTES;
+
+  public static final long NO_OWNER = 0;
+
+  protected static Unsafe _unsafe;
+
+  protected final long _address;
+
+  /**
+   * Initialize _unsafe with the Unsafe object.
+   */
+  static {
+    try {
+      Field f = Unsafe.class.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      _unsafe = (Unsafe) f.get(null);
+    } catch (Exception e) {
+      System.out.println("Unsafe couldn't be loaded!");
+    }
+  }
+
+  MetricsSlot(long address) {
+    _address = address;
+  }
+
+  /**
+   * @return the pid of the owning process, or {@link #NO_OWNER}
+   */
+  public long getOwnerPid() {
+    return _unsafe.getLongVolatile(null, _address + OWNER_PID_OFFSET);
+  }
+
+  /**
+   * Frees the slot, keeping its counters.
+   */
+  public void free() {
+    _unsafe.putLongVolatile(null, _address + OWNER_PID_OFFSET, NO_OWNER);
+  }
+
+  void initialize(int counters) {
+    for (int i = 0; i < counters; i++) {
+      _unsafe.putLong(counterAddress(i), 0);
+    }
+    free();
+  }
+
+  /**
+   * Takes the slot if it is free or its owner has died.
+   *
+   * @return true if the slot has been taken
+   */
+  boolean tryAlloc(long pid) {
+    long owner = getOwnerPid();
+
+    if (owner != NO_OWNER && (owner == pid || ProcessHandle.of(owner).isPresent())) {
+      return false;
+    }
+
+    return _unsafe.compareAndSwapLong(null, _address + OWNER_PID_OFFSET, owner, pid);
+  }
+
+  protected long counterAddress(int counter) {
+    return _address + FIRST_COUNTER_OFFSET + counter * Long.BYTES;
+  }
+
+  protected long get(int counter) {
+    return _unsafe.getLongVolatile(null, counterAddress(counter));
+  }
+
+  protected void add(int counter, long value) {
+    long address = counterAddress(counter);
+    _unsafe.putOrderedLong(null, address, _unsafe.getLong(address) + value);
+  }
+}
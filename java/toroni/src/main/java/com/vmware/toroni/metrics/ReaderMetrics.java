@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.metrics;
+
+/**
+ * Counters of an RMP reader, updated by the reading thread.
+ */
+public class ReaderMetrics extends MetricsSlot {
+
+  static final int MESSAGES = 0;
+  static final int BYTES = 1;
+  static final int READ_PASSES = 2;
+  static final int EXPIRIES = 3;
+  static final int COUNTERS = 4;
+
+  ReaderMetrics(long address) {
+    super(address);
+  }
+
+  /**
+   * Counts a readEx pass.
+   *
+   * @param messages: number of messages read
+   * @param bytes:    number of stream bytes read, including headers and padding
+   */
+  public void onReadPass(long messages, long bytes) {
+    add(MESSAGES, messages);
+    add(BYTES, bytes);
+    add(READ_PASSES, 1);
+  }
+
+  /**
+   * Counts an expiry of the reader.
+   */
+  public void onExpired() {
+    add(EXPIRIES, 1);
+  }
+
+  /**
+   * @return the number of messages read
+   */
+  public long getMessages() {
+    return get(MESSAGES);
+  }
+
+  /**
+   * @return the number of stream bytes read
+   */
+  public long getBytes() {
+    return get(BYTES);
+  }
+
+  /**
+   * @return the number of readEx passes
+   */
+  public long getReadPasses() {
+    return get(READ_PASSES);
+  }
+
+  /**
+   * @return the number of expiries
+   */
+  public long getExpiries() {
+    return get(EXPIRIES);
+  }
+}
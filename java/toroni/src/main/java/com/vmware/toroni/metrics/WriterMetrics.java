@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.metrics;
+
+/**
+ * Counters of RMP writers, updated under the ring buffer lock. Writers of the
+ * same ring buffer may share one.
+ */
+public class WriterMetrics extends MetricsSlot {
+
+  static final int MESSAGES = 0;
+  static final int BYTES = 1;
+  static final int BACKPRESSURE_WAITS = 2;
+  static final int BACKPRESSURE_WAIT_NS = 3;
+  static final int LOCK_ACQUIRES = 4;
+  static final int LOCK_WAIT_NS = 5;
+  static final int LOCK_HOLD_NS = 6;
+  static final int COUNTERS = 7;
+
+  WriterMetrics(long address) {
+    super(address);
+  }
+
+  /**
+   * Counts published messages.
+   *
+   * @param messages: number of messages
+   * @param bytes:    number of message bytes, excluding headers and padding
+   */
+  public void onWrite(long messages, long bytes) {
+    add(MESSAGES, messages);
+    add(BYTES, bytes);
+  }
+
+  /**
+   * Counts an invocation of the backpressure callback.
+   *
+   * @param waitNs: time spent in the callback
+   */
+  public void onBackpressureWait(long waitNs) {
+    add(BACKPRESSURE_WAITS, 1);
+    add(BACKPRESSURE_WAIT_NS, waitNs);
+  }
+
+  /**
+   * Counts an acquisition of the ring buffer lock.
+   *
+   * @param waitNs: time spent acquiring it
+   */
+  public void onLockAcquired(long waitNs) {
+    add(LOCK_ACQUIRES, 1);
+    add(LOCK_WAIT_NS, waitNs);
+  }
+
+  /**
+   * Counts the time the ring buffer lock was held, before releasing it.
+   *
+   * @param holdNs
+   */
+  public void onLockReleasing(long holdNs) {
+    add(LOCK_HOLD_NS, holdNs);
+  }
+
+  /**
+   * @return the number of messages written
+   */
+  public long getMessages() {
+    return get(MESSAGES);
+  }
+
+  /**
+   * @return the number of message bytes written
+   */
+  public long getBytes() {
+    return get(BYTES);
+  }
+
+  /**
+   * @return the number of backpressure callback invocations
+   */
+  public long getBackpressureWaits() {
+    return get(BACKPRESSURE_WAITS);
+  }
+
+  /**
+   * @return the time spent in the backpressure callback in nanoseconds
+   */
+  public long getBackpressureWaitNs() {
+    return get(BACKPRESSURE_WAIT_NS);
+  }
+
+  /**
+   * @return the number of ring buffer lock acquisitions
+   */
+  public long getLockAcquires() {
+    return get(LOCK_ACQUIRES);
+  }
+
+  /**
+   * @return the time spent acquiring the ring buffer lock in nanoseconds
+   */
+  public long getLockWaitNs() {
+    return get(LOCK_WAIT_NS);
+  }
+
+  /**
+   * @return the time the ring buffer lock was held in nanoseconds
+   */
+  public long getLockHoldNs() {
+    return get(LOCK_HOLD_NS);
+  }
+}
@@ -6,6 +6,8 @@
 package com.vmware.toroni.rmp;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.sun.jna.Pointer;
 import com.vmware.toroni.traits.RobustMutex;
@@ -14,25 +16,30 @@ import sun.misc.Unsafe;
 
 public class ByteRingBuffer {
 
+  public final long LAYOUT_OFFSET;
   public final long BUF_SIZE_OFFSET;
   public final long MTX_OFFSET;
   public final long FREE_POS_OFFSET;
   public final long STAT_BACK_PRESSURE_COUNT_OFFSET;
   public final long STAT_NOTIFICATION_COUNT_OFFSET;
   public final long INITIALIZED_OFFSET;
+  public final long NOTIFICATION_SEQ_OFFSET;
   public final long BUFFER_OFFSET;
 
   public final long RING_BUF_ADDRESS;
+  public final long LAYOUT_ADDRESS;
   public final long BUF_SIZE_ADDRESS;
   public final long MTX_ADDRESS;
   public final long FREE_POS_ADDRESS;
   public final long STAT_BACK_PRESSURE_COUNT_ADDRESS;
   public final long STAT_NOTIFICATION_COUNT_ADDRESS;
   public final long INITIALIZED_ADDRESS;
+  public final long NOTIFICATION_SEQ_ADDRESS;
   public final long BUFFER_ADDRESS;
 
   private final Pointer _ringBufPointer;
   private final long _bufSize;
+  private final int _layout;
   private RobustMutex _mtx;
   private static Unsafe _unsafe;
   private static long byteArrayOffset;
@@ -55,25 +62,59 @@ public class ByteRingBuffer {
 
   public ByteRingBuffer(Pointer ringBufPointer, long bufSizeBytes,
       RobustMutex protoLock) {
+    this(ringBufPointer, bufSizeBytes, protoLock, Layout.ALIGNED);
+  }
+
+  /**
+   * @param ringBufPointer
+   * @param bufSizeBytes
+   * @param protoLock
+   * @param layout:        Layout.PACKED or Layout.ALIGNED, must be the layout
+   *                       of the segment
+   */
+  public ByteRingBuffer(Pointer ringBufPointer, long bufSizeBytes,
+      RobustMutex protoLock, int layout) {
     _ringBufPointer = ringBufPointer;
     _bufSize = bufSizeBytes;
-
-    BUF_SIZE_OFFSET = 0;
-    MTX_OFFSET = BUF_SIZE_OFFSET + Long.BYTES;
-    FREE_POS_OFFSET = MTX_OFFSET + protoLock.size();
-    STAT_BACK_PRESSURE_COUNT_OFFSET = FREE_POS_OFFSET + Long.BYTES;
-    STAT_NOTIFICATION_COUNT_OFFSET = STAT_BACK_PRESSURE_COUNT_OFFSET + Long.BYTES;
-    INITIALIZED_OFFSET = STAT_NOTIFICATION_COUNT_OFFSET + Long.BYTES;
-    // BUFFER_OFFSET = INITIALIZED_OFFSET + Byte.BYTES; // pragma packed(1)
-    BUFFER_OFFSET = INITIALIZED_OFFSET + Long.BYTES;
+    _layout = layout;
+
+    // the first word of a packed segment is bufSize, see Layout.version
+    LAYOUT_OFFSET = 0;
+
+    if (layout == Layout.PACKED) {
+      BUF_SIZE_OFFSET = 0;
+      MTX_OFFSET = BUF_SIZE_OFFSET + Long.BYTES;
+      FREE_POS_OFFSET = MTX_OFFSET + protoLock.size();
+      STAT_BACK_PRESSURE_COUNT_OFFSET = FREE_POS_OFFSET + Long.BYTES;
+      STAT_NOTIFICATION_COUNT_OFFSET = STAT_BACK_PRESSURE_COUNT_OFFSET + Long.BYTES;
+      INITIALIZED_OFFSET = STAT_NOTIFICATION_COUNT_OFFSET + Long.BYTES;
+      // in the padding after initialized, same as the C++ notificationSeq
+      NOTIFICATION_SEQ_OFFSET = INITIALIZED_OFFSET + Integer.BYTES;
+      // BUFFER_OFFSET = INITIALIZED_OFFSET + Byte.BYTES; // pragma packed(1)
+      BUFFER_OFFSET = INITIALIZED_OFFSET + Long.BYTES;
+    } else {
+      // one cache line each for the read-mostly config, mtx, freePos, each
+      // stats counter and notificationSeq
+      BUF_SIZE_OFFSET = LAYOUT_OFFSET + Long.BYTES;
+      MTX_OFFSET = Layout.CACHE_LINE_SIZE;
+      FREE_POS_OFFSET = MTX_OFFSET + Layout.align(protoLock.size());
+      STAT_BACK_PRESSURE_COUNT_OFFSET = FREE_POS_OFFSET + Layout.CACHE_LINE_SIZE;
+      STAT_NOTIFICATION_COUNT_OFFSET = STAT_BACK_PRESSURE_COUNT_OFFSET + Layout.CACHE_LINE_SIZE;
+      NOTIFICATION_SEQ_OFFSET = STAT_NOTIFICATION_COUNT_OFFSET + Layout.CACHE_LINE_SIZE;
+      // last, so that it is set after the fields it guards
+      INITIALIZED_OFFSET = NOTIFICATION_SEQ_OFFSET + Integer.BYTES;
+      BUFFER_OFFSET = NOTIFICATION_SEQ_OFFSET + Layout.CACHE_LINE_SIZE;
+    }
 
     RING_BUF_ADDRESS = Pointer.nativeValue(_ringBufPointer);
+    LAYOUT_ADDRESS = RING_BUF_ADDRESS + LAYOUT_OFFSET;
     BUF_SIZE_ADDRESS = RING_BUF_ADDRESS + BUF_SIZE_OFFSET;
     MTX_ADDRESS = RING_BUF_ADDRESS + MTX_OFFSET;
     FREE_POS_ADDRESS = RING_BUF_ADDRESS + FREE_POS_OFFSET;
     STAT_BACK_PRESSURE_COUNT_ADDRESS = RING_BUF_ADDRESS + STAT_BACK_PRESSURE_COUNT_OFFSET;
     STAT_NOTIFICATION_COUNT_ADDRESS = RING_BUF_ADDRESS + STAT_NOTIFICATION_COUNT_OFFSET;
     INITIALIZED_ADDRESS = RING_BUF_ADDRESS + INITIALIZED_OFFSET;
+    NOTIFICATION_SEQ_ADDRESS = RING_BUF_ADDRESS + NOTIFICATION_SEQ_OFFSET;
     BUFFER_ADDRESS = RING_BUF_ADDRESS + BUFFER_OFFSET;
 
     _mtx = protoLock.load(new Pointer(MTX_ADDRESS));
@@ -83,12 +124,16 @@ public class ByteRingBuffer {
    * Initialize the memory for a non-initialized ByteRingBuffer.
    */
   public void initialize() {
+    if (_layout != Layout.PACKED) {
+      _unsafe.putLong(LAYOUT_ADDRESS, Layout.word(_layout));
+    }
     _unsafe.putLong(BUF_SIZE_ADDRESS, _bufSize);
     _mtx.initialize(new Pointer(MTX_ADDRESS));
     setFreePos(0);
     setStatBackPressureCount(0);
     setStatNotificationCount(0);
-    _unsafe.putLong(INITIALIZED_ADDRESS, (byte) 1);
+    _unsafe.putIntVolatile(null, NOTIFICATION_SEQ_ADDRESS, 0);
+    _unsafe.putByteVolatile(null, INITIALIZED_ADDRESS, (byte) 1);
   }
 
   /**
@@ -97,16 +142,44 @@ public class ByteRingBuffer {
    * @return the size in bytes of a ByteRingBuffer object in memory
    */
   public static long size(long bufSize, long mtxSize) {
-    return Long.BYTES // bufSize
-        + mtxSize // mtx
-        + Long.BYTES // freePos
-        + Long.BYTES // statBackPressureCount
-        + Long.BYTES // statNotificationCount
-        // + Byte.BYTES // initialized, pragma packed(1)
-        + Long.BYTES // initialized
+    return size(bufSize, mtxSize, Layout.ALIGNED);
+  }
+
+  /**
+   * @param bufSize: size of the buffer
+   * @param mtxSize: size of the mtx object in memory
+   * @param layout:  Layout.PACKED or Layout.ALIGNED
+   * @return the size in bytes of a ByteRingBuffer object of {@code layout} in
+   *         memory
+   */
+  public static long size(long bufSize, long mtxSize, int layout) {
+    if (layout == Layout.PACKED) {
+      return Long.BYTES // bufSize
+          + mtxSize // mtx
+          + Long.BYTES // freePos
+          + Long.BYTES // statBackPressureCount
+          + Long.BYTES // statNotificationCount
+          // + Byte.BYTES // initialized, pragma packed(1)
+          + Long.BYTES // initialized, notificationSeq
+          + bufSize; // actual buffer
+    }
+
+    return Layout.CACHE_LINE_SIZE // layout, bufSize
+        + Layout.align(mtxSize) // mtx
+        + Layout.CACHE_LINE_SIZE // freePos
+        + Layout.CACHE_LINE_SIZE // statBackPressureCount
+        + Layout.CACHE_LINE_SIZE // statNotificationCount
+        + Layout.CACHE_LINE_SIZE // notificationSeq, initialized
         + bufSize; // actual buffer
   }
 
+  /**
+   * @return the layout version of the segment, see {@link Layout}
+   */
+  public int getLayoutVersion() {
+    return Layout.version(_unsafe.getLong(LAYOUT_ADDRESS));
+  }
+
   /**
    * @return the size of the buffer in bytes.
    */
@@ -137,6 +210,18 @@ public class ByteRingBuffer {
     _unsafe.putLongVolatile(null, FREE_POS_ADDRESS, newValue);
   }
 
+  /**
+   * Atomically updates the value of {@code freePos} to {@code newValue} if it is
+   * {@code expected}.
+   *
+   * @param expected
+   * @param newValue
+   * @return true if updated; false otherwise
+   */
+  public boolean compareAndSetFreePos(long expected, long newValue) {
+    return _unsafe.compareAndSwapLong(null, FREE_POS_ADDRESS, expected, newValue);
+  }
+
   /*
    * Atomically increase value with new {@code newValue}
    */
@@ -191,10 +276,20 @@ public class ByteRingBuffer {
   }
 
   /**
-   * @return the value of {@code initialized}.
+   * @return the value of {@code initialized}; false if the segment has another
+   *         layout.
    */
   public boolean getInitialized() {
-    return (_unsafe.getByte(INITIALIZED_ADDRESS) == 1);
+    return (_unsafe.getByteVolatile(null, INITIALIZED_ADDRESS) == 1 && getLayoutVersion() == _layout);
+  }
+
+  /**
+   * @return a pointer to {@code notificationSeq}, the 32-bit word that
+   *         {@link com.vmware.toroni.traits.posix.FutexNotification} waits on.
+   *         It keeps the ring buffer memory reachable.
+   */
+  public Pointer getNotificationSeqPointer() {
+    return _ringBufPointer.share(NOTIFICATION_SEQ_OFFSET);
   }
 
   /**
@@ -239,6 +334,18 @@ public class ByteRingBuffer {
         length);
   }
 
+  /**
+   * Creates a direct ByteBuffer over the buffer, so that buffer index {@code i}
+   * is ByteBuffer index {@code i}. No data is copied, the content may be
+   * overwritten by writers at any time.
+   *
+   * @return a new view of the buffer in native byte order
+   */
+  public ByteBuffer view() {
+    assert (_bufSize <= Integer.MAX_VALUE);
+    return _ringBufPointer.getByteBuffer(BUFFER_OFFSET, _bufSize).order(ByteOrder.nativeOrder());
+  }
+
   /**
    * @param index
    * @return the int at position {@code index} in the buffer.
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+/**
+ * Versions of the shared memory layout of ByteRingBuffer and ReaderInfo, same
+ * as the C++ layout.hpp.
+ *
+ * The packed layout (version 0) has the offsets of segments created before the
+ * layout word, so that they can still be opened. Its header fields are
+ * consecutive, so that {@code freePos}, the stats counters and the positions
+ * of adjacent readers share cache lines and every update of one of them
+ * invalidates the others on other cores. Words added since are either in its
+ * padding, like the notification sequence, or only in the aligned layout, like
+ * {@code sleepingReaders}. In the aligned layout (version 1) each of them sits
+ * on its own 64-byte cache line and the first word of the segment is a layout
+ * word with the version, so that a process opening a segment of another layout
+ * sees it as not initialized.
+ */
+public class Layout {
+
+  public static final int PACKED = 0;
+  public static final int ALIGNED = 1;
+
+  public static final long CACHE_LINE_SIZE = 64;
+
+  // "TORONI" in the upper 48 bits, the version in the lower 16 bits. The first
+  // word of a packed segment is a buffer size or a counter, never this.
+  private static final long MAGIC = 0x544F524F4E49L << 16;
+  private static final long VERSION_MASK = 0xFFFF;
+
+  /**
+   * @param offset
+   * @return {@code offset} rounded up to a multiple of the cache line size
+   */
+  public static long align(long offset) {
+    return (offset + CACHE_LINE_SIZE - 1) & ~(CACHE_LINE_SIZE - 1);
+  }
+
+  /**
+   * @param version
+   * @return the layout word of a segment of layout {@code version}
+   */
+  public static long word(int version) {
+    return MAGIC | version;
+  }
+
+  /**
+   * @param word: first word of a segment
+   * @return the layout version of the segment; PACKED if {@code word} is not a
+   *         layout word, i.e. for segments created before it
+   */
+  public static int version(long word) {
+    return (word & ~VERSION_MASK) == MAGIC ? (int) (word & VERSION_MASK) : PACKED;
+  }
+}
@@ -0,0 +1,509 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+import java.nio.ByteBuffer;
+
+import com.vmware.toroni.rmp.detail.*;
+
+/**
+ * A writer that does not take the ring buffer lock. Writers claim regions of
+ * the stream by CAS on the claim cursor of a {@link WriterInfo} and fill them
+ * in parallel. A claim is committed by clearing the ownership record of the
+ * writer, then {@code freePos} is moved forward up to the first claim that is
+ * not committed, so readers read up to {@code freePos} and see the messages in
+ * claim order. Claims in flight overwrite up to a buffer beyond
+ * {@code freePos}, so readers must be created with the WriterInfo to check
+ * expiration against the claim cursor, see
+ * {@link Reader#Reader(ByteRingBuffer, WriterInfo)}.
+ *
+ * A claim is announced in the ownership record before the CAS, and a writer
+ * that finds the cursor left by another writer's claim marks that claim as
+ * claimed before moving the cursor, so the records always tell which claims
+ * succeeded. The robust lock of the record of a writer that died can be
+ * acquired, and its claim is then filled with padding and committed by
+ * {@link #recover}, which writers also run when the claims in flight take the
+ * whole buffer.
+ *
+ * All writers of a ring buffer must be LockFreeWriters sharing the same
+ * WriterInfo. Each instance must be used by a single thread.
+ */
+public class LockFreeWriter {
+
+  private static final byte[] NO_BYTES = new byte[0];
+
+  private ByteRingBuffer _ringBuf;
+  private ReaderInfo _readerInfo;
+  private WriterInfo _writerInfo;
+  private int _writerId;
+  private WriterInfoInfo _info;
+  private long _seq; // sequence number of the last announced claim
+  private long _bufSize;
+  private long _indexMask;
+  /**
+   * Stream position up to which (exclusive) writing cannot expire any reader, as
+   * of the last scan of the reader infos, see {@link Writer}.
+   */
+  private long _readersBound;
+
+  // the region claimed by claim, if any
+  private boolean _claimed;
+  private long _claimPos; // stream position of the claimed message
+  private ByteBuffer _claimView; // created on the first claim
+
+  /**
+   * @param ringBuf
+   * @param readerInfo
+   * @param writerInfo: allocates an ownership record in it, freed by
+   *                    {@link #destroy}
+   * @throws Exception if not initialized or no ownership record is free
+   */
+  public LockFreeWriter(ByteRingBuffer ringBuf, ReaderInfo readerInfo, WriterInfo writerInfo) throws Exception {
+    _ringBuf = ringBuf;
+    _readerInfo = readerInfo;
+    _writerInfo = writerInfo;
+    _bufSize = ringBuf.getBufSize();
+    _indexMask = Util.indexMask(_bufSize);
+
+    if (!ringBuf.getInitialized()) {
+      throw new Exception("Ring buffer not initialized");
+    }
+
+    if (!writerInfo.getInitialized()) {
+      throw new Exception("Writer info not initialized");
+    }
+
+    _writerId = writerInfo.alloc();
+    if (_writerId == WriterInfo.INVALID_WRITER_ID) {
+      throw new Exception("No free writer info slot");
+    }
+
+    // the previous owner of the record may have died with a claim
+    _info = writerInfo.getInfo(_writerId);
+    if (recover(_info)) {
+      advance();
+    }
+
+    _seq = WriterInfoInfo.seq(_info.getState());
+    _readersBound = ringBuf.getFreePos();
+  }
+
+  /**
+   * Frees the ownership record. Must be called on the thread that created the
+   * writer, with nothing claimed.
+   */
+  public void destroy() {
+    assert (!_claimed);
+    _writerInfo.free(_writerId);
+  }
+
+  /**
+   * @return the id of the ownership record of the writer
+   */
+  public int getWriterId() {
+    return _writerId;
+  }
+
+  /**
+   * @return the maximal useful message size that can be placed in the ring buffer
+   *         taking into account system data that is also placed.
+   */
+  public long getMaxMessageSize() {
+    return _bufSize - MessageHeader.size();
+  }
+
+  /**
+   * Writes a message to the stream.
+   *
+   * @param data
+   * @param bpHandler
+   */
+  public void writeEx(byte[] data, BackPressureCallback bpHandler) {
+    writeEx(NO_BYTES, data, bpHandler);
+  }
+
+  /**
+   * Writes a message made of {@code prefix} followed by {@code data} to the
+   * stream.
+   *
+   * @param prefix
+   * @param data
+   * @param bpHandler: invoked while writing would expire a reader. If it returns
+   *                   false, the message is written anyway.
+   */
+  public void writeEx(byte[] prefix, byte[] data, BackPressureCallback bpHandler) {
+    int length = prefix.length + data.length;
+    long msgPos = claimRegion(length, bpHandler);
+    long bufIndex = Util.bufIndex(_indexMask, msgPos);
+
+    _ringBuf.setBytes(bufIndex + MessageHeader.size(), prefix);
+    _ringBuf.setBytes(bufIndex + MessageHeader.size() + prefix.length, data);
+
+    publish();
+  }
+
+  /**
+   * Claims a region of {@code length} bytes of the stream, for the caller to
+   * write a message in place and then {@link #commit} or {@link #abort} it.
+   * Other writers keep claiming and committing meanwhile, but readers do not
+   * get past the claimed message until it is committed.
+   *
+   * @param length:    the message size in bytes, greater than 0
+   * @param bpHandler: invoked while claiming would expire a reader. If it
+   *                   returns false, the region is claimed anyway.
+   * @return a view of the ring buffer with position and limit set to the start
+   *         and end of the claimed region, valid until the next claim
+   */
+  public ByteBuffer claim(int length, BackPressureCallback bpHandler) {
+    assert (!_claimed);
+
+    _claimPos = claimRegion(length, bpHandler);
+    _claimed = true;
+
+    if (_claimView == null) {
+      _claimView = _ringBuf.view();
+    }
+
+    int index = (int) (Util.bufIndex(_indexMask, _claimPos) + MessageHeader.size());
+    _claimView.clear();
+    _claimView.position(index).limit(index + length);
+
+    return _claimView;
+  }
+
+  /**
+   * Publishes the claimed message.
+   */
+  public void commit() {
+    assert (_claimed);
+
+    _claimed = false;
+    publish();
+  }
+
+  /**
+   * Turns the claimed message into padding that readers skip and commits it.
+   * Unlike with {@link Writer#abort}, the region stays in the stream.
+   */
+  public void abort() {
+    assert (_claimed);
+
+    _ringBuf.setByte(Util.bufIndex(_indexMask, _claimPos) + MessageHeader.TYPE_OFFSET, MessageHeader.PADDING);
+
+    _claimed = false;
+    publish();
+  }
+
+  /**
+   * Fills the claims of writers that died before committing with padding and
+   * commits them, so that readers get past them. The writers are detected by
+   * acquiring the robust lock of their ownership record, there is no timeout.
+   *
+   * @return the number of recovered ownership records
+   */
+  public int recover() {
+    int recovered = 0;
+
+    for (int i = 0; i < _writerInfo.getMaxWriters(); i++) {
+      if (i == _writerId) {
+        continue;
+      }
+
+      WriterInfoInfo info = _writerInfo.getInfo(i);
+
+      if (WriterInfoInfo.phase(info.getState()) == WriterInfoInfo.IDLE) {
+        continue;
+      }
+
+      // held by a live writer
+      if (!info.lock.tryLock()) {
+        continue;
+      }
+
+      try {
+        if (recover(info)) {
+          recovered++;
+        }
+      } finally {
+        info.lock.unlock();
+      }
+    }
+
+    if (recovered > 0) {
+      advance();
+    }
+
+    return recovered;
+  }
+
+  /**
+   * Claims the region for a message of {@code length} bytes and places the
+   * padding or blank positions needed before it and its header.
+   *
+   * @param length
+   * @param bpHandler
+   * @return the stream position of the message header
+   */
+  private long claimRegion(int length, BackPressureCallback bpHandler) {
+    assert (length > 0 && length <= getMaxMessageSize());
+
+    boolean readerBP = true;
+
+    while (true) {
+      long freePos = _ringBuf.getFreePos();
+      long cursor = _writerInfo.getCursor();
+      long pos = WriterInfo.cursorPos(cursor, freePos);
+      long end = pos + bytesToWrite(pos, length);
+
+      // A reader activated while the claims in flight are not committed starts
+      // at freePos, it must not be overwritten.
+      if (pos != freePos && end - freePos >= _bufSize) {
+        waitForCommits(freePos);
+        continue;
+      }
+
+      if (readerBP && detectReaderBackpressure(freePos, end)) {
+        _ringBuf.incStatBackPressureCount(1);
+        readerBP = bpHandler.writeOrWait(0, freePos);
+        continue;
+      }
+
+      // announce, then claim
+      _info.setStart(pos);
+      _info.setEnd(end);
+      _info.setState(WriterInfoInfo.state(++_seq, WriterInfoInfo.ANNOUNCED));
+
+      markClaimed(cursor, freePos);
+
+      if (_writerInfo.compareAndSetCursor(cursor, WriterInfo.cursor(end, _writerId))) {
+        _info.setState(WriterInfoInfo.state(_seq, WriterInfoInfo.CLAIMED));
+        return putHeader(pos, length, MessageHeader.MESSAGE);
+      }
+
+      _info.setState(WriterInfoInfo.state(_seq, WriterInfoInfo.IDLE));
+    }
+  }
+
+  /**
+   * Commits the claim of this writer and moves {@code freePos} forward.
+   */
+  private void publish() {
+    _info.setState(WriterInfoInfo.state(_seq, WriterInfoInfo.IDLE));
+    advance();
+  }
+
+  /**
+   * Moves {@code freePos} forward to the cursor or to the first claim that is
+   * not committed, whichever comes first. The cursor is read before the
+   * ownership records, and claims are announced before the cursor is moved, so
+   * each claim up to the cursor is either seen or committed.
+   */
+  private void advance() {
+    long freePos = _ringBuf.getFreePos();
+    long newFreePos = WriterInfo.cursorPos(_writerInfo.getCursor(), freePos);
+
+    for (int i = 0; i < _writerInfo.getMaxWriters(); i++) {
+      WriterInfoInfo info = _writerInfo.getInfo(i);
+
+      if (WriterInfoInfo.phase(info.getState()) == WriterInfoInfo.IDLE) {
+        continue;
+      }
+
+      long start = info.getStart();
+      if (Util.greaterThanOrEqualTo(start, freePos) && Util.greaterThan(newFreePos, start)) {
+        newFreePos = start;
+      }
+    }
+
+    while (Util.greaterThan(newFreePos, freePos)) {
+      if (_ringBuf.compareAndSetFreePos(freePos, newFreePos)) {
+        break;
+      }
+
+      freePos = _ringBuf.getFreePos();
+    }
+  }
+
+  /**
+   * Marks the claim that moved the cursor to {@code cursor} as claimed, in case
+   * its writer has not done it yet, e.g. because it died right after the CAS.
+   *
+   * @param cursor
+   * @param freePos: a value of {@code freePos} read before {@code cursor}
+   */
+  private void markClaimed(long cursor, long freePos) {
+    int writerId = WriterInfo.cursorWriterId(cursor);
+    if (writerId == WriterInfo.INVALID_WRITER_ID) {
+      return;
+    }
+
+    WriterInfoInfo info = _writerInfo.getInfo(writerId);
+    long state = info.getState();
+
+    // any later claim of that writer ends after the cursor
+    if (WriterInfoInfo.phase(state) == WriterInfoInfo.ANNOUNCED
+        && info.getEnd() == WriterInfo.cursorPos(cursor, freePos)) {
+      info.compareAndSetState(state, WriterInfoInfo.state(WriterInfoInfo.seq(state), WriterInfoInfo.CLAIMED));
+    }
+  }
+
+  /**
+   * Recovers the ownership record of a writer that died, whose lock is held by
+   * the caller.
+   *
+   * @param info
+   * @return true if the record held a claim; false otherwise
+   */
+  private boolean recover(WriterInfoInfo info) {
+    // Every claim but the last one was marked by the writer that moved the
+    // cursor past it, so an announced claim that is still not marked failed.
+    markClaimed(_writerInfo.getCursor(), _ringBuf.getFreePos());
+
+    long state = info.getState();
+
+    switch (WriterInfoInfo.phase(state)) {
+    case WriterInfoInfo.CLAIMED:
+      long start = info.getStart();
+      long length = info.getEnd() - start;
+      long lengthToBufEnd = _bufSize - Util.bufIndex(_indexMask, start);
+
+      if (length > lengthToBufEnd) {
+        // the message follows padding or blank positions
+        length -= lengthToBufEnd;
+      }
+
+      putHeader(start, (int) (length - MessageHeader.size()), MessageHeader.PADDING);
+      break;
+    case WriterInfoInfo.ANNOUNCED:
+      break;
+    default:
+      return false;
+    }
+
+    info.setState(WriterInfoInfo.state(WriterInfoInfo.seq(state), WriterInfoInfo.IDLE));
+
+    return true;
+  }
+
+  /**
+   * Waits for the claims in flight to be committed, recovering the ones of
+   * writers that died.
+   *
+   * @param freePos
+   */
+  private void waitForCommits(long freePos) {
+    advance();
+
+    if (_ringBuf.getFreePos() == freePos && recover() == 0) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * The number of bytes taken by a message written at stream position
+   * {@code pos}, including the padding or blank positions that precede it if it
+   * does not fit till the end of the buffer.
+   *
+   * @param pos
+   * @param dataLength
+   * @return size in bytes
+   */
+  private long bytesToWrite(long pos, int dataLength) {
+    long lengthToBufEnd = _bufSize - Util.bufIndex(_indexMask, pos);
+    long bytesToWrite = MessageHeader.size() + dataLength;
+
+    if (lengthToBufEnd < bytesToWrite) {
+      // blank if there is no space for a header, padding message otherwise
+      bytesToWrite += lengthToBufEnd;
+    }
+
+    return bytesToWrite;
+  }
+
+  /**
+   * Places the padding or blank positions needed before a record of
+   * {@code length} bytes at stream position {@code pos} and the record header,
+   * i.e. the records of a claim.
+   *
+   * @param pos
+   * @param length
+   * @param type:   MESSAGE or PADDING
+   * @return the stream position of the record header
+   */
+  private long putHeader(long pos, int length, byte type) {
+    long bufIndex = Util.bufIndex(_indexMask, pos);
+    long lengthToBufEnd = _bufSize - bufIndex;
+
+    if (lengthToBufEnd < MessageHeader.size()) {
+      // blank
+      pos += lengthToBufEnd;
+      bufIndex = 0;
+    } else if (lengthToBufEnd < MessageHeader.size() + length) {
+      // set the header of the padding
+      _ringBuf.setByte(bufIndex + MessageHeader.TYPE_OFFSET, MessageHeader.PADDING);
+      _ringBuf.setInt(bufIndex + MessageHeader.LENGTH_OFFSET, (int) (lengthToBufEnd - MessageHeader.size()));
+
+      pos += lengthToBufEnd;
+      bufIndex = 0;
+    }
+
+    // write the header of the record
+    _ringBuf.setByte(bufIndex + MessageHeader.TYPE_OFFSET, type);
+    _ringBuf.setInt(bufIndex + MessageHeader.LENGTH_OFFSET, length);
+
+    return pos;
+  }
+
+  /**
+   * Detects if writing up to stream position {@code end} will expire a reader.
+   *
+   * @param freePos
+   * @param end
+   * @return true if a reader will expire; false otherwise
+   */
+  private boolean detectReaderBackpressure(long freePos, long end) {
+    if (Util.greaterThan(_readersBound, end)) {
+      return false;
+    }
+
+    return end - freePos >= readerHeadroom(freePos);
+  }
+
+  /**
+   * Computes how many bytes can be written from {@code freePos} without expiring
+   * an active reader. Refreshes the cached readers bound.
+   *
+   * @param freePos
+   * @return the headroom in bytes; Long.MAX_VALUE if no reader can expire
+   */
+  private long readerHeadroom(long freePos) {
+    long headroom = Long.MAX_VALUE;
+
+    int readersMinMax = _readerInfo.getReadersMinMax();
+    int max = ReaderInfo.activeRangeMax(readersMinMax);
+    for (int i = ReaderInfo.activeRangeMin(readersMinMax); i < max; i++) {
+      ReaderInfoInfo readerInfo = _readerInfo.getInfo(i);
+
+      if (!readerInfo.getIsActive()) {
+        continue;
+      }
+
+      long readerPos = readerInfo.getPosition();
+
+      if (Util.expired(readerPos, freePos, _bufSize)) {
+        continue;
+      }
+
+      headroom = Math.min(headroom, readerPos + _bufSize - freePos);
+    }
+
+    // a reader activated later starts at or after freePos
+    _readersBound = freePos + Math.min(headroom, _bufSize);
+
+    return headroom;
+  }
+
+}
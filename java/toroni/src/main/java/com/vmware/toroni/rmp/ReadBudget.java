@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the work of one {@link Reader#readEx} call, so that a reader under
+ * sustained writing returns to its caller, e.g. to let other work items of a
+ * serial executor run, instead of reading until it catches up with the
+ * writers. Reading stops after the first message that reaches any of the
+ * limits, so every call makes progress.
+ */
+public class ReadBudget {
+
+  public static final ReadBudget UNLIMITED = new ReadBudget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+  private final long _maxMessages;
+  private final long _maxBytes;
+  private final long _maxNanos;
+
+  /**
+   * @param maxMessages: messages passed per call, whether the callback
+   *                     delivers or discards them
+   * @param maxBytes:    stream bytes, including headers and padding, consumed
+   *                     per call
+   * @param maxNanos:    duration of a call; Long.MAX_VALUE to not read the clock
+   */
+  public ReadBudget(long maxMessages, long maxBytes, long maxNanos) {
+    assert (maxMessages > 0 && maxBytes > 0 && maxNanos > 0);
+
+    _maxMessages = maxMessages;
+    _maxBytes = maxBytes;
+    _maxNanos = maxNanos;
+  }
+
+  /**
+   * @param maxMessages
+   * @return a budget of {@code maxMessages} messages per call
+   */
+  public static ReadBudget messages(long maxMessages) {
+    return new ReadBudget(maxMessages, Long.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param maxBytes
+   * @return a budget of {@code maxBytes} stream bytes per call
+   */
+  public static ReadBudget bytes(long maxBytes) {
+    return new ReadBudget(Long.MAX_VALUE, maxBytes, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param duration
+   * @param unit
+   * @return a budget of {@code duration} per call
+   */
+  public static ReadBudget time(long duration, TimeUnit unit) {
+    return new ReadBudget(Long.MAX_VALUE, Long.MAX_VALUE, unit.toNanos(duration));
+  }
+
+  /**
+   * @return the messages passed per call, delivered or discarded
+   */
+  public long getMaxMessages() {
+    return _maxMessages;
+  }
+
+  /**
+   * @return the stream bytes consumed per call
+   */
+  public long getMaxBytes() {
+    return _maxBytes;
+  }
+
+  /**
+   * @return the duration of a call in nanoseconds; Long.MAX_VALUE if unbounded
+   */
+  public long getMaxNanos() {
+    return _maxNanos;
+  }
+
+  /**
+   * @return true if the duration of a call is bounded
+   */
+  public boolean isTimed() {
+    return _maxNanos != Long.MAX_VALUE;
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+import java.nio.ByteBuffer;
+
+public interface ReadViewCallback {
+  /**
+   * Invoked with a view of the message in the ring buffer. The message is not
+   * copied, so writers may overwrite it while it is being read. Anything derived
+   * from it must not be used until {@link #messageConfirmed()} is invoked.
+   *
+   * @param data: the message is between position and limit
+   * @return true if {@link #messageConfirmed()} should be invoked once the data
+   *         is confirmed; false to discard the message
+   */
+  boolean messageViewed(ByteBuffer data);
+
+  /**
+   * Invoked if the message passed to the last {@link #messageViewed} was not
+   * overwritten while it was being read.
+   */
+  void messageConfirmed();
+}
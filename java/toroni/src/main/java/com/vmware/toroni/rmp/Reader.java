@@ -10,25 +10,51 @@ import com.vmware.toroni.rmp.detail.*;
 
 public class Reader {
   public enum Result {
-    SUCCESS, INVALID_POSITION, EXPIRED_POSITION
+    SUCCESS, INVALID_POSITION, EXPIRED_POSITION,
+    // the ReadBudget ran out before the stream end
+    MORE_AVAILABLE
   };
 
-  public class ResultPosPair {
+  /**
+   * Result of readEx. Can be reused across calls to keep reading allocation-free.
+   */
+  public static class ResultPosPair {
     public Result res;
     public long pos;
+    public long messages; // messages confirmed by the last readEx
+
+    public ResultPosPair() {
+    }
 
-    ResultPosPair(Result _res, long _pos) {
+    ResultPosPair set(Result _res, long _pos) {
       res = _res;
       pos = _pos;
+      return this;
     }
   }
 
   private final ByteRingBuffer _ringBuf;
   private final long _indexMask;
+  private final WriterInfo _writerInfo; // null unless written by LockFreeWriters
 
   public Reader(ByteRingBuffer ringBuf) throws Exception {
+    this(ringBuf, null);
+  }
+
+  /**
+   * A reader of a ring buffer written by {@link LockFreeWriter}s. Their claims
+   * in flight overwrite positions before {@code freePos} expires them, so
+   * expiration is checked against the claim cursor instead.
+   *
+   * @param ringBuf
+   * @param writerInfo: shared by the writers; null if written by a
+   *                    {@link Writer}
+   * @throws Exception if not initialized
+   */
+  public Reader(ByteRingBuffer ringBuf, WriterInfo writerInfo) throws Exception {
     _ringBuf = ringBuf;
     _indexMask = Util.indexMask(_ringBuf.getBufSize());
+    _writerInfo = writerInfo;
 
     if (!ringBuf.getInitialized()) {
       throw new Exception("Ring buffer not initialized");
@@ -47,14 +73,54 @@ public class Reader {
    *                       not expired
    * @return INVALID_POSITION if pos is after the stream end. EXPIRED_POSITION if
    *         the ring buffer has been overwritten at stream position pos. SUCCESS
-   *         otherwise.
+   *         otherwise. Never MORE_AVAILABLE, since there is no budget.
    */
   public ResultPosPair readEx(long pos, ReaderInfoInfo readerInfo, CopyConfirmCallback copyConfirmCb) {
+    return readEx(pos, readerInfo, copyConfirmCb, new ResultPosPair());
+  }
+
+  /**
+   * Same as {@link #readEx(long, ReaderInfoInfo, CopyConfirmCallback)} but
+   * stores the result in {@code result} instead of allocating one. Does not
+   * allocate if {@code copyConfirmCb} does not allocate.
+   *
+   * @param pos
+   * @param readerInfo
+   * @param copyConfirmCb
+   * @param result:        updated with the result and returned
+   * @return {@code result}, never MORE_AVAILABLE
+   */
+  public ResultPosPair readEx(long pos, ReaderInfoInfo readerInfo, CopyConfirmCallback copyConfirmCb,
+      ResultPosPair result) {
+    return readEx(pos, readerInfo, copyConfirmCb, ReadBudget.UNLIMITED, result);
+  }
+
+  /**
+   * Same as {@link #readEx(long, ReaderInfoInfo, CopyConfirmCallback)} but stops
+   * once {@code budget} is used up. The position is published to
+   * {@code readerInfo} before returning, so the caller can do other work and
+   * continue reading from it later.
+   *
+   * @param pos
+   * @param readerInfo
+   * @param copyConfirmCb
+   * @param budget:        limits of this call
+   * @param result:        updated with the result and returned
+   * @return {@code result}, MORE_AVAILABLE if {@code budget} is used up before
+   *         the stream end
+   */
+  public ResultPosPair readEx(long pos, ReaderInfoInfo readerInfo, CopyConfirmCallback copyConfirmCb,
+      ReadBudget budget, ResultPosPair result) {
+    result.messages = 0;
+
     if (Util.greaterThan(pos, _ringBuf.getFreePos())) {
-      return new ResultPosPair(Result.INVALID_POSITION, pos);
+      return result.set(Result.INVALID_POSITION, pos);
     }
 
     long bposMaxLag = _ringBuf.getBufSize();
+    long startPos = pos;
+    long passed = 0; // messages, delivered or discarded by copyConfirmCb
+    long deadline = budget.isTimed() ? System.nanoTime() + budget.getMaxNanos() : 0;
 
     while (pos != _ringBuf.getFreePos()) {
       long bufIndex = Util.bufIndex(_indexMask, pos);
@@ -66,37 +132,65 @@ public class Reader {
         continue;
       }
 
-      if (Util.expired(pos, _ringBuf.getFreePos(), _ringBuf.getBufSize())) {
-        return new ResultPosPair(Result.EXPIRED_POSITION, pos);
+      if (expired(pos)) {
+        return result.set(Result.EXPIRED_POSITION, pos);
       }
 
-      MessageHeader msgHeaderCpy = Util.readMsgHeader(_ringBuf, bufIndex);
-      if (!msgHeaderCpy.valid() || Util.expired(pos, _ringBuf.getFreePos(), _ringBuf.getBufSize())) {
-        return new ResultPosPair(Result.EXPIRED_POSITION, pos);
+      // copy of the header, decoded into primitives
+      byte msgType = Util.readMsgType(_ringBuf, bufIndex);
+      long msgLength = Util.readMsgLength(_ringBuf, bufIndex);
+      if (!MessageHeader.valid(msgType, msgLength)
+          || expired(pos)) {
+        return result.set(Result.EXPIRED_POSITION, pos);
       }
 
-      assert (bufIndex + MessageHeader.size() + msgHeaderCpy.length <= _ringBuf.getBufSize());
+      assert (bufIndex + MessageHeader.size() + msgLength <= _ringBuf.getBufSize());
+
+      if (msgType == MessageHeader.MESSAGE) {
+        passed++;
 
-      if (msgHeaderCpy.type == MessageHeader.MESSAGE) {
-        if (copyConfirmCb.copy(bufIndex + MessageHeader.size(), (int) msgHeaderCpy.length)) {
+        if (copyConfirmCb.copy(bufIndex + MessageHeader.size(), (int) msgLength)) {
           // Reliable pessimistic expiration check.
-          if (Util.expired(pos, _ringBuf.getFreePos(), _ringBuf.getBufSize())) {
-            return new ResultPosPair(Result.EXPIRED_POSITION, pos);
+          if (expired(pos)) {
+            return result.set(Result.EXPIRED_POSITION, pos);
           }
 
           copyConfirmCb.confirm();
+          result.messages++;
         }
       }
 
-      pos += MessageHeader.size() + msgHeaderCpy.length;
+      pos += MessageHeader.size() + msgLength;
 
       if (pos >= readerInfo.getPosition() + bposMaxLag) {
         readerInfo.setPosition(pos);
       }
+
+      if ((passed >= budget.getMaxMessages() || pos - startPos >= budget.getMaxBytes()
+          || (budget.isTimed() && System.nanoTime() - deadline >= 0))
+          && pos != _ringBuf.getFreePos()) {
+        readerInfo.setPosition(pos);
+
+        return result.set(Result.MORE_AVAILABLE, pos);
+      }
     }
 
     readerInfo.setPosition(pos);
 
-    return new ResultPosPair(Result.SUCCESS, pos);
+    return result.set(Result.SUCCESS, pos);
+  }
+
+  /**
+   * @param pos
+   * @return true if the message at stream position {@code pos} may have been
+   *         overwritten, by a published message or by a claim in flight
+   */
+  private boolean expired(long pos) {
+    long writtenPos = _ringBuf.getFreePos();
+    if (_writerInfo != null) {
+      writtenPos = WriterInfo.cursorPos(_writerInfo.getCursor(), writtenPos);
+    }
+
+    return Util.expired(pos, writtenPos, _ringBuf.getBufSize());
   }
 }
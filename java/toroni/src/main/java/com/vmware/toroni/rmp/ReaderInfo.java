@@ -14,23 +14,28 @@ import sun.misc.Unsafe;
 
 public class ReaderInfo {
 
-  public static final long STAT_EXPIRED_READERS_OFFSET;
-  public static final long INITIALIZED_OFFSET;
-  public static final long MAX_READERS_OFFSET;
-  public static final long READERS_MIN_MAX_OFFSET;
-  public static final long FIRST_INFO_OFFSET;
+  public final long LAYOUT_OFFSET;
+  public final long STAT_EXPIRED_READERS_OFFSET;
+  public final long INITIALIZED_OFFSET;
+  public final long MAX_READERS_OFFSET;
+  public final long READERS_MIN_MAX_OFFSET;
+  public final long SLEEPING_READERS_OFFSET;
+  public final long FIRST_INFO_OFFSET;
 
   public final long READER_INFO_ADDRESS;
+  public final long LAYOUT_ADDRESS;
   public final long STAT_EXPIRED_READERS_ADDRESS;
   public final long INITIALIZED_ADDRESS;
   public final long MAX_READERS_ADDRESS;
   public final long READERS_MIN_MAX_ADDRESS;
+  public final long SLEEPING_READERS_ADDRESS;
   public final long FIRST_INFO_ADDRESS;
 
   public static final int INVALID_READER_ID = -1;
 
   private Pointer _readerInfoPointer;
   private short _maxReaders;
+  private final int _layout;
   private ReaderInfoInfo[] _infos;
   private static Unsafe _unsafe;
 
@@ -45,30 +50,54 @@ public class ReaderInfo {
     } catch (Exception e) {
       System.out.println("Unsafe couldn't be loaded!");
     }
-
-    STAT_EXPIRED_READERS_OFFSET = 0;
-    INITIALIZED_OFFSET = STAT_EXPIRED_READERS_OFFSET + Long.BYTES;
-    // MAX_READERS_OFFSET = INITIALIZED_OFFSET + Byte.BYTES; // pragma pack(1)
-    MAX_READERS_OFFSET = INITIALIZED_OFFSET + Short.BYTES;
-    READERS_MIN_MAX_OFFSET = MAX_READERS_OFFSET + Short.BYTES;
-    FIRST_INFO_OFFSET = READERS_MIN_MAX_OFFSET + Integer.BYTES;
   }
 
   public ReaderInfo(Pointer readerInfoPointer, short maxReaders, RobustMutex protoLock) {
+    this(readerInfoPointer, maxReaders, protoLock, Layout.ALIGNED);
+  }
+
+  /**
+   * @param readerInfoPointer
+   * @param maxReaders
+   * @param protoLock
+   * @param layout:            Layout.PACKED or Layout.ALIGNED, must be the
+   *                           layout of the segment
+   */
+  public ReaderInfo(Pointer readerInfoPointer, short maxReaders, RobustMutex protoLock, int layout) {
     _readerInfoPointer = readerInfoPointer;
     _maxReaders = maxReaders;
+    _layout = layout;
     _infos = new ReaderInfoInfo[maxReaders];
 
+    // the first word of a packed segment is expiredReaders, see Layout.version
+    LAYOUT_OFFSET = 0;
+    STAT_EXPIRED_READERS_OFFSET = layout == Layout.PACKED ? 0 : LAYOUT_OFFSET + Long.BYTES;
+    INITIALIZED_OFFSET = STAT_EXPIRED_READERS_OFFSET + Long.BYTES;
+    // MAX_READERS_OFFSET = INITIALIZED_OFFSET + Byte.BYTES; // pragma pack(1)
+    MAX_READERS_OFFSET = INITIALIZED_OFFSET + Short.BYTES;
+    READERS_MIN_MAX_OFFSET = MAX_READERS_OFFSET + Short.BYTES;
+    if (layout == Layout.PACKED) {
+      // the layout of segments created before sleepingReaders, which it has not
+      SLEEPING_READERS_OFFSET = -1;
+      FIRST_INFO_OFFSET = READERS_MIN_MAX_OFFSET + Integer.BYTES;
+    } else {
+      SLEEPING_READERS_OFFSET = READERS_MIN_MAX_OFFSET + Integer.BYTES;
+      FIRST_INFO_OFFSET = Layout.CACHE_LINE_SIZE;
+    }
+
     READER_INFO_ADDRESS = Pointer.nativeValue(_readerInfoPointer);
+    LAYOUT_ADDRESS = READER_INFO_ADDRESS + LAYOUT_OFFSET;
     STAT_EXPIRED_READERS_ADDRESS = READER_INFO_ADDRESS + STAT_EXPIRED_READERS_OFFSET;
     INITIALIZED_ADDRESS = READER_INFO_ADDRESS + INITIALIZED_OFFSET;
     MAX_READERS_ADDRESS = READER_INFO_ADDRESS + MAX_READERS_OFFSET;
     READERS_MIN_MAX_ADDRESS = READER_INFO_ADDRESS + READERS_MIN_MAX_OFFSET;
+    SLEEPING_READERS_ADDRESS = READER_INFO_ADDRESS + SLEEPING_READERS_OFFSET;
     FIRST_INFO_ADDRESS = READER_INFO_ADDRESS + FIRST_INFO_OFFSET;
 
     for (int i = 0; i < maxReaders; i++) {
-      _infos[i] = new ReaderInfoInfo(new Pointer(FIRST_INFO_ADDRESS + i * ReaderInfoInfo.size(protoLock.size())),
-          protoLock);
+      _infos[i] = new ReaderInfoInfo(
+          new Pointer(FIRST_INFO_ADDRESS + i * ReaderInfoInfo.size(protoLock.size(), layout)),
+          protoLock, layout);
     }
   }
 
@@ -76,9 +105,15 @@ public class ReaderInfo {
    * Initialize the memory for a non-initialized ReaderInfo.
    */
   public void initialize() {
+    if (_layout != Layout.PACKED) {
+      _unsafe.putLong(LAYOUT_ADDRESS, Layout.word(_layout));
+    }
     _unsafe.putLong(STAT_EXPIRED_READERS_ADDRESS, 0);
     _unsafe.putShort(MAX_READERS_ADDRESS, _maxReaders);
     _unsafe.putInt(READERS_MIN_MAX_ADDRESS, 0);
+    if (hasSleepingReaders()) {
+      _unsafe.putInt(SLEEPING_READERS_ADDRESS, 0);
+    }
 
     for (int i = 0; i < _maxReaders; i++) {
       _infos[i].initialize();
@@ -93,12 +128,36 @@ public class ReaderInfo {
    * @return the size in bytes of a ReaderInfo object in memory
    */
   public static long size(short maxReaders, long mtxSize) {
-    return Long.BYTES // expiredReaders
-        // + Byte.BYTES // initialized, pragma packed(1)
-        + Short.BYTES // initialized
-        + Short.BYTES // maxReaders
-        + Integer.BYTES // readersMinMax
-        + maxReaders * ReaderInfoInfo.size(mtxSize); // infos
+    return size(maxReaders, mtxSize, Layout.ALIGNED);
+  }
+
+  /**
+   * @param maxReaders: maximum allowed number of active readers
+   * @param mtxSize:    size in bytes of a RobustMutex object in memory
+   * @param layout:     Layout.PACKED or Layout.ALIGNED
+   * @return the size in bytes of a ReaderInfo object of {@code layout} in
+   *         memory
+   */
+  public static long size(short maxReaders, long mtxSize, int layout) {
+    if (layout == Layout.PACKED) {
+      return Long.BYTES // expiredReaders
+          // + Byte.BYTES // initialized, pragma packed(1)
+          + Short.BYTES // initialized
+          + Short.BYTES // maxReaders
+          + Integer.BYTES // readersMinMax
+          + maxReaders * ReaderInfoInfo.size(mtxSize, layout); // infos
+    }
+
+    return Layout.CACHE_LINE_SIZE // layout, expiredReaders, initialized,
+                                  // maxReaders, readersMinMax, sleepingReaders
+        + maxReaders * ReaderInfoInfo.size(mtxSize, layout); // infos
+  }
+
+  /**
+   * @return the layout version of the segment, see {@link Layout}
+   */
+  public int getLayoutVersion() {
+    return Layout.version(_unsafe.getLong(LAYOUT_ADDRESS));
   }
 
   /**
@@ -145,7 +204,10 @@ public class ReaderInfo {
 
   /**
    * Activate an allocated reader info slot so its stream position is
-   * taken into consideration for creating backpressure on writers.
+   * taken into consideration for creating backpressure on writers. Writers
+   * cache the slowest reader position, so {@code pos} must not be behind the
+   * stream end at the time of activation, e.g. read it under the ring buffer
+   * lock as ReaderWithBackpressure does.
    * 
    * @param readerId
    * @param pos
@@ -185,10 +247,32 @@ public class ReaderInfo {
    */
   public short[] getActiveRange() {
     int readersMinMax = getReadersMinMax();
-    short[] activeRange = { (short) (readersMinMax >> 16), (short) readersMinMax };
+    short[] activeRange = { activeRangeMin(readersMinMax), activeRangeMax(readersMinMax) };
     return activeRange;
   }
 
+  /**
+   * Unpacks the range min from a value of {@code readersMinMax}. Together with
+   * {@link #activeRangeMax(int)} it allows reading the active range without
+   * allocating.
+   *
+   * @param readersMinMax: a value returned by {@link #getReadersMinMax()}
+   * @return min of the active range (included)
+   */
+  public static short activeRangeMin(int readersMinMax) {
+    return (short) (readersMinMax >> 16);
+  }
+
+  /**
+   * Unpacks the range max from a value of {@code readersMinMax}.
+   *
+   * @param readersMinMax: a value returned by {@link #getReadersMinMax()}
+   * @return max of the active range (excluded)
+   */
+  public static short activeRangeMax(int readersMinMax) {
+    return (short) readersMinMax;
+  }
+
   /**
    * Update the range of active slots.
    */
@@ -239,10 +323,11 @@ public class ReaderInfo {
   }
 
   /**
-   * @return the value of {@code initialized}.
+   * @return the value of {@code initialized}; false if the segment has another
+   *         layout.
    */
   public boolean getInitialized() {
-    return (_unsafe.getByte(INITIALIZED_ADDRESS) == (byte) 1);
+    return (_unsafe.getByte(INITIALIZED_ADDRESS) == (byte) 1 && getLayoutVersion() == _layout);
   }
 
   /**
@@ -261,4 +346,29 @@ public class ReaderInfo {
     _unsafe.putIntVolatile(null, READERS_MIN_MAX_ADDRESS, value);
   }
 
+  /**
+   * @return whether the segment has {@code sleepingReaders}. The packed layout
+   *         has not, as processes built before it do not count themselves.
+   */
+  public boolean hasSleepingReaders() {
+    return _layout != Layout.PACKED;
+  }
+
+  /**
+   * @return the value of {@code sleepingReaders}, the number of readers about
+   *         to block or blocked on a notification
+   */
+  public int getSleepingReaders() {
+    assert (hasSleepingReaders());
+    return _unsafe.getIntVolatile(null, SLEEPING_READERS_ADDRESS);
+  }
+
+  /*
+   * Atomically increase value with new {@code value}
+   */
+  public void incSleepingReaders(int value) {
+    assert (hasSleepingReaders());
+    _unsafe.getAndAddInt(null, SLEEPING_READERS_ADDRESS, value);
+  }
+
 }
@@ -40,10 +40,24 @@ public class ReaderInfoInfo {
   }
 
   public ReaderInfoInfo(Pointer infoPointer, RobustMutex protoLock) {
+    this(infoPointer, protoLock, Layout.ALIGNED);
+  }
+
+  /**
+   * @param infoPointer
+   * @param protoLock
+   * @param layout:      Layout.PACKED or Layout.ALIGNED
+   */
+  public ReaderInfoInfo(Pointer infoPointer, RobustMutex protoLock, int layout) {
     _infoPointer = infoPointer;
 
     LOCK_OFFSET = 0;
-    POSITION_OFFSET = LOCK_OFFSET + protoLock.size();
+    if (layout == Layout.PACKED) {
+      POSITION_OFFSET = LOCK_OFFSET + protoLock.size();
+    } else {
+      // position and isActive, which writers read together, on their own line
+      POSITION_OFFSET = LOCK_OFFSET + Layout.align(protoLock.size());
+    }
     IS_ACTIVE_OFFSET = POSITION_OFFSET + Long.BYTES;
 
     INFO_ADDRESS = Pointer.nativeValue(_infoPointer);
@@ -65,10 +79,24 @@ public class ReaderInfoInfo {
    * @return size in bytes of a Info object in memory
    */
   public static long size(long mtxSize) {
-    return mtxSize // lock
-        + Long.BYTES // position
-        // + Byte.BYTES; // isActive, pragma packed(1)
-        + Long.BYTES; // isActive
+    return size(mtxSize, Layout.ALIGNED);
+  }
+
+  /**
+   * @param mtxSize: size in bytes of a RobustMutex object in memory
+   * @param layout:  Layout.PACKED or Layout.ALIGNED
+   * @return size in bytes of a Info object of {@code layout} in memory
+   */
+  public static long size(long mtxSize, int layout) {
+    if (layout == Layout.PACKED) {
+      return mtxSize // lock
+          + Long.BYTES // position
+          // + Byte.BYTES; // isActive, pragma packed(1)
+          + Long.BYTES; // isActive
+    }
+
+    return Layout.align(mtxSize) // lock
+        + Layout.CACHE_LINE_SIZE; // position, isActive
   }
 
   /**
@@ -5,6 +5,9 @@
 
 package com.vmware.toroni.rmp;
 
+import com.vmware.toroni.metrics.ReaderMetrics;
+import com.vmware.toroni.traits.RobustMutex;
+
 public class ReaderWithBackpressure {
   private ByteRingBuffer _ringBuf;
   private ReaderInfo _readerInfo;
@@ -12,12 +15,40 @@ public class ReaderWithBackpressure {
   private int _procReaderId;
   private ReaderInfoInfo _info;
   private long _readerPos;
+  private Reader.ResultPosPair _result = new Reader.ResultPosPair();
+  private ReaderMetrics _metrics; // null if not collected
 
   public ReaderWithBackpressure(ByteRingBuffer ringBuf, ReaderInfo readerInfo) throws Exception {
+    this(ringBuf, readerInfo, null);
+  }
+
+  /**
+   * @param ringBuf
+   * @param readerInfo
+   * @param metrics:   slot counting read passes, messages, bytes and expiries;
+   *                   null if not collected
+   */
+  public ReaderWithBackpressure(ByteRingBuffer ringBuf, ReaderInfo readerInfo, ReaderMetrics metrics)
+      throws Exception {
+    this(ringBuf, readerInfo, null, metrics);
+  }
+
+  /**
+   * @param ringBuf
+   * @param readerInfo
+   * @param writerInfo: of the {@link LockFreeWriter}s of the ring buffer, see
+   *                    {@link Reader#Reader(ByteRingBuffer, WriterInfo)}; null
+   *                    if written by a {@link Writer}
+   * @param metrics:    slot counting read passes, messages, bytes and expiries;
+   *                    null if not collected
+   */
+  public ReaderWithBackpressure(ByteRingBuffer ringBuf, ReaderInfo readerInfo, WriterInfo writerInfo,
+      ReaderMetrics metrics) throws Exception {
     _ringBuf = ringBuf;
+    _metrics = metrics;
     _readerInfo = readerInfo;
     try {
-      _reader = new Reader(_ringBuf);
+      _reader = new Reader(_ringBuf, writerInfo);
     } catch (Exception e) {
       throw e;
     }
@@ -43,11 +74,20 @@ public class ReaderWithBackpressure {
   }
 
   /**
-   * Activate a reader info slot.
+   * Activate a reader info slot. The position is taken under the ring buffer
+   * lock so it is not behind positions writers have already checked for
+   * backpressure.
    */
   public void activate() {
-    _readerPos = _ringBuf.getFreePos();
-    _readerInfo.activate(_procReaderId, _readerPos);
+    RobustMutex lock = _ringBuf.getMtx();
+    lock.lock();
+
+    try {
+      _readerPos = _ringBuf.getFreePos();
+      _readerInfo.activate(_procReaderId, _readerPos);
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -80,18 +120,40 @@ public class ReaderWithBackpressure {
    *                       continues. Confirm is called if reader has not expired
    * @return EXPIRED_POSITION if the reader stream position is before the stream
    *         end and the ring buffer has been overwritten. SUCCESS
-   *         otherwise.
+   *         otherwise. Never MORE_AVAILABLE, since there is no budget.
    */
   public Reader.Result readEx(CopyConfirmCallback copyConfirmCb) {
+    return readEx(copyConfirmCb, ReadBudget.UNLIMITED);
+  }
+
+  /**
+   * Same as {@link #readEx(CopyConfirmCallback)} but stops once {@code budget}
+   * is used up, with the reader stream position published.
+   *
+   * @param copyConfirmCb
+   * @param budget:        limits of this call
+   * @return MORE_AVAILABLE if {@code budget} is used up before the stream end,
+   *         otherwise as {@link #readEx(CopyConfirmCallback)}
+   */
+  public Reader.Result readEx(CopyConfirmCallback copyConfirmCb, ReadBudget budget) {
     assert (isActive());
 
-    Reader.ResultPosPair result = _reader.readEx(_readerPos, _info, copyConfirmCb);
+    long startPos = _readerPos;
+    Reader.ResultPosPair result = _reader.readEx(_readerPos, _info, copyConfirmCb, budget, _result);
     _readerPos = result.pos;
 
     assert (result.res != Reader.Result.INVALID_POSITION);
 
+    if (_metrics != null) {
+      _metrics.onReadPass(result.messages, _readerPos - startPos);
+    }
+
     if (result.res == Reader.Result.EXPIRED_POSITION) {
       _readerInfo.incStatExpiredReaders(1);
+
+      if (_metrics != null) {
+        _metrics.onExpired();
+      }
     }
 
     return result.res;
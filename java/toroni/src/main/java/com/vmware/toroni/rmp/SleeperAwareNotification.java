@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vmware.toroni.traits.IdleStrategy;
+import com.vmware.toroni.traits.Notification;
+
+/**
+ * Notification that writers only send while at least one reader is asleep,
+ * i.e. blocked or about to block on it. Readers count themselves in
+ * {@code sleepingReaders} of the {@link ReaderInfo} before checking for
+ * messages a last time and blocking. Writers check the count after publishing
+ * {@code freePos}. Both are sequentially consistent, so either the reader sees
+ * the new messages and does not block, or the writer sees the reader and
+ * notifies it. A reader that dies asleep leaves the count raised, so writers
+ * keep notifying.
+ *
+ * All readers and writers of a ring buffer must use it, as readers blocking
+ * directly on the notification are not counted. On a segment of the packed
+ * layout, which has no {@code sleepingReaders}, writers always notify.
+ */
+public class SleeperAwareNotification implements Notification {
+
+  private final Notification _notification;
+  private final ReaderInfo _readerInfo;
+  private final IdleStrategy.AvailableFn _availableFn;
+  private final LongAdder _sent = new LongAdder();
+  private final LongAdder _suppressed = new LongAdder();
+
+  /**
+   * @param notification: notification sent to and waited on by readers
+   * @param readerInfo:   reader info of the ring buffer
+   * @param availableFn:  whether messages are available to the reader; null if
+   *                      only sending
+   */
+  public SleeperAwareNotification(Notification notification, ReaderInfo readerInfo,
+      IdleStrategy.AvailableFn availableFn) {
+    _notification = notification;
+    _readerInfo = readerInfo;
+    _availableFn = availableFn;
+  }
+
+  /**
+   * Send a notification to all readers if at least one is asleep. To be called
+   * after writing, as the messages must be published first.
+   */
+  @Override
+  public void sendNotification() {
+    if (!_readerInfo.hasSleepingReaders() || _readerInfo.getSleepingReaders() > 0) {
+      _notification.sendNotification();
+      _sent.increment();
+    } else {
+      _suppressed.increment();
+    }
+  }
+
+  /**
+   * Wait for a notification unless messages are available. Returns immidiately
+   * if they are or a notification is available, or blocks otherwise.
+   */
+  @Override
+  public void waitForNotification() {
+    assert (_availableFn != null);
+
+    if (!_readerInfo.hasSleepingReaders()) {
+      if (!_availableFn.run()) {
+        _notification.waitForNotification();
+      }
+      return;
+    }
+
+    _readerInfo.incSleepingReaders(1);
+
+    try {
+      if (!_availableFn.run()) {
+        _notification.waitForNotification();
+      }
+    } finally {
+      _readerInfo.incSleepingReaders(-1);
+    }
+  }
+
+  /**
+   * @return the number of notifications sent
+   */
+  public long getSent() {
+    return _sent.sum();
+  }
+
+  /**
+   * @return the number of notifications not sent as no reader was asleep
+   */
+  public long getSuppressed() {
+    return _suppressed.sum();
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Zero-copy alternative of CopyConfirmHandler. Instead of copying the message
+ * to local storage, it hands a view of the ring buffer to the callback. The
+ * reader validates expiry after the callback returns and only then confirms.
+ */
+public class ViewConfirmHandler implements CopyConfirmCallback {
+  private ByteBuffer _view;
+  private ReadViewCallback _readCb;
+
+  public ViewConfirmHandler(ByteRingBuffer ringBuf, ReadViewCallback readCb) {
+    _view = ringBuf.view();
+    _readCb = readCb;
+  }
+
+  public boolean copy(long index, int length) {
+    _view.clear();
+    _view.position((int) index).limit((int) index + length);
+
+    return _readCb.messageViewed(_view);
+  }
+
+  public void confirm() {
+    _readCb.messageConfirmed();
+  }
+}
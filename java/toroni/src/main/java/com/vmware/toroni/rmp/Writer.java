@@ -5,25 +5,61 @@
 
 package com.vmware.toroni.rmp;
 
-import java.util.Optional;
+import java.nio.ByteBuffer;
+import java.util.List;
 
+import com.vmware.toroni.metrics.WriterMetrics;
 import com.vmware.toroni.rmp.detail.*;
 import com.vmware.toroni.traits.RobustMutex;
 
 public class Writer {
 
+  private static final byte[] NO_BYTES = new byte[0];
+
   private ByteRingBuffer _ringBuf;
   private ReaderInfo _readerInfo;
   private long _indexMask;
+  /**
+   * Stream position up to which (exclusive) writing cannot expire any reader, as
+   * of the last scan of the reader infos. Reader positions only move forward and
+   * readers activate at the stream end under the ring buffer lock, so it stays a
+   * lower bound until the next scan.
+   */
+  private long _readersBound;
+
+  // the region claimed by tryClaim or claim, if any. The ring buffer lock is
+  // held until it is committed or aborted.
+  private boolean _claimed;
+  private long _claimPos; // stream position of the claimed message
+  private int _claimLength;
+  private ByteBuffer _claimView; // created on the first claim
+
+  private WriterMetrics _metrics; // null if not collected
+  private long _lockedAt; // System.nanoTime() when the lock was acquired, if collected
 
   public Writer(ByteRingBuffer ringBuf, ReaderInfo readerInfo) throws Exception {
+    this(ringBuf, readerInfo, null);
+  }
+
+  /**
+   * @param ringBuf
+   * @param readerInfo
+   * @param metrics:    slot counting messages, bytes, backpressure waits and
+   *                    lock wait and hold times; null if not collected. It is
+   *                    updated under the ring buffer lock, so writers of the
+   *                    same ring buffer may share it.
+   */
+  public Writer(ByteRingBuffer ringBuf, ReaderInfo readerInfo, WriterMetrics metrics) throws Exception {
     _ringBuf = ringBuf;
     _readerInfo = readerInfo;
+    _metrics = metrics;
     _indexMask = Util.indexMask(ringBuf.getBufSize());
 
     if (!ringBuf.getInitialized()) {
       throw new Exception("Ring buffer not initialized");
     }
+
+    _readersBound = ringBuf.getFreePos();
   }
 
   /**
@@ -41,86 +77,399 @@ public class Writer {
    * @param bpHandler
    */
   public void writeEx(byte[] data, BackPressureCallback bpHandler) {
-    RobustMutex lock = _ringBuf.getMtx();
-    lock.lock();
+    writeEx(NO_BYTES, data, bpHandler);
+  }
+
+  /**
+   * Writes a message made of {@code prefix} followed by {@code data} to the
+   * stream, copying both straight into the ring buffer, e.g. a cached header and
+   * a payload.
+   * 
+   * @param prefix
+   * @param data
+   * @param bpHandler
+   */
+  public void writeEx(byte[] prefix, byte[] data, BackPressureCallback bpHandler) {
+    lock();
 
     try {
-      Optional<Long> readBp;
-      while (true) {
-        readBp = write(data, true, Optional.empty());
-        if (readBp.isEmpty()) {
+      while (write(prefix, data, true, false, 0)) {
+        boolean continueRunning = onBackpressure(bpHandler);
+        if (!continueRunning) {
+          write(prefix, data, false, false, 0);
           break;
         }
+      }
+    } finally {
+      unlock();
+    }
+  }
 
-        _ringBuf.incStatBackPressureCount(1);
+  /**
+   * Claims a region of {@code length} bytes at the end of the stream, for the
+   * caller to write a message in place and then {@link #commit} or
+   * {@link #abort} it. Any padding needed before it is already placed. The ring
+   * buffer lock is held from a successful claim until it is committed or
+   * aborted, on the same thread.
+   * 
+   * @param length: the message size in bytes, positive
+   * @return a view of the ring buffer with position and limit set to the start
+   *         and end of the claimed region, valid until the next claim; null if
+   *         writing {@code length} bytes would expire a reader, in which case
+   *         nothing is claimed and the lock is not held
+   */
+  public ByteBuffer tryClaim(int length) {
+    assert (!_claimed);
+    assert (length > 0 && length <= getMaxMessageSize());
 
-        boolean continueRunning = bpHandler.writeOrWait(0, _ringBuf.getFreePos());
-        if (!continueRunning) {
-          write(data, false, Optional.empty());
+    lock();
+
+    long freePos = _ringBuf.getFreePos();
+    try {
+      if (detectReaderBackpressure(bytesToWrite(freePos, length), false, 0)) {
+        unlock();
+        return null;
+      }
+    } catch (RuntimeException | Error e) {
+      unlock();
+      throw e;
+    }
+
+    return claimAt(freePos, length);
+  }
+
+  /**
+   * Same as {@link #tryClaim} but handles backpressure like {@link #writeEx},
+   * so that a region is always claimed.
+   * 
+   * @param length:    the message size in bytes, positive
+   * @param bpHandler: invoked while claiming would expire a reader. If it
+   *                   returns false, the region is claimed anyway.
+   * @return a view of the ring buffer with position and limit set to the start
+   *         and end of the claimed region, valid until the next claim
+   */
+  public ByteBuffer claim(int length, BackPressureCallback bpHandler) {
+    assert (!_claimed);
+    assert (length > 0 && length <= getMaxMessageSize());
+
+    lock();
+
+    try {
+      while (detectReaderBackpressure(bytesToWrite(_ringBuf.getFreePos(), length), false, 0)) {
+        if (!onBackpressure(bpHandler)) {
           break;
         }
       }
+    } catch (RuntimeException | Error e) {
+      unlock();
+      throw e;
+    }
+
+    return claimAt(_ringBuf.getFreePos(), length);
+  }
+
+  /**
+   * Publishes the claimed message and releases the lock.
+   */
+  public void commit() {
+    commit(_claimLength);
+  }
+
+  /**
+   * Publishes the first {@code length} bytes of the claimed region as the
+   * message and releases the lock, e.g. when the encoded size is known only
+   * after encoding.
+   * 
+   * @param length: positive and at most the claimed length
+   */
+  public void commit(int length) {
+    assert (_claimed);
+    assert (length > 0 && length <= _claimLength);
+
+    long bufIndex = Util.bufIndex(_indexMask, _claimPos);
+    if (length != _claimLength) {
+      _ringBuf.setInt(bufIndex + MessageHeader.LENGTH_OFFSET, length);
+    }
+
+    _ringBuf.setFreePos(_claimPos + MessageHeader.size() + length);
+
+    if (_metrics != null) {
+      _metrics.onWrite(1, length);
+    }
+
+    _claimed = false;
+    unlock();
+  }
+
+  /**
+   * Releases the claimed region without publishing anything, so the stream is
+   * as before the claim.
+   */
+  public void abort() {
+    assert (_claimed);
+
+    _claimed = false;
+    unlock();
+  }
+
+  private ByteBuffer claimAt(long freePos, int length) {
+    _claimPos = putHeader(freePos, length);
+    _claimLength = length;
+    _claimed = true;
+
+    if (_claimView == null) {
+      _claimView = _ringBuf.view();
+    }
+
+    int index = (int) (Util.bufIndex(_indexMask, _claimPos) + MessageHeader.size());
+    _claimView.clear();
+    _claimView.position(index).limit(index + length);
+
+    return _claimView;
+  }
+
+  /**
+   * Writes a batch of messages to the stream, in order, taking the lock once.
+   * Readers are scanned once for all messages that are still to be written and
+   * the stream end is published once for all messages that fit. If only a
+   * prefix of the remaining messages fits without expiring a reader, the prefix
+   * is published before {@code bpHandler} is invoked, so readers can catch up
+   * while the writer waits.
+   * 
+   * @param batch
+   * @param bpHandler: invoked when the next message would expire a reader. If it
+   *                   returns false, that message is written anyway. If it
+   *                   returns true, writing continues taking backpressure into
+   *                   account.
+   */
+  public void writeBatch(List<byte[]> batch, BackPressureCallback bpHandler) {
+    lock();
+
+    try {
+      int next = 0;
+      while (next < batch.size()) {
+        long freePos = _ringBuf.getFreePos();
+        long headroom = _readersBound - freePos;
+        boolean headroomExact = false;
+
+        // place all messages that fit in the headroom, publish them at once
+        long pos = freePos;
+        int placed = next;
+        long placedBytes = 0;
+        while (next < batch.size()) {
+          byte[] data = batch.get(next);
+          assert (data.length <= getMaxMessageSize());
+
+          long n = pos + bytesToWrite(pos, data.length) - freePos;
+          if (n >= headroom && !headroomExact) {
+            headroom = readerHeadroom(freePos);
+            headroomExact = true;
+          }
+
+          if (n >= headroom) {
+            break;
+          }
+
+          pos = put(pos, data);
+          placedBytes += data.length;
+          next++;
+        }
+
+        if (pos != freePos) {
+          _ringBuf.setFreePos(pos);
+
+          if (_metrics != null) {
+            _metrics.onWrite(next - placed, placedBytes);
+          }
+        }
+
+        if (next == batch.size()) {
+          break;
+        }
+
+        boolean continueRunning = onBackpressure(bpHandler);
+        if (!continueRunning) {
+          byte[] data = batch.get(next);
+          _ringBuf.setFreePos(put(_ringBuf.getFreePos(), data));
+
+          if (_metrics != null) {
+            _metrics.onWrite(1, data.length);
+          }
+
+          next++;
+        }
+      }
     } finally {
-      lock.unlock();
+      unlock();
     }
   }
 
+  /**
+   * Acquires the ring buffer lock, timing the wait if metrics are collected.
+   */
+  private void lock() {
+    RobustMutex lock = _ringBuf.getMtx();
+
+    if (_metrics == null) {
+      lock.lock();
+      return;
+    }
+
+    long start = System.nanoTime();
+    lock.lock();
+    _lockedAt = System.nanoTime();
+    _metrics.onLockAcquired(_lockedAt - start);
+  }
+
+  /**
+   * Releases the ring buffer lock, counting the hold time if metrics are
+   * collected.
+   */
+  private void unlock() {
+    if (_metrics != null) {
+      _metrics.onLockReleasing(System.nanoTime() - _lockedAt);
+    }
+
+    _ringBuf.getMtx().unlock();
+  }
+
+  /**
+   * Counts backpressure and invokes {@code bpHandler}, timing it if metrics are
+   * collected.
+   * 
+   * @param bpHandler
+   * @return the result of {@code bpHandler}
+   */
+  private boolean onBackpressure(BackPressureCallback bpHandler) {
+    _ringBuf.incStatBackPressureCount(1);
+
+    if (_metrics == null) {
+      return bpHandler.writeOrWait(0, _ringBuf.getFreePos());
+    }
+
+    long start = System.nanoTime();
+    boolean continueRunning = bpHandler.writeOrWait(0, _ringBuf.getFreePos());
+    _metrics.onBackpressureWait(System.nanoTime() - start);
+
+    return continueRunning;
+  }
+
   /**
    * Write to stream if back pressure is not taken into account or doesn't occur.
    * 
+   * @param prefix
    * @param data
    * @param readerBP
+   * @param hasSkipConsPos: whether {@code skipConsPos} should be used
    * @param skipConsPos
-   * @return Optional.empty() if no backpressure was detected; otherwise, the
-   *         reader position that caused backpressure
+   * @return false if no backpressure was detected and the message was written;
+   *         true if backpressure was detected and nothing was written
    */
-  private Optional<Long> write(byte[] data, boolean readerBP, Optional<Long> skipConsPos) {
-    assert (data.length <= getMaxMessageSize());
+  private boolean write(byte[] prefix, byte[] data, boolean readerBP, boolean hasSkipConsPos,
+      long skipConsPos) {
+    int length = prefix.length + data.length;
+    assert (length <= getMaxMessageSize());
 
-    long bufIndex = Util.bufIndex(_indexMask, _ringBuf.getFreePos());
-    long lengthToBufEnd = _ringBuf.getBufSize() - bufIndex;
+    long freePos = _ringBuf.getFreePos();
 
-    long bytesToWrite = MessageHeader.size() + data.length;
-    boolean addPadding = false;
-    boolean addBlank = false;
+    if (readerBP && detectReaderBackpressure(bytesToWrite(freePos, length), hasSkipConsPos, skipConsPos)) {
+      return true;
+    }
 
-    if (lengthToBufEnd < MessageHeader.size()) {
-      addBlank = true;
-      bytesToWrite += lengthToBufEnd;
-    } else if (lengthToBufEnd < bytesToWrite) {
-      addPadding = true;
-      bytesToWrite += lengthToBufEnd;
+    _ringBuf.setFreePos(put(freePos, prefix, data));
+
+    if (_metrics != null) {
+      _metrics.onWrite(1, length);
     }
 
-    if (readerBP) {
-      Optional<Long> readerBpPos = detectReaderBackpressure(bytesToWrite, skipConsPos);
-      if (readerBpPos.isPresent()) {
-        return readerBpPos;
-      }
+    return false;
+  }
+
+  /**
+   * The number of bytes taken by a message written at stream position
+   * {@code pos}, including the padding or blank positions that precede it if it
+   * does not fit till the end of the buffer.
+   * 
+   * @param pos
+   * @param dataLength
+   * @return size in bytes
+   */
+  private long bytesToWrite(long pos, int dataLength) {
+    long lengthToBufEnd = _ringBuf.getBufSize() - Util.bufIndex(_indexMask, pos);
+    long bytesToWrite = MessageHeader.size() + dataLength;
+
+    if (lengthToBufEnd < bytesToWrite) {
+      // blank if there is no space for a header, padding message otherwise
+      bytesToWrite += lengthToBufEnd;
     }
 
-    if (addPadding) {
+    return bytesToWrite;
+  }
+
+  /**
+   * Places a message at stream position {@code pos} without publishing it, i.e.
+   * {@code freePos} is not updated.
+   * 
+   * @param pos
+   * @param data
+   * @return the stream position after the message
+   */
+  private long put(long pos, byte[] data) {
+    return put(pos, NO_BYTES, data);
+  }
+
+  /**
+   * Places a message made of {@code prefix} followed by {@code data} at stream
+   * position {@code pos} without publishing it.
+   * 
+   * @param pos
+   * @param prefix
+   * @param data
+   * @return the stream position after the message
+   */
+  private long put(long pos, byte[] prefix, byte[] data) {
+    int length = prefix.length + data.length;
+    long msgPos = putHeader(pos, length);
+    long bufIndex = Util.bufIndex(_indexMask, msgPos);
+
+    // write the message itself
+    _ringBuf.setBytes(bufIndex + MessageHeader.size(), prefix);
+    _ringBuf.setBytes(bufIndex + MessageHeader.size() + prefix.length, data);
+
+    return msgPos + MessageHeader.size() + length;
+  }
+
+  /**
+   * Places the padding or blank positions needed before a message of
+   * {@code length} bytes at stream position {@code pos} and the message header,
+   * without publishing them.
+   * 
+   * @param pos
+   * @param length
+   * @return the stream position of the message header
+   */
+  private long putHeader(long pos, int length) {
+    long bufIndex = Util.bufIndex(_indexMask, pos);
+    long lengthToBufEnd = _ringBuf.getBufSize() - bufIndex;
+
+    if (lengthToBufEnd < MessageHeader.size()) {
+      // blank
+      pos += lengthToBufEnd;
+      bufIndex = 0;
+    } else if (lengthToBufEnd < MessageHeader.size() + length) {
       // set the header of the padding
       _ringBuf.setByte(bufIndex + MessageHeader.TYPE_OFFSET, MessageHeader.PADDING);
       _ringBuf.setInt(bufIndex + MessageHeader.LENGTH_OFFSET, (int) (lengthToBufEnd - MessageHeader.size()));
 
-      _ringBuf.incFreePos(lengthToBufEnd);
-      bufIndex = 0;
-    } else if (addBlank) {
-      _ringBuf.incFreePos(lengthToBufEnd);
+      pos += lengthToBufEnd;
       bufIndex = 0;
     }
 
     // write the header of the message
     _ringBuf.setByte(bufIndex + MessageHeader.TYPE_OFFSET, MessageHeader.MESSAGE);
-    _ringBuf.setInt(bufIndex + MessageHeader.LENGTH_OFFSET, data.length);
+    _ringBuf.setInt(bufIndex + MessageHeader.LENGTH_OFFSET, length);
 
-    // write the message itself
-    _ringBuf.setBytes(bufIndex + MessageHeader.size(), data);
-
-    _ringBuf.incFreePos(MessageHeader.size() + data.length);
-
-    return Optional.empty();
+    return pos;
   }
 
   /**
@@ -128,15 +477,26 @@ public class Writer {
    * expire a reader.
    * 
    * @param n
+   * @param hasSkipConsPos: whether {@code skipConsPos} should be used
    * @param skipConsPos
-   * @return Optional.empty() if no reader will expire; otherwise, the
-   *         reader position will expire
+   * @return true if a reader will expire; false otherwise
    */
-  private Optional<Long> detectReaderBackpressure(long n, Optional<Long> skipConsPos) {
-    long skipConsPosValue = (skipConsPos.isEmpty() ? 0 : skipConsPos.get());
+  private boolean detectReaderBackpressure(long n, boolean hasSkipConsPos, long skipConsPos) {
+    long freePos = _ringBuf.getFreePos();
+
+    if (n < _readersBound - freePos) {
+      return false;
+    }
 
-    short[] minMax = _readerInfo.getActiveRange();
-    for (int i = minMax[0]; i < minMax[1]; i++) {
+    if (!hasSkipConsPos) {
+      return n >= readerHeadroom(freePos);
+    }
+
+    long bufSize = _ringBuf.getBufSize();
+
+    int readersMinMax = _readerInfo.getReadersMinMax();
+    int max = ReaderInfo.activeRangeMax(readersMinMax);
+    for (int i = ReaderInfo.activeRangeMin(readersMinMax); i < max; i++) {
       ReaderInfoInfo readerInfo = _readerInfo.getInfo(i);
 
       if (!readerInfo.getIsActive()) {
@@ -145,18 +505,54 @@ public class Writer {
 
       long readerPos = readerInfo.getPosition();
 
-      if (Util.expired(readerPos, _ringBuf.getFreePos(), _ringBuf.getBufSize())) {
+      if (Util.expired(readerPos, freePos, bufSize)) {
         continue;
       }
 
-      if (skipConsPos.isEmpty() || Util.greaterThan(readerPos, skipConsPosValue)) {
-        if (Util.expired(readerPos, _ringBuf.getFreePos() + n, _ringBuf.getBufSize())) {
-          return Optional.of(readerPos);
+      if (!hasSkipConsPos || Util.greaterThan(readerPos, skipConsPos)) {
+        if (Util.expired(readerPos, freePos + n, bufSize)) {
+          return true;
         }
       }
     }
 
-    return Optional.empty();
+    return false;
+  }
+
+  /**
+   * Computes how many bytes can be written from {@code freePos} without expiring
+   * an active reader, i.e. writing n bytes causes backpressure if and only if n
+   * is greater than or equal to the result. Refreshes the cached readers bound.
+   * 
+   * @param freePos
+   * @return the headroom in bytes; Long.MAX_VALUE if no reader can expire
+   */
+  private long readerHeadroom(long freePos) {
+    long bufSize = _ringBuf.getBufSize();
+    long headroom = Long.MAX_VALUE;
+
+    int readersMinMax = _readerInfo.getReadersMinMax();
+    int max = ReaderInfo.activeRangeMax(readersMinMax);
+    for (int i = ReaderInfo.activeRangeMin(readersMinMax); i < max; i++) {
+      ReaderInfoInfo readerInfo = _readerInfo.getInfo(i);
+
+      if (!readerInfo.getIsActive()) {
+        continue;
+      }
+
+      long readerPos = readerInfo.getPosition();
+
+      if (Util.expired(readerPos, freePos, bufSize)) {
+        continue;
+      }
+
+      headroom = Math.min(headroom, readerPos + bufSize - freePos);
+    }
+
+    // a reader activated later starts at or after freePos
+    _readersBound = freePos + Math.min(headroom, bufSize);
+
+    return headroom;
   }
 
 }
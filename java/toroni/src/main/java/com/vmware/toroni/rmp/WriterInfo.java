@@ -0,0 +1,214 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+import java.lang.reflect.Field;
+
+import com.sun.jna.Pointer;
+import com.vmware.toroni.traits.RobustMutex;
+
+import sun.misc.Unsafe;
+
+/**
+ * Shared state of the {@link LockFreeWriter}s of a ring buffer: the claim
+ * cursor and an ownership record per writer. It is kept apart from the
+ * ByteRingBuffer so that the ring buffer layout is unchanged.
+ *
+ * The cursor packs the stream position up to which the stream is claimed and
+ * the id of the writer that made the last claim. Only the low
+ * {@link #CURSOR_POS_BITS} bits of the position are kept, the full position is
+ * recovered from {@code freePos}, which is never more than a buffer size
+ * behind.
+ */
+public class WriterInfo {
+
+  public static final int CURSOR_POS_BITS = 48;
+  public static final long CURSOR_POS_MASK = (1L << CURSOR_POS_BITS) - 1;
+
+  public static final long CURSOR_OFFSET;
+  public static final long INITIALIZED_OFFSET;
+  public static final long MAX_WRITERS_OFFSET;
+  public static final long FIRST_INFO_OFFSET;
+
+  public final long WRITER_INFO_ADDRESS;
+  public final long CURSOR_ADDRESS;
+  public final long INITIALIZED_ADDRESS;
+  public final long MAX_WRITERS_ADDRESS;
+  public final long FIRST_INFO_ADDRESS;
+
+  public static final int INVALID_WRITER_ID = -1;
+
+  private Pointer _writerInfoPointer;
+  private short _maxWriters;
+  private WriterInfoInfo[] _infos;
+  private static Unsafe _unsafe;
+
+  /**
+   * Initialize _unsafe with the Unsafe object.
+   */
+  static {
+    try {
+      Field f = Unsafe.class.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      _unsafe = (Unsafe) f.get(null);
+    } catch (Exception e) {
+      System.out.println("Unsafe couldn't be loaded!");
+    }
+
+    CURSOR_OFFSET = 0;
+    INITIALIZED_OFFSET = CURSOR_OFFSET + Long.BYTES;
+    MAX_WRITERS_OFFSET = INITIALIZED_OFFSET + Short.BYTES;
+    FIRST_INFO_OFFSET = MAX_WRITERS_OFFSET + Short.BYTES + Integer.BYTES; // padded to 8
+  }
+
+  public WriterInfo(Pointer writerInfoPointer, short maxWriters, RobustMutex protoLock) {
+    _writerInfoPointer = writerInfoPointer;
+    _maxWriters = maxWriters;
+    _infos = new WriterInfoInfo[maxWriters];
+
+    WRITER_INFO_ADDRESS = Pointer.nativeValue(_writerInfoPointer);
+    CURSOR_ADDRESS = WRITER_INFO_ADDRESS + CURSOR_OFFSET;
+    INITIALIZED_ADDRESS = WRITER_INFO_ADDRESS + INITIALIZED_OFFSET;
+    MAX_WRITERS_ADDRESS = WRITER_INFO_ADDRESS + MAX_WRITERS_OFFSET;
+    FIRST_INFO_ADDRESS = WRITER_INFO_ADDRESS + FIRST_INFO_OFFSET;
+
+    for (int i = 0; i < maxWriters; i++) {
+      _infos[i] = new WriterInfoInfo(new Pointer(FIRST_INFO_ADDRESS + i * WriterInfoInfo.size(protoLock.size())),
+          protoLock);
+    }
+  }
+
+  /**
+   * Initialize the memory for a non-initialized WriterInfo.
+   *
+   * @param freePos: the stream end of the ring buffer, where claiming starts
+   */
+  public void initialize(long freePos) {
+    _unsafe.putShort(MAX_WRITERS_ADDRESS, _maxWriters);
+
+    for (int i = 0; i < _maxWriters; i++) {
+      _infos[i].initialize();
+    }
+
+    _unsafe.putLongVolatile(null, CURSOR_ADDRESS, cursor(freePos, INVALID_WRITER_ID));
+    _unsafe.putByte(INITIALIZED_ADDRESS, (byte) 1);
+  }
+
+  /**
+   * @param maxWriters: maximum allowed number of lock-free writers
+   * @param mtxSize:    size in bytes of a RobustMutex object in memory
+   * @return the size in bytes of a WriterInfo object in memory
+   */
+  public static long size(short maxWriters, long mtxSize) {
+    return Long.BYTES // cursor
+        + Short.BYTES // initialized
+        + Short.BYTES // maxWriters
+        + Integer.BYTES // padding to 8
+        + maxWriters * WriterInfoInfo.size(mtxSize); // infos
+  }
+
+  /**
+   * @return maximum allowed number of lock-free writers
+   */
+  public short getMaxWriters() {
+    return _maxWriters;
+  }
+
+  /**
+   * Get writer info slot.
+   *
+   * @param writerId: id of the slot
+   * @return object of type Info corresponding to the given id
+   */
+  public WriterInfoInfo getInfo(int writerId) {
+    assert (writerId >= 0 && writerId < _maxWriters);
+    return _infos[writerId];
+  }
+
+  /**
+   * Allocates info slot and returns its id. The slot may hold a claim left by a
+   * writer that died, which must be recovered before the slot is used.
+   *
+   * @return id if success; INVALID_WRITER_ID if fail
+   */
+  public int alloc() {
+    for (int i = 0; i < _maxWriters; i++) {
+      if (_infos[i].lock.tryLock()) {
+        return i;
+      }
+    }
+
+    return INVALID_WRITER_ID;
+  }
+
+  /**
+   * Frees a WriterInfo slot. It must be freed on the same thread where alloc was
+   * called.
+   *
+   * @param writerId
+   */
+  public void free(int writerId) {
+    if (writerId == INVALID_WRITER_ID) {
+      return;
+    }
+
+    _infos[writerId].lock.unlock();
+  }
+
+  /**
+   * @param pos:      stream position
+   * @param writerId: writer that claimed up to {@code pos}; INVALID_WRITER_ID if
+   *                  none
+   * @return the packed cursor
+   */
+  public static long cursor(long pos, int writerId) {
+    return ((long) (writerId + 1) << CURSOR_POS_BITS) | (pos & CURSOR_POS_MASK);
+  }
+
+  /**
+   * @param cursor
+   * @param freePos: a value of {@code freePos} read before {@code cursor}
+   * @return the stream position of a packed cursor
+   */
+  public static long cursorPos(long cursor, long freePos) {
+    return freePos + ((cursor - freePos) & CURSOR_POS_MASK);
+  }
+
+  /**
+   * @param cursor
+   * @return the writer id of a packed cursor; INVALID_WRITER_ID if none
+   */
+  public static int cursorWriterId(long cursor) {
+    return (int) (cursor >>> CURSOR_POS_BITS) - 1;
+  }
+
+  /**
+   * @return the value of {@code cursor}.
+   */
+  public long getCursor() {
+    return _unsafe.getLongVolatile(null, CURSOR_ADDRESS);
+  }
+
+  /**
+   * Atomically updates the value of {@code cursor} to {@code value} if it is
+   * {@code expected}.
+   *
+   * @param expected
+   * @param value
+   * @return true if updated; false otherwise
+   */
+  public boolean compareAndSetCursor(long expected, long value) {
+    return _unsafe.compareAndSwapLong(null, CURSOR_ADDRESS, expected, value);
+  }
+
+  /**
+   * @return the value of {@code initialized}.
+   */
+  public boolean getInitialized() {
+    return (_unsafe.getByte(INITIALIZED_ADDRESS) == (byte) 1);
+  }
+
+}
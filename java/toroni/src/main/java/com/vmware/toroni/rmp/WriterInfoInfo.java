@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.rmp;
+
+import java.lang.reflect.Field;
+
+import com.sun.jna.Pointer;
+import com.vmware.toroni.traits.RobustMutex;
+
+import sun.misc.Unsafe;
+
+/**
+ * Ownership record of a {@link LockFreeWriter}: the region of the stream it is
+ * claiming or has claimed and not yet committed. The robust lock is held by the
+ * writer for its lifetime, so a claim left by a writer that died can be
+ * recovered by whoever acquires the lock next.
+ *
+ * {@code state} packs a sequence number, incremented on each announced claim,
+ * and the phase of the claim.
+ */
+public class WriterInfoInfo {
+  /** No claim, or the claim is committed. */
+  public static final int IDLE = 0;
+  /** {@code start} and {@code end} are set, the claim may not have succeeded. */
+  public static final int ANNOUNCED = 1;
+  /** The region from {@code start} to {@code end} belongs to the writer. */
+  public static final int CLAIMED = 2;
+
+  public final long LOCK_OFFSET;
+  public final long STATE_OFFSET;
+  public final long START_OFFSET;
+  public final long END_OFFSET;
+
+  public final long INFO_ADDRESS;
+  public final long LOCK_ADDRESS;
+  public final long STATE_ADDRESS;
+  public final long START_ADDRESS;
+  public final long END_ADDRESS;
+
+  private Pointer _infoPointer;
+  public RobustMutex lock;
+  private static Unsafe _unsafe;
+
+  /**
+   * Initialize _unsafe with the Unsafe object.
+   */
+  static {
+    try {
+      Field f = Unsafe.class.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      _unsafe = (Unsafe) f.get(null);
+    } catch (Exception e) {
+      System.out.println("Unsafe couldn't be loaded!");
+    }
+  }
+
+  public WriterInfoInfo(Pointer infoPointer, RobustMutex protoLock) {
+    _infoPointer = infoPointer;
+
+    LOCK_OFFSET = 0;
+    STATE_OFFSET = LOCK_OFFSET + protoLock.size();
+    START_OFFSET = STATE_OFFSET + Long.BYTES;
+    END_OFFSET = START_OFFSET + Long.BYTES;
+
+    INFO_ADDRESS = Pointer.nativeValue(_infoPointer);
+    LOCK_ADDRESS = INFO_ADDRESS + LOCK_OFFSET;
+    STATE_ADDRESS = INFO_ADDRESS + STATE_OFFSET;
+    START_ADDRESS = INFO_ADDRESS + START_OFFSET;
+    END_ADDRESS = INFO_ADDRESS + END_OFFSET;
+
+    lock = protoLock.load(new Pointer(LOCK_ADDRESS));
+  }
+
+  void initialize() {
+    lock.initialize(new Pointer(LOCK_ADDRESS));
+    setState(state(0, IDLE));
+    setStart(0);
+    setEnd(0);
+  }
+
+  /**
+   * @param mtxSize: size in bytes of a RobustMutex object in memory
+   * @return size in bytes of a Info object in memory
+   */
+  public static long size(long mtxSize) {
+    return mtxSize // lock
+        + Long.BYTES // state
+        + Long.BYTES // start
+        + Long.BYTES; // end
+  }
+
+  /**
+   * @param seq
+   * @param phase: IDLE, ANNOUNCED or CLAIMED
+   * @return the packed state
+   */
+  public static long state(long seq, int phase) {
+    return (seq << 2) | phase;
+  }
+
+  /**
+   * @param state
+   * @return the sequence number of a packed state
+   */
+  public static long seq(long state) {
+    return state >>> 2;
+  }
+
+  /**
+   * @param state
+   * @return the phase of a packed state
+   */
+  public static int phase(long state) {
+    return (int) (state & 3);
+  }
+
+  /**
+   * @return the value of {@code state}.
+   */
+  public long getState() {
+    return _unsafe.getLongVolatile(null, STATE_ADDRESS);
+  }
+
+  /**
+   * Update the value of {@code state} to {@code value}.
+   *
+   * @param value
+   */
+  public void setState(long value) {
+    _unsafe.putLongVolatile(null, STATE_ADDRESS, value);
+  }
+
+  /**
+   * Atomically updates the value of {@code state} to {@code value} if it is
+   * {@code expected}.
+   *
+   * @param expected
+   * @param value
+   * @return true if updated; false otherwise
+   */
+  public boolean compareAndSetState(long expected, long value) {
+    return _unsafe.compareAndSwapLong(null, STATE_ADDRESS, expected, value);
+  }
+
+  /**
+   * @return the value of {@code start}, the stream position of the claim.
+   */
+  public long getStart() {
+    return _unsafe.getLongVolatile(null, START_ADDRESS);
+  }
+
+  /**
+   * Update the value of {@code start} to {@code value}.
+   *
+   * @param value
+   */
+  public void setStart(long value) {
+    _unsafe.putLongVolatile(null, START_ADDRESS, value);
+  }
+
+  /**
+   * @return the value of {@code end}, the stream position after the claim.
+   */
+  public long getEnd() {
+    return _unsafe.getLongVolatile(null, END_ADDRESS);
+  }
+
+  /**
+   * Update the value of {@code end} to {@code value}.
+   *
+   * @param value
+   */
+  public void setEnd(long value) {
+    _unsafe.putLongVolatile(null, END_ADDRESS, value);
+  }
+
+}
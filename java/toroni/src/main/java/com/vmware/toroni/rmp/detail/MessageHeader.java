@@ -16,6 +16,10 @@ public class MessageHeader {
   public long length;
 
   public boolean valid() {
+    return valid(type, length);
+  }
+
+  public static boolean valid(byte type, long length) {
     return ((type == MESSAGE || type == PADDING) && length != 0);
   }
 
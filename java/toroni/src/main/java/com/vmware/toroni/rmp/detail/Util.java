@@ -35,8 +35,16 @@ public class Util {
 
   public static MessageHeader readMsgHeader(ByteRingBuffer ringBuf, long bufIndex) {
     MessageHeader msgHeader = new MessageHeader();
-    msgHeader.type = ringBuf.getByte(bufIndex + MessageHeader.TYPE_OFFSET);
-    msgHeader.length = ringBuf.getInt(bufIndex + MessageHeader.LENGTH_OFFSET);
+    msgHeader.type = readMsgType(ringBuf, bufIndex);
+    msgHeader.length = readMsgLength(ringBuf, bufIndex);
     return msgHeader;
   }
+
+  public static byte readMsgType(ByteRingBuffer ringBuf, long bufIndex) {
+    return ringBuf.getByte(bufIndex + MessageHeader.TYPE_OFFSET);
+  }
+
+  public static long readMsgLength(ByteRingBuffer ringBuf, long bufIndex) {
+    return ringBuf.getInt(bufIndex + MessageHeader.LENGTH_OFFSET);
+  }
 }
@@ -6,10 +6,13 @@
 package com.vmware.toroni.tp;
 
 import java.util.ArrayList;
+import java.util.List;
 
+import com.vmware.toroni.metrics.WriterMetrics;
 import com.vmware.toroni.rmp.BackPressureCallback;
 import com.vmware.toroni.rmp.ByteRingBuffer;
 import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.tp.detail.EncodedTopic;
 import com.vmware.toroni.tp.detail.TopicMsgSerializer;
 
 /**
@@ -21,6 +24,13 @@ public class AsyncWriter {
     public ArrayList<byte[]> run();
   }
 
+  public static interface DrainMsgToFn {
+    /**
+     * Dequeues all messages appending them to {@code batch}.
+     */
+    public void run(List<byte[]> batch);
+  }
+
   public static interface EnqueueMsgFn {
     public boolean run(byte[] topicMsg);
   }
@@ -33,26 +43,44 @@ public class AsyncWriter {
   private ReaderInfo _readerInfo;
   private Writer _rbWriter;
   private EnqueueMsgFn _enqueueMsgFn;
-  private DrainMsgFn _drainMsgFn;
+  private DrainMsgToFn _drainMsgToFn;
   private EnqueueWorkFn _enqueueWorkFn;
   private BackPressureCallback _backPressureFn;
   private Runnable _notifyAllReadersFn;
+  private BackPressureCallback _bpWrapper;
+  private ArrayList<byte[]> _batch; // accessed by the running procWriter only
+  private WriterMetrics _metrics; // shared with publishers, null if not collected
 
   private AsyncWriter(ByteRingBuffer ringBuf, ReaderInfo readerInfo, EnqueueMsgFn enqueueMsgFn,
-      DrainMsgFn drainMsgFn, EnqueueWorkFn enqueueWorkFn, BackPressureCallback backPressureFn,
-      Runnable notifyAllReadersFn) {
+      DrainMsgToFn drainMsgToFn, EnqueueWorkFn enqueueWorkFn, BackPressureCallback backPressureFn,
+      Runnable notifyAllReadersFn, WriterMetrics metrics) {
     _ringBuf = ringBuf;
     _readerInfo = readerInfo;
+    _metrics = metrics;
     try {
-      _rbWriter = new Writer(_ringBuf, _readerInfo.rmpReaderInfo);
+      _rbWriter = new Writer(_ringBuf, _readerInfo.rmpReaderInfo, _metrics);
     } catch (Exception e) {
       throw new Error(e);
     }
     _enqueueMsgFn = enqueueMsgFn;
-    _drainMsgFn = drainMsgFn;
+    _drainMsgToFn = drainMsgToFn;
     _enqueueWorkFn = enqueueWorkFn;
     _backPressureFn = backPressureFn;
     _notifyAllReadersFn = notifyAllReadersFn;
+    _bpWrapper = new BackPressureCallback() {
+
+      @Override
+      public boolean writeOrWait(long bpPos, long freePos) {
+        // Notify readers on backpressure
+        _ringBuf.incStatNotificationCount(1);
+        _notifyAllReadersFn.run();
+
+        // Invoke backpressure callback
+        return _backPressureFn.writeOrWait(bpPos, freePos);
+      }
+
+    };
+    _batch = new ArrayList<>();
   }
 
   /**
@@ -71,8 +99,60 @@ public class AsyncWriter {
   public static AsyncWriter create(ByteRingBuffer ringBuf, ReaderInfo readerInfo,
       EnqueueMsgFn enqueueMsgFn, DrainMsgFn drainMsgFn, EnqueueWorkFn enqueueWorkFn,
       BackPressureCallback backPressureFn, Runnable notifyAllReadersFn) {
+    return new AsyncWriter(ringBuf, readerInfo, enqueueMsgFn, new DrainMsgToFn() {
+
+      @Override
+      public void run(List<byte[]> batch) {
+        batch.addAll(drainMsgFn.run());
+      }
+
+    }, enqueueWorkFn, backPressureFn, notifyAllReadersFn, null);
+  }
+
+  /**
+   * Create a new async topic message writer that drains messages into a batch
+   * it reuses, e.g. with
+   * {@link com.vmware.toroni.traits.concurrent.LockFreeMpscMessageQueue#drainTo}.
+   * 
+   * @param ringBuf
+   * @param readerInfo
+   * @param enqueueMsgFn:      thread-safe function to enqueue messages
+   * @param drainMsgToFn:      thread-safe function to dequeue all messages
+   * @param enqueueWorkFn:     thread-safe function to enqueue work
+   * @param backPressureFn:    invoked when backpressure is detected
+   * @param notifyAllReadersFn invoked to send notification to all readers to
+   *                           start reading
+   * @return async topic message writer
+   */
+  public static AsyncWriter create(ByteRingBuffer ringBuf, ReaderInfo readerInfo,
+      EnqueueMsgFn enqueueMsgFn, DrainMsgToFn drainMsgToFn, EnqueueWorkFn enqueueWorkFn,
+      BackPressureCallback backPressureFn, Runnable notifyAllReadersFn) {
+    return create(ringBuf, readerInfo, enqueueMsgFn, drainMsgToFn, enqueueWorkFn, backPressureFn,
+        notifyAllReadersFn, null);
+  }
+
+  /**
+   * Same as
+   * {@link #create(ByteRingBuffer, ReaderInfo, EnqueueMsgFn, DrainMsgToFn, EnqueueWorkFn, BackPressureCallback, Runnable)}
+   * but collects writer metrics, see {@link com.vmware.toroni.metrics.Metrics}.
+   * 
+   * @param ringBuf
+   * @param readerInfo
+   * @param enqueueMsgFn:      thread-safe function to enqueue messages
+   * @param drainMsgToFn:      thread-safe function to dequeue all messages
+   * @param enqueueWorkFn:     thread-safe function to enqueue work
+   * @param backPressureFn:    invoked when backpressure is detected
+   * @param notifyAllReadersFn invoked to send notification to all readers to
+   *                           start reading
+   * @param metrics:           slot shared by the writer and its publishers;
+   *                           null if not collected
+   * @return async topic message writer
+   */
+  public static AsyncWriter create(ByteRingBuffer ringBuf, ReaderInfo readerInfo,
+      EnqueueMsgFn enqueueMsgFn, DrainMsgToFn drainMsgToFn, EnqueueWorkFn enqueueWorkFn,
+      BackPressureCallback backPressureFn, Runnable notifyAllReadersFn, WriterMetrics metrics) {
     return new AsyncWriter(ringBuf, readerInfo,
-        enqueueMsgFn, drainMsgFn, enqueueWorkFn, backPressureFn, notifyAllReadersFn);
+        enqueueMsgFn, drainMsgToFn, enqueueWorkFn, backPressureFn, notifyAllReadersFn, metrics);
   }
 
   /**
@@ -101,6 +181,63 @@ public class AsyncWriter {
     return rbMsg;
   }
 
+  /**
+   * Create a version 1 topic message, which readers filter by hash. Encoding
+   * the channel once and reusing it avoids encoding it per message.
+   * 
+   * @param channel
+   * @param msg
+   * @param postToDescendants
+   * @return a topic message
+   * @throws Exception if message data is too big
+   */
+  public byte[] createMessage(EncodedTopic channel, byte[] msg,
+      boolean postToDescendants) throws Exception {
+    assert (msg.length != 0);
+
+    int topicMsgLen = TopicMsgSerializer.sizeOf(channel, msg.length);
+
+    if (topicMsgLen > _rbWriter.getMaxMessageSize()) {
+      throw new Exception("Message size exceeds RingBuffer size");
+    }
+
+    byte[] rbMsg = new byte[topicMsgLen];
+    TopicMsgSerializer.serialize(rbMsg, _readerInfo.getReaderGen(),
+        postToDescendants, channel, msg);
+
+    return rbMsg;
+  }
+
+  /**
+   * Create a publisher for a channel that writes topic messages straight into
+   * the ring buffer, see {@link TopicPublisher}.
+   * 
+   * @param channelName
+   * @param postToDescendants
+   * @return the publisher
+   */
+  public TopicPublisher createPublisher(String channelName, boolean postToDescendants) {
+    byte[] header = new byte[TopicMsgSerializer.sizeOf(channelName, 0)];
+    TopicMsgSerializer.serialize(header, 0, postToDescendants, channelName, new byte[0]);
+
+    return new TopicPublisher(_ringBuf, _readerInfo, _bpWrapper, _notifyAllReadersFn, header, _metrics);
+  }
+
+  /**
+   * Create a publisher for a channel that writes version 1 topic messages
+   * straight into the ring buffer, see {@link TopicPublisher}.
+   * 
+   * @param channel
+   * @param postToDescendants
+   * @return the publisher
+   */
+  public TopicPublisher createPublisher(EncodedTopic channel, boolean postToDescendants) {
+    byte[] header = new byte[TopicMsgSerializer.sizeOf(channel, 0)];
+    TopicMsgSerializer.serialize(header, 0, postToDescendants, channel, new byte[0]);
+
+    return new TopicPublisher(_ringBuf, _readerInfo, _bpWrapper, _notifyAllReadersFn, header, _metrics);
+  }
+
   /**
    * Posts a message and returns immediatelly. Invokes {@code _enqueueWorkFn} with
    * {@code procWriter} if none is running.
@@ -126,33 +263,18 @@ public class AsyncWriter {
    * The actual writing to the ring buffer.
    */
   public void procWriter() {
-    BackPressureCallback bpWrapper = new BackPressureCallback() {
-
-      @Override
-      public boolean writeOrWait(long bpPos, long freePos) {
-        // Notify readers on backpressure
-        _ringBuf.incStatNotificationCount(1);
-        _notifyAllReadersFn.run();
-
-        // Invoke backpressure callback
-        return _backPressureFn.writeOrWait(bpPos, freePos);
-      }
-
-    };
-
     while (true) {
-      ArrayList<byte[]> queueCopy = _drainMsgFn.run();
+      _batch.clear();
+      _drainMsgToFn.run(_batch);
 
-      if (queueCopy.isEmpty()) {
+      if (_batch.isEmpty()) {
         // Notify when the loop ends
         _ringBuf.incStatNotificationCount(1);
         _notifyAllReadersFn.run();
         break;
       }
 
-      queueCopy.forEach((msg) -> {
-        _rbWriter.writeEx(msg, bpWrapper);
-      });
+      _rbWriter.writeBatch(_batch, _bpWrapper);
     }
   }
 
@@ -2,12 +2,14 @@ package com.vmware.toroni.tp;
 
 import java.util.ArrayList;
 
+import com.vmware.toroni.metrics.ReaderMetrics;
 import com.vmware.toroni.rmp.ByteRingBuffer;
 import com.vmware.toroni.rmp.CopyConfirmHandler;
+import com.vmware.toroni.rmp.ReadBudget;
 import com.vmware.toroni.rmp.ReadCallback;
 import com.vmware.toroni.rmp.ReaderWithBackpressure;
 import com.vmware.toroni.rmp.Reader.Result;
-import com.vmware.toroni.tp.detail.TopicMsgDeserializer;
+import com.vmware.toroni.tp.detail.TopicIndex;
 
 /**
  * Topic Protocol (TP) message reader.
@@ -36,13 +38,27 @@ public class Reader {
   private EnqueueSerialFn _enqueueRmpRead;
   private ChannelReaderEventCallback _channelReaderEventCb;
   private ArrayList<ChannelReader> _channelReaders;
+  private volatile TopicIndex _topicIndex; // of _channelReaders, rebuilt when it changes
+  private TopicIndex _readIndex; // _topicIndex when the running readRmp pass started
+  private CopyConfirmHandler _cch; // dispatches through _readIndex
+  private Runnable _readRmpTask;
+  private volatile ReadBudget _readBudget = ReadBudget.UNLIMITED;
+  // readRmp is running; readRmp re-enqueued by run() on inline executors only
+  // sets _readAgain, so that the running one loops instead of recursing
+  private boolean _reading;
+  private boolean _readAgain;
 
   public Reader(ByteRingBuffer ringBuf, ReaderInfo readerInfo, EnqueueSerialFn serialReadFn,
       EnqueueSerialFn rmpReadFn, ChannelReaderEventCallback eventCb) throws Exception {
+    this(ringBuf, readerInfo, serialReadFn, rmpReadFn, eventCb, null);
+  }
+
+  public Reader(ByteRingBuffer ringBuf, ReaderInfo readerInfo, EnqueueSerialFn serialReadFn,
+      EnqueueSerialFn rmpReadFn, ChannelReaderEventCallback eventCb, ReaderMetrics metrics) throws Exception {
     _ringBuf = ringBuf;
     _readerInfo = readerInfo;
     try {
-      _rmpReaderBp = new ReaderWithBackpressure(ringBuf, readerInfo.rmpReaderInfo);
+      _rmpReaderBp = new ReaderWithBackpressure(ringBuf, readerInfo.rmpReaderInfo, metrics);
     } catch (Exception e) {
       throw new Error(e);
     }
@@ -50,6 +66,23 @@ public class Reader {
     _enqueueRmpRead = rmpReadFn;
     _channelReaderEventCb = eventCb;
     _channelReaders = new ArrayList<>();
+    _topicIndex = new TopicIndex(_channelReaders);
+    _cch = new CopyConfirmHandler(ringBuf, new ReadCallback() {
+
+      @Override
+      public void messageRecieved(byte[] data, int length) {
+        _readIndex.dispatch(data, length);
+      }
+
+    });
+    _readRmpTask = new Runnable() {
+
+      @Override
+      public void run() {
+        readRmp();
+      }
+
+    };
 
     if (!readerInfo.getInitialized()) {
       throw new Exception("TP reader info not initialized");
@@ -76,13 +109,43 @@ public class Reader {
    */
   public static Reader create(ByteRingBuffer ringBuf, ReaderInfo readerInfo, EnqueueSerialFn serialReadFn,
       EnqueueSerialFn rmpReadFn, ChannelReaderEventCallback eventCb) {
+    return create(ringBuf, readerInfo, serialReadFn, rmpReadFn, eventCb, null);
+  }
+
+  /**
+   * Creates a new topic message reader collecting reader metrics, see
+   * {@link com.vmware.toroni.metrics.Metrics}.
+   * 
+   * @param ringBuf
+   * @param readerInfo
+   * @param serialReadFn
+   * @param rmpReadFn
+   * @param eventCb
+   * @param metrics:     slot of the reader; null if not collected
+   * @return topic message reader
+   */
+  public static Reader create(ByteRingBuffer ringBuf, ReaderInfo readerInfo, EnqueueSerialFn serialReadFn,
+      EnqueueSerialFn rmpReadFn, ChannelReaderEventCallback eventCb, ReaderMetrics metrics) {
     try {
-      return new Reader(ringBuf, readerInfo, serialReadFn, rmpReadFn, eventCb);
+      return new Reader(ringBuf, readerInfo, serialReadFn, rmpReadFn, eventCb, metrics);
     } catch (Exception e) {
       throw new Error(e);
     }
   }
 
+  /**
+   * Bounds each RMP read. When the budget is used up before the stream end, the
+   * reader publishes its position and re-enqueues itself with {@link #run()},
+   * so that work items enqueued meanwhile, e.g. channel reader creation, run in
+   * between. If serialReadFn and rmpReadFn run inline, the pending work runs
+   * right away and the read continues in a loop rather than by recursion.
+   *
+   * @param budget: limits of one RMP read; ReadBudget.UNLIMITED by default
+   */
+  public void setReadBudget(ReadBudget budget) {
+    _readBudget = budget;
+  }
+
   /**
    * Create a channel reader for a topic.
    * 
@@ -131,16 +194,8 @@ public class Reader {
 
       @Override
       public void run() {
-        ArrayList<ChannelReader> channelReadersCopy = getChannelReaders();
-        if (!channelReadersCopy.isEmpty()) {
-          _enqueueRmpRead.run(new Runnable() {
-
-            @Override
-            public void run() {
-              readRmp(channelReadersCopy);
-            }
-
-          });
+        if (!_channelReaders.isEmpty()) {
+          _enqueueRmpRead.run(_readRmpTask);
         }
       }
 
@@ -148,37 +203,59 @@ public class Reader {
   }
 
   /**
-   * Reads from RMP and sends messages to the channel readers for filtering.
-   * 
-   * @param channelReaders
+   * Checks whether messages have been written after the RMP reader position,
+   * e.g. for an {@link com.vmware.toroni.traits.IdleStrategy}. To be called
+   * from the thread reading from RMP.
+   *
+   * @return true if the reader is active and behind the stream end
    */
+  public boolean messagesAvailable() {
+    return _rmpReaderBp.isActive() && _ringBuf.getFreePos() != _rmpReaderBp.pos();
+  }
+
+  /**
+   * Reads from RMP and dispatches messages to the current channel readers
+   * through the topic index, parsing each message header once.
+   *
+   * @param channelReaders: ignored
+   * @deprecated the messages always go to the current channel readers, use
+   *             {@link #readRmp()}
+   */
+  @Deprecated
   public void readRmp(ArrayList<ChannelReader> channelReaders) {
-    assert (!channelReaders.isEmpty());
+    readRmp();
+  }
 
-    if (!_rmpReaderBp.isActive()) {
+  /**
+   * Reads from RMP and dispatches messages to the current channel readers
+   * through the topic index, parsing each message header once.
+   */
+  public void readRmp() {
+    if (_reading) {
+      _readAgain = true;
       return;
     }
 
-    CopyConfirmHandler cch = new CopyConfirmHandler(
-        _ringBuf, new ReadCallback() {
-
-          @Override
-          public void messageRecieved(byte[] data, int length) {
-            for (ChannelReader cr : channelReaders) {
-              TopicMsgDeserializer.ResultMessagePair deserialized = TopicMsgDeserializer.deserializeAndFilter(
-                  data, length, cr._readerGen, cr._name, cr._handleDescendants);
-              if (deserialized.result) {
-                cr._handler.run(deserialized.message);
-              }
-            }
-          }
+    _reading = true;
+    try {
+      do {
+        _readAgain = false;
 
-        });
+        if (!_rmpReaderBp.isActive()) {
+          return;
+        }
 
-    Result res = _rmpReaderBp.readEx(cch);
+        _readIndex = _topicIndex;
+        Result res = _rmpReaderBp.readEx(_cch, _readBudget);
 
-    if (res == Result.EXPIRED_POSITION) {
-      handleExpiredProcReader(_rmpReaderBp.pos());
+        if (res == Result.EXPIRED_POSITION) {
+          handleExpiredProcReader(_rmpReaderBp.pos());
+        } else if (res == Result.MORE_AVAILABLE) {
+          run();
+        }
+      } while (_readAgain);
+    } finally {
+      _reading = false;
     }
   }
 
@@ -196,6 +273,7 @@ public class Reader {
    */
   public void addChannelReader(ChannelReader channelReader) {
     _channelReaders.add(channelReader);
+    _topicIndex = new TopicIndex(_channelReaders);
 
     if (_channelReaders.size() == 1) {
       _rmpReaderBp.activate();
@@ -210,6 +288,7 @@ public class Reader {
    */
   public void removeChannelReader(ChannelReader channelReader) {
     _channelReaders.remove(channelReader);
+    _topicIndex = new TopicIndex(_channelReaders);
     if (_channelReaders.isEmpty()) {
       _rmpReaderBp.deactivate();
       _channelReaderEventCb.run(ChannelReaderEventType.LAST_CHANNEL_READER_CLOSED);
@@ -8,6 +8,7 @@ package com.vmware.toroni.tp;
 import java.lang.reflect.Field;
 
 import com.sun.jna.Pointer;
+import com.vmware.toroni.rmp.Layout;
 import com.vmware.toroni.traits.RobustMutex;
 
 import sun.misc.Unsafe;
@@ -15,7 +16,7 @@ import sun.misc.Unsafe;
 public class ReaderInfo {
   public static final long READER_GEN_OFFSET;
   public static final long INITIALIZED_OFFSET;
-  public static final long RMP_READER_INFO_OFFSET;
+  public final long RMP_READER_INFO_OFFSET;
 
   public final long READER_INFO_ADDRESS;
   public final long READER_GEN_ADDRESS;
@@ -40,22 +41,35 @@ public class ReaderInfo {
 
     READER_GEN_OFFSET = 0;
     INITIALIZED_OFFSET = READER_GEN_OFFSET + Long.BYTES;
-    // RMP_READER_INFO_OFFSET = INITIALIZED_OFFSET + Byte.BYTES; // pragma pack(1)
-    RMP_READER_INFO_OFFSET = INITIALIZED_OFFSET + Long.BYTES;
   }
 
   public com.vmware.toroni.rmp.ReaderInfo rmpReaderInfo;
 
   public ReaderInfo(Pointer readerInfoPointer, short maxReaders, RobustMutex protoLock) {
+    this(readerInfoPointer, maxReaders, protoLock, Layout.ALIGNED);
+  }
+
+  /**
+   * @param readerInfoPointer
+   * @param maxReaders
+   * @param protoLock
+   * @param layout:            Layout.PACKED or Layout.ALIGNED, must be the
+   *                           layout of the segment
+   */
+  public ReaderInfo(Pointer readerInfoPointer, short maxReaders, RobustMutex protoLock, int layout) {
     _readerInfoPointer = readerInfoPointer;
     _maxReaders = maxReaders;
 
+    // RMP_READER_INFO_OFFSET = INITIALIZED_OFFSET + Byte.BYTES; // pragma pack(1)
+    RMP_READER_INFO_OFFSET = layout == Layout.PACKED ? INITIALIZED_OFFSET + Long.BYTES : Layout.CACHE_LINE_SIZE;
+
     READER_INFO_ADDRESS = Pointer.nativeValue(_readerInfoPointer);
     READER_GEN_ADDRESS = READER_INFO_ADDRESS + READER_GEN_OFFSET;
     INITIALIZED_ADDRESS = READER_INFO_ADDRESS + INITIALIZED_OFFSET;
     RMP_READER_INFO_ADDRESS = READER_INFO_ADDRESS + RMP_READER_INFO_OFFSET;
 
-    rmpReaderInfo = new com.vmware.toroni.rmp.ReaderInfo(new Pointer(RMP_READER_INFO_ADDRESS), _maxReaders, protoLock);
+    rmpReaderInfo = new com.vmware.toroni.rmp.ReaderInfo(new Pointer(RMP_READER_INFO_ADDRESS), _maxReaders, protoLock,
+        layout);
   }
 
   /**
@@ -64,10 +78,26 @@ public class ReaderInfo {
    * @return the size in bytes of a ReaderInfo object in memory
    */
   public static long size(short maxReaders, long mtxSize) {
-    return Long.BYTES // readerGen
-        // + Byte.BYTES // initialized, pragma pack(1)
-        + Long.BYTES // initialized
-        + com.vmware.toroni.rmp.ReaderInfo.size(maxReaders, mtxSize); // rmpReaderInfo
+    return size(maxReaders, mtxSize, Layout.ALIGNED);
+  }
+
+  /**
+   * @param maxReaders: maximum allowed number of active readers
+   * @param mtxSize:    size in bytes of a RobustMutex object in memory
+   * @param layout:     Layout.PACKED or Layout.ALIGNED
+   * @return the size in bytes of a ReaderInfo object of {@code layout} in
+   *         memory
+   */
+  public static long size(short maxReaders, long mtxSize, int layout) {
+    if (layout == Layout.PACKED) {
+      return Long.BYTES // readerGen
+          // + Byte.BYTES // initialized, pragma pack(1)
+          + Long.BYTES // initialized
+          + com.vmware.toroni.rmp.ReaderInfo.size(maxReaders, mtxSize, layout); // rmpReaderInfo
+    }
+
+    return Layout.CACHE_LINE_SIZE // readerGen, initialized
+        + com.vmware.toroni.rmp.ReaderInfo.size(maxReaders, mtxSize, layout); // rmpReaderInfo
   }
 
   /**
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.tp;
+
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+
+/**
+ * Topic Protocol (TP) async message writer over {@link TopicShards}, with an
+ * {@link AsyncWriter} per shard. Messages are posted to the shard of their
+ * topic, so posting to topics of different shards runs in parallel.
+ */
+public class ShardedAsyncWriter {
+
+  public static interface WriterFactory {
+    /**
+     * Creates the async writer of a shard, with its own message and work
+     * queues.
+     */
+    public AsyncWriter create(int shard, ByteRingBuffer ringBuf, ReaderInfo readerInfo);
+  }
+
+  private final TopicShards _shards;
+  private final AsyncWriter[] _writers;
+
+  private ShardedAsyncWriter(TopicShards shards, WriterFactory writerFactory) {
+    _shards = shards;
+    _writers = new AsyncWriter[shards.size()];
+
+    for (int i = 0; i < _writers.length; i++) {
+      _writers[i] = writerFactory.create(i, shards.getRingBuf(i), shards.getReaderInfo(i));
+    }
+  }
+
+  /**
+   * Create a new sharded async topic message writer.
+   *
+   * @param shards
+   * @param writerFactory: invoked once per shard
+   * @return sharded async topic message writer
+   */
+  public static ShardedAsyncWriter create(TopicShards shards, WriterFactory writerFactory) {
+    return new ShardedAsyncWriter(shards, writerFactory);
+  }
+
+  /**
+   * Creates a topic message for the shard of {@code channel} and posts it there.
+   *
+   * @param channel
+   * @param msg
+   * @param postToDescendants
+   * @throws Exception                if message data is too big
+   * @throws IllegalArgumentException if posting to descendants that are in
+   *                                  all shards, see
+   *                                  {@link TopicShards#descendantsInAllShards}
+   */
+  public void post(EncodedTopic channel, byte[] msg, boolean postToDescendants) throws Exception {
+    AsyncWriter writer = getWriter(channel, postToDescendants);
+    writer.post(writer.createMessage(channel, msg, postToDescendants));
+  }
+
+  /**
+   * Same as {@link #post(EncodedTopic, byte[], boolean)} for a channel name.
+   */
+  public void post(String channelName, byte[] msg, boolean postToDescendants) throws Exception {
+    post(new EncodedTopic(channelName), msg, postToDescendants);
+  }
+
+  /**
+   * Create a publisher writing to the shard of {@code channel}, see
+   * {@link AsyncWriter#createPublisher}.
+   *
+   * @param channel
+   * @param postToDescendants
+   * @return the publisher
+   * @throws IllegalArgumentException if posting to descendants that are in
+   *                                  all shards, see
+   *                                  {@link TopicShards#descendantsInAllShards}
+   */
+  public TopicPublisher createPublisher(EncodedTopic channel, boolean postToDescendants) {
+    return getWriter(channel, postToDescendants).createPublisher(channel, postToDescendants);
+  }
+
+  /**
+   * @param shard: in [0, shard count)
+   * @return the async writer of the shard
+   */
+  public AsyncWriter getWriter(int shard) {
+    return _writers[shard];
+  }
+
+  /**
+   * @return the shards
+   */
+  public TopicShards getShards() {
+    return _shards;
+  }
+
+  private AsyncWriter getWriter(EncodedTopic channel, boolean postToDescendants) {
+    if (postToDescendants && TopicShards.descendantsInAllShards(channel)) {
+      throw new IllegalArgumentException("Cannot post to descendants of topic '" + channel.name()
+          + "' across shards");
+    }
+
+    return _writers[_shards.shardOf(channel)];
+  }
+}
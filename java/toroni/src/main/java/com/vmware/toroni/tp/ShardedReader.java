@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.tp;
+
+import com.vmware.toroni.tp.Reader.ChannelReaderEventCallback;
+import com.vmware.toroni.tp.Reader.EnqueueSerialFn;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+
+/**
+ * Topic Protocol (TP) message reader over {@link TopicShards}, with a
+ * {@link Reader} per shard. A channel reader is created in the shard of its
+ * topic only, or in all shards for a topic handling descendants that are in
+ * all shards, see {@link TopicShards#descendantsInAllShards}. The RMP
+ * reader of a shard is only active while the shard has channel readers, so
+ * shards without subscribed topics are neither read nor slow down writers.
+ */
+public class ShardedReader {
+
+  private final TopicShards _shards;
+  private final Reader[] _readers;
+
+  private ShardedReader(TopicShards shards, EnqueueSerialFn serialReadFn, EnqueueSerialFn rmpReadFn,
+      ChannelReaderEventCallback eventCb) {
+    _shards = shards;
+    _readers = new Reader[shards.size()];
+
+    for (int i = 0; i < _readers.length; i++) {
+      _readers[i] = Reader.create(shards.getRingBuf(i), shards.getReaderInfo(i), serialReadFn, rmpReadFn,
+          eventCb);
+    }
+  }
+
+  /**
+   * Creates a new sharded topic message reader.
+   *
+   * @param shards
+   * @param serialReadFn
+   * @param rmpReadFn
+   * @param eventCb:      invoked with the events of each shard
+   * @return sharded topic message reader
+   */
+  public static ShardedReader create(TopicShards shards, EnqueueSerialFn serialReadFn, EnqueueSerialFn rmpReadFn,
+      ChannelReaderEventCallback eventCb) {
+    return new ShardedReader(shards, serialReadFn, rmpReadFn, eventCb);
+  }
+
+  /**
+   * Should be called when a ShardedReader is not going to be used anymore.
+   */
+  public void destroy() {
+    for (Reader reader : _readers) {
+      reader.destroy();
+    }
+  }
+
+  /**
+   * Create a channel reader for a topic in the shards that may contain its
+   * messages.
+   *
+   * @param name:             topic
+   * @param fun:              invoked with message for this topic
+   * @param handleDescendants
+   * @return the channel reader of each shard, null for shards it is not
+   *         created in
+   */
+  public ChannelReader[] createChannelReader(String name, ChannelReader.Handler fun, boolean handleDescendants) {
+    EncodedTopic topic = new EncodedTopic(name);
+    ChannelReader[] result = new ChannelReader[_readers.length];
+
+    if (handleDescendants && TopicShards.descendantsInAllShards(topic)) {
+      for (int i = 0; i < _readers.length; i++) {
+        result[i] = _readers[i].createChannelReader(name, fun, handleDescendants);
+      }
+    } else {
+      int shard = _shards.shardOf(topic);
+      result[shard] = _readers[shard].createChannelReader(name, fun, handleDescendants);
+    }
+
+    return result;
+  }
+
+  /**
+   * Close channel readers created by {@link #createChannelReader}.
+   *
+   * @param channelReaders
+   */
+  public void closeChannelReader(ChannelReader[] channelReaders) {
+    assert (channelReaders.length == _readers.length);
+
+    for (int i = 0; i < _readers.length; i++) {
+      if (channelReaders[i] != null) {
+        _readers[i].closeChannelReader(channelReaders[i]);
+      }
+    }
+  }
+
+  /**
+   * Starts the RMP reader of each shard that has channel readers.
+   */
+  public void run() {
+    for (Reader reader : _readers) {
+      reader.run();
+    }
+  }
+
+  /**
+   * Checks whether messages have been written to a shard after its RMP reader
+   * position, see {@link Reader#messagesAvailable}.
+   *
+   * @return true if an active reader is behind the stream end of its shard
+   */
+  public boolean messagesAvailable() {
+    for (Reader reader : _readers) {
+      if (reader.messagesAvailable()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @param shard: in [0, shard count)
+   * @return the reader of the shard
+   */
+  public Reader getReader(int shard) {
+    return _readers[shard];
+  }
+}
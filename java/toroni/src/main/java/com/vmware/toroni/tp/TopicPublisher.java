@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.tp;
+
+import com.vmware.toroni.metrics.WriterMetrics;
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.tp.detail.Util;
+
+/**
+ * Topic Protocol (TP) publisher for a single channel. Encodes the topic
+ * message header once and writes it together with each message straight into
+ * the ring buffer, so publishing neither allocates nor copies the message
+ * other than into the ring buffer. Created with
+ * {@link AsyncWriter#createPublisher}.
+ *
+ * Unlike {@link AsyncWriter#post} publishing is synchronous: it takes the ring
+ * buffer lock on the calling thread. Messages published and posted are not
+ * ordered with respect to each other.
+ */
+public class TopicPublisher {
+
+  private ByteRingBuffer _ringBuf;
+  private ReaderInfo _readerInfo;
+  private Writer _rbWriter;
+  private BackPressureCallback _bpHandler;
+  private Runnable _notifyAllReadersFn;
+  private byte[] _header; // readerGen is updated per message, guarded by this
+
+  TopicPublisher(ByteRingBuffer ringBuf, ReaderInfo readerInfo, BackPressureCallback bpHandler,
+      Runnable notifyAllReadersFn, byte[] header, WriterMetrics metrics) {
+    _ringBuf = ringBuf;
+    _readerInfo = readerInfo;
+    try {
+      _rbWriter = new Writer(_ringBuf, _readerInfo.rmpReaderInfo, metrics);
+    } catch (Exception e) {
+      throw new Error(e);
+    }
+    _bpHandler = bpHandler;
+    _notifyAllReadersFn = notifyAllReadersFn;
+    _header = header;
+  }
+
+  /**
+   * Writes a message to the ring buffer and notifies the readers.
+   *
+   * @param msg
+   * @throws Exception if message data is too big
+   */
+  public void publish(byte[] msg) throws Exception {
+    publish(msg, true);
+  }
+
+  /**
+   * Writes a message to the ring buffer.
+   *
+   * @param msg
+   * @param notify: whether to notify the readers, e.g. false for all but the
+   *                last message of a burst
+   * @throws Exception if message data is too big
+   */
+  public void publish(byte[] msg, boolean notify) throws Exception {
+    assert (msg.length != 0);
+
+    if (_header.length + msg.length > _rbWriter.getMaxMessageSize()) {
+      throw new Exception("Message size exceeds RingBuffer size");
+    }
+
+    synchronized (this) {
+      Util.writeLongValue(_header, 0, _readerInfo.getReaderGen());
+      _rbWriter.writeEx(_header, msg, _bpHandler);
+    }
+
+    if (notify) {
+      notifyReaders();
+    }
+  }
+
+  /**
+   * Notifies the readers to start reading.
+   */
+  public void notifyReaders() {
+    _ringBuf.incStatNotificationCount(1);
+    _notifyAllReadersFn.run();
+  }
+
+  /**
+   * @return the size in bytes of the topic message header
+   */
+  public int headerSize() {
+    return _header.length;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.tp;
+
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+
+/**
+ * A set of ring buffers, each with its own {@link ReaderInfo}, that topics are
+ * spread over by the hash of their top-level segment, i.e. the bytes up to the
+ * first '/' after the first byte: /a/b and /a/c are in the shard of /a. Writers
+ * of different shards do not contend on a ring buffer lock and readers only
+ * read the shards of their topics, see {@link ShardedAsyncWriter} and
+ * {@link ShardedReader}. Messages are totally ordered per shard only.
+ *
+ * All processes must use the same shard count. Descendants match by byte
+ * prefix, so the descendants of a topic that does not go past its top-level
+ * segment, e.g. /ab of /a or anything of the root topics "" and "/", can be in
+ * any shard. Readers of such a topic handling descendants read all shards and
+ * posting to its descendants is rejected, see
+ * {@link #descendantsInAllShards}. Descendants of /a/ are in the shard of /a.
+ */
+public class TopicShards {
+
+  private final ByteRingBuffer[] _ringBufs;
+  private final ReaderInfo[] _readerInfos;
+
+  /**
+   * @param ringBufs:    ring buffer of each shard
+   * @param readerInfos: reader info of each shard
+   */
+  public TopicShards(ByteRingBuffer[] ringBufs, ReaderInfo[] readerInfos) {
+    if (ringBufs.length == 0 || ringBufs.length != readerInfos.length) {
+      throw new IllegalArgumentException("Each shard needs a ring buffer and a reader info");
+    }
+
+    _ringBufs = ringBufs.clone();
+    _readerInfos = readerInfos.clone();
+  }
+
+  /**
+   * @return the number of shards
+   */
+  public int size() {
+    return _ringBufs.length;
+  }
+
+  /**
+   * @param shard: in [0, size())
+   * @return the ring buffer of the shard
+   */
+  public ByteRingBuffer getRingBuf(int shard) {
+    return _ringBufs[shard];
+  }
+
+  /**
+   * @param shard: in [0, size())
+   * @return the reader info of the shard
+   */
+  public ReaderInfo getReaderInfo(int shard) {
+    return _readerInfos[shard];
+  }
+
+  /**
+   * @param topic
+   * @return the shard of the topic
+   */
+  public int shardOf(EncodedTopic topic) {
+    return shardOf(topic, _ringBufs.length);
+  }
+
+  /**
+   * @param topic
+   * @param shards: number of shards
+   * @return the shard of the topic, the FNV-1a hash of its top-level segment
+   *         modulo {@code shards}
+   */
+  public static int shardOf(EncodedTopic topic, int shards) {
+    return (int) Long.remainderUnsigned(topic.prefixHash(topLevelLength(topic)), shards);
+  }
+
+  /**
+   * @param topic
+   * @return true if the topic is at most its top-level segment, e.g. "", "/" or
+   *         /a, so that its descendants by byte prefix, e.g. /ab, can be in any
+   *         shard
+   */
+  public static boolean descendantsInAllShards(EncodedTopic topic) {
+    return topLevelLength(topic) == topic.length();
+  }
+
+  /**
+   * @param topic
+   * @return the number of bytes of the top-level segment of the topic
+   */
+  static int topLevelLength(EncodedTopic topic) {
+    byte[] bytes = topic.bytes();
+
+    for (int i = 1; i < bytes.length; i++) {
+      if (bytes[i] == '/') {
+        return i;
+      }
+    }
+
+    return bytes.length;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.tp.detail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A topic encoded once for the version 1 topic message header, see
+ * {@link TopicMsgSerializer}: its UTF-8 bytes, their 64-bit FNV-1a hash and
+ * the hashes of its ancestors, i.e. of the prefixes ending before each '/'
+ * after the first byte. Readers also use the hashes of all prefixes to match
+ * writers posting to descendants.
+ */
+public class EncodedTopic {
+
+  public static final int MAX_LENGTH = 0xffff;
+  public static final int MAX_ANCESTORS = 0xff;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final String _name;
+  private final byte[] _bytes;
+  private final long[] _prefixHashes; // of _bytes[0, i) for i in [0, length]
+  private final long[] _ancestorHashes;
+
+  /**
+   * @param name: topic
+   * @throws IllegalArgumentException if the encoded topic is longer than
+   *                                  {@link #MAX_LENGTH}
+   */
+  public EncodedTopic(String name) {
+    _name = name;
+    _bytes = name.getBytes(StandardCharsets.UTF_8);
+
+    if (_bytes.length > MAX_LENGTH) {
+      throw new IllegalArgumentException("Topic is too long: " + _bytes.length);
+    }
+
+    _prefixHashes = new long[_bytes.length + 1];
+    _prefixHashes[0] = FNV_OFFSET_BASIS;
+    long[] ancestorHashes = new long[Math.min(_bytes.length, MAX_ANCESTORS)];
+    int ancestors = 0;
+
+    for (int i = 0; i < _bytes.length; i++) {
+      if (i > 0 && _bytes[i] == '/' && ancestors < MAX_ANCESTORS) {
+        ancestorHashes[ancestors++] = _prefixHashes[i];
+      }
+      _prefixHashes[i + 1] = (_prefixHashes[i] ^ (_bytes[i] & 0xff)) * FNV_PRIME;
+    }
+
+    _ancestorHashes = Arrays.copyOf(ancestorHashes, ancestors);
+  }
+
+  /**
+   * @return the topic
+   */
+  public String name() {
+    return _name;
+  }
+
+  /**
+   * @return the UTF-8 bytes of the topic, not to be modified
+   */
+  public byte[] bytes() {
+    return _bytes;
+  }
+
+  /**
+   * @return the number of bytes of the topic
+   */
+  public int length() {
+    return _bytes.length;
+  }
+
+  /**
+   * @return the hash of the topic
+   */
+  public long hash() {
+    return _prefixHashes[_bytes.length];
+  }
+
+  /**
+   * @param length: in [0, length()]
+   * @return the hash of the first {@code length} bytes of the topic
+   */
+  public long prefixHash(int length) {
+    return _prefixHashes[length];
+  }
+
+  /**
+   * @return the number of ancestors in the message header
+   */
+  public int ancestorCount() {
+    return _ancestorHashes.length;
+  }
+
+  /**
+   * @param i: in [0, ancestorCount())
+   * @return the hash of the i-th shortest ancestor
+   */
+  public long ancestorHash(int i) {
+    return _ancestorHashes[i];
+  }
+
+  /**
+   * @return the index of this topic among the ancestors of its descendants, or
+   *         -1 if it is not an ancestor in the message header
+   */
+  public int ancestorIndex() {
+    // a descendant /x/y/z has ancestors /x, /x/y, so this topic /x/y is the
+    // one after its own ancestors
+    return _bytes.length > 0 && _ancestorHashes.length < MAX_ANCESTORS ? _ancestorHashes.length : -1;
+  }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.tp.detail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.vmware.toroni.tp.ChannelReader;
+
+/**
+ * Immutable byte-level trie of channel reader topics. Dispatches a topic message
+ * of either version to the matching channel readers parsing its header once,
+ * with the same matching rules as {@link TopicMsgDeserializer#topicMatches}:
+ * - readers on the node of the writer topic match;
+ * - readers handling descendants on the path to it match;
+ * - if the writer posts to descendants, readers below it match.
+ *
+ * Version 1 messages whose topic hash and ancestor hashes match none of the
+ * hashes of the reader topics are rejected without walking the trie.
+ */
+public class TopicIndex {
+
+  private static final byte[] NO_KEYS = new byte[0];
+  private static final Node[] NO_CHILDREN = new Node[0];
+  private static final ChannelReader[] NO_READERS = new ChannelReader[0];
+
+  private static class Node {
+    byte[] label = NO_KEYS; // topic bytes from the parent to this node
+    byte[] keys = NO_KEYS; // first label byte of each child
+    Node[] children = NO_CHILDREN;
+    ChannelReader[] readers = NO_READERS; // on this topic
+    ChannelReader[] descendantReaders = NO_READERS; // on this topic, handling descendants
+
+    Node child(byte key) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == key) {
+          return children[i];
+        }
+      }
+
+      return null;
+    }
+
+    Node addChild(byte key) {
+      Node result = child(key);
+
+      if (result == null) {
+        result = new Node();
+        result.label = new byte[] { key };
+        keys = Arrays.copyOf(keys, keys.length + 1);
+        keys[keys.length - 1] = key;
+        children = Arrays.copyOf(children, children.length + 1);
+        children[children.length - 1] = result;
+      }
+
+      return result;
+    }
+
+    /**
+     * Merges chains of reader-less single-child nodes below into their top node,
+     * so that a lookup compares labels instead of visiting a node per byte.
+     */
+    void compress() {
+      for (int i = 0; i < children.length; i++) {
+        Node child = children[i];
+
+        while (child.children.length == 1 && child.readers.length == 0
+            && child.descendantReaders.length == 0) {
+          Node grandChild = child.children[0];
+          byte[] label = Arrays.copyOf(child.label, child.label.length + grandChild.label.length);
+          System.arraycopy(grandChild.label, 0, label, child.label.length, grandChild.label.length);
+          grandChild.label = label;
+          child = grandChild;
+        }
+
+        children[i] = child;
+        child.compress();
+      }
+    }
+  }
+
+  private final Node _root;
+  private final int _size;
+
+  // sorted, see mayMatch
+  private final long[] _topicHashes; // of the reader topics
+  private final long[] _prefixHashes; // of all prefixes of the reader topics
+  private final long[] _descendantHashes; // of the topics of readers handling descendants
+  private final int[] _descendantLengths; // of the topics of readers handling descendants
+  private final boolean _walkAlways; // a reader topic is not in message headers
+
+  /**
+   * @param channelReaders: readers on the same topic are dispatched to in this
+   *                        order
+   */
+  public TopicIndex(List<ChannelReader> channelReaders) {
+    _root = new Node();
+    _size = channelReaders.size();
+
+    EncodedTopic[] topics = new EncodedTopic[_size];
+    int prefixCount = 0;
+    boolean walkAlways = false;
+
+    for (int i = 0; i < _size; i++) {
+      ChannelReader cr = channelReaders.get(i);
+      Node node = _root;
+      for (byte key : cr._name.getBytes()) {
+        node = node.addChild(key);
+      }
+
+      if (cr._handleDescendants) {
+        node.descendantReaders = append(node.descendantReaders, cr);
+      } else {
+        node.readers = append(node.readers, cr);
+      }
+
+      if (cr._name.getBytes(StandardCharsets.UTF_8).length > EncodedTopic.MAX_LENGTH) {
+        walkAlways = true; // never in a version 1 header
+        continue;
+      }
+
+      topics[i] = new EncodedTopic(cr._name);
+      prefixCount += topics[i].length() + 1;
+      walkAlways |= cr._handleDescendants && topics[i].ancestorIndex() < 0;
+    }
+
+    _root.compress();
+
+    long[] topicHashes = new long[_size];
+    long[] prefixHashes = new long[prefixCount];
+    long[] descendantHashes = new long[_size];
+    int[] descendantLengths = new int[_size];
+    int topicCount = 0;
+    int descendantCount = 0;
+    int lengthCount = 0;
+    prefixCount = 0;
+
+    for (int i = 0; i < _size; i++) {
+      EncodedTopic topic = topics[i];
+      if (topic == null) {
+        continue;
+      }
+
+      topicHashes[topicCount++] = topic.hash();
+      for (int len = 0; len <= topic.length(); len++) {
+        prefixHashes[prefixCount++] = topic.prefixHash(len);
+      }
+
+      if (channelReaders.get(i)._handleDescendants) {
+        descendantHashes[descendantCount++] = topic.hash();
+        if (!contains(descendantLengths, lengthCount, topic.length())) {
+          descendantLengths[lengthCount++] = topic.length();
+        }
+      }
+    }
+
+    _topicHashes = sorted(topicHashes, topicCount);
+    _prefixHashes = sorted(prefixHashes, prefixCount);
+    _descendantHashes = sorted(descendantHashes, descendantCount);
+    _descendantLengths = Arrays.copyOf(descendantLengths, lengthCount);
+    _walkAlways = walkAlways;
+  }
+
+  /**
+   * @return the number of indexed channel readers
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Invokes the handler of every channel reader matching the topic message that
+   * is created before the message, with the message without the topic
+   * information.
+   *
+   * @param data
+   * @param length: number of bytes available in data
+   * @return the number of handlers invoked, 0 if the message is not valid, see
+   *         {@link TopicMsgDeserializer#isValid}
+   */
+  public int dispatch(byte[] data, int length) {
+    assert (length <= data.length);
+
+    if (!TopicMsgDeserializer.isValid(data, length)) {
+      return 0;
+    }
+
+    long writerReaderGen = Util.readLongValue(data, 0);
+    boolean writerPd = TopicMsgDeserializer.postToDescendants(data);
+    int topicInd = TopicMsgDeserializer.topicIndex(data);
+    int topicEnd = TopicMsgDeserializer.topicEnd(data, topicInd);
+    int msgInd = TopicMsgDeserializer.messageIndex(data, topicEnd);
+
+    if (TopicMsgDeserializer.version(data) == 1 && !mayMatch(data, topicInd, topicEnd, writerPd)) {
+      return 0;
+    }
+
+    int result = 0;
+
+    // readers handling descendants of the writer topic ancestors
+    Node node = _root;
+    int i = topicInd;
+    while (i < topicEnd) {
+      result += deliver(node.descendantReaders, writerReaderGen, data, msgInd, length);
+
+      node = node.child(data[i]);
+      if (node == null) {
+        return result;
+      }
+
+      byte[] label = node.label;
+      int j = 1;
+      for (i++; j < label.length && i < topicEnd; i++, j++) {
+        if (label[j] != data[i]) {
+          return result;
+        }
+      }
+
+      if (j < label.length) {
+        // the writer topic ends inside the label, i.e. above node
+        if (writerPd) {
+          result += deliverSubtree(node, writerReaderGen, data, msgInd, length);
+        }
+        return result;
+      }
+    }
+
+    // readers of the writer topic
+    result += deliver(node.descendantReaders, writerReaderGen, data, msgInd, length);
+    result += deliver(node.readers, writerReaderGen, data, msgInd, length);
+
+    if (writerPd) {
+      for (Node child : node.children) {
+        result += deliverSubtree(child, writerReaderGen, data, msgInd, length);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Compares the hashes of a version 1 message header with the hashes of the
+   * reader topics. A reader matches only if:
+   * - its topic is the writer topic, i.e. has the topic hash;
+   * - the writer posts to descendants and its topic starts with the writer
+   * topic, i.e. has a prefix with the topic hash;
+   * - it handles descendants and the writer topic starts with its topic. If
+   * the writer topic continues with '/' there, the reader topic is an
+   * ancestor in the header, otherwise the trie decides.
+   *
+   * @return false if no reader matches
+   */
+  private boolean mayMatch(byte[] data, int topicInd, int topicEnd, boolean writerPd) {
+    if (_walkAlways) {
+      return true;
+    }
+
+    long hash = Util.readLongValue(data, 12);
+    if (Arrays.binarySearch(writerPd ? _prefixHashes : _topicHashes, hash) >= 0) {
+      return true;
+    }
+
+    if (_descendantHashes.length == 0) {
+      return false;
+    }
+
+    for (int len : _descendantLengths) {
+      int i = topicInd + len;
+      if (i < topicEnd && data[i] != '/') {
+        return true;
+      }
+    }
+
+    int ancestorCount = data[9] & 0xff;
+    if (ancestorCount == EncodedTopic.MAX_ANCESTORS) {
+      return true; // the ones after are not in the header
+    }
+
+    for (int i = 0; i < ancestorCount; i++) {
+      long ancestorHash = Util.readLongValue(data, TopicMsgSerializer.HEADER_V1_SIZE + i * 8);
+      if (Arrays.binarySearch(_descendantHashes, ancestorHash) >= 0) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static int deliverSubtree(Node node, long writerReaderGen, byte[] data, int msgInd, int length) {
+    int result = deliver(node.descendantReaders, writerReaderGen, data, msgInd, length)
+        + deliver(node.readers, writerReaderGen, data, msgInd, length);
+
+    for (Node child : node.children) {
+      result += deliverSubtree(child, writerReaderGen, data, msgInd, length);
+    }
+
+    return result;
+  }
+
+  private static int deliver(ChannelReader[] readers, long writerReaderGen, byte[] data, int msgInd,
+      int length) {
+    int result = 0;
+
+    for (ChannelReader cr : readers) {
+      if (writerReaderGen < cr._readerGen) {
+        continue;
+      }
+
+      cr._handler.run(ByteBuffer.wrap(data, msgInd, length - msgInd).slice());
+      result++;
+    }
+
+    return result;
+  }
+
+  private static long[] sorted(long[] hashes, int count) {
+    long[] result = Arrays.copyOf(hashes, count);
+    Arrays.sort(result);
+    return result;
+  }
+
+  private static boolean contains(int[] values, int count, int value) {
+    for (int i = 0; i < count; i++) {
+      if (values[i] == value) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static ChannelReader[] append(ChannelReader[] readers, ChannelReader cr) {
+    ChannelReader[] result = Arrays.copyOf(readers, readers.length + 1);
+    result[readers.length] = cr;
+    return result;
+  }
+}
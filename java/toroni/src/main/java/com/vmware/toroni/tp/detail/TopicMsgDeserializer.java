@@ -21,8 +21,8 @@ public class TopicMsgDeserializer {
   }
 
   /**
-   * Deserializes a topic message if its topic matches. If it matches in the end
-   * data contains only the message without the topic.
+   * Deserializes a topic message of either version if its topic matches. If it
+   * matches in the end data contains only the message without the topic.
    *
    * @param data
    * @param length            number of bytes available in data
@@ -31,39 +31,213 @@ public class TopicMsgDeserializer {
    * @param handleDescendants
    * @return if topic message matches then a ResultMessagePair with result=true
    *         and message=the remaining message without the topic information,
-   *         otherwise a ResultMessagePiar wiht result=false and message=null
+   *         otherwise, or if it is not valid (see {@link #isValid}), a
+   *         ResultMessagePiar wiht result=false and message=null
    */
   public static ResultMessagePair deserializeAndFilter(byte[] data, int length, long readerGen,
       String channelName, boolean handleDescendants) {
     assert (length <= data.length);
-    assert (length >= TopicMsgSerializer.sizeOf("", 0));
+
+    if (!isValid(data, length)) {
+      return new ResultMessagePair(false, null);
+    }
 
     long writerReaderGen = Util.readLongValue(data, 0);
     if (writerReaderGen < readerGen) {
       return new ResultMessagePair(false, null);
     }
 
-    boolean writerPd = (data[8] == 1);
-
-    int msgInd;
-    ByteBuffer writerChannelBB;
-    for (int i = 9;; i++) {
-      if (data[i] == 0) {
-        writerChannelBB = ByteBuffer.wrap(data, 9, i - 9).slice();
-        msgInd = i + 1;
-        break;
-      }
-    }
+    boolean writerPd = postToDescendants(data);
+    int topicInd = topicIndex(data);
+    int topicEnd = topicEnd(data, topicInd);
+    ByteBuffer writerChannelBB = ByteBuffer.wrap(data, topicInd, topicEnd - topicInd).slice();
 
-    final ByteBuffer bb = ByteBuffer.wrap(data, msgInd, length - msgInd).slice();
     if (topicMatches(channelName, handleDescendants, writerChannelBB,
         writerPd)) {
-      return new ResultMessagePair(true, bb);
+      return new ResultMessagePair(true, message(data, length, topicEnd));
     }
 
     return new ResultMessagePair(false, null);
   }
 
+  /**
+   * Same as {@link #deserializeAndFilter(byte[], int, long, String, boolean)}
+   * but rejects most non-matching version 1 messages by comparing hashes, see
+   * {@link #topicMatches(EncodedTopic, boolean, byte[])}.
+   */
+  public static ResultMessagePair deserializeAndFilter(byte[] data, int length, long readerGen,
+      EncodedTopic channel, boolean handleDescendants) {
+    assert (length <= data.length);
+
+    if (!isValid(data, length)) {
+      return new ResultMessagePair(false, null);
+    }
+
+    long writerReaderGen = Util.readLongValue(data, 0);
+    if (writerReaderGen < readerGen) {
+      return new ResultMessagePair(false, null);
+    }
+
+    if (topicMatches(channel, handleDescendants, data)) {
+      return new ResultMessagePair(true, message(data, length, topicEnd(data, topicIndex(data))));
+    }
+
+    return new ResultMessagePair(false, null);
+  }
+
+  /**
+   * Checks that a topic message holds the header of its version and its topic,
+   * so that the other methods read within length: first the version byte, then
+   * the header of the version, then the ancestor hashes and the topic.
+   *
+   * @param data
+   * @param length: number of bytes available in data
+   * @return false if the message is truncated or of an unknown version
+   */
+  public static boolean isValid(byte[] data, int length) {
+    if (length <= 8) {
+      return false;
+    }
+
+    switch (version(data)) {
+    case 0:
+      if (length < TopicMsgSerializer.sizeOf("", 0)) {
+        return false;
+      }
+      for (int i = 9; i < length; i++) {
+        if (data[i] == 0) {
+          return true;
+        }
+      }
+      return false;
+    case 1:
+      if (length < TopicMsgSerializer.HEADER_V1_SIZE) {
+        return false;
+      }
+      int topicInd = topicIndex(data);
+      return topicInd <= length && topicEnd(data, topicInd) <= length;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * @param data: topic message
+   * @return the version of the topic message header
+   */
+  public static int version(byte[] data) {
+    return (data[8] & TopicMsgSerializer.VERSION_MASK) >> 4;
+  }
+
+  /**
+   * @param data: topic message
+   * @return whether the writer posts to descendants
+   */
+  public static boolean postToDescendants(byte[] data) {
+    return (data[8] & TopicMsgSerializer.FLAG_POST_TO_DESCENDANTS) != 0;
+  }
+
+  /**
+   * @param data: topic message
+   * @return the index of the first byte of the topic
+   */
+  public static int topicIndex(byte[] data) {
+    if (version(data) == 0) {
+      return 9;
+    }
+
+    return TopicMsgSerializer.HEADER_V1_SIZE + (data[9] & 0xff) * 8;
+  }
+
+  /**
+   * @param data:     topic message
+   * @param topicInd: see {@link #topicIndex}
+   * @return the index after the last byte of the topic
+   */
+  public static int topicEnd(byte[] data, int topicInd) {
+    if (version(data) == 0) {
+      int i = topicInd;
+      while (data[i] != 0) {
+        i++;
+      }
+      return i;
+    }
+
+    return topicInd + (data[10] & 0xff) + ((data[11] & 0xff) << 8);
+  }
+
+  /**
+   * @param data:     topic message
+   * @param topicEnd: see {@link #topicEnd}
+   * @return the index of the first byte of the message data
+   */
+  public static int messageIndex(byte[] data, int topicEnd) {
+    return version(data) == 0 ? topicEnd + 1 : topicEnd;
+  }
+
+  /**
+   * Match the topic of a message against a reader topic. For version 1
+   * messages most non-matching topics are rejected with a single hash compare
+   * depending on their lengths:
+   * - same length: the topic hash;
+   * - writer topic longer: if the reader handles descendants, the ancestor
+   * hash the reader topic would be;
+   * - reader topic longer: if the writer posts to descendants, the reader
+   * topic prefix hash.
+   * Matching hashes are confirmed by comparing bytes.
+   *
+   * @param readerChannel
+   * @param handleDescendants
+   * @param data:             topic message
+   * @return true if they match, false otherwise
+   */
+  public static boolean topicMatches(EncodedTopic readerChannel, boolean handleDescendants, byte[] data) {
+    boolean writerPd = postToDescendants(data);
+    int topicInd = topicIndex(data);
+    int topicEnd = topicEnd(data, topicInd);
+
+    if (version(data) == 0) {
+      return topicMatches(readerChannel.name(), handleDescendants,
+          ByteBuffer.wrap(data, topicInd, topicEnd - topicInd).slice(), writerPd);
+    }
+
+    int writerLen = topicEnd - topicInd;
+    int readerLen = readerChannel.length();
+
+    if (readerLen == writerLen) {
+      if (Util.readLongValue(data, 12) != readerChannel.hash()) {
+        return false;
+      }
+    } else if (readerLen < writerLen) {
+      if (!handleDescendants) {
+        return false;
+      }
+
+      int ancestorInd = readerChannel.ancestorIndex();
+      if (ancestorInd >= 0 && ancestorInd < (data[9] & 0xff) && data[topicInd + readerLen] == '/'
+          && Util.readLongValue(data, TopicMsgSerializer.HEADER_V1_SIZE + ancestorInd * 8) != readerChannel
+              .hash()) {
+        return false;
+      }
+      // otherwise the reader topic is not an ancestor in the header, compare
+      // bytes
+    } else {
+      if (!writerPd || Util.readLongValue(data, 12) != readerChannel.prefixHash(writerLen)) {
+        return false;
+      }
+    }
+
+    byte[] readerBytes = readerChannel.bytes();
+    int mlen = Math.min(readerLen, writerLen);
+    for (int i = 0; i < mlen; i++) {
+      if (readerBytes[i] != data[topicInd + i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   /**
    * Match writer+postToDescendents and reader+handleDescendents topics.
    *
@@ -109,4 +283,9 @@ public class TopicMsgDeserializer {
 
     return false;
   }
+
+  private static ByteBuffer message(byte[] data, int length, int topicEnd) {
+    int msgInd = messageIndex(data, topicEnd);
+    return ByteBuffer.wrap(data, msgInd, length - msgInd).slice();
+  }
 }
@@ -7,14 +7,37 @@ package com.vmware.toroni.tp.detail;
 
 /**
  * Binary serializer for a topic message.
- * The layout is the following:
+ * The layout of version 0 is the following:
  * - 8b readerGen
  * - 1b postToDescendants
  * - Xb channelName (zero-terminated)
  * - Yb data
+ *
+ * The layout of version 1, which lets readers filter by hash, is the
+ * following (integers are little-endian):
+ * - 8b readerGen
+ * - 1b flags: version in the high 4 bits, postToDescendants in the lowest
+ * - 1b ancestorCount
+ * - 2b channelName length
+ * - 8b channelName hash
+ * - ancestorCount * 8b ancestor hashes, see {@link EncodedTopic}
+ * - Xb channelName
+ * - Yb data
+ *
+ * Readers accept both versions. A writer should use version 1 only once all
+ * readers of the ring buffer do.
  */
 public class TopicMsgSerializer {
 
+  public static final int FLAG_POST_TO_DESCENDANTS = 0x01;
+  public static final int VERSION_MASK = 0xf0;
+  public static final int VERSION_1 = 0x10;
+  public static final int HEADER_V1_SIZE = 8 // readerGen
+      + 1 // flags
+      + 1 // ancestorCount
+      + 2 // channelName length
+      + 8; // channelName hash
+
   /**
    * The size of the topic message including system data.
    * 
@@ -44,8 +67,7 @@ public class TopicMsgSerializer {
     int rbMsgInd = 0;
 
     // write readerGen
-    byte[] readerGenByteArray = Util.longToByteArray(readerGen);
-    System.arraycopy(readerGenByteArray, 0, rbMsg, rbMsgInd, 8);
+    Util.writeLongValue(rbMsg, rbMsgInd, readerGen);
     rbMsgInd += 8;
 
     // add postToDescendants
@@ -60,4 +82,53 @@ public class TopicMsgSerializer {
     // add msg
     System.arraycopy(msg, 0, rbMsg, rbMsgInd, msg.length);
   }
+
+  /**
+   * The size of a version 1 topic message including system data.
+   *
+   * @param channel
+   * @param dataLen
+   * @return size in bytes
+   */
+  public static int sizeOf(EncodedTopic channel, int dataLen) {
+    return HEADER_V1_SIZE
+        + channel.ancestorCount() * 8 // ancestor hashes
+        + channel.length() // channelName
+        + dataLen; // message itself
+  }
+
+  /**
+   * Serialize to binary a version 1 topic message.
+   *
+   * @param rbMsg:           preallocated memory to serialize onto
+   * @param readerGen
+   * @param postToDescedants
+   * @param channel
+   * @param msg
+   */
+  public static void serialize(byte[] rbMsg, long readerGen, boolean postToDescedants,
+      EncodedTopic channel, byte[] msg) {
+    int rbMsgInd = 0;
+
+    Util.writeLongValue(rbMsg, rbMsgInd, readerGen);
+    rbMsgInd += 8;
+
+    rbMsg[rbMsgInd++] = (byte) (VERSION_1 | (postToDescedants ? FLAG_POST_TO_DESCENDANTS : 0));
+    rbMsg[rbMsgInd++] = (byte) channel.ancestorCount();
+    rbMsg[rbMsgInd++] = (byte) channel.length();
+    rbMsg[rbMsgInd++] = (byte) (channel.length() >> 8);
+
+    Util.writeLongValue(rbMsg, rbMsgInd, channel.hash());
+    rbMsgInd += 8;
+
+    for (int i = 0; i < channel.ancestorCount(); i++) {
+      Util.writeLongValue(rbMsg, rbMsgInd, channel.ancestorHash(i));
+      rbMsgInd += 8;
+    }
+
+    System.arraycopy(channel.bytes(), 0, rbMsg, rbMsgInd, channel.length());
+    rbMsgInd += channel.length();
+
+    System.arraycopy(msg, 0, rbMsg, rbMsgInd, msg.length);
+  }
 }
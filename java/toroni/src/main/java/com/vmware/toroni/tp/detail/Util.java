@@ -5,8 +5,15 @@
 
 package com.vmware.toroni.tp.detail;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
 public class Util {
 
+  private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+      ByteOrder.LITTLE_ENDIAN);
+
   /**
    * Converts a long to a byte array.
    * 
@@ -38,13 +45,17 @@ public class Util {
    * @return the value of data as a long
    */
   public static long readLongValue(byte[] data, int from) {
-    assert (from + 7 <= data.length);
-
-    long value = 0;
-    for (int i = 7; i >= 0; i--) {
-      value = (value << 8) + (data[from + i] & 255);
-    }
+    return (long) LONG_LE.get(data, from);
+  }
 
-    return value;
+  /**
+   * Writes a long value into an array of bytes, least significant byte first.
+   *
+   * @param data
+   * @param from  the position to write 8 bytes to
+   * @param value
+   */
+  public static void writeLongValue(byte[] data, int from, long value) {
+    LONG_LE.set(data, from, value);
   }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Idle strategy that busy-spins, then yields, then parks with exponential
+ * backoff while checking whether messages are available, and only then blocks
+ * on a {@link Notification}. A reader idling between bursts that arrive
+ * shortly after each other then avoids a kernel wakeup per burst.
+ *
+ * With all thresholds 0 it blocks on the notification right away. Used from a
+ * single thread, like the read loop.
+ */
+public class BackoffIdleStrategy implements IdleStrategy {
+
+  private final Notification _notification;
+  private final AvailableFn _availableFn;
+  private final long _maxSpins;
+  private final long _maxYields;
+  private final long _minParkNs;
+  private final long _maxParkNs;
+
+  private long _spins;
+  private long _yields;
+  private long _parks;
+  private long _spinWakeups;
+  private long _yieldWakeups;
+  private long _parkWakeups;
+  private long _notificationWakeups;
+
+  /**
+   * @param notification: blocked on after backing off
+   * @param availableFn:  whether messages are available
+   * @param maxSpins:     busy-spins before yielding
+   * @param maxYields:    yields before parking
+   * @param minParkNs:    first park duration, doubled after every park; 0 not to
+   *                      park
+   * @param maxParkNs:    last park duration before blocking
+   */
+  public BackoffIdleStrategy(Notification notification, AvailableFn availableFn, long maxSpins,
+      long maxYields, long minParkNs, long maxParkNs) {
+    assert (maxSpins >= 0 && maxYields >= 0 && minParkNs >= 0);
+
+    _notification = notification;
+    _availableFn = availableFn;
+    _maxSpins = maxSpins;
+    _maxYields = maxYields;
+    _minParkNs = minParkNs;
+    _maxParkNs = maxParkNs;
+  }
+
+  /**
+   * Returns as soon as messages are available, or when notified after backing
+   * off.
+   */
+  @Override
+  public void idle() {
+    long spins = 0, yields = 0, parks = 0;
+    long parkNs = _minParkNs;
+    boolean notified = false;
+
+    while (!_availableFn.run()) {
+      if (spins < _maxSpins) {
+        Thread.onSpinWait();
+        spins++;
+      } else if (yields < _maxYields) {
+        Thread.yield();
+        yields++;
+      } else if (parkNs > 0 && parkNs <= _maxParkNs) {
+        LockSupport.parkNanos(parkNs);
+        parkNs *= 2;
+        parks++;
+      } else {
+        _notification.waitForNotification();
+        notified = true;
+        break;
+      }
+    }
+
+    _spins += spins;
+    _yields += yields;
+    _parks += parks;
+
+    if (notified) {
+      _notificationWakeups++;
+    } else if (parks > 0) {
+      _parkWakeups++;
+    } else if (yields > 0) {
+      _yieldWakeups++;
+    } else {
+      _spinWakeups++;
+    }
+  }
+
+  /**
+   * @return the number of busy-spins
+   */
+  public long getSpins() {
+    return _spins;
+  }
+
+  /**
+   * @return the number of yields
+   */
+  public long getYields() {
+    return _yields;
+  }
+
+  /**
+   * @return the number of parks
+   */
+  public long getParks() {
+    return _parks;
+  }
+
+  /**
+   * @return the number of idles that returned while spinning, including those
+   *         that found messages available right away
+   */
+  public long getSpinWakeups() {
+    return _spinWakeups;
+  }
+
+  /**
+   * @return the number of idles that returned while yielding
+   */
+  public long getYieldWakeups() {
+    return _yieldWakeups;
+  }
+
+  /**
+   * @return the number of idles that returned while parking
+   */
+  public long getParkWakeups() {
+    return _parkWakeups;
+  }
+
+  /**
+   * @return the number of idles that blocked on the notification
+   */
+  public long getNotificationWakeups() {
+    return _notificationWakeups;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+/**
+ * Multicast UDP Notification over a non-blocking NIO DatagramChannel. Sends
+ * and receives the same zero-byte datagrams as
+ * {@link MulticastUdpNotification}, but a wait drains all notifications
+ * pending at wakeup, so notifications sent during one read pass wake the
+ * reader only once. The channel can also be registered with a
+ * {@link NotificationSelector} to wait on many channels from one thread.
+ */
+public class DatagramChannelNotification implements Notification {
+
+  private final DatagramChannel _channel;
+  private final InetSocketAddress _group;
+  private final ByteBuffer _sendBuffer = ByteBuffer.allocateDirect(0);
+  private final ByteBuffer _receiveBuffer = ByteBuffer.allocateDirect(0);
+  private Selector _selector; // for waitForNotification, created lazily
+
+  public DatagramChannelNotification(String mcastIp, short port, String localIf) throws Exception {
+    try {
+      NetworkInterface ni = NetworkInterface.getByInetAddress(InetAddress.getByName(localIf));
+      _group = new InetSocketAddress(mcastIp, port);
+
+      _channel = DatagramChannel.open(StandardProtocolFamily.INET);
+      _channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      _channel.bind(new InetSocketAddress(port));
+      _channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, ni);
+      _channel.join(_group.getAddress(), ni);
+      _channel.configureBlocking(false);
+    } catch (Exception e) {
+      throw new Exception("Couldn't create a multicast datagram channel", e);
+    }
+  }
+
+  /**
+   * Send a notification to all readers.
+   */
+  @Override
+  public void sendNotification() {
+    try {
+      _channel.send(_sendBuffer, _group);
+    } catch (Exception e) {
+      throw new Error("Error while sending");
+    }
+  }
+
+  /**
+   * Wait for a notification. Returns immidiately if at least one is available,
+   * or blocks if none is available. Drains all available notifications.
+   */
+  @Override
+  public void waitForNotification() {
+    try {
+      if (drain() > 0) {
+        return;
+      }
+
+      if (_selector == null) {
+        _selector = Selector.open();
+        _channel.register(_selector, SelectionKey.OP_READ);
+      }
+
+      while (drain() == 0) {
+        _selector.select();
+        _selector.selectedKeys().clear();
+      }
+    } catch (IOException e) {
+      throw new Error("Error while recieving");
+    }
+  }
+
+  /**
+   * Receives all available notifications without blocking.
+   *
+   * @return the number of notifications received
+   */
+  public int drain() {
+    int count = 0;
+
+    try {
+      while (_channel.receive(_receiveBuffer) != null) {
+        count++;
+      }
+    } catch (IOException e) {
+      throw new Error("Error while recieving");
+    }
+
+    return count;
+  }
+
+  /**
+   * @return the channel, to register it with a selector
+   */
+  DatagramChannel channel() {
+    return _channel;
+  }
+
+  /**
+   * Closes the channel.
+   */
+  public void close() {
+    try {
+      if (_selector != null) {
+        _selector.close();
+      }
+      _channel.close();
+    } catch (IOException e) {
+      throw new Error(e);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits;
+
+/**
+ * How a read loop idles between reads until new messages may be available.
+ */
+public interface IdleStrategy {
+
+  /**
+   * Checks whether new messages are available to read, e.g.
+   * {@link com.vmware.toroni.tp.Reader#messagesAvailable}.
+   */
+  public static interface AvailableFn {
+    public boolean run();
+  }
+
+  /**
+   * Idle until new messages may be available.
+   */
+  public void idle();
+}
@@ -15,7 +15,7 @@ import java.net.SocketAddress;
 /**
  * Multicast UDP Notification
  */
-public class MulticastUdpNotification {
+public class MulticastUdpNotification implements Notification {
 
   private MulticastSocket _socket;
   private DatagramPacket _sendPacket;
@@ -43,6 +43,7 @@ public class MulticastUdpNotification {
   /**
    * Send a notification to all readers.
    */
+  @Override
   public void sendNotification() {
     try {
       _socket.send(_sendPacket);
@@ -55,6 +56,7 @@ public class MulticastUdpNotification {
    * Wait for a notification. Returns immidiately if one is available, or blocks
    * if none is available.
    */
+  @Override
   public void waitForNotification() {
     try {
       _socket.receive(_recievePacket);
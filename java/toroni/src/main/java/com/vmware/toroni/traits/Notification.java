@@ -0,0 +1,25 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits;
+
+/**
+ * Notification of readers that new messages are available in the ring buffer.
+ * Writers send a notification after writing, readers wait for one before
+ * reading.
+ */
+public interface Notification {
+
+  /**
+   * Send a notification to all readers.
+   */
+  public void sendNotification();
+
+  /**
+   * Wait for a notification. Returns immidiately if one is available, or blocks
+   * if none is available.
+   */
+  public void waitForNotification();
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+
+/**
+ * Waits on many {@link DatagramChannelNotification}s, e.g. of several ring
+ * buffers, from a single thread through one NIO Selector. Each notified
+ * channel is drained and its handler invoked once per select, however many
+ * notifications were pending.
+ *
+ * Registering, selecting and closing must be done on the same thread.
+ */
+public class NotificationSelector {
+
+  private final Selector _selector;
+
+  public NotificationSelector() {
+    try {
+      _selector = Selector.open();
+    } catch (IOException e) {
+      throw new Error(e);
+    }
+  }
+
+  /**
+   * Registers a notification channel.
+   *
+   * @param notification
+   * @param handler:     invoked on the selecting thread when notified, e.g. to
+   *                     read from the ring buffer of the channel
+   */
+  public void register(DatagramChannelNotification notification, Runnable handler) {
+    try {
+      notification.channel().register(_selector, SelectionKey.OP_READ,
+          new Registration(notification, handler));
+    } catch (IOException e) {
+      throw new Error(e);
+    }
+  }
+
+  /**
+   * Unregisters a notification channel.
+   *
+   * @param notification
+   */
+  public void unregister(DatagramChannelNotification notification) {
+    SelectionKey key = notification.channel().keyFor(_selector);
+
+    if (key != null) {
+      key.cancel();
+    }
+  }
+
+  /**
+   * Blocks until at least one channel is notified or {@link #wakeup} is called,
+   * then handles the notified channels.
+   *
+   * @return the number of handlers invoked
+   */
+  public int select() {
+    try {
+      _selector.select();
+    } catch (IOException e) {
+      throw new Error("Error while selecting");
+    }
+
+    return handleSelected();
+  }
+
+  /**
+   * Handles the notified channels without blocking.
+   *
+   * @return the number of handlers invoked
+   */
+  public int selectNow() {
+    try {
+      _selector.selectNow();
+    } catch (IOException e) {
+      throw new Error("Error while selecting");
+    }
+
+    return handleSelected();
+  }
+
+  /**
+   * Makes a blocked or the next {@link #select} return, e.g. to stop waiting.
+   * May be called from any thread.
+   */
+  public void wakeup() {
+    _selector.wakeup();
+  }
+
+  /**
+   * Closes the selector. The registered channels are not closed.
+   */
+  public void close() {
+    try {
+      _selector.close();
+    } catch (IOException e) {
+      throw new Error(e);
+    }
+  }
+
+  private int handleSelected() {
+    int handled = 0;
+    Iterator<SelectionKey> it = _selector.selectedKeys().iterator();
+
+    while (it.hasNext()) {
+      Registration registration = (Registration) it.next().attachment();
+      it.remove();
+
+      if (registration.notification.drain() > 0) {
+        registration.handler.run();
+        handled++;
+      }
+    }
+
+    return handled;
+  }
+
+  private static class Registration {
+    final DatagramChannelNotification notification;
+    final Runnable handler;
+
+    Registration(DatagramChannelNotification notification, Runnable handler) {
+      this.notification = notification;
+      this.handler = handler;
+    }
+  }
+}
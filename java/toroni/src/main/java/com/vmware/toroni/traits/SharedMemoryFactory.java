@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits;
+
+/**
+ * Creates and opens read-write {@link SharedMemory} segments of one backend,
+ * so that readers and writers can choose where the ring buffer and reader info
+ * live without code changes.
+ */
+public interface SharedMemoryFactory {
+
+  /**
+   * Opens or creates a shared memory.
+   *
+   * @param name:   name of the shared memory.
+   * @param length: size in bytes of the shared memory.
+   * @param mode:   specifies the file mode bits to be applied when a new file
+   *                is created.
+   * @return a SharedMemory object for the corresponding shared memory.
+   * @throws Exception
+   */
+  public SharedMemory createOrOpen(String name, long length, int mode) throws Exception;
+
+  /**
+   * Opens a shared memory. Throws if does not exist.
+   *
+   * @param name:   name of the shared memory.
+   * @param length: size in bytes of the shared memory.
+   * @return a SharedMemory object for the corresponding shared memory.
+   * @throws Exception
+   */
+  public SharedMemory open(String name, long length) throws Exception;
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Lock-free multi-producer, single-consumer queue faciliating the lifecycle of
+ * one drainer and multiple enqueuer threads, with the same semantics as
+ * {@link MpscMessageQueue}.
+ *
+ * Enqueuers count a message before linking it, so the counter of messages the
+ * drainer has not yet released decides the handoff: the enqueuer that moves it
+ * from zero starts the drainer, and the drainer exits only when releasing what
+ * it has drained brings it back to zero.
+ */
+public abstract class AbstractMpscMessageQueue<T> {
+
+  private static final int MAX_SPINS = 100;
+
+  private final AtomicLong _count = new AtomicLong(); // enqueued and not released by the drainer
+  private long _drained; // drained and not released, accessed by the current drainer only
+
+  /**
+   * Counts a message that is about to be linked.
+   *
+   * @return true if a new drainer thread should be started, false otherwise
+   */
+  protected final boolean countEnqueued() {
+    return _count.getAndIncrement() == 0;
+  }
+
+  /**
+   * Takes the next counted message, waiting for its enqueuer to link it.
+   *
+   * @return the message
+   */
+  protected abstract T take();
+
+  /**
+   * Drain all messages from the queue.
+   *
+   * @return the messages, if empty the drainer thread must exit and next call to
+   *         enqueue should return true, otherwise the drainer will continue
+   *         duty-cycle and next call to enqueue will return false
+   */
+  public ArrayList<T> drain() {
+    ArrayList<T> result = new ArrayList<T>();
+    drainTo(result);
+    return result;
+  }
+
+  /**
+   * Drain all messages from the queue without allocating.
+   *
+   * @param consumer: invoked for every message in order
+   * @return the number of messages, if 0 the drainer thread must exit and next
+   *         call to enqueue should return true, otherwise the drainer will
+   *         continue duty-cycle and next call to enqueue will return false
+   */
+  public int drain(Consumer<? super T> consumer) {
+    return drain(consumer, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Drain at most {@code maxMessages} messages from the queue without
+   * allocating. The messages left are drained by the next call by the same
+   * drainer.
+   *
+   * @param consumer:    invoked for every message in order
+   * @param maxMessages: positive
+   * @return same as {@link #drain(Consumer)}
+   */
+  public int drain(Consumer<? super T> consumer, int maxMessages) {
+    long n = Math.min(beginDrain(), maxMessages);
+
+    for (long i = 0; i < n; i++) {
+      T msg = take();
+      _drained++;
+      consumer.accept(msg);
+    }
+
+    return (int) n;
+  }
+
+  /**
+   * Drain all messages from the queue into {@code sink}.
+   *
+   * @param sink: the messages are added in order
+   * @return same as {@link #drain(Consumer)}
+   */
+  public int drainTo(Collection<? super T> sink) {
+    long n = beginDrain();
+
+    for (long i = 0; i < n; i++) {
+      sink.add(take());
+      _drained++;
+    }
+
+    return (int) n;
+  }
+
+  /**
+   * @return the number of messages counted and not drained yet, 0 if the
+   *         drainer must exit
+   */
+  private long beginDrain() {
+    while (true) {
+      long drained = _drained;
+      long pending = _count.get() - drained;
+      if (pending > 0) {
+        return pending;
+      }
+
+      // Clear before the release: once the count is back to zero, the next
+      // drainer may run on another thread and must see _drained == 0.
+      _drained = 0;
+      long count = _count.addAndGet(-drained);
+      if (count == 0) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Waits for an enqueuer that has counted a message but not linked it yet. It
+   * is a matter of a few instructions unless the enqueuer was preempted, so spin
+   * first and then yield to let it run.
+   *
+   * @param attempt: number of previous waits for the same message
+   */
+  protected static void waitForLink(int attempt) {
+    if (attempt < MAX_SPINS) {
+      Thread.onSpinWait();
+    } else {
+      Thread.yield();
+    }
+  }
+}
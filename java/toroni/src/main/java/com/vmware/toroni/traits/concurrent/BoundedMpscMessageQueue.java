@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free multi-producer, single-consumer queue over a ring array.
+ * Instead of growing, enqueue reports that the queue is full and leaves it to
+ * the caller to drop, retry or wait.
+ */
+public class BoundedMpscMessageQueue<T> extends AbstractMpscMessageQueue<T> {
+
+  public enum EnqueueResult {
+    START_DRAINER, // enqueued, a new drainer thread should be started
+    ENQUEUED, // enqueued, a drainer is running
+    FULL // not enqueued
+  };
+
+  private final AtomicReferenceArray<T> _buffer;
+  private final long[] _stamps;
+  private final int _indexMask;
+  private final AtomicLong _tail;
+  private volatile long _head; // written by the drainer only
+  private long _takenStamp; // accessed by the drainer only
+
+  /**
+   * @param capacity: maximal number of messages in the queue, a power of two
+   */
+  public BoundedMpscMessageQueue(int capacity) {
+    if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+      throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+    }
+
+    _buffer = new AtomicReferenceArray<T>(capacity);
+    _stamps = new long[capacity];
+    _indexMask = capacity - 1;
+    _tail = new AtomicLong();
+  }
+
+  /**
+   * @return maximal number of messages in the queue
+   */
+  public int capacity() {
+    return _buffer.length();
+  }
+
+  /**
+   * @return the number of messages in the queue, including the ones being
+   *         enqueued
+   */
+  public int size() {
+    return (int) (_tail.get() - _head);
+  }
+
+  /**
+   * Enqueues a message if the queue is not full.
+   *
+   * @param msg
+   * @return START_DRAINER if a new drainer thread should be started, ENQUEUED if
+   *         not, FULL if the message was not enqueued
+   */
+  public EnqueueResult tryEnqueue(T msg) {
+    return tryEnqueue(msg, 0);
+  }
+
+  /**
+   * Enqueues a message with a stamp, e.g. the enqueue time, if the queue is not
+   * full. The drainer gets the stamp of a message with {@link #takenStamp()}.
+   *
+   * @param msg
+   * @param stamp
+   * @return same as {@link #tryEnqueue(Object)}
+   */
+  public EnqueueResult tryEnqueue(T msg, long stamp) {
+    long tail;
+    do {
+      tail = _tail.get();
+      if (tail - _head >= _buffer.length()) {
+        return EnqueueResult.FULL;
+      }
+    } while (!_tail.compareAndSet(tail, tail + 1));
+
+    boolean startDrainer = countEnqueued();
+    int index = (int) (tail & _indexMask);
+    _stamps[index] = stamp;
+    _buffer.set(index, msg); // publishes the stamp too
+
+    return startDrainer ? EnqueueResult.START_DRAINER : EnqueueResult.ENQUEUED;
+  }
+
+  @Override
+  protected T take() {
+    long head = _head;
+    int index = (int) (head & _indexMask);
+
+    T result;
+    for (int attempt = 0; (result = _buffer.get(index)) == null; attempt++) {
+      waitForLink(attempt);
+    }
+
+    _takenStamp = _stamps[index];
+    _buffer.lazySet(index, null);
+    _head = head + 1;
+    return result;
+  }
+
+  /**
+   * To be called by the drainer, e.g. from the consumer passed to drain.
+   *
+   * @return the stamp of the last drained message
+   */
+  public long takenStamp() {
+    return _takenStamp;
+  }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.vmware.toroni.traits.concurrent.SerialWorkItemQueue.StopPolicy;
+
+/**
+ * A bounded work item queue that executes them serially, i.e. in the same
+ * order, on an {@link Executor}. Unlike {@link SerialWorkItemQueue} it does not
+ * own a thread: a drain task is handed to the executor when the queue becomes
+ * non-empty and returns when it is empty, so many queues can share a pool (or
+ * virtual threads on JDKs that have them). Enqueue and drain are lock-free and
+ * do not allocate.
+ */
+public class ExecutorSerialWorkItemQueue {
+
+  public enum OverflowPolicy {
+    REJECT, // enqueue throws RejectedExecutionException
+    DROP, // enqueue returns false
+    BLOCK // enqueue waits until there is space
+  };
+
+  /**
+   * Invoked with a work item's exception. The item is counted as failed and the
+   * next one is run.
+   */
+  public static interface ExceptionHandler {
+    public void run(Runnable wi, RuntimeException e);
+  }
+
+  /**
+   * Passes the exception to the uncaught exception handler of the current
+   * thread.
+   */
+  public static final ExceptionHandler UNCAUGHT_EXCEPTION_HANDLER = new ExceptionHandler() {
+
+    @Override
+    public void run(Runnable wi, RuntimeException e) {
+      Thread t = Thread.currentThread();
+      t.getUncaughtExceptionHandler().uncaughtException(t, e);
+    }
+
+  };
+
+  private final BoundedMpscMessageQueue<Runnable> _queue;
+  private final Executor _executor;
+  private final OverflowPolicy _overflowPolicy;
+  private final int _maxBatch;
+  private final ExceptionHandler _exceptionHandler;
+  private final Runnable _drainTask;
+  private final Consumer<Runnable> _runWorkItem;
+
+  private volatile boolean _stopped;
+  private volatile boolean _discard; // set by stop(ALWAYS)
+  private int _runningDrainers; // guarded by this
+  // the executor rejected the drain task of the taken drainer role, guarded by
+  // this
+  private volatile boolean _drainerPending;
+
+  // stats, written by the running drainer, except rejected. Consecutive drain
+  // tasks may run on different threads of the executor, so they are atomic.
+  private final AtomicLong _statRejected = new AtomicLong();
+  private final AtomicLong _statCompleted = new AtomicLong();
+  private final AtomicLong _statFailed = new AtomicLong();
+  private final AtomicLong _statWaitNs = new AtomicLong();
+  private final AtomicLong _statMaxWaitNs = new AtomicLong();
+  private final AtomicLong _statRunNs = new AtomicLong();
+  private final AtomicLong _statMaxRunNs = new AtomicLong();
+
+  private ExecutorSerialWorkItemQueue(Executor executor, int capacity, OverflowPolicy overflowPolicy,
+      int maxBatch, ExceptionHandler exceptionHandler) {
+    if (maxBatch <= 0) {
+      throw new IllegalArgumentException("Max batch must be positive: " + maxBatch);
+    }
+
+    _queue = new BoundedMpscMessageQueue<>(capacity);
+    _executor = executor;
+    _overflowPolicy = overflowPolicy;
+    _maxBatch = maxBatch;
+    _exceptionHandler = exceptionHandler;
+    _drainTask = new Runnable() {
+
+      @Override
+      public void run() {
+        drain();
+      }
+
+    };
+    _runWorkItem = new Consumer<Runnable>() {
+
+      @Override
+      public void accept(Runnable wi) {
+        runWorkItem(wi);
+      }
+
+    };
+  }
+
+  /**
+   * Creates a new ExecutorSerialWorkItemQueue.
+   *
+   * @param executor:         runs the drain task, e.g. a pool shared by many
+   *                          queues
+   * @param capacity:         maximal number of pending work items, a power of
+   *                          two
+   * @param overflowPolicy:   what enqueue does when the queue is full
+   * @param maxBatch:         maximal number of work items a drain task runs
+   *                          before handing itself back to the executor, so
+   *                          that queues sharing a pool take turns
+   * @param exceptionHandler: invoked when a work item throws
+   * @return the new ExecutorSerialWorkItemQueue
+   */
+  public static ExecutorSerialWorkItemQueue create(Executor executor, int capacity,
+      OverflowPolicy overflowPolicy, int maxBatch, ExceptionHandler exceptionHandler) {
+    return new ExecutorSerialWorkItemQueue(executor, capacity, overflowPolicy, maxBatch, exceptionHandler);
+  }
+
+  /**
+   * Creates a new ExecutorSerialWorkItemQueue that blocks when full, runs up to
+   * its capacity before handing back to the executor and passes exceptions to
+   * the uncaught exception handler.
+   *
+   * @param executor
+   * @param capacity: a power of two
+   * @return the new ExecutorSerialWorkItemQueue
+   */
+  public static ExecutorSerialWorkItemQueue create(Executor executor, int capacity) {
+    return create(executor, capacity, OverflowPolicy.BLOCK, capacity, UNCAUGHT_EXCEPTION_HANDLER);
+  }
+
+  /**
+   * Pushes a new item in the queue and hands a drain task to the executor if
+   * none is running.
+   *
+   * @param wi
+   * @return true if enqueued; false if the queue is full and the overflow policy
+   *         is DROP or if the queue is stopped
+   * @throws RejectedExecutionException if the queue is full and the overflow
+   *                                    policy is REJECT, or if the executor
+   *                                    rejects the drain task. In the latter
+   *                                    case the item stays pending and the
+   *                                    next enqueue hands the drain task to
+   *                                    the executor again.
+   */
+  public boolean enqueue(Runnable wi) {
+    for (int attempt = 0;; attempt++) {
+      if (_stopped) {
+        _statRejected.incrementAndGet();
+        return false;
+      }
+
+      BoundedMpscMessageQueue.EnqueueResult res = _queue.tryEnqueue(wi, System.nanoTime());
+
+      if (res == BoundedMpscMessageQueue.EnqueueResult.START_DRAINER) {
+        return startDrainTask(false);
+      } else if (res == BoundedMpscMessageQueue.EnqueueResult.ENQUEUED) {
+        return !_drainerPending || startDrainTask(true);
+      }
+
+      switch (_overflowPolicy) {
+      case REJECT:
+        _statRejected.incrementAndGet();
+        throw new RejectedExecutionException("Serial work item queue is full");
+      case DROP:
+        _statRejected.incrementAndGet();
+        return false;
+      default:
+        waitForSpace(attempt);
+      }
+    }
+  }
+
+  /**
+   * Stops accepting items and waits for the running drain task to finish. If
+   * the executor rejected the drain task, the pending items are run or
+   * discarded on the calling thread instead.
+   *
+   * @param stopPolicy: whether to run the pending items (IF_EMPTY) or discard
+   *                    them (ALWAYS)
+   */
+  public void stop(StopPolicy stopPolicy) {
+    _stopped = true;
+    _discard = stopPolicy == StopPolicy.ALWAYS;
+
+    synchronized (this) {
+      try {
+        while (_runningDrainers > 0) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        throw new Error(e);
+      }
+
+      if (!_drainerPending) {
+        return;
+      }
+      _drainerPending = false;
+    }
+
+    while (_queue.drain(_runWorkItem, Integer.MAX_VALUE) != 0)
+      ;
+  }
+
+  /**
+   * @return the number of pending work items
+   */
+  public int getDepth() {
+    return _queue.size();
+  }
+
+  /**
+   * @return the number of work items not enqueued because the queue was full
+   *         or stopped
+   */
+  public long getStatRejectedCount() {
+    return _statRejected.get();
+  }
+
+  /**
+   * @return the number of work items that have run, including the failed ones
+   */
+  public long getStatCompletedCount() {
+    return _statCompleted.get();
+  }
+
+  /**
+   * @return the number of work items that have thrown
+   */
+  public long getStatFailedCount() {
+    return _statFailed.get();
+  }
+
+  /**
+   * @return the total time work items have waited in the queue, in nanoseconds
+   */
+  public long getStatWaitNs() {
+    return _statWaitNs.get();
+  }
+
+  /**
+   * @return the longest time a work item has waited in the queue, in
+   *         nanoseconds
+   */
+  public long getStatMaxWaitNs() {
+    return _statMaxWaitNs.get();
+  }
+
+  /**
+   * @return the total time work items have run, in nanoseconds
+   */
+  public long getStatRunNs() {
+    return _statRunNs.get();
+  }
+
+  /**
+   * @return the longest time a work item has run, in nanoseconds
+   */
+  public long getStatMaxRunNs() {
+    return _statMaxRunNs.get();
+  }
+
+  /**
+   * Runs up to {@code _maxBatch} items, then either hands itself back to the
+   * executor or exits if the queue is empty.
+   */
+  private void drain() {
+    int n;
+    try {
+      n = _queue.drain(_runWorkItem, _maxBatch);
+    } catch (Throwable t) {
+      // The drainer role stays taken until the next drain releases what this
+      // one has drained, so hand it to a new drain task before failing.
+      try {
+        _executor.execute(_drainTask);
+      } catch (RejectedExecutionException e) {
+        drainerRejected();
+      }
+      throw t;
+    }
+
+    if (n == 0) {
+      drainerExited();
+      return;
+    }
+
+    try {
+      _executor.execute(_drainTask);
+    } catch (RejectedExecutionException e) {
+      // the executor is shut down, finish here
+      while (_queue.drain(_runWorkItem, Integer.MAX_VALUE) != 0)
+        ;
+      drainerExited();
+    }
+  }
+
+  private void runWorkItem(Runnable wi) {
+    long startNs = System.nanoTime();
+    long waitNs = startNs - _queue.takenStamp();
+    _statWaitNs.addAndGet(waitNs);
+    updateMax(_statMaxWaitNs, waitNs);
+
+    if (_discard) {
+      return;
+    }
+
+    try {
+      wi.run();
+    } catch (RuntimeException e) {
+      _statFailed.incrementAndGet();
+      _exceptionHandler.run(wi, e);
+    } finally {
+      long runNs = System.nanoTime() - startNs;
+      _statRunNs.addAndGet(runNs);
+      updateMax(_statMaxRunNs, runNs);
+      _statCompleted.incrementAndGet();
+    }
+  }
+
+  private static void updateMax(AtomicLong max, long value) {
+    long cur = max.get();
+    while (value > cur && !max.compareAndSet(cur, value)) {
+      cur = max.get();
+    }
+  }
+
+  /**
+   * Hands a drain task to the executor for the drainer role taken by an
+   * enqueue. Checks that the queue is not stopped under the same monitor as
+   * stop, so that no item runs after stop returns.
+   *
+   * @param pending: whether the role was taken by a previous enqueue whose
+   *                 drain task the executor rejected
+   * @return false if the item is not enqueued because the queue is stopped
+   */
+  private boolean startDrainTask(boolean pending) {
+    synchronized (this) {
+      if (pending && (!_drainerPending || _stopped)) {
+        // another enqueue has handed the drain task over, or stop runs the
+        // pending items
+        return true;
+      }
+      if (_stopped) {
+        // the role stays taken, so the items enqueued since are never run
+        _statRejected.incrementAndGet();
+        return false;
+      }
+
+      _runningDrainers++;
+      _drainerPending = false;
+    }
+
+    try {
+      _executor.execute(_drainTask);
+    } catch (RejectedExecutionException e) {
+      drainerRejected();
+      throw e;
+    }
+    return true;
+  }
+
+  private synchronized void drainerExited() {
+    _runningDrainers--;
+    notifyAll();
+  }
+
+  /**
+   * Keeps the drainer role of a drain task the executor has rejected for the
+   * next enqueue or stop.
+   */
+  private synchronized void drainerRejected() {
+    _drainerPending = true;
+    drainerExited();
+  }
+
+  /**
+   * Backs off while the queue is full, first spinning then parking briefly.
+   */
+  private static void waitForSpace(int attempt) {
+    if (attempt < 100) {
+      Thread.onSpinWait();
+    } else {
+      LockSupport.parkNanos(10_000);
+    }
+  }
+}
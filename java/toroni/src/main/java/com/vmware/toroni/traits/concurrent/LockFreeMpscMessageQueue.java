@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.concurrent;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded lock-free multi-producer, single-consumer queue. Enqueuers link
+ * nodes with a single atomic exchange of the tail, the drainer walks them
+ * without any atomic operation.
+ */
+public class LockFreeMpscMessageQueue<T> extends AbstractMpscMessageQueue<T> {
+
+  private static class Node<T> {
+    T value;
+    volatile Node<T> next;
+
+    Node(T value) {
+      this.value = value;
+    }
+  }
+
+  private final AtomicReference<Node<T>> _tail;
+  private Node<T> _head; // accessed by the drainer only
+
+  public LockFreeMpscMessageQueue() {
+    _head = new Node<T>(null);
+    _tail = new AtomicReference<Node<T>>(_head);
+  }
+
+  /**
+   * Enqueues a message.
+   *
+   * @param msg
+   * @return true if a new drainer thread should be started, false otherwise
+   */
+  public boolean enqueue(T msg) {
+    Node<T> node = new Node<T>(msg);
+    boolean result = countEnqueued();
+    _tail.getAndSet(node).next = node;
+    return result;
+  }
+
+  @Override
+  protected T take() {
+    Node<T> next;
+    for (int attempt = 0; (next = _head.next) == null; attempt++) {
+      waitForLink(attempt);
+    }
+
+    _head = next;
+    T result = next.value;
+    next.value = null;
+    return result;
+  }
+}
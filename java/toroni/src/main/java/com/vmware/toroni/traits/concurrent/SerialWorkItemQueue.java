@@ -118,10 +118,14 @@ public class SerialWorkItemQueue {
         _workItemQueue.clear();
       }
 
-      try {
-        queueCopy.forEach((wi) -> wi.run());
-      } catch (Exception e) {
-
+      for (Runnable wi : queueCopy) {
+        try {
+          wi.run();
+        } catch (RuntimeException e) {
+          // report and continue with the next item
+          Thread t = Thread.currentThread();
+          t.getUncaughtExceptionHandler().uncaughtException(t, e);
+        }
       }
     }
   }
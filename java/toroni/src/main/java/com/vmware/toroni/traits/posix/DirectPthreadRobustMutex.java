@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.posix;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.traits.RobustMutex;
+
+import static com.sun.jna.platform.linux.ErrNo.EBUSY;
+import static com.sun.jna.platform.linux.ErrNo.EOWNERDEAD;
+
+/**
+ * Robust process-shared mutex with auto recovery if last owner has died.
+ *
+ * Same as {@link PthreadRobustMutex} and interchangeable with it (and with the
+ * C++ robustProcMutex.hpp) as both use the 40-byte glibc pthread_mutex_t in
+ * place. The pthread functions are bound with JNA direct mapping and take the
+ * mutex address as a primitive, so lock/unlock neither go through the
+ * reflective Library proxy nor allocate.
+ */
+public class DirectPthreadRobustMutex implements RobustMutex {
+
+  private Pointer _mtxPointer; // keeps the memory of the mutex reachable
+  private long _mtx;
+
+  @Override
+  public RobustMutex load(Pointer mtx) {
+    DirectPthreadRobustMutex result = new DirectPthreadRobustMutex();
+    result._mtxPointer = mtx;
+    result._mtx = Pointer.nativeValue(mtx);
+    return result;
+  }
+
+  /**
+   * Initializes a new robust mutex in the memory provided by the argument
+   * pointer.
+   */
+  @Override
+  public void initialize(Pointer mtx) {
+    _mtxPointer = mtx;
+    _mtx = Pointer.nativeValue(mtx);
+
+    Memory attr = new Memory(32);
+    long attrAddress = Pointer.nativeValue(attr);
+    Pthread.pthread_mutexattr_init(attrAddress);
+    Pthread.pthread_mutexattr_setpshared(attrAddress, Pthread.PTHREAD_PROCESS_SHARED);
+    Pthread.pthread_mutexattr_setrobust(attrAddress, Pthread.PTHREAD_MUTEX_ROBUST);
+
+    if (Pthread.pthread_mutex_init(_mtx, attrAddress) != 0) {
+      assert (false);
+    }
+
+    Pthread.pthread_mutexattr_destroy(attrAddress);
+    attr.close();
+  }
+
+  /**
+   * Returns the size of the mutex in memory.
+   *
+   * @return the size (in bytes) of the mutex
+   */
+  @Override
+  public long size() {
+    return getSize();
+  }
+
+  /*
+   * Returns the size in bytes of the mutex in memory.
+   */
+  static public long getSize() {
+    return PthreadRobustMutex.getSize();
+  }
+
+  /**
+   * Locks the mutex or blocks until mutex is ready to be locked and then locks it
+   * and returns.
+   */
+  @Override
+  public void lock() {
+    int r = Pthread.pthread_mutex_lock(_mtx);
+
+    if (!setConsistent(r) && r != 0) {
+      assert (false);
+    }
+  }
+
+  /**
+   * Attempts to lock the mutex and returns immidiately.
+   *
+   * @return true on success; false on fail
+   */
+  @Override
+  public boolean tryLock() {
+    int r = Pthread.pthread_mutex_trylock(_mtx);
+
+    if (r == EBUSY) {
+      return false;
+    } else if (r == 0 || setConsistent(r)) {
+      return true;
+    } else {
+      assert (false);
+      return false;
+    }
+  }
+
+  /**
+   * Unlocks the mutex
+   */
+  @Override
+  public void unlock() {
+    if (Pthread.pthread_mutex_unlock(_mtx) != 0) {
+      assert (false);
+    }
+  }
+
+  /**
+   * Marks the mutex as consistent if the last owner died before unlocking.
+   *
+   * @param lockResults: result of the last operation on the mutex.
+   * @return true if last owner has died; false otherwise.
+   */
+  private boolean setConsistent(int lockResults) {
+    if (lockResults == EOWNERDEAD) {
+      if (Pthread.pthread_mutex_consistent(_mtx) != 0) {
+        assert (false);
+      }
+
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Pthread functions bound with JNA direct mapping. Pointers are passed as
+   * native addresses.
+   */
+  private static class Pthread {
+    static final int PTHREAD_PROCESS_SHARED = 1;
+    static final int PTHREAD_MUTEX_ROBUST = 1;
+
+    static {
+      Native.register(Pthread.class, "pthread");
+    }
+
+    static native int pthread_mutexattr_init(long attr);
+
+    static native int pthread_mutexattr_destroy(long attr);
+
+    static native int pthread_mutexattr_setpshared(long attr, int pshared);
+
+    static native int pthread_mutexattr_setrobust(long attr, int robustness);
+
+    static native int pthread_mutex_init(long mutex, long attr);
+
+    static native int pthread_mutex_lock(long mutex);
+
+    static native int pthread_mutex_trylock(long mutex);
+
+    static native int pthread_mutex_unlock(long mutex);
+
+    static native int pthread_mutex_consistent(long mutex);
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.posix;
+
+import static com.sun.jna.platform.linux.ErrNo.EEXIST;
+import static com.sun.jna.platform.linux.Fcntl.O_CREAT;
+import static com.sun.jna.platform.linux.Fcntl.O_EXCL;
+import static com.sun.jna.platform.linux.Fcntl.O_RDWR;
+import static com.sun.jna.platform.linux.Mman.PROT_WRITE;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.unix.LibCAPI;
+import com.sun.jna.platform.unix.LibCUtil;
+import com.vmware.toroni.traits.SharedMemory;
+import com.vmware.toroni.traits.SharedMemoryFactory;
+
+/**
+ * Segments that are files in a directory, mapped with {@code mmap(MAP_SHARED)}.
+ * On a regular file system the segments are not limited by the size of tmpfs,
+ * e.g. for very large rings, and their pages are written back by the kernel.
+ * On a hugetlbfs mount they get explicit huge pages, reserved when the file is
+ * mapped.
+ *
+ * Lengths are rounded up to the page size of the file system, as hugetlbfs
+ * requires.
+ */
+public class FileSharedMemoryFactory implements SharedMemoryFactory {
+
+  private static LibC LIBC = LibC.INSTANCE;
+
+  private final String _dir;
+  private final int _mapOptions;
+  private final long _pageSize;
+
+  /**
+   * @param dir:        directory of the segment files
+   * @param mapOptions: a bit mask of PosixSharedMemoryFactory.POPULATE,
+   *                    PRE_TOUCH and LOCK
+   */
+  public FileSharedMemoryFactory(String dir, int mapOptions) {
+    this(dir, mapOptions, 0);
+  }
+
+  /**
+   * @param dir:        directory of the segment files
+   * @param mapOptions: a bit mask of PosixSharedMemoryFactory.POPULATE,
+   *                    PRE_TOUCH and LOCK
+   * @param pageSize:   page size of the file system, e.g. the huge page size
+   *                    of a hugetlbfs mount; 0 to not round lengths
+   */
+  public FileSharedMemoryFactory(String dir, int mapOptions, long pageSize) {
+    _dir = dir;
+    _mapOptions = mapOptions;
+    _pageSize = pageSize;
+  }
+
+  /**
+   * @param name
+   * @return the path of the file of the segment {@code name}
+   */
+  public String path(String name) {
+    return _dir + "/" + name;
+  }
+
+  @Override
+  public SharedMemory createOrOpen(String name, long length, int mode) throws Exception {
+    String path = path(name);
+    length = roundUp(length);
+    int tr = 0;
+
+    int fd = LIBC.open(path, O_CREAT | O_EXCL | O_RDWR, mode);
+    try {
+      if (fd == -1) {
+        if (Native.getLastError() == EEXIST) {
+          return open(name, length);
+        } else {
+          throw new Exception("open");
+        }
+      }
+
+      try {
+        tr = LibCUtil.ftruncate(fd, length);
+      } catch (Exception e) {
+        tr = -1; // (WORKAROUND) ftruncate throws instead of returning -1
+      }
+
+      if (tr == -1) {
+        LIBC.unlink(path);
+        throw new Exception("ftruncate");
+      }
+
+      Pointer ptr = PosixSharedMemoryFactory.map(length, PROT_WRITE, fd, _mapOptions);
+
+      return new FileSharedMemory(path, ptr, length, true);
+    } finally {
+      if (fd != -1) {
+        LIBC.close(fd);
+      }
+    }
+  }
+
+  @Override
+  public SharedMemory open(String name, long length) throws Exception {
+    String path = path(name);
+    length = roundUp(length);
+
+    int fd = LIBC.open(path, O_RDWR, 0);
+    try {
+      if (fd == -1) {
+        throw new Exception("open");
+      }
+
+      Pointer ptr = PosixSharedMemoryFactory.map(length, PROT_WRITE, fd, _mapOptions);
+
+      return new FileSharedMemory(path, ptr, length, false);
+    } finally {
+      if (fd != -1) {
+        LIBC.close(fd);
+      }
+    }
+  }
+
+  private long roundUp(long length) {
+    if (_pageSize == 0) {
+      return length;
+    }
+
+    return (length + _pageSize - 1) / _pageSize * _pageSize;
+  }
+
+  /**
+   * File implementation of the SharedMemory interface
+   */
+  private static class FileSharedMemory implements SharedMemory {
+
+    private String _path;
+    private Pointer _ptr;
+    private long _length;
+    private boolean _isCreator;
+
+    public FileSharedMemory(String path, Pointer ptr, long length, boolean isCreator) {
+      _path = path;
+      _ptr = ptr;
+      _length = length;
+      _isCreator = isCreator;
+    }
+
+    @Override
+    public boolean isCreator() {
+      return _isCreator;
+    }
+
+    @Override
+    public Pointer ptr() {
+      return _ptr;
+    }
+
+    @Override
+    public void unmap() throws Exception {
+      if (LIBC.munmap(_ptr, new LibCAPI.size_t(_length)) != 0) {
+        throw new Exception("munmap");
+      }
+    }
+
+    /**
+     * Removes the file.
+     *
+     * @throws Exception
+     */
+    @Override
+    public void unlink() throws Exception {
+      if (LIBC.unlink(_path) == -1) {
+        throw new Exception("unlink");
+      }
+    }
+
+  }
+
+  /**
+   * Interface for LibC. Required for JNA.
+   */
+  private interface LibC extends LibCAPI, Library {
+    LibC INSTANCE = Native.load("c", LibC.class);
+
+    int open(String path, int flags, int mode);
+
+    int unlink(String path);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.posix;
+
+import static com.sun.jna.platform.linux.ErrNo.EAGAIN;
+import static com.sun.jna.platform.linux.ErrNo.EINTR;
+
+import java.lang.reflect.Field;
+
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.traits.Notification;
+
+import sun.misc.Unsafe;
+
+/**
+ * Futex Notification on a 32-bit sequence word in shared memory, e.g.
+ * {@link com.vmware.toroni.rmp.ByteRingBuffer#getNotificationSeqPointer}.
+ * Writers increment the word and FUTEX_WAKE all waiters, readers FUTEX_WAIT
+ * while the word is the one they have last seen. Unlike
+ * {@link com.vmware.toroni.traits.MulticastUdpNotification} it needs no
+ * network interface and a wakeup does not go through the network stack.
+ *
+ * Notifications sent since the last wait are coalesced into one. Each reader
+ * uses its own instance from a single thread.
+ */
+public class FutexNotification implements Notification {
+
+  private static final long SYS_FUTEX = sysFutex();
+
+  private static Unsafe _unsafe;
+
+  private final Pointer _seqPointer; // keeps the memory of the word reachable
+  private final long _seq;
+  private int _lastSeq;
+
+  /**
+   * Initialize _unsafe with the Unsafe object.
+   */
+  static {
+    try {
+      Field f = Unsafe.class.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      _unsafe = (Unsafe) f.get(null);
+    } catch (Exception e) {
+      System.out.println("Unsafe couldn't be loaded!");
+    }
+  }
+
+  /**
+   * @param seq: 4-byte aligned word in memory shared by readers and writers
+   * @throws UnsupportedOperationException if the platform is not Linux on
+   *                                       x86_64 or aarch64
+   */
+  public FutexNotification(Pointer seq) {
+    if (SYS_FUTEX < 0) {
+      throw new UnsupportedOperationException("Futex notification is not supported on " + Platform.ARCH);
+    }
+
+    _seqPointer = seq;
+    _seq = Pointer.nativeValue(seq);
+    assert (_seq % Integer.BYTES == 0);
+    _lastSeq = _unsafe.getIntVolatile(null, _seq);
+  }
+
+  /**
+   * Send a notification to all readers.
+   */
+  @Override
+  public void sendNotification() {
+    _unsafe.getAndAddInt(null, _seq, 1);
+
+    if (Futex.syscall(SYS_FUTEX, _seq, Futex.FUTEX_WAKE, Integer.MAX_VALUE, 0, 0, 0) < 0) {
+      throw new Error("Error while waking, errno " + Native.getLastError());
+    }
+  }
+
+  /**
+   * Wait for a notification. Returns immidiately if one has been sent since the
+   * last wait, or blocks until one is sent.
+   */
+  @Override
+  public void waitForNotification() {
+    int seq;
+
+    while ((seq = _unsafe.getIntVolatile(null, _seq)) == _lastSeq) {
+      // returns when woken, or immediately if the word is no longer _lastSeq
+      if (Futex.syscall(SYS_FUTEX, _seq, Futex.FUTEX_WAIT, _lastSeq, 0, 0, 0) < 0) {
+        int errno = Native.getLastError();
+        if (errno != EAGAIN && errno != EINTR) {
+          throw new Error("Error while waiting, errno " + errno);
+        }
+      }
+    }
+
+    _lastSeq = seq;
+  }
+
+  /**
+   * @return the number of the futex system call on this platform, -1 if it is
+   *         not known
+   */
+  private static long sysFutex() {
+    if (Platform.isLinux() && Platform.is64Bit()) {
+      if (Platform.isARM()) {
+        return 98; // aarch64
+      }
+      if (Platform.isIntel()) {
+        return 202; // x86_64
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * The futex system call bound with JNA direct mapping. Pointers are passed
+   * as native addresses.
+   */
+  private static class Futex {
+    static final int FUTEX_WAIT = 0;
+    static final int FUTEX_WAKE = 1;
+
+    static {
+      Native.register(Futex.class, Platform.C_LIBRARY_NAME);
+    }
+
+    static native long syscall(long number, long uaddr, int futexOp, int val, long timeout, long uaddr2,
+        int val3);
+  }
+}
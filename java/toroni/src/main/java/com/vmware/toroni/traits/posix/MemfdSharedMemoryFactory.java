@@ -0,0 +1,207 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.posix;
+
+import static com.sun.jna.platform.linux.Fcntl.O_RDWR;
+import static com.sun.jna.platform.linux.Mman.PROT_WRITE;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.unix.LibCAPI;
+import com.sun.jna.platform.unix.LibCUtil;
+import com.vmware.toroni.traits.SharedMemory;
+import com.vmware.toroni.traits.SharedMemoryFactory;
+
+/**
+ * Anonymous {@code memfd_create} segments, optionally with explicit huge
+ * pages. They have no name in any file system and are freed when the last
+ * descriptor and mapping are gone. {@link #createOrOpen} always creates a
+ * segment; other processes, e.g. children or processes of the same user, open
+ * it by its descriptor path, see {@link MemfdSharedMemory#getPath}, as long as
+ * the creator keeps the descriptor open, i.e. until it calls
+ * {@link SharedMemory#unlink}.
+ */
+public class MemfdSharedMemoryFactory implements SharedMemoryFactory {
+
+  private static final int MFD_CLOEXEC = 1;
+  private static final int MFD_HUGETLB = 4;
+
+  private static LibC LIBC = LibC.INSTANCE;
+
+  private final int _mapOptions;
+  private final long _hugePageSize;
+
+  /**
+   * @param mapOptions: a bit mask of PosixSharedMemoryFactory.POPULATE,
+   *                    PRE_TOUCH, HUGE_PAGES and LOCK
+   */
+  public MemfdSharedMemoryFactory(int mapOptions) {
+    this(mapOptions, 0);
+  }
+
+  /**
+   * @param mapOptions:   a bit mask of PosixSharedMemoryFactory.POPULATE,
+   *                      PRE_TOUCH and LOCK
+   * @param hugePageSize: size of the huge pages of the segments, lengths are
+   *                      rounded up to it; 0 for regular pages
+   */
+  public MemfdSharedMemoryFactory(int mapOptions, long hugePageSize) {
+    _mapOptions = mapOptions;
+    _hugePageSize = hugePageSize;
+  }
+
+  /**
+   * Creates a segment.
+   *
+   * @param name:   name of the segment, for debugging only.
+   * @param length: size in bytes of the segment.
+   * @param mode:   ignored, the segment is accessible to processes that can
+   *                access the descriptors of the creator.
+   * @return a MemfdSharedMemory object for the created segment.
+   * @throws Exception
+   */
+  @Override
+  public SharedMemory createOrOpen(String name, long length, int mode) throws Exception {
+    length = roundUp(length);
+    int tr = 0;
+
+    int fd = LIBC.memfd_create(name, MFD_CLOEXEC | (_hugePageSize != 0 ? MFD_HUGETLB : 0));
+    if (fd == -1) {
+      throw new Exception("memfd_create");
+    }
+
+    try {
+      try {
+        tr = LibCUtil.ftruncate(fd, length);
+      } catch (Exception e) {
+        tr = -1; // (WORKAROUND) ftruncate throws instead of returning -1
+      }
+
+      if (tr == -1) {
+        throw new Exception("ftruncate");
+      }
+
+      Pointer ptr = PosixSharedMemoryFactory.map(length, PROT_WRITE, fd, _mapOptions);
+
+      return new MemfdSharedMemory(fd, ptr, length, true);
+    } catch (Exception e) {
+      LIBC.close(fd);
+      throw e;
+    }
+  }
+
+  /**
+   * Opens a segment created by another process.
+   *
+   * @param name:   the descriptor path of the segment, see
+   *                {@link MemfdSharedMemory#getPath}
+   * @param length: size in bytes of the segment.
+   * @return a MemfdSharedMemory object for the segment.
+   * @throws Exception
+   */
+  @Override
+  public SharedMemory open(String name, long length) throws Exception {
+    length = roundUp(length);
+
+    int fd = LIBC.open(name, O_RDWR, 0);
+    try {
+      if (fd == -1) {
+        throw new Exception("open");
+      }
+
+      Pointer ptr = PosixSharedMemoryFactory.map(length, PROT_WRITE, fd, _mapOptions);
+
+      return new MemfdSharedMemory(-1, ptr, length, false);
+    } finally {
+      if (fd != -1) {
+        LIBC.close(fd);
+      }
+    }
+  }
+
+  private long roundUp(long length) {
+    if (_hugePageSize == 0) {
+      return length;
+    }
+
+    return (length + _hugePageSize - 1) / _hugePageSize * _hugePageSize;
+  }
+
+  /**
+   * Memfd implementation of the SharedMemory interface
+   */
+  public static class MemfdSharedMemory implements SharedMemory {
+
+    private int _fd; // kept open by the creator, -1 otherwise
+    private String _path;
+    private Pointer _ptr;
+    private long _length;
+    private boolean _isCreator;
+
+    MemfdSharedMemory(int fd, Pointer ptr, long length, boolean isCreator) {
+      _fd = fd;
+      _path = "/proc/" + ProcessHandle.current().pid() + "/fd/" + fd;
+      _ptr = ptr;
+      _length = length;
+      _isCreator = isCreator;
+    }
+
+    /**
+     * @return the path through which other processes open the segment, valid
+     *         while the creator keeps the descriptor open; null if not the
+     *         creator
+     */
+    public String getPath() {
+      return _fd != -1 ? _path : null;
+    }
+
+    @Override
+    public boolean isCreator() {
+      return _isCreator;
+    }
+
+    @Override
+    public Pointer ptr() {
+      return _ptr;
+    }
+
+    @Override
+    public void unmap() throws Exception {
+      if (LIBC.munmap(_ptr, new LibCAPI.size_t(_length)) != 0) {
+        throw new Exception("munmap");
+      }
+    }
+
+    /**
+     * Closes the descriptor of the creator, so the segment can no longer be
+     * opened. It is freed when the last mapping is gone.
+     *
+     * @throws Exception
+     */
+    @Override
+    public void unlink() throws Exception {
+      if (_fd == -1) {
+        throw new Exception("unlink");
+      }
+
+      LIBC.close(_fd);
+      _fd = -1;
+    }
+
+  }
+
+  /**
+   * Interface for LibC. Required for JNA.
+   */
+  private interface LibC extends LibCAPI, Library {
+    LibC INSTANCE = Native.load("c", LibC.class);
+
+    int memfd_create(String name, int flags);
+
+    int open(String path, int flags, int mode);
+  }
+}
@@ -5,6 +5,8 @@
 
 package com.vmware.toroni.traits.posix;
 
+import java.lang.reflect.Field;
+
 import com.sun.jna.Library;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
@@ -12,10 +14,13 @@ import com.sun.jna.platform.unix.LibCAPI;
 import com.sun.jna.platform.unix.LibCUtil;
 import com.vmware.toroni.traits.SharedMemory;
 
+import sun.misc.Unsafe;
+
 import static com.sun.jna.platform.linux.Fcntl.O_CREAT;
 import static com.sun.jna.platform.linux.Fcntl.O_RDONLY;
 import static com.sun.jna.platform.linux.Fcntl.O_RDWR;
 import static com.sun.jna.platform.linux.Fcntl.O_EXCL;
+import static com.sun.jna.platform.linux.Mman.MAP_POPULATE;
 import static com.sun.jna.platform.linux.Mman.MAP_SHARED;
 import static com.sun.jna.platform.linux.Mman.MAP_FAILED;
 import static com.sun.jna.platform.linux.Mman.PROT_READ;
@@ -23,8 +28,46 @@ import static com.sun.jna.platform.linux.Mman.PROT_WRITE;
 import static com.sun.jna.platform.linux.ErrNo.EEXIST;
 
 public class PosixSharedMemoryFactory {
+  /**
+   * Map option: fault all pages in when mapping (MAP_POPULATE), so the first
+   * pass over the memory does not take page faults. With HUGE_PAGES, the pages
+   * are touched after madvise instead, so that huge pages are faulted in.
+   */
+  public static final int POPULATE = 1;
+  /**
+   * Map option: touch every page after mapping, writing pages of writable
+   * mappings without changing their content.
+   */
+  public static final int PRE_TOUCH = 2;
+  /**
+   * Map option: madvise(MADV_HUGEPAGE), for transparent huge pages of shared
+   * memory, which the kernel uses if shmem_enabled is advise or always.
+   */
+  public static final int HUGE_PAGES = 4;
+  /**
+   * Map option: mlock the mapping, so its pages are faulted in and never
+   * reclaimed. Limited by RLIMIT_MEMLOCK.
+   */
+  public static final int LOCK = 8;
+
+  private static final int MADV_HUGEPAGE = 14;
+
   private static LibRT LIBRT = LibRT.INSTANCE;
   private static LibC LIBC = LibC.INSTANCE;
+  private static Unsafe _unsafe;
+
+  /**
+   * Initialize _unsafe with the Unsafe object.
+   */
+  static {
+    try {
+      Field f = Unsafe.class.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      _unsafe = (Unsafe) f.get(null);
+    } catch (Exception e) {
+      System.out.println("Unsafe couldn't be loaded!");
+    }
+  }
 
   /**
    * Opens or creates a shared memory in read-only mode.
@@ -38,7 +81,7 @@ public class PosixSharedMemoryFactory {
    */
   public static com.vmware.toroni.traits.SharedMemory createOrOpenReadOnly(String name, int length, int mode)
       throws Exception {
-    return createOrOpen(name, length, mode, O_RDONLY, PROT_READ);
+    return createOrOpen(name, length, mode, O_RDONLY, PROT_READ, 0);
   }
 
   /**
@@ -52,7 +95,22 @@ public class PosixSharedMemoryFactory {
    * @throws Exception
    */
   public static SharedMemory createOrOpen(String name, long length, int mode) throws Exception {
-    return createOrOpen(name, length, mode, O_RDWR, PROT_WRITE);
+    return createOrOpen(name, length, mode, 0);
+  }
+
+  /**
+   * Opens or creates a shared memory in read-write mode with map options.
+   * 
+   * @param name:       name of the shared memory.
+   * @param length:     size in bytes of the shared memory.
+   * @param mode:       specifies the file mode bits to be
+   *                    applied when a new file is created.
+   * @param mapOptions: a bit mask of POPULATE, PRE_TOUCH, HUGE_PAGES and LOCK
+   * @return a SharedMemory object for the corresponding shared memory.
+   * @throws Exception
+   */
+  public static SharedMemory createOrOpen(String name, long length, int mode, int mapOptions) throws Exception {
+    return createOrOpen(name, length, mode, O_RDWR, PROT_WRITE, mapOptions);
   }
 
   /**
@@ -64,7 +122,7 @@ public class PosixSharedMemoryFactory {
    * @throws Exception
    */
   public static SharedMemory openReadOnly(String name, long length) throws Exception {
-    return open(name, length, O_RDONLY, PROT_READ);
+    return open(name, length, O_RDONLY, PROT_READ, 0);
   }
 
   /**
@@ -76,7 +134,21 @@ public class PosixSharedMemoryFactory {
    * @throws Exception
    */
   public static SharedMemory open(String name, long length) throws Exception {
-    return open(name, length, O_RDWR, PROT_WRITE);
+    return open(name, length, 0);
+  }
+
+  /**
+   * Opens shared memory in read-write mode with map options. Throws if does not
+   * exist.
+   * 
+   * @param name:       name of the shared memory.
+   * @param length:     size in bytes of the shared memory.
+   * @param mapOptions: a bit mask of POPULATE, PRE_TOUCH, HUGE_PAGES and LOCK
+   * @return a SharedMemory object for the corresponding shared memory.
+   * @throws Exception
+   */
+  public static SharedMemory open(String name, long length, int mapOptions) throws Exception {
+    return open(name, length, O_RDWR, PROT_WRITE, mapOptions);
   }
 
   /**
@@ -91,10 +163,12 @@ public class PosixSharedMemoryFactory {
    *                O_TRUNC.
    * @param prot:   describes the desired memory protection of the
    *                mapping
+   * @param mapOptions: a bit mask of POPULATE, PRE_TOUCH, HUGE_PAGES and LOCK
    * @return a SharedMemory object for the corresponding shared memory.
    * @throws Exception
    */
-  private static SharedMemory createOrOpen(String name, long length, int mode, int oflag, int prot) throws Exception {
+  private static SharedMemory createOrOpen(String name, long length, int mode, int oflag, int prot, int mapOptions)
+      throws Exception {
     boolean isCreator = false;
     Pointer ptr = Pointer.NULL;
     int tr = 0;
@@ -103,7 +177,7 @@ public class PosixSharedMemoryFactory {
     try {
       if (fd == -1) {
         if (Native.getLastError() == EEXIST) {
-          return open(name, length, oflag, prot);
+          return open(name, length, oflag, prot, mapOptions);
         } else {
           throw new Exception("shm_open");
         }
@@ -121,10 +195,7 @@ public class PosixSharedMemoryFactory {
         throw new Exception("ftruncate");
       }
 
-      ptr = LibCUtil.mmap(null, length, prot, MAP_SHARED, fd, 0);
-      if (ptr == MAP_FAILED) {
-        throw new Exception("mmap");
-      }
+      ptr = map(length, prot, fd, mapOptions);
 
       return new PosixSharedMemory(name, ptr, length, isCreator);
     } finally {
@@ -144,10 +215,12 @@ public class PosixSharedMemoryFactory {
    *                O_TRUNC.
    * @param prot:   describes the desired memory protection of the
    *                mapping
+   * @param mapOptions: a bit mask of POPULATE, PRE_TOUCH, HUGE_PAGES and LOCK
    * @return a SharedMemory object for the corresponding shared memory.
    * @throws Exception
    */
-  private static SharedMemory open(String name, long length, int oflag, int prot) throws Exception {
+  private static SharedMemory open(String name, long length, int oflag, int prot, int mapOptions)
+      throws Exception {
     boolean isCreator = false;
     Pointer ptr = Pointer.NULL;
 
@@ -158,10 +231,7 @@ public class PosixSharedMemoryFactory {
         throw new Exception("shm_open");
       }
 
-      ptr = LibCUtil.mmap(null, length, prot, MAP_SHARED, fd, 0);
-      if (ptr == MAP_FAILED) {
-        throw new Exception("mmap");
-      }
+      ptr = map(length, prot, fd, mapOptions);
 
       return new PosixSharedMemory(name, ptr, length, isCreator);
     } finally {
@@ -171,6 +241,72 @@ public class PosixSharedMemoryFactory {
     }
   }
 
+  /**
+   * Maps a shared memory file descriptor and applies the map options.
+   * 
+   * @param length
+   * @param prot
+   * @param fd
+   * @param mapOptions: a bit mask of POPULATE, PRE_TOUCH, HUGE_PAGES and LOCK
+   * @return a pointer to the mapped memory.
+   * @throws Exception
+   */
+  static Pointer map(long length, int prot, int fd, int mapOptions) throws Exception {
+    boolean hugePages = (mapOptions & HUGE_PAGES) != 0;
+    int flags = MAP_SHARED;
+
+    if ((mapOptions & POPULATE) != 0 && !hugePages) {
+      flags |= MAP_POPULATE;
+    }
+
+    Pointer ptr = LibCUtil.mmap(null, length, prot, flags, fd, 0);
+    if (ptr == MAP_FAILED) {
+      throw new Exception("mmap");
+    }
+
+    LibCAPI.size_t size = new LibCAPI.size_t(length);
+
+    try {
+      if (hugePages && LIBC.madvise(ptr, size, MADV_HUGEPAGE) != 0) {
+        throw new Exception("madvise");
+      }
+
+      if ((mapOptions & PRE_TOUCH) != 0 || ((mapOptions & POPULATE) != 0 && hugePages)) {
+        preTouch(ptr, length, prot == PROT_WRITE);
+      }
+
+      if ((mapOptions & LOCK) != 0 && LIBC.mlock(ptr, size) != 0) {
+        throw new Exception("mlock");
+      }
+    } catch (Exception e) {
+      LIBC.munmap(ptr, size);
+      throw e;
+    }
+
+    return ptr;
+  }
+
+  /**
+   * Faults in every page of a mapping.
+   * 
+   * @param ptr
+   * @param length
+   * @param write:  whether to write the pages, by atomically adding 0 so that
+   *                concurrent writes by other processes are not lost
+   */
+  private static void preTouch(Pointer ptr, long length, boolean write) {
+    long address = Pointer.nativeValue(ptr);
+    long pageSize = LIBC.getpagesize();
+
+    for (long offset = 0; offset < length; offset += pageSize) {
+      if (write) {
+        _unsafe.getAndAddInt(null, address + offset, 0);
+      } else {
+        _unsafe.getByteVolatile(null, address + offset);
+      }
+    }
+  }
+
   /**
    * Posix implementation of the SharedMemory interface
    */
@@ -250,5 +386,11 @@ public class PosixSharedMemoryFactory {
    */
   private interface LibC extends LibCAPI, Library {
     LibC INSTANCE = Native.load("c", LibC.class);
+
+    int madvise(Pointer addr, LibCAPI.size_t length, int advice);
+
+    int mlock(Pointer addr, LibCAPI.size_t length);
+
+    int getpagesize();
   }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.posix;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.vmware.toroni.traits.SharedMemoryFactory;
+
+/**
+ * Selects a SharedMemory backend from a configuration string:
+ * <ul>
+ * <li>{@code shm}: POSIX shm_open segments in /dev/shm</li>
+ * <li>{@code file:<dir>}: files in {@code dir}</li>
+ * <li>{@code hugetlbfs:<dir>}: files in {@code dir}, a hugetlbfs mount with
+ * the default huge page size</li>
+ * <li>{@code memfd}: anonymous memfd segments</li>
+ * <li>{@code memfd-hugetlb}: anonymous memfd segments with the default huge
+ * page size</li>
+ * </ul>
+ */
+public class SharedMemoryBackends {
+
+  public static final String SHM = "shm";
+  public static final String FILE = "file:";
+  public static final String HUGETLBFS = "hugetlbfs:";
+  public static final String MEMFD = "memfd";
+  public static final String MEMFD_HUGETLB = "memfd-hugetlb";
+
+  private static final long DEFAULT_HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+
+  /**
+   * @param backend:    configuration string
+   * @param mapOptions: a bit mask of PosixSharedMemoryFactory.POPULATE,
+   *                    PRE_TOUCH, HUGE_PAGES and LOCK
+   * @return a factory of segments of the backend
+   * @throws IllegalArgumentException if the backend is unknown
+   */
+  public static SharedMemoryFactory create(String backend, int mapOptions) {
+    if (backend.equals(SHM)) {
+      return new ShmSharedMemoryFactory(mapOptions);
+    } else if (backend.startsWith(FILE)) {
+      return new FileSharedMemoryFactory(backend.substring(FILE.length()), mapOptions);
+    } else if (backend.startsWith(HUGETLBFS)) {
+      return new FileSharedMemoryFactory(backend.substring(HUGETLBFS.length()), mapOptions, hugePageSize());
+    } else if (backend.equals(MEMFD)) {
+      return new MemfdSharedMemoryFactory(mapOptions);
+    } else if (backend.equals(MEMFD_HUGETLB)) {
+      return new MemfdSharedMemoryFactory(mapOptions, hugePageSize());
+    }
+
+    throw new IllegalArgumentException("Unknown shared memory backend " + backend);
+  }
+
+  /**
+   * @return the default huge page size, from /proc/meminfo
+   */
+  public static long hugePageSize() {
+    try {
+      for (String line : Files.readAllLines(Path.of("/proc/meminfo"))) {
+        if (line.startsWith("Hugepagesize:")) {
+          // e.g. "Hugepagesize:       2048 kB"
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+        }
+      }
+    } catch (Exception e) {
+      // fall back to the default
+    }
+
+    return DEFAULT_HUGE_PAGE_SIZE;
+  }
+}
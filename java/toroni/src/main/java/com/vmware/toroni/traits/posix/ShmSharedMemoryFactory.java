@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.vmware.toroni.traits.posix;
+
+import com.vmware.toroni.traits.SharedMemory;
+import com.vmware.toroni.traits.SharedMemoryFactory;
+
+/**
+ * POSIX {@code shm_open} segments in /dev/shm, see
+ * {@link PosixSharedMemoryFactory}.
+ */
+public class ShmSharedMemoryFactory implements SharedMemoryFactory {
+
+  private final int _mapOptions;
+
+  /**
+   * @param mapOptions: a bit mask of PosixSharedMemoryFactory.POPULATE,
+   *                    PRE_TOUCH, HUGE_PAGES and LOCK
+   */
+  public ShmSharedMemoryFactory(int mapOptions) {
+    _mapOptions = mapOptions;
+  }
+
+  @Override
+  public SharedMemory createOrOpen(String name, long length, int mode) throws Exception {
+    return PosixSharedMemoryFactory.createOrOpen(name, length, mode, _mapOptions);
+  }
+
+  @Override
+  public SharedMemory open(String name, long length) throws Exception {
+    return PosixSharedMemoryFactory.open(name, length, _mapOptions);
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.metrics.Metrics;
+import com.vmware.toroni.metrics.MetricsSlot;
+import com.vmware.toroni.metrics.ReaderMetrics;
+import com.vmware.toroni.metrics.WriterMetrics;
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.CopyConfirmCallback;
+import com.vmware.toroni.rmp.Reader;
+import com.vmware.toroni.rmp.ReaderInfo;
+import com.vmware.toroni.rmp.ReaderWithBackpressure;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.rmp.detail.MessageHeader;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+class MetricsTest {
+  private short readerSlots = 2;
+  private short writerSlots = 1;
+  private Pointer metricsPointer;
+  private Metrics metrics;
+
+  @BeforeEach
+  void init() {
+    metricsPointer = new Memory(Metrics.size(readerSlots, writerSlots));
+    metrics = new Metrics(metricsPointer, readerSlots, writerSlots);
+    metrics.initialize();
+  }
+
+  @Test
+  void layout() {
+    assertEquals(Metrics.CACHE_LINE_SIZE * (1 + readerSlots + writerSlots), Metrics.size(readerSlots, writerSlots));
+    assertTrue(metrics.getInitialized());
+    assertEquals(readerSlots, metrics.getReaderSlots());
+    assertEquals(writerSlots, metrics.getWriterSlots());
+  }
+
+  @Test
+  void allocFree() {
+    long pid = ProcessHandle.current().pid();
+
+    ReaderMetrics r0 = metrics.allocReader();
+    ReaderMetrics r1 = metrics.allocReader();
+    assertNotNull(r0);
+    assertNotNull(r1);
+    assertNotSame(r0, r1);
+    assertEquals(pid, r0.getOwnerPid());
+    assertNull(metrics.allocReader());
+
+    WriterMetrics w = metrics.allocWriter();
+    assertNotNull(w);
+    assertNull(metrics.allocWriter());
+
+    r0.onReadPass(2, 20);
+    r0.free();
+    assertEquals(MetricsSlot.NO_OWNER, r0.getOwnerPid());
+
+    // counters are kept across owners
+    assertSame(r0, metrics.allocReader());
+    assertEquals(2, r0.getMessages());
+  }
+
+  @Test
+  void reclaimDeadOwner() {
+    long pid = ProcessHandle.current().pid();
+    long deadPid = Long.MAX_VALUE; // no such process
+
+    metricsPointer.setLong(Metrics.FIRST_SLOT_OFFSET + MetricsSlot.OWNER_PID_OFFSET, deadPid);
+    assertEquals(deadPid, metrics.getReader(0).getOwnerPid());
+
+    assertSame(metrics.getReader(0), metrics.allocReader());
+    assertEquals(pid, metrics.getReader(0).getOwnerPid());
+  }
+
+  @Test
+  void countReadsAndWrites() throws Exception {
+    long bufSize = 1024;
+    Pointer ringBufPointer = new Memory(ByteRingBuffer.size(bufSize, PthreadRobustMutex.getSize()));
+    ByteRingBuffer ringBuf = new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex());
+    ringBuf.initialize();
+    Pointer readerInfoPointer = new Memory(ReaderInfo.size((short) 1, PthreadRobustMutex.getSize()));
+    ReaderInfo readerInfo = new ReaderInfo(readerInfoPointer, (short) 1, new PthreadRobustMutex());
+    readerInfo.initialize();
+
+    WriterMetrics writerMetrics = metrics.allocWriter();
+    ReaderMetrics readerMetrics = metrics.allocReader();
+    Writer writer = new Writer(ringBuf, readerInfo, writerMetrics);
+    ReaderWithBackpressure reader = new ReaderWithBackpressure(ringBuf, readerInfo, readerMetrics);
+    reader.activate();
+
+    CopyConfirmCallback copyConfirm = Mockito.mock(CopyConfirmCallback.class);
+    Mockito.when(copyConfirm.copy(Mockito.anyLong(), Mockito.anyInt())).thenReturn(true);
+    BackPressureCallback bpHandler = Mockito.mock(BackPressureCallback.class);
+
+    writer.writeEx(new byte[10], bpHandler);
+    writer.writeBatch(Arrays.asList(new byte[20], new byte[30]), bpHandler);
+    writer.claim(40, bpHandler);
+    writer.commit(5);
+
+    assertEquals(4, writerMetrics.getMessages());
+    assertEquals(10 + 20 + 30 + 5, writerMetrics.getBytes());
+    assertEquals(3, writerMetrics.getLockAcquires());
+    assertEquals(0, writerMetrics.getBackpressureWaits());
+
+    assertEquals(Reader.Result.SUCCESS, reader.readEx(copyConfirm));
+    assertEquals(Reader.Result.SUCCESS, reader.readEx(copyConfirm));
+    assertEquals(4, readerMetrics.getMessages());
+    assertEquals(4 * MessageHeader.size() + 10 + 20 + 30 + 5, readerMetrics.getBytes());
+    assertEquals(2, readerMetrics.getReadPasses());
+    assertEquals(0, readerMetrics.getExpiries());
+
+    // write until the reader would expire, writing anyway
+    while (writerMetrics.getBackpressureWaits() == 0) {
+      writer.writeEx(new byte[100], bpHandler);
+    }
+
+    assertEquals(Reader.Result.EXPIRED_POSITION, reader.readEx(copyConfirm));
+    assertEquals(1, readerMetrics.getExpiries());
+    assertTrue(writerMetrics.getLockHoldNs() > 0);
+
+    reader.destroy();
+  }
+
+  @Test
+  void mbean() throws Exception {
+    ReaderMetrics r = metrics.allocReader();
+    WriterMetrics w = metrics.allocWriter();
+    r.onReadPass(3, 30);
+    r.onExpired();
+    w.onWrite(4, 40);
+    w.onBackpressureWait(100);
+    metrics.getReader(1).onReadPass(1, 10);
+
+    ObjectName name = metrics.registerMBean("metrics-test");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    try {
+      assertEquals(1, server.getAttribute(name, "ActiveReaders"));
+      assertEquals(1, server.getAttribute(name, "ActiveWriters"));
+      assertEquals(4L, server.getAttribute(name, "ReaderMessages"));
+      assertEquals(40L, server.getAttribute(name, "ReaderBytes"));
+      assertEquals(1L, server.getAttribute(name, "ReaderExpiries"));
+      assertEquals(4L, server.getAttribute(name, "WriterMessages"));
+      assertEquals(1L, server.getAttribute(name, "BackpressureWaits"));
+      assertEquals(100L, server.getAttribute(name, "BackpressureWaitNs"));
+      assertArrayEquals(new long[] { 3, 1 }, (long[]) server.getAttribute(name, "ReaderMessagesPerSlot"));
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+}
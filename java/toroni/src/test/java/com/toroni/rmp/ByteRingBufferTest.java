@@ -7,6 +7,8 @@ package com.toroni.rmp;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import com.sun.jna.Memory;
 import com.sun.jna.Pointer;
 import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.Layout;
 import com.vmware.toroni.traits.RobustMutex;
 import com.vmware.toroni.traits.posix.PthreadRobustMutex;
 
@@ -77,4 +80,77 @@ class ByteRingBufferTest {
 
     assertArrayEquals(bin, bout);
   }
+
+  @Test
+  void alignedLayout() {
+    assertEquals(Layout.ALIGNED, ringBuf.getLayoutVersion());
+
+    // same offsets as the C++ ByteRingBuffer
+    assertEquals(8, ringBuf.BUF_SIZE_OFFSET);
+    assertEquals(64, ringBuf.MTX_OFFSET);
+    assertEquals(128, ringBuf.FREE_POS_OFFSET);
+    assertEquals(192, ringBuf.STAT_BACK_PRESSURE_COUNT_OFFSET);
+    assertEquals(256, ringBuf.STAT_NOTIFICATION_COUNT_OFFSET);
+    assertEquals(320, ringBuf.NOTIFICATION_SEQ_OFFSET);
+    assertEquals(324, ringBuf.INITIALIZED_OFFSET);
+    assertEquals(384, ringBuf.BUFFER_OFFSET);
+    assertEquals(384 + bufSize, ByteRingBuffer.size(bufSize, PthreadRobustMutex.getSize()));
+  }
+
+  @Test
+  void packedLayout() {
+    long mtxSize = PthreadRobustMutex.getSize();
+    Pointer ringBufPointer = new Memory(ByteRingBuffer.size(bufSize, mtxSize, Layout.PACKED));
+    ByteRingBuffer packed = new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex(), Layout.PACKED);
+    packed.initialize();
+
+    assertTrue(packed.getInitialized());
+    assertEquals(Layout.PACKED, packed.getLayoutVersion());
+    assertEquals(bufSize, packed.getBufSize());
+    assertEquals(0, packed.BUF_SIZE_OFFSET);
+    assertEquals(8 + mtxSize, packed.FREE_POS_OFFSET);
+    assertEquals(8 + mtxSize + 32 + bufSize, ByteRingBuffer.size(bufSize, mtxSize, Layout.PACKED));
+  }
+
+  @Test
+  void openBaselineSegment() {
+    // a segment written with the offsets of the layout before the layout word
+    long mtxSize = PthreadRobustMutex.getSize();
+    long size = 8 + mtxSize + 32 + bufSize;
+    Pointer ringBufPointer = new Memory(size);
+    ringBufPointer.clear(size);
+    ringBufPointer.setLong(0, bufSize); // bufSize
+    ringBufPointer.setLong(8 + mtxSize, 5); // freePos
+    ringBufPointer.setLong(8 + mtxSize + 8, 6); // statBackPressureCount
+    ringBufPointer.setLong(8 + mtxSize + 16, 7); // statNotificationCount
+    ringBufPointer.setByte(8 + mtxSize + 24, (byte) 1); // initialized
+    ringBufPointer.setByte(8 + mtxSize + 32 + 3, (byte) 42); // buffer
+
+    assertEquals(Layout.PACKED, Layout.version(ringBufPointer.getLong(0)));
+    ByteRingBuffer baseline = new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex(), Layout.PACKED);
+    assertTrue(baseline.getInitialized());
+    assertEquals(bufSize, baseline.getBufSize());
+    assertEquals(5, baseline.getFreePos());
+    assertEquals(6, baseline.getStatBackPressureCount());
+    assertEquals(7, baseline.getStatNotificationCount());
+    assertEquals(42, baseline.getByte(3));
+    assertFalse(new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex()).getInitialized());
+  }
+
+  @Test
+  void otherLayoutNotInitialized() {
+    long size = Math.max(ByteRingBuffer.size(bufSize, PthreadRobustMutex.getSize(), Layout.PACKED),
+        ByteRingBuffer.size(bufSize, PthreadRobustMutex.getSize(), Layout.ALIGNED));
+    Pointer ringBufPointer = new Memory(size);
+    ringBufPointer.clear(size);
+
+    new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex(), Layout.PACKED).initialize();
+    assertFalse(new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex(), Layout.ALIGNED)
+        .getInitialized());
+
+    ringBufPointer.clear(size);
+    new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex(), Layout.ALIGNED).initialize();
+    assertFalse(new ByteRingBuffer(ringBufPointer, bufSize, new PthreadRobustMutex(), Layout.PACKED)
+        .getInitialized());
+  }
 }
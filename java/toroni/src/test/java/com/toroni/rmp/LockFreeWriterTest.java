@@ -0,0 +1,397 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.rmp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.CopyConfirmHandler;
+import com.vmware.toroni.rmp.LockFreeWriter;
+import com.vmware.toroni.rmp.ReadCallback;
+import com.vmware.toroni.rmp.Reader;
+import com.vmware.toroni.rmp.ReaderInfo;
+import com.vmware.toroni.rmp.ReaderWithBackpressure;
+import com.vmware.toroni.rmp.WriterInfo;
+import com.vmware.toroni.rmp.WriterInfoInfo;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+class LockFreeWriterTest {
+  private static final short MAX_WRITERS = 4;
+
+  private ByteRingBuffer ringBuf;
+  private ReaderInfo readerInfo;
+  private WriterInfo writerInfo;
+  private ReaderWithBackpressure reader;
+  private CopyConfirmHandler readHandler;
+  private List<Long> received = new ArrayList<Long>();
+  private BackPressureCallback noBPHandler;
+
+  @BeforeEach
+  void init() throws Exception {
+    long bufSize = 1024;
+    ringBuf = new ByteRingBuffer(new Memory(ByteRingBuffer.size(bufSize, PthreadRobustMutex.getSize())), bufSize,
+        new PthreadRobustMutex());
+    ringBuf.initialize();
+
+    short maxReaders = 3;
+    readerInfo = new ReaderInfo(new Memory(ReaderInfo.size(maxReaders, PthreadRobustMutex.getSize())), maxReaders,
+        new PthreadRobustMutex());
+    readerInfo.initialize();
+
+    Pointer writerInfoPointer = new Memory(WriterInfo.size(MAX_WRITERS, PthreadRobustMutex.getSize()));
+    writerInfo = new WriterInfo(writerInfoPointer, MAX_WRITERS, new PthreadRobustMutex());
+    writerInfo.initialize(ringBuf.getFreePos());
+
+    reader = new ReaderWithBackpressure(ringBuf, readerInfo, writerInfo, null);
+    reader.activate();
+
+    readHandler = new CopyConfirmHandler(ringBuf, new ReadCallback() {
+      @Override
+      public void messageRecieved(byte[] data, int length) {
+        received.add(ByteBuffer.wrap(data, 0, length).order(ByteOrder.LITTLE_ENDIAN).getLong());
+      }
+    });
+
+    noBPHandler = new BackPressureCallback() {
+      @Override
+      public boolean writeOrWait(long bpPos, long freePos) {
+        return false;
+      }
+    };
+  }
+
+  @AfterEach
+  void destroy() {
+    reader.destroy();
+  }
+
+  static byte[] encode(long v) {
+    return ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(v).array();
+  }
+
+  void read() {
+    assertEquals(Reader.Result.SUCCESS, reader.readEx(readHandler));
+  }
+
+  @Test
+  void cursorPacking() {
+    long cursor = WriterInfo.cursor(1L << 50 | 123, 7);
+    assertEquals(7, WriterInfo.cursorWriterId(cursor));
+    assertEquals(1L << 50 | 123, WriterInfo.cursorPos(cursor, 1L << 50));
+    assertEquals(WriterInfo.INVALID_WRITER_ID, WriterInfo.cursorWriterId(WriterInfo.cursor(0, WriterInfo.INVALID_WRITER_ID)));
+  }
+
+  @Test
+  void writeRead() throws Exception {
+    LockFreeWriter w1 = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+    LockFreeWriter w2 = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+    assertNotEquals(w1.getWriterId(), w2.getWriterId());
+
+    // enough to wrap around several times, with padding and blank positions
+    List<Long> expected = new ArrayList<Long>();
+    for (long i = 0; i < 1000; i++) {
+      LockFreeWriter w = i % 2 == 0 ? w1 : w2;
+      w.writeEx(encode(i), new byte[(int) (i % 11)], noBPHandler);
+      expected.add(i);
+      read();
+    }
+
+    assertEquals(expected, received);
+    assertEquals(ringBuf.getFreePos(), WriterInfo.cursorPos(writerInfo.getCursor(), ringBuf.getFreePos()));
+
+    w1.destroy();
+    w2.destroy();
+  }
+
+  @Test
+  void readersStopAtUncommittedClaim() throws Exception {
+    LockFreeWriter w1 = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+    LockFreeWriter w2 = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+
+    ByteBuffer claimed = w1.claim(Long.BYTES, noBPHandler);
+    w2.writeEx(encode(2), noBPHandler);
+    read();
+    assertTrue(received.isEmpty());
+
+    claimed.order(ByteOrder.LITTLE_ENDIAN).putLong(1);
+    w1.commit();
+    read();
+    assertEquals(List.of(1L, 2L), received);
+
+    // an aborted claim is skipped
+    w1.claim(Long.BYTES, noBPHandler);
+    w2.writeEx(encode(3), noBPHandler);
+    w1.abort();
+    read();
+    assertEquals(List.of(1L, 2L, 3L), received);
+
+    w1.destroy();
+    w2.destroy();
+  }
+
+  @Test
+  void readWhileClaimOutstanding() throws Exception {
+    LockFreeWriter w1 = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+    LockFreeWriter w2 = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+
+    w1.writeEx(encode(1), new byte[100], noBPHandler);
+    w1.claim(Long.BYTES, noBPHandler);
+    long freePos = ringBuf.getFreePos();
+
+    // claims behind the outstanding one wrap over the unread first message,
+    // while freePos stays before them
+    while (WriterInfo.cursorPos(writerInfo.getCursor(), freePos) < freePos + ringBuf.getBufSize() - 32) {
+      w2.writeEx(encode(2), noBPHandler);
+    }
+    assertEquals(freePos, ringBuf.getFreePos());
+
+    assertEquals(Reader.Result.EXPIRED_POSITION, reader.readEx(readHandler));
+    assertTrue(received.isEmpty());
+
+    w1.commit();
+    w1.destroy();
+    w2.destroy();
+  }
+
+  int claimAndDie() throws Exception {
+    int[] deadId = new int[1];
+    Thread t = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          LockFreeWriter dead = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+          dead.claim(100, noBPHandler);
+          deadId[0] = dead.getWriterId();
+        } catch (Exception e) {
+          throw new Error(e);
+        }
+      }
+    });
+    t.start();
+    t.join();
+
+    return deadId[0];
+  }
+
+  /**
+   * The robust lock of a dead thread is released when the native thread exits,
+   * which may be after join returns.
+   */
+  int awaitRecover(LockFreeWriter w) throws InterruptedException {
+    for (int i = 0; i < 1000; i++) {
+      int recovered = w.recover();
+      if (recovered > 0) {
+        return recovered;
+      }
+
+      Thread.sleep(1);
+    }
+
+    return 0;
+  }
+
+  LockFreeWriter awaitAlloc() throws Exception {
+    for (int i = 0;; i++) {
+      try {
+        return new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+      } catch (Exception e) {
+        if (i == 1000) {
+          throw e;
+        }
+      }
+
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  void recoverClaimOfDeadWriter() throws Exception {
+    LockFreeWriter w = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+    w.writeEx(encode(1), noBPHandler);
+
+    int deadId = claimAndDie();
+    w.writeEx(encode(2), noBPHandler);
+    read();
+    assertEquals(List.of(1L), received);
+
+    assertEquals(1, awaitRecover(w));
+    assertEquals(WriterInfoInfo.IDLE, WriterInfoInfo.phase(writerInfo.getInfo(deadId).getState()));
+    read();
+    assertEquals(List.of(1L, 2L), received);
+    assertEquals(0, w.recover());
+
+    w.destroy();
+  }
+
+  @Test
+  void recoverClaimOnAlloc() throws Exception {
+    LockFreeWriter w = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+    claimAndDie();
+    w.writeEx(encode(1), noBPHandler);
+    w.destroy();
+    read();
+    assertTrue(received.isEmpty());
+
+    // the record of the dead writer is recovered when allocated again
+    LockFreeWriter[] writers = new LockFreeWriter[MAX_WRITERS];
+    for (int i = 0; i < MAX_WRITERS; i++) {
+      writers[i] = awaitAlloc();
+    }
+    read();
+    assertEquals(List.of(1L), received);
+
+    for (LockFreeWriter writer : writers) {
+      writer.destroy();
+    }
+  }
+
+  @Test
+  void recoverUnmarkedClaimOfDeadWriter() throws Exception {
+    LockFreeWriter w = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+
+    // announces a claim, moves the cursor and dies before marking it claimed
+    Thread t = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        int id = writerInfo.alloc();
+        WriterInfoInfo info = writerInfo.getInfo(id);
+        long cursor = writerInfo.getCursor();
+        long start = WriterInfo.cursorPos(cursor, ringBuf.getFreePos());
+        info.setStart(start);
+        info.setEnd(start + 20);
+        info.setState(WriterInfoInfo.state(1, WriterInfoInfo.ANNOUNCED));
+        assertTrue(writerInfo.compareAndSetCursor(cursor, WriterInfo.cursor(start + 20, id)));
+      }
+    });
+    t.start();
+    t.join();
+
+    w.writeEx(encode(1), noBPHandler);
+    read();
+    assertTrue(received.isEmpty());
+
+    assertEquals(1, awaitRecover(w));
+    read();
+    assertEquals(List.of(1L), received);
+
+    w.destroy();
+  }
+
+  @Test
+  void recoverFailedAnnouncementOfDeadWriter() throws Exception {
+    LockFreeWriter w = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+
+    // announces a claim at the stream end and dies before moving the cursor
+    Thread t = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        int id = writerInfo.alloc();
+        WriterInfoInfo info = writerInfo.getInfo(id);
+        info.setStart(ringBuf.getFreePos());
+        info.setEnd(ringBuf.getFreePos() + 20);
+        info.setState(WriterInfoInfo.state(1, WriterInfoInfo.ANNOUNCED));
+      }
+    });
+    t.start();
+    t.join();
+
+    w.writeEx(encode(1), noBPHandler);
+    read();
+    assertTrue(received.isEmpty());
+
+    // nothing is overwritten
+    assertEquals(1, awaitRecover(w));
+    read();
+    assertEquals(List.of(1L), received);
+
+    w.destroy();
+  }
+
+  @Test
+  void backpressure() throws Exception {
+    LockFreeWriter w = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+    BackPressureCallback bpHandler = Mockito.mock(BackPressureCallback.class);
+    when(bpHandler.writeOrWait(anyLong(), anyLong())).thenReturn(false);
+
+    for (long i = 0; i < 100; i++) {
+      w.writeEx(encode(i), bpHandler);
+    }
+
+    verify(bpHandler, atLeastOnce()).writeOrWait(anyLong(), anyLong());
+    assertEquals(Reader.Result.EXPIRED_POSITION, reader.readEx(readHandler));
+
+    w.destroy();
+  }
+
+  @Test
+  void concurrentWriters() throws Exception {
+    final int messages = 10000;
+    Thread[] threads = new Thread[MAX_WRITERS];
+
+    for (int t = 0; t < MAX_WRITERS; t++) {
+      final long writer = t;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            LockFreeWriter w = new LockFreeWriter(ringBuf, readerInfo, writerInfo);
+            BackPressureCallback yieldHandler = new BackPressureCallback() {
+              @Override
+              public boolean writeOrWait(long bpPos, long freePos) {
+                Thread.yield();
+                return true;
+              }
+            };
+
+            for (long i = 0; i < messages; i++) {
+              w.writeEx(encode(writer << 32 | i), yieldHandler);
+            }
+
+            w.destroy();
+          } catch (Exception e) {
+            throw new Error(e);
+          }
+        }
+      });
+      threads[t].start();
+    }
+
+    while (received.size() < MAX_WRITERS * messages) {
+      read();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // each writer's messages are received once and in order
+    long[] next = new long[MAX_WRITERS];
+    for (long v : received) {
+      int writer = (int) (v >>> 32);
+      assertEquals(next[writer]++, v & 0xffffffffL);
+    }
+    assertEquals(MAX_WRITERS * messages, received.size());
+  }
+}
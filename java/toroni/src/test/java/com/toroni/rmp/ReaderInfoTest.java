@@ -6,6 +6,7 @@
 package com.toroni.rmp;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -15,7 +16,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.sun.jna.Pointer;
+import com.vmware.toroni.rmp.Layout;
 import com.vmware.toroni.rmp.ReaderInfo;
+import com.vmware.toroni.rmp.ReaderInfoInfo;
 import com.vmware.toroni.traits.posix.PthreadRobustMutex;
 import com.sun.jna.Memory;
 
@@ -36,11 +39,73 @@ class ReaderInfoTest {
   void initialization() {
     assertTrue(readerInfo.getInitialized());
     assertEquals(0, readerInfo.getStatExpiredReaders());
+    assertEquals(0, readerInfo.getSleepingReaders());
 
     short[] minMax = readerInfo.getActiveRange();
     assertTrue(minMax[0] >= minMax[1]);
   }
 
+  @Test
+  void alignedLayout() {
+    assertEquals(Layout.ALIGNED, readerInfo.getLayoutVersion());
+
+    // same offsets as the C++ ReaderInfo
+    assertEquals(8, readerInfo.STAT_EXPIRED_READERS_OFFSET);
+    assertEquals(16, readerInfo.INITIALIZED_OFFSET);
+    assertEquals(64, readerInfo.FIRST_INFO_OFFSET);
+    assertEquals(64 + maxReaders * 128, ReaderInfo.size(maxReaders, PthreadRobustMutex.getSize()));
+
+    // the position of each reader is on a cache line of its own, with isActive
+    for (int i = 0; i < maxReaders; i++) {
+      ReaderInfoInfo info = readerInfo.getInfo(i);
+      assertEquals(64 + i * 128, info.LOCK_ADDRESS - readerInfo.READER_INFO_ADDRESS);
+      assertEquals(info.LOCK_ADDRESS + Layout.CACHE_LINE_SIZE, info.POSITION_ADDRESS);
+      assertEquals(info.POSITION_ADDRESS + Long.BYTES, info.IS_ACTIVE_ADDRESS);
+    }
+  }
+
+  @Test
+  void otherLayoutNotInitialized() {
+    long mtxSize = PthreadRobustMutex.getSize();
+    Pointer readerInfoPointer = new Memory(ReaderInfo.size(maxReaders, mtxSize, Layout.PACKED));
+    readerInfoPointer.clear(ReaderInfo.size(maxReaders, mtxSize, Layout.PACKED));
+    ReaderInfo packed = new ReaderInfo(readerInfoPointer, maxReaders, new PthreadRobustMutex(), Layout.PACKED);
+    packed.initialize();
+
+    assertTrue(packed.getInitialized());
+    // the offsets of segments created before sleepingReaders
+    assertEquals(16, packed.FIRST_INFO_OFFSET);
+    assertFalse(packed.hasSleepingReaders());
+    assertFalse(new ReaderInfo(readerInfoPointer, maxReaders, new PthreadRobustMutex()).getInitialized());
+  }
+
+  @Test
+  void openBaselineSegment() {
+    // a segment written with the offsets of the layout before the layout word
+    long mtxSize = PthreadRobustMutex.getSize();
+    long infoSize = mtxSize + 16; // lock, position, isActive
+    long size = 16 + maxReaders * infoSize;
+    Pointer readerInfoPointer = new Memory(size);
+    readerInfoPointer.clear(size);
+    readerInfoPointer.setLong(0, 3); // expiredReaders
+    readerInfoPointer.setByte(8, (byte) 1); // initialized
+    readerInfoPointer.setShort(10, maxReaders); // maxReaders
+    readerInfoPointer.setInt(12, 1 | 2 << 16); // readersMinMax
+    readerInfoPointer.setLong(16 + infoSize + mtxSize, 9); // position of reader 1
+    readerInfoPointer.setByte(16 + infoSize + mtxSize + 8, (byte) 1); // isActive of reader 1
+
+    assertEquals(Layout.PACKED, Layout.version(readerInfoPointer.getLong(0)));
+    assertEquals(size, ReaderInfo.size(maxReaders, mtxSize, Layout.PACKED));
+    ReaderInfo baseline = new ReaderInfo(readerInfoPointer, maxReaders, new PthreadRobustMutex(), Layout.PACKED);
+    assertTrue(baseline.getInitialized());
+    assertEquals(3, baseline.getStatExpiredReaders());
+    assertEquals(1 | 2 << 16, baseline.getReadersMinMax());
+    assertFalse(baseline.getInfo(0).getIsActive());
+    assertTrue(baseline.getInfo(1).getIsActive());
+    assertEquals(9, baseline.getInfo(1).getPosition());
+    assertFalse(new ReaderInfo(readerInfoPointer, maxReaders, new PthreadRobustMutex()).getInitialized());
+  }
+
   @Test
   void activateDeactivateRange() {
     short[] minMax;
@@ -115,6 +180,10 @@ class ReaderInfoTest {
 
       int readerId = readerInfo.alloc();
       assertEquals(0, readerId);
+
+      // the lock is in the robust list of this thread until unlocked, it must
+      // not outlive the memory
+      readerInfo.free(readerId);
     } catch (Exception e) {
       assert (false);
     }
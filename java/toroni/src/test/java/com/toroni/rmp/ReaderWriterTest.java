@@ -6,6 +6,7 @@
 package com.toroni.rmp;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.times;
@@ -17,16 +18,26 @@ import com.sun.jna.Pointer;
 import com.vmware.toroni.rmp.BackPressureCallback;
 import com.vmware.toroni.rmp.ByteRingBuffer;
 import com.vmware.toroni.rmp.CopyConfirmCallback;
+import com.vmware.toroni.rmp.CopyConfirmHandler;
+import com.vmware.toroni.rmp.ReadBudget;
+import com.vmware.toroni.rmp.ReadViewCallback;
 import com.vmware.toroni.rmp.Reader;
 import com.vmware.toroni.rmp.ReaderInfo;
 import com.vmware.toroni.rmp.ReaderWithBackpressure;
+import com.vmware.toroni.rmp.ViewConfirmHandler;
 import com.vmware.toroni.rmp.Writer;
 import com.vmware.toroni.rmp.detail.MessageHeader;
+import com.vmware.toroni.traits.RobustMutex;
 import com.vmware.toroni.traits.posix.PthreadRobustMutex;
 
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -111,6 +122,12 @@ class ReaderWriterTest {
     maxIntMsg = (int) (ringBuf.getBufSize() / (MessageHeader.size() + Integer.BYTES));
   }
 
+  @AfterEach
+  void destroy() {
+    // unlocks the slot lock, which must not outlive the memory of the reader info
+    readerBP.destroy();
+  }
+
   void writeInt(int v) {
     // convert the int to byte array
     byte[] data = { (byte) ((v >> 0) & 0xff), (byte) ((v >> 8) & 0xff),
@@ -213,6 +230,245 @@ class ReaderWriterTest {
     writeBigData(noBPHandler);
   }
 
+  byte[] intData(int v) {
+    return new byte[] { (byte) ((v >> 0) & 0xff), (byte) ((v >> 8) & 0xff),
+        (byte) ((v >> 16) & 0xff), (byte) ((v >> 24) & 0xff) };
+  }
+
+  @Test
+  void writeBatchRead() {
+    readerBP.activate();
+
+    List<byte[]> batch = new ArrayList<>();
+    for (int i = 1; i <= maxIntMsg; i++) {
+      batch.add(intData(i));
+    }
+    writer.writeBatch(batch, mockBPHandler);
+
+    verify(mockBPHandler, times(0)).writeOrWait(anyLong(), anyLong());
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    assertEquals(maxIntMsg, readHandler.data.size());
+    for (int i = 1; i <= maxIntMsg; i++) {
+      assertEquals(i, readHandler.data.get(i - 1));
+    }
+  }
+
+  @Test
+  void writeBatchWrapAround() {
+    writeBigData(noBPHandler);
+
+    readerBP.activate();
+
+    writer.writeBatch(Arrays.asList(intData(10), intData(20), intData(30)), noBPHandler);
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    Assertions.assertArrayEquals(
+        new int[] { 10, 20, 30 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+    assertEquals(0, ringBuf.getStatBackPressureCount());
+  }
+
+  @Test
+  void writePrefixRead() {
+    writeBigData(noBPHandler);
+
+    readerBP.activate();
+
+    byte[] data = intData(0x04030201);
+    writer.writeEx(Arrays.copyOfRange(data, 0, 1), Arrays.copyOfRange(data, 1, 4), noBPHandler);
+    writer.writeEx(new byte[0], intData(20), noBPHandler);
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    Assertions.assertArrayEquals(
+        new int[] { 0x04030201, 20 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+  }
+
+  @Test
+  void writeBatchBackpressurePublishesPrefix() {
+    readerBP.activate();
+
+    List<byte[]> batch = new ArrayList<>();
+    for (int i = 1; i <= maxIntMsg + 2; i++) {
+      batch.add(intData(i));
+    }
+
+    ArrayList<Long> bpFreePos = new ArrayList<>();
+    writer.writeBatch(batch, new BackPressureCallback() {
+      @Override
+      public boolean writeOrWait(long bpPos, long freePos) {
+        bpFreePos.add(freePos);
+
+        if (bpFreePos.size() == 1) {
+          // the prefix is published, read it and retry
+          assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+          return true;
+        }
+
+        return false;
+      }
+    });
+
+    assertEquals(1, bpFreePos.size());
+    assertEquals(maxIntMsg, readHandler.data.size());
+    assertEquals(1, ringBuf.getStatBackPressureCount());
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    assertEquals(maxIntMsg + 2, readHandler.data.size());
+    for (int i = 1; i <= maxIntMsg + 2; i++) {
+      assertEquals(i, readHandler.data.get(i - 1));
+    }
+  }
+
+  @Test
+  void writeBatchBackpressureWriteAnyway() {
+    readerBP.activate();
+
+    List<byte[]> batch = new ArrayList<>();
+    for (int i = 1; i <= maxIntMsg + 1; i++) {
+      batch.add(intData(i));
+    }
+
+    when(mockBPHandler.writeOrWait(anyLong(), anyLong())).thenReturn(false);
+    writer.writeBatch(batch, mockBPHandler);
+
+    verify(mockBPHandler, times(1)).writeOrWait(anyLong(), anyLong());
+    assertEquals(Reader.Result.EXPIRED_POSITION, readerBP.readEx(readHandler));
+  }
+
+  @Test
+  void claimCommitRead() {
+    readerBP.activate();
+
+    ByteBuffer claimed = writer.claim(Integer.BYTES, noBPHandler);
+    assertEquals(Integer.BYTES, claimed.remaining());
+    claimed.order(ByteOrder.LITTLE_ENDIAN).putInt(10);
+    writer.commit();
+
+    writeInt(20);
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    Assertions.assertArrayEquals(
+        new int[] { 10, 20 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+  }
+
+  @Test
+  void claimWrapAround() {
+    writeBigData(noBPHandler);
+
+    readerBP.activate();
+
+    ByteBuffer claimed = writer.tryClaim(Integer.BYTES);
+    claimed.order(ByteOrder.LITTLE_ENDIAN).putInt(10);
+    writer.commit();
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    Assertions.assertArrayEquals(new int[] { 10 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+  }
+
+  @Test
+  void claimCommitShorter() {
+    readerBP.activate();
+
+    ByteBuffer claimed = writer.claim(100, noBPHandler);
+    claimed.order(ByteOrder.LITTLE_ENDIAN).putInt(10);
+    writer.commit(Integer.BYTES);
+
+    assertEquals(MessageHeader.size() + Integer.BYTES, ringBuf.getFreePos());
+
+    writeInt(20);
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    Assertions.assertArrayEquals(
+        new int[] { 10, 20 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+  }
+
+  @Test
+  void claimAbort() {
+    writeBigData(noBPHandler);
+
+    readerBP.activate();
+    long freePos = ringBuf.getFreePos();
+
+    // claim with padding before
+    ByteBuffer claimed = writer.claim(Integer.BYTES, noBPHandler);
+    claimed.order(ByteOrder.LITTLE_ENDIAN).putInt(10);
+    writer.abort();
+
+    assertEquals(freePos, ringBuf.getFreePos());
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    assertEquals(0, readHandler.data.size());
+
+    writeInt(20);
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    Assertions.assertArrayEquals(new int[] { 20 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+  }
+
+  @Test
+  void claimReleasesLock() {
+    writer.claim(Integer.BYTES, noBPHandler);
+    assertEquals(false, ringBuf.getMtx().tryLock());
+    writer.commit();
+
+    writer.tryClaim(Integer.BYTES);
+    writer.abort();
+
+    assertTrue(ringBuf.getMtx().tryLock());
+    ringBuf.getMtx().unlock();
+  }
+
+  @Test
+  void claimZeroLengthDeathTest() {
+    // a zero length header is invalid for readers
+    Assertions.assertThrows(AssertionError.class, () -> {
+      writer.tryClaim(0);
+    });
+    Assertions.assertThrows(AssertionError.class, () -> {
+      writer.claim(0, noBPHandler);
+    });
+
+    writer.claim(Integer.BYTES, noBPHandler);
+    Assertions.assertThrows(AssertionError.class, () -> {
+      writer.commit(0);
+    });
+    writer.abort();
+  }
+
+  @Test
+  void tryClaimBackpressure() {
+    readerBP.activate();
+
+    writeBigData(noBPHandler);
+
+    assertNull(writer.tryClaim(Integer.BYTES));
+    assertEquals(0, ringBuf.getStatBackPressureCount());
+
+    // not holding the lock
+    assertTrue(ringBuf.getMtx().tryLock());
+    ringBuf.getMtx().unlock();
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+
+    ByteBuffer claimed = writer.tryClaim(Integer.BYTES);
+    claimed.order(ByteOrder.LITTLE_ENDIAN).putInt(10);
+    writer.commit();
+  }
+
+  @Test
+  void claimBackpressure() {
+    readerBP.activate();
+
+    writeBigData(noBPHandler);
+
+    when(mockBPHandler.writeOrWait(anyLong(), anyLong())).thenReturn(false);
+
+    ByteBuffer claimed = writer.claim(Integer.BYTES, mockBPHandler);
+    claimed.order(ByteOrder.LITTLE_ENDIAN).putInt(10);
+    writer.commit();
+
+    assertEquals(1, ringBuf.getStatBackPressureCount());
+    assertEquals(Reader.Result.EXPIRED_POSITION, readerBP.readEx(readHandler));
+  }
+
   @Test
   void writeBackpressure() {
     readerBP.activate();
@@ -230,6 +486,34 @@ class ReaderWriterTest {
     assertEquals(1, ringBuf.getStatBackPressureCount());
   }
 
+  @Test
+  void writeBackpressureReaderActivatedAfterWrites() {
+    // the writer has already checked the readers for the following writes
+    writeInt(-1);
+    writeInt(-2);
+
+    readerBP.activate();
+
+    BackPressureCallback readOnBP = new BackPressureCallback() {
+      @Override
+      public boolean writeOrWait(long bpPos, long freePos) {
+        assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+        return true;
+      }
+    };
+
+    for (int i = 0; i < 2 * maxIntMsg; i++) {
+      writer.writeEx(intData(i), readOnBP);
+    }
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler));
+    assertEquals(2 * maxIntMsg, readHandler.data.size());
+    for (int i = 0; i < 2 * maxIntMsg; i++) {
+      assertEquals(i, readHandler.data.get(i));
+    }
+    Assertions.assertTrue(ringBuf.getStatBackPressureCount() > 0);
+  }
+
   @Test
   void writeNoActiveReaderNoBackpressure() {
     verify(mockBPHandler, times(0)).writeOrWait(anyLong(), anyLong());
@@ -270,6 +554,137 @@ class ReaderWriterTest {
     assertEquals(0, dcch.confirmCount);
   }
 
+  @Test
+  void readViewConfirm() {
+    class ReadIntViewCallback implements ReadViewCallback {
+      private int _tmpData;
+      public ArrayList<Integer> data = new ArrayList<Integer>();
+
+      @Override
+      public boolean messageViewed(ByteBuffer view) {
+        assertTrue(view.isDirect());
+        assertEquals(Integer.BYTES, view.remaining());
+        _tmpData = view.order(ByteOrder.LITTLE_ENDIAN).getInt(view.position());
+        return _tmpData != 2;
+      }
+
+      @Override
+      public void messageConfirmed() {
+        data.add(_tmpData);
+      }
+    }
+
+    readerBP.activate();
+
+    ReadIntViewCallback viewCb = new ReadIntViewCallback();
+    ViewConfirmHandler vch = new ViewConfirmHandler(ringBuf, viewCb);
+
+    for (int i = 1; i <= maxIntMsg; i++) {
+      writeInt(i);
+    }
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(vch));
+    assertEquals(maxIntMsg - 1, viewCb.data.size());
+    assertEquals(1, viewCb.data.get(0));
+    assertEquals(3, viewCb.data.get(1));
+    assertEquals(ringBuf.getFreePos(), readerBP.pos());
+  }
+
+  @Test
+  void readSteadyStateAllocationFree() {
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+        .getThreadMXBean();
+    long tid = Thread.currentThread().getId();
+
+    int[] count = { 0 };
+    CopyConfirmHandler cch = new CopyConfirmHandler(ringBuf, (data, length) -> count[0]++);
+
+    readerBP.activate();
+
+    long allocated = 0;
+    for (int iter = 0; iter < 1000; iter++) {
+      for (int i = 1; i <= maxIntMsg / 2; i++) {
+        writeInt(i);
+      }
+
+      // the measurement itself may allocate, account for it
+      long before = threadBean.getThreadAllocatedBytes(tid);
+      long overhead = threadBean.getThreadAllocatedBytes(tid) - before;
+      before = threadBean.getThreadAllocatedBytes(tid);
+      assertEquals(Reader.Result.SUCCESS, readerBP.readEx(cch));
+      allocated = threadBean.getThreadAllocatedBytes(tid) - before - overhead;
+    }
+
+    assertEquals(1000 * (maxIntMsg / 2), count[0]);
+    assertEquals(0, allocated);
+  }
+
+  @Test
+  void writeSteadyStateAllocationFree() throws Exception {
+    // single-threaded, measure the writer and not the native mutex
+    RobustMutex noopMutex = new RobustMutex() {
+
+      @Override
+      public RobustMutex load(Pointer mtx) {
+        return this;
+      }
+
+      @Override
+      public void initialize(Pointer mtx) {
+      }
+
+      @Override
+      public long size() {
+        return PthreadRobustMutex.getSize();
+      }
+
+      @Override
+      public void lock() {
+      }
+
+      @Override
+      public boolean tryLock() {
+        return true;
+      }
+
+      @Override
+      public void unlock() {
+      }
+
+    };
+
+    Pointer ringBufPointer = new Memory(ByteRingBuffer.size(ringBuf.getBufSize(), noopMutex.size()));
+    ByteRingBuffer noopRingBuf = new ByteRingBuffer(ringBufPointer, ringBuf.getBufSize(), noopMutex);
+    noopRingBuf.initialize();
+    Writer noopWriter = new Writer(noopRingBuf, readerInfo);
+
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+        .getThreadMXBean();
+    long tid = Thread.currentThread().getId();
+
+    // an active reader that is never reading, so backpressure is also hit
+    int readerId = readerInfo.alloc();
+    readerInfo.activate(readerId, 0);
+    byte[] data = new byte[Integer.BYTES];
+
+    long allocated = 0;
+    for (int iter = 0; iter < 1000; iter++) {
+      // the measurement itself may allocate, account for it
+      long before = threadBean.getThreadAllocatedBytes(tid);
+      long overhead = threadBean.getThreadAllocatedBytes(tid) - before;
+      before = threadBean.getThreadAllocatedBytes(tid);
+      for (int i = 0; i < maxIntMsg; i++) {
+        noopWriter.writeEx(data, noBPHandler);
+      }
+      allocated = threadBean.getThreadAllocatedBytes(tid) - before - overhead;
+    }
+
+    readerInfo.free(readerId);
+
+    assertTrue(noopRingBuf.getStatBackPressureCount() > 0);
+    assertEquals(0, allocated);
+  }
+
   @Test
   void writeDieWriteDeathTest() {
     readerBP.activate();
@@ -301,6 +716,95 @@ class ReaderWriterTest {
         readHandler.data.stream().mapToInt(i -> i).toArray());
   }
 
+  @Test
+  void readBudgetMessages() {
+    readerBP.activate();
+
+    for (int i = 0; i < 5; i++) {
+      writeInt(i);
+    }
+
+    ReadBudget budget = ReadBudget.messages(2);
+    assertEquals(Reader.Result.MORE_AVAILABLE, readerBP.readEx(readHandler, budget));
+    Assertions.assertArrayEquals(
+        new int[] { 0, 1 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+    // the position is published, the first reader has id 0
+    assertEquals(readerBP.pos(), readerInfo.getInfo(0).getPosition());
+    assertEquals(2 * (MessageHeader.size() + Integer.BYTES), readerBP.pos());
+
+    assertEquals(Reader.Result.MORE_AVAILABLE, readerBP.readEx(readHandler, budget));
+    // the budget ends with the stream, no empty read needed
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler, budget));
+    Assertions.assertArrayEquals(
+        new int[] { 0, 1, 2, 3, 4 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+    assertEquals(ringBuf.getFreePos(), readerInfo.getInfo(0).getPosition());
+  }
+
+  @Test
+  void readBudgetCountsDiscarded() {
+    readerBP.activate();
+
+    for (int i = 0; i < 3; i++) {
+      writeInt(i);
+    }
+
+    CopyConfirmCallback discardAll = new CopyConfirmCallback() {
+      @Override
+      public boolean copy(long index, int length) {
+        return false;
+      }
+
+      @Override
+      public void confirm() {
+      }
+    };
+
+    // e.g. a TP reader of a ring buffer with mostly other topics
+    assertEquals(Reader.Result.MORE_AVAILABLE, readerBP.readEx(discardAll, ReadBudget.messages(2)));
+    assertEquals(2 * (MessageHeader.size() + Integer.BYTES), readerBP.pos());
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(discardAll, ReadBudget.messages(2)));
+  }
+
+  @Test
+  void readBudgetBytes() {
+    readerBP.activate();
+
+    for (int i = 0; i < 4; i++) {
+      writeInt(i);
+    }
+
+    // reaching the limit within a message still reads the whole message
+    ReadBudget budget = ReadBudget.bytes(MessageHeader.size() + Integer.BYTES + 1);
+    assertEquals(Reader.Result.MORE_AVAILABLE, readerBP.readEx(readHandler, budget));
+    Assertions.assertArrayEquals(
+        new int[] { 0, 1 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+    assertEquals(readerBP.pos(), readerInfo.getInfo(0).getPosition());
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler, budget));
+    Assertions.assertArrayEquals(
+        new int[] { 0, 1, 2, 3 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+  }
+
+  @Test
+  void readBudgetTime() {
+    readerBP.activate();
+
+    writeInt(1);
+    writeInt(2);
+
+    // an expired deadline still reads one message per call
+    ReadBudget budget = ReadBudget.time(1, TimeUnit.NANOSECONDS);
+    assertEquals(Reader.Result.MORE_AVAILABLE, readerBP.readEx(readHandler, budget));
+    Assertions.assertArrayEquals(
+        new int[] { 1 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+    assertEquals(readerBP.pos(), readerInfo.getInfo(0).getPosition());
+
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler, budget));
+    assertEquals(Reader.Result.SUCCESS, readerBP.readEx(readHandler, budget));
+    Assertions.assertArrayEquals(
+        new int[] { 1, 2 }, readHandler.data.stream().mapToInt(i -> i).toArray());
+  }
+
   @Test
   void readInactiveDeathTest() {
     Assertions.assertThrows(AssertionError.class,
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.rmp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.Layout;
+import com.vmware.toroni.rmp.ReaderInfo;
+import com.vmware.toroni.rmp.SleeperAwareNotification;
+import com.vmware.toroni.rmp.Writer;
+import com.vmware.toroni.traits.IdleStrategy;
+import com.vmware.toroni.traits.Notification;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+import com.vmware.toroni.traits.posix.FutexNotification;
+
+class SleeperAwareNotificationTest {
+  private Notification mockNotification = Mockito.mock(Notification.class);
+  private IdleStrategy.AvailableFn mockAvailableFn = Mockito.mock(IdleStrategy.AvailableFn.class);
+  private ReaderInfo readerInfo;
+
+  @BeforeEach
+  void init() {
+    short maxReaders = 1;
+    Pointer readerInfoPointer = new Memory(ReaderInfo.size(maxReaders, DirectPthreadRobustMutex.getSize()));
+
+    readerInfo = new ReaderInfo(readerInfoPointer, maxReaders, new DirectPthreadRobustMutex());
+    readerInfo.initialize();
+  }
+
+  @Test
+  void sendOnlyToSleepers() {
+    SleeperAwareNotification writer = new SleeperAwareNotification(mockNotification, readerInfo, null);
+
+    writer.sendNotification();
+    verify(mockNotification, times(0)).sendNotification();
+
+    readerInfo.incSleepingReaders(1);
+    writer.sendNotification();
+    verify(mockNotification, times(1)).sendNotification();
+
+    assertEquals(1, writer.getSent());
+    assertEquals(1, writer.getSuppressed());
+  }
+
+  @Test
+  void sleepWhileWaiting() {
+    SleeperAwareNotification reader = new SleeperAwareNotification(mockNotification, readerInfo, mockAvailableFn);
+    doAnswer(invocation -> {
+      assertEquals(1, readerInfo.getSleepingReaders());
+      return null;
+    }).when(mockNotification).waitForNotification();
+
+    when(mockAvailableFn.run()).thenReturn(false);
+    reader.waitForNotification();
+    verify(mockNotification, times(1)).waitForNotification();
+    assertEquals(0, readerInfo.getSleepingReaders());
+
+    // not blocking if messages are available once asleep
+    when(mockAvailableFn.run()).thenReturn(true);
+    reader.waitForNotification();
+    verify(mockNotification, times(1)).waitForNotification();
+    assertEquals(0, readerInfo.getSleepingReaders());
+  }
+
+  @Test
+  void packedLayoutAlwaysSends() {
+    short maxReaders = 1;
+    long mtxSize = DirectPthreadRobustMutex.getSize();
+    Pointer readerInfoPointer = new Memory(ReaderInfo.size(maxReaders, mtxSize, Layout.PACKED));
+    ReaderInfo packed = new ReaderInfo(readerInfoPointer, maxReaders, new DirectPthreadRobustMutex(),
+        Layout.PACKED);
+    packed.initialize();
+
+    // readers of the packed layout are not counted
+    SleeperAwareNotification writer = new SleeperAwareNotification(mockNotification, packed, null);
+    writer.sendNotification();
+    verify(mockNotification, times(1)).sendNotification();
+    assertEquals(0, writer.getSuppressed());
+
+    SleeperAwareNotification reader = new SleeperAwareNotification(mockNotification, packed, mockAvailableFn);
+    when(mockAvailableFn.run()).thenReturn(false);
+    reader.waitForNotification();
+    verify(mockNotification, times(1)).waitForNotification();
+  }
+
+  @Test
+  void noLostWakeup() throws Exception {
+    long bufSize = 1024;
+    Pointer ringBufPointer = new Memory(ByteRingBuffer.size(bufSize, DirectPthreadRobustMutex.getSize()));
+    ByteRingBuffer ringBuf = new ByteRingBuffer(ringBufPointer, bufSize, new DirectPthreadRobustMutex());
+    ringBuf.initialize();
+
+    Writer rmpWriter = new Writer(ringBuf, readerInfo);
+    SleeperAwareNotification writer = new SleeperAwareNotification(
+        new FutexNotification(ringBuf.getNotificationSeqPointer()), readerInfo, null);
+    final int msgCount = 2000;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<Void> future = executor.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() throws Exception {
+        long pos[] = { 0 };
+        SleeperAwareNotification reader = new SleeperAwareNotification(
+            new FutexNotification(ringBuf.getNotificationSeqPointer()), readerInfo, new IdleStrategy.AvailableFn() {
+
+              @Override
+              public boolean run() {
+                return ringBuf.getFreePos() != pos[0];
+              }
+
+            });
+
+        // every message is written and notified alone, the reader sleeps
+        // between them
+        while (pos[0] != ringBuf.getFreePos() || ringBuf.getFreePos() < msgCount * 6) {
+          reader.waitForNotification();
+          pos[0] = ringBuf.getFreePos();
+        }
+
+        return null;
+      }
+
+    });
+
+    byte[] msg = new byte[1];
+    BackPressureCallback mockBpFn = Mockito.mock(BackPressureCallback.class);
+    for (int i = 0; i < msgCount; i++) {
+      rmpWriter.writeEx(msg, mockBpFn);
+      writer.sendNotification();
+
+      if (i % 100 == 0) {
+        Thread.sleep(1);
+      }
+    }
+
+    future.get(10, TimeUnit.SECONDS);
+    executor.shutdown();
+    assertEquals(msgCount, writer.getSent() + writer.getSuppressed());
+  }
+
+}
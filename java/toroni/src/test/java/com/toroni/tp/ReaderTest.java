@@ -8,6 +8,7 @@ package com.toroni.tp;
 import com.sun.jna.Pointer;
 import com.vmware.toroni.rmp.BackPressureCallback;
 import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.ReadBudget;
 import com.vmware.toroni.rmp.Writer;
 import com.vmware.toroni.rmp.detail.MessageHeader;
 import com.vmware.toroni.tp.AsyncWriter;
@@ -16,6 +17,8 @@ import com.vmware.toroni.tp.Reader;
 import com.vmware.toroni.tp.ReaderInfo;
 import com.vmware.toroni.tp.Reader.ChannelReaderEventCallback;
 import com.vmware.toroni.tp.Reader.ChannelReaderEventType;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+import com.vmware.toroni.tp.detail.TopicMsgSerializer;
 import com.vmware.toroni.traits.RobustMutex;
 import com.vmware.toroni.traits.posix.PthreadRobustMutex;
 import com.sun.jna.Memory;
@@ -29,6 +32,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
@@ -246,4 +250,170 @@ class ReaderTest {
     assertEquals(0, sqRmp.size());
   }
 
+  @Test
+  void messagesAvailable() {
+    ChannelReader.Handler h = Mockito.mock(ChannelReader.Handler.class);
+
+    // inactive
+    assertFalse(reader.messagesAvailable());
+    postMessage("ch", "data", false);
+    assertFalse(reader.messagesAvailable());
+
+    reader.createChannelReader("ch", h, false);
+    runQueue(sqReader);
+    assertFalse(reader.messagesAvailable());
+
+    postMessage("ch", "data", false);
+    assertTrue(reader.messagesAvailable());
+
+    reader.run();
+    runQueue(sqReader);
+    runQueue(sqRmp);
+    assertFalse(reader.messagesAvailable());
+    verify(h, times(1)).run(any());
+  }
+
+  @Test
+  void readBudgetReenqueues() {
+    ChannelReader.Handler h = Mockito.mock(ChannelReader.Handler.class);
+    reader.createChannelReader("ch", h, false);
+    runQueue(sqReader);
+
+    reader.setReadBudget(ReadBudget.messages(1));
+    postMessage("ch", "data", false);
+    postMessage("ch", "data", false);
+
+    reader.run();
+    runQueue(sqReader);
+    runQueue(sqRmp);
+    verify(h, times(1)).run(any());
+    assertTrue(reader.messagesAvailable());
+    // re-enqueued behind work enqueued meanwhile
+    assertEquals(1, sqReader.size());
+
+    ChannelReader.Handler h2 = Mockito.mock(ChannelReader.Handler.class);
+    reader.createChannelReader("ch", h2, false);
+    assertEquals(2, sqReader.size());
+
+    runQueue(sqReader);
+    runQueue(sqRmp);
+    verify(h, times(2)).run(any());
+    // created before the rest of the stream was read
+    verify(h2, times(1)).run(any());
+    assertFalse(reader.messagesAvailable());
+    assertEquals(0, sqReader.size());
+  }
+
+  @Test
+  void readBudgetInlineExecutorsLoop() {
+    Reader.EnqueueSerialFn runNow = new Reader.EnqueueSerialFn() {
+
+      @Override
+      public void run(Runnable fn) {
+        fn.run();
+      }
+
+    };
+    Reader inlineReader = Reader.create(ringBuf, readerInfo, runNow, runNow, mockEventCallback);
+    inlineReader.setReadBudget(ReadBudget.messages(1));
+
+    ArrayList<Integer> stackDepths = new ArrayList<>();
+    inlineReader.createChannelReader("ch", new ChannelReader.Handler() {
+
+      @Override
+      public void run(ByteBuffer data) {
+        stackDepths.add(Thread.currentThread().getStackTrace().length);
+      }
+
+    }, false);
+
+    for (int i = 0; i < 10; i++) {
+      postMessage("ch", "data", false);
+    }
+
+    inlineReader.run();
+
+    assertEquals(10, stackDepths.size());
+    // each re-enqueued read continues in the loop of the first one
+    assertEquals(1, stackDepths.stream().distinct().count());
+    assertFalse(inlineReader.messagesAvailable());
+
+    inlineReader.destroy();
+  }
+
+  @Test
+  void readRmpSteadyStateAllocationFree() {
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+        .getThreadMXBean();
+    long tid = Thread.currentThread().getId();
+
+    ChannelReader.Handler h = Mockito.mock(ChannelReader.Handler.class);
+    reader.createChannelReader("ch", h, false);
+    runQueue(sqReader);
+
+    BackPressureCallback noBPHandler = new BackPressureCallback() {
+
+      @Override
+      public boolean writeOrWait(long bpPos, long freePos) {
+        return false;
+      }
+
+    };
+    byte[] msg = new byte[TopicMsgSerializer.sizeOf("other", 4)];
+    TopicMsgSerializer.serialize(msg, readerInfo.getReaderGen(), false, "other", "data".getBytes());
+
+    long allocated = 0;
+    for (int iter = 0; iter < 1000; iter++) {
+      writer.writeEx(msg, noBPHandler);
+
+      // the measurement itself may allocate, account for it
+      long before = threadBean.getThreadAllocatedBytes(tid);
+      long overhead = threadBean.getThreadAllocatedBytes(tid) - before;
+      before = threadBean.getThreadAllocatedBytes(tid);
+      reader.readRmp();
+      allocated = threadBean.getThreadAllocatedBytes(tid) - before - overhead;
+    }
+
+    assertFalse(reader.messagesAvailable());
+    verify(h, times(0)).run(any());
+    assertEquals(0, allocated);
+  }
+
+  @Test
+  void readRmpFiltersByHash() {
+    ChannelReader.Handler h = Mockito.mock(ChannelReader.Handler.class);
+    reader.createChannelReader("/a/b", h, false);
+    ChannelReader.Handler hd = Mockito.mock(ChannelReader.Handler.class);
+    reader.createChannelReader("/x", hd, true);
+    runQueue(sqReader);
+
+    BackPressureCallback noBPHandler = new BackPressureCallback() {
+
+      @Override
+      public boolean writeOrWait(long bpPos, long freePos) {
+        return false;
+      }
+
+    };
+    for (String topic : new String[] { "/a/b", "/x/y" }) {
+      EncodedTopic channel = new EncodedTopic(topic);
+      byte[] msg = new byte[TopicMsgSerializer.sizeOf(channel, 4)];
+      TopicMsgSerializer.serialize(msg, readerInfo.getReaderGen(), false, channel, "data".getBytes());
+      writer.writeEx(msg, noBPHandler);
+
+      // same topic bytes, another topic hash and ancestor hash: rejected by
+      // comparing hashes
+      msg[12] ^= 1;
+      msg[TopicMsgSerializer.HEADER_V1_SIZE] ^= 1;
+      writer.writeEx(msg, noBPHandler);
+    }
+
+    reader.run();
+    runQueue(sqReader);
+    runQueue(sqRmp);
+
+    verify(h, times(1)).run(ByteBuffer.wrap("data".getBytes()));
+    verify(hd, times(1)).run(ByteBuffer.wrap("data".getBytes()));
+    assertFalse(reader.messagesAvailable());
+  }
 }
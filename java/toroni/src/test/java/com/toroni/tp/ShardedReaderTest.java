@@ -0,0 +1,258 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.tp;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.tp.AsyncWriter;
+import com.vmware.toroni.tp.ChannelReader;
+import com.vmware.toroni.tp.Reader;
+import com.vmware.toroni.tp.ReaderInfo;
+import com.vmware.toroni.tp.ShardedAsyncWriter;
+import com.vmware.toroni.tp.ShardedReader;
+import com.vmware.toroni.tp.TopicShards;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+import com.vmware.toroni.traits.RobustMutex;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+class ShardedReaderTest {
+  private static final int SHARDS = 4;
+
+  private TopicShards shards;
+  private ShardedAsyncWriter writer;
+  private ShardedReader reader;
+  private String topicA; // in shard 0
+  private String topicB; // in shard 1
+
+  private class Recorder implements ChannelReader.Handler {
+    List<String> received = new ArrayList<>();
+
+    @Override
+    public void run(ByteBuffer data) {
+      byte[] bytes = new byte[data.remaining()];
+      data.get(bytes);
+      received.add(new String(bytes, StandardCharsets.UTF_8));
+    }
+  }
+
+  ByteRingBuffer initRingBuf() {
+    long bufSize = 1024;
+
+    Pointer mtxPointer = new Memory(PthreadRobustMutex.getSize());
+    RobustMutex mtx = new PthreadRobustMutex();
+    mtx.initialize(mtxPointer);
+
+    Pointer ringBufPointer = new Memory(ByteRingBuffer.size(bufSize, PthreadRobustMutex.getSize()));
+    ByteRingBuffer ringBuf = new ByteRingBuffer(ringBufPointer, bufSize, mtx);
+    ringBuf.initialize();
+
+    return ringBuf;
+  }
+
+  ReaderInfo initReaderInfo() {
+    short maxReaders = 2;
+
+    Pointer readerInfoPointer = new Memory(ReaderInfo.size(maxReaders, PthreadRobustMutex.getSize()));
+    ReaderInfo readerInfo = new ReaderInfo(readerInfoPointer, maxReaders, new PthreadRobustMutex());
+    readerInfo.initialize();
+
+    return readerInfo;
+  }
+
+  String topicInShard(int shard) {
+    for (int i = 0;; i++) {
+      String topic = "/t" + i;
+      if (shards.shardOf(new EncodedTopic(topic)) == shard) {
+        return topic;
+      }
+    }
+  }
+
+  @BeforeEach
+  void init() {
+    ByteRingBuffer[] ringBufs = new ByteRingBuffer[SHARDS];
+    ReaderInfo[] readerInfos = new ReaderInfo[SHARDS];
+    for (int i = 0; i < SHARDS; i++) {
+      ringBufs[i] = initRingBuf();
+      readerInfos[i] = initReaderInfo();
+    }
+    shards = new TopicShards(ringBufs, readerInfos);
+    topicA = topicInShard(0);
+    topicB = topicInShard(1);
+
+    writer = ShardedAsyncWriter.create(shards, new ShardedAsyncWriter.WriterFactory() {
+
+      @Override
+      public AsyncWriter create(int shard, ByteRingBuffer ringBuf, ReaderInfo readerInfo) {
+        ArrayList<byte[]> queue = new ArrayList<>();
+
+        return AsyncWriter.create(ringBuf, readerInfo, new AsyncWriter.EnqueueMsgFn() {
+
+          @Override
+          public boolean run(byte[] topicMsg) {
+            queue.add(topicMsg);
+            return true;
+          }
+
+        }, new AsyncWriter.DrainMsgToFn() {
+
+          @Override
+          public void run(List<byte[]> batch) {
+            batch.addAll(queue);
+            queue.clear();
+          }
+
+        }, new AsyncWriter.EnqueueWorkFn() {
+
+          @Override
+          public void run(Runnable workFn) {
+            workFn.run();
+          }
+
+        }, Mockito.mock(BackPressureCallback.class), Mockito.mock(Runnable.class));
+      }
+
+    });
+
+    Reader.EnqueueSerialFn runNow = new Reader.EnqueueSerialFn() {
+
+      @Override
+      public void run(Runnable fn) {
+        fn.run();
+      }
+
+    };
+    reader = ShardedReader.create(shards, runNow, runNow, Mockito.mock(Reader.ChannelReaderEventCallback.class));
+  }
+
+  @Test
+  void postToShardOfTopic() throws Exception {
+    Recorder recorder = new Recorder();
+    ChannelReader[] channelReaders = reader.createChannelReader(topicA + "/", recorder, true);
+    assertNotNull(channelReaders[0]);
+    assertNull(channelReaders[1]);
+
+    long freePosB = shards.getRingBuf(1).getFreePos();
+    writer.post(topicA + "/x", "a".getBytes(), false);
+    writer.post(topicB, "b".getBytes(), false);
+
+    assertNotEquals(freePosB, shards.getRingBuf(1).getFreePos());
+    assertTrue(reader.messagesAvailable());
+    reader.run();
+    assertFalse(reader.messagesAvailable());
+
+    assertEquals(List.of("a"), recorder.received);
+  }
+
+  @Test
+  void attachOnlyToShardsOfTopics() throws Exception {
+    ChannelReader[] channelReaders = reader.createChannelReader(topicB, new Recorder(), false);
+
+    for (int i = 0; i < SHARDS; i++) {
+      short[] minMax = shards.getReaderInfo(i).rmpReaderInfo.getActiveRange();
+      assertEquals(i == 1, minMax[0] < minMax[1], "shard " + i);
+    }
+
+    // writing to shard 0 is not read, nor reported as available
+    writer.post(topicA, "a".getBytes(), false);
+    assertFalse(reader.messagesAvailable());
+
+    reader.closeChannelReader(channelReaders);
+    assertFalse(reader.getReader(1).messagesAvailable());
+  }
+
+  @Test
+  void rootReaderReadsAllShards() throws Exception {
+    Recorder recorder = new Recorder();
+    ChannelReader[] channelReaders = reader.createChannelReader("/", recorder, true);
+    for (ChannelReader cr : channelReaders) {
+      assertNotNull(cr);
+    }
+
+    writer.post(topicA, "a".getBytes(), false);
+    writer.post(topicB, "b".getBytes(), false);
+    writer.post(topicA + "/x", "ax".getBytes(), true);
+    reader.run();
+
+    assertEquals(List.of("a", "ax", "b"), recorder.received);
+  }
+
+  @Test
+  void topLevelReaderReadsAllShards() throws Exception {
+    // /a matches /ab, /ac, ... by byte prefix, pick one in another shard
+    int shardA = shards.shardOf(new EncodedTopic("/a"));
+    String writerTopic = null;
+    for (char c = 'b'; writerTopic == null; c++) {
+      if (shards.shardOf(new EncodedTopic("/a" + c)) != shardA) {
+        writerTopic = "/a" + c;
+      }
+    }
+
+    Recorder recorder = new Recorder();
+    ChannelReader[] channelReaders = reader.createChannelReader("/a", recorder, true);
+    for (ChannelReader cr : channelReaders) {
+      assertNotNull(cr);
+    }
+
+    writer.post(writerTopic, "w".getBytes(), false);
+    reader.run();
+
+    assertEquals(List.of("w"), recorder.received);
+  }
+
+  @Test
+  void rejectTopLevelPostToDescendants() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      writer.post("/a", "a".getBytes(), true);
+    });
+
+    // /a/ has its descendants in the shard of /a
+    assertDoesNotThrow(() -> {
+      writer.post("/a/", "a".getBytes(), true);
+    });
+  }
+
+  @Test
+  void rejectRootPostToDescendants() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      writer.post("/", "r".getBytes(), true);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      writer.createPublisher(new EncodedTopic(""), true);
+    });
+  }
+
+  @Test
+  void publishToShardOfTopic() throws Exception {
+    Recorder recorder = new Recorder();
+    reader.createChannelReader(topicB, recorder, false);
+
+    writer.createPublisher(new EncodedTopic(topicB), false).publish("p".getBytes());
+    reader.run();
+
+    assertEquals(List.of("p"), recorder.received);
+  }
+}
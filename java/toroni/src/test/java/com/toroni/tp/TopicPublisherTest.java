@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.tp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.rmp.BackPressureCallback;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.rmp.CopyConfirmHandler;
+import com.vmware.toroni.rmp.ReadCallback;
+import com.vmware.toroni.rmp.ReaderWithBackpressure;
+import com.vmware.toroni.tp.AsyncWriter;
+import com.vmware.toroni.tp.ReaderInfo;
+import com.vmware.toroni.tp.TopicPublisher;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+import com.vmware.toroni.tp.detail.TopicMsgDeserializer;
+import com.vmware.toroni.traits.RobustMutex;
+import com.vmware.toroni.traits.posix.PthreadRobustMutex;
+
+class TopicPublisherTest {
+  private AsyncWriter.EnqueueMsgFn mockEnqueueMsgFn = Mockito.mock(AsyncWriter.EnqueueMsgFn.class);
+  private AsyncWriter.DrainMsgFn mockDrainMsgFn = Mockito.mock(AsyncWriter.DrainMsgFn.class);
+  private AsyncWriter.EnqueueWorkFn mockEnqueueWorkFn = Mockito.mock(AsyncWriter.EnqueueWorkFn.class);
+  private Runnable mockNotifyFn = Mockito.mock(Runnable.class);
+  private BackPressureCallback mockBpFn = Mockito.mock(BackPressureCallback.class);
+
+  private ByteRingBuffer ringBuf;
+  private ReaderInfo readerInfo;
+  private AsyncWriter writer;
+  private ReaderWithBackpressure rmpReader;
+  private ArrayList<byte[]> received = new ArrayList<>();
+
+  @BeforeEach
+  void init() throws Exception {
+    long bufSize = 1024;
+
+    Pointer mtxPointer = new Memory(PthreadRobustMutex.getSize());
+    RobustMutex mtx = new PthreadRobustMutex();
+    mtx.initialize(mtxPointer);
+
+    Pointer ringBufPointer = new Memory(ByteRingBuffer.size(bufSize, PthreadRobustMutex.getSize()));
+    ringBuf = new ByteRingBuffer(ringBufPointer, bufSize, mtx);
+    ringBuf.initialize();
+
+    short maxReaders = 3;
+    Pointer readerInfoPointer = new Memory(ReaderInfo.size(maxReaders, PthreadRobustMutex.getSize()));
+    readerInfo = new ReaderInfo(readerInfoPointer, maxReaders, new PthreadRobustMutex());
+    readerInfo.initialize();
+
+    writer = AsyncWriter.create(ringBuf, readerInfo,
+        mockEnqueueMsgFn, mockDrainMsgFn, mockEnqueueWorkFn, mockBpFn, mockNotifyFn);
+
+    rmpReader = new ReaderWithBackpressure(ringBuf, readerInfo.rmpReaderInfo);
+    rmpReader.activate();
+  }
+
+  private void read() {
+    rmpReader.readEx(new CopyConfirmHandler(ringBuf, new ReadCallback() {
+
+      @Override
+      public void messageRecieved(byte[] data, int length) {
+        received.add(Arrays.copyOf(data, length));
+      }
+
+    }));
+  }
+
+  @Test
+  void publishSameAsCreateMessage() throws Exception {
+    TopicPublisher publisher = writer.createPublisher("/a/b", true);
+    TopicPublisher publisherV1 = writer.createPublisher(new EncodedTopic("/a/b"), false);
+
+    publisher.publish("xy".getBytes());
+    publisherV1.publish("z".getBytes());
+
+    read();
+
+    assertEquals(2, received.size());
+    assertArrayEquals(writer.createMessage("/a/b", "xy".getBytes(), true), received.get(0));
+    assertArrayEquals(writer.createMessage(new EncodedTopic("/a/b"), "z".getBytes(), false), received.get(1));
+  }
+
+  @Test
+  void publishWrapAround() throws Exception {
+    TopicPublisher publisher = writer.createPublisher("/a", false);
+    byte[] msg = new byte[100];
+
+    for (int i = 0; i < 30; i++) {
+      msg[0] = (byte) i;
+      publisher.publish(msg);
+      read();
+    }
+
+    assertEquals(30, received.size());
+    for (int i = 0; i < 30; i++) {
+      TopicMsgDeserializer.ResultMessagePair deserialized = TopicMsgDeserializer.deserializeAndFilter(
+          received.get(i), received.get(i).length, 0, "/a", false);
+      assertEquals(true, deserialized.result);
+      assertEquals(100, deserialized.message.limit());
+      assertEquals((byte) i, deserialized.message.get(0));
+    }
+  }
+
+  @Test
+  void publishCurrentReaderGen() throws Exception {
+    TopicPublisher publisher = writer.createPublisher("/a", false);
+
+    readerInfo.setReaderGen(7);
+    publisher.publish("x".getBytes());
+
+    read();
+
+    assertEquals(false, TopicMsgDeserializer.deserializeAndFilter(
+        received.get(0), received.get(0).length, 8, "/a", false).result);
+    assertEquals(true, TopicMsgDeserializer.deserializeAndFilter(
+        received.get(0), received.get(0).length, 7, "/a", false).result);
+  }
+
+  @Test
+  void publishNotify() throws Exception {
+    TopicPublisher publisher = writer.createPublisher("/a", false);
+
+    publisher.publish("x".getBytes(), false);
+    verify(mockNotifyFn, times(0)).run();
+
+    publisher.publish("x".getBytes());
+    verify(mockNotifyFn, times(1)).run();
+    assertEquals(1, ringBuf.getStatNotificationCount());
+  }
+
+  @Test
+  void publishTooBig() {
+    TopicPublisher publisher = writer.createPublisher("/a", false);
+
+    assertThrows(Exception.class, () -> publisher.publish(new byte[1024]));
+  }
+
+}
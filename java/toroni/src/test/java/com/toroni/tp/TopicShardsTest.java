@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.tp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.tp.ReaderInfo;
+import com.vmware.toroni.tp.TopicShards;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+
+class TopicShardsTest {
+
+  private static int shardOf(String topic, int shards) {
+    return TopicShards.shardOf(new EncodedTopic(topic), shards);
+  }
+
+  @Test
+  void shardByTopLevelSegment() {
+    int shards = 16;
+
+    assertEquals(shardOf("/a", shards), shardOf("/a/b", shards));
+    assertEquals(shardOf("/a", shards), shardOf("/a/b/c", shards));
+    assertEquals(shardOf("channel", shards), shardOf("channel/x", shards));
+
+    boolean spread = false;
+    for (int i = 0; i < 100; i++) {
+      int shard = shardOf("/t" + i + "/x", shards);
+      assertTrue(shard >= 0 && shard < shards);
+      spread |= shard != shardOf("/t0", shards);
+    }
+    assertTrue(spread);
+  }
+
+  @Test
+  void deterministic() {
+    // FNV-1a of "/a" modulo the shard count, the same in every process
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : "/a".getBytes()) {
+      hash = (hash ^ b) * 0x100000001b3L;
+    }
+
+    assertEquals(Long.remainderUnsigned(hash, 7), shardOf("/a/b", 7));
+    assertEquals(0, shardOf("/a/b", 1));
+  }
+
+  @Test
+  void descendantsInAllShards() {
+    assertTrue(TopicShards.descendantsInAllShards(new EncodedTopic("")));
+    assertTrue(TopicShards.descendantsInAllShards(new EncodedTopic("/")));
+    // /ab is a descendant by byte prefix
+    assertTrue(TopicShards.descendantsInAllShards(new EncodedTopic("/a")));
+    assertFalse(TopicShards.descendantsInAllShards(new EncodedTopic("/a/")));
+    assertFalse(TopicShards.descendantsInAllShards(new EncodedTopic("/a/b")));
+    assertNotEquals(-1, shardOf("/", 4));
+  }
+
+  @Test
+  void mismatchedShards() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new TopicShards(new ByteRingBuffer[0], new ReaderInfo[0]);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new TopicShards(new ByteRingBuffer[2], new ReaderInfo[1]);
+    });
+  }
+}
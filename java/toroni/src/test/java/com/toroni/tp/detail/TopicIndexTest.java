@@ -0,0 +1,239 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.tp.detail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.vmware.toroni.tp.ChannelReader;
+import com.vmware.toroni.tp.detail.EncodedTopic;
+import com.vmware.toroni.tp.detail.TopicIndex;
+import com.vmware.toroni.tp.detail.TopicMsgDeserializer;
+import com.vmware.toroni.tp.detail.TopicMsgSerializer;
+
+class TopicIndexTest {
+
+  private static final String[] TOPICS = { "", "/", "/a", "/a/", "/a/b1", "/a/b2", "/a/b1/c", "/ab", "/b" };
+
+  private byte[] message(long readerGen, boolean postToDescendants, String topic, String data) {
+    byte[] binary = new byte[TopicMsgSerializer.sizeOf(topic, data.length())];
+    TopicMsgSerializer.serialize(binary, readerGen, postToDescendants, topic, data.getBytes());
+    return binary;
+  }
+
+  private byte[] messageV1(long readerGen, boolean postToDescendants, String topic, String data) {
+    EncodedTopic channel = new EncodedTopic(topic);
+    byte[] binary = new byte[TopicMsgSerializer.sizeOf(channel, data.length())];
+    TopicMsgSerializer.serialize(binary, readerGen, postToDescendants, channel, data.getBytes());
+    return binary;
+  }
+
+  private ChannelReader channelReader(String name, boolean handleDescendants, long readerGen,
+      ArrayList<String> received) {
+    return new ChannelReader(name, new ChannelReader.Handler() {
+
+      @Override
+      public void run(ByteBuffer data) {
+        received.add(name + (handleDescendants ? "/*" : "") + "=" + StandardCharsets.UTF_8.decode(data));
+      }
+
+    }, handleDescendants, readerGen);
+  }
+
+  @Test
+  void sameAsTopicMatches() {
+    for (String writerTopic : TOPICS) {
+      for (boolean postToDescendants : new boolean[] { false, true }) {
+        ArrayList<String> received = new ArrayList<>();
+        ArrayList<String> expected = new ArrayList<>();
+        ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+
+        for (String readerTopic : TOPICS) {
+          for (boolean handleDescendants : new boolean[] { false, true }) {
+            channelReaders.add(channelReader(readerTopic, handleDescendants, 0, received));
+
+            if (TopicMsgDeserializer.topicMatches(readerTopic, handleDescendants, writerTopic, postToDescendants)) {
+              expected.add(readerTopic + (handleDescendants ? "/*" : "") + "=data");
+            }
+          }
+        }
+
+        TopicIndex index = new TopicIndex(channelReaders);
+        expected.sort(null);
+
+        for (byte[] msg : new byte[][] { message(0, postToDescendants, writerTopic, "data"),
+            messageV1(0, postToDescendants, writerTopic, "data") }) {
+          received.clear();
+          assertEquals(expected.size(), index.dispatch(msg, msg.length));
+
+          received.sort(null);
+          Assertions.assertIterableEquals(expected, received,
+              writerTopic + (postToDescendants ? " posted to descendants" : "") + " version "
+                  + TopicMsgDeserializer.version(msg));
+        }
+      }
+    }
+  }
+
+  @Test
+  void sameAsTopicMatchesSingleReader() {
+    // a single reader is a compressed chain, writer topics end inside it or
+    // diverge from it
+    for (String writerTopic : TOPICS) {
+      for (boolean postToDescendants : new boolean[] { false, true }) {
+        for (String readerTopic : TOPICS) {
+          for (boolean handleDescendants : new boolean[] { false, true }) {
+            ArrayList<String> received = new ArrayList<>();
+            ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+            channelReaders.add(channelReader(readerTopic, handleDescendants, 0, received));
+
+            TopicIndex index = new TopicIndex(channelReaders);
+            int expected = TopicMsgDeserializer.topicMatches(readerTopic, handleDescendants, writerTopic,
+                postToDescendants) ? 1 : 0;
+
+            for (byte[] msg : new byte[][] { message(0, postToDescendants, writerTopic, "data"),
+                messageV1(0, postToDescendants, writerTopic, "data") }) {
+              received.clear();
+              assertEquals(expected, index.dispatch(msg, msg.length),
+                  readerTopic + (handleDescendants ? "/*" : "") + " " + writerTopic
+                      + (postToDescendants ? " posted to descendants" : "") + " version "
+                      + TopicMsgDeserializer.version(msg));
+              assertEquals(expected, received.size());
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void readerGen() {
+    ArrayList<String> received = new ArrayList<>();
+    ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+    channelReaders.add(channelReader("/a", false, 5, received));
+    channelReaders.add(channelReader("/a", true, 6, received));
+    channelReaders.add(channelReader("/a", false, 4, received));
+
+    TopicIndex index = new TopicIndex(channelReaders);
+    assertEquals(3, index.size());
+
+    byte[] msg = message(5, false, "/a", "x");
+    assertEquals(2, index.dispatch(msg, msg.length));
+    // same topic in creation order
+    Assertions.assertArrayEquals(new String[] { "/a=x", "/a=x" }, received.toArray());
+  }
+
+  @Test
+  void messageLength() {
+    ArrayList<String> received = new ArrayList<>();
+    ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+    channelReaders.add(channelReader("/a", false, 0, received));
+
+    byte[] msg = message(0, false, "/a", "xyz");
+    byte[] bigger = new byte[msg.length + 10];
+    System.arraycopy(msg, 0, bigger, 0, msg.length);
+
+    assertEquals(1, new TopicIndex(channelReaders).dispatch(bigger, msg.length));
+    Assertions.assertArrayEquals(new String[] { "/a=xyz" }, received.toArray());
+  }
+
+  @Test
+  void hashFilterSameAsTopicMatches() {
+    // two readers, so that the version 1 hashes of one topic may match the
+    // other reader
+    for (String writerTopic : TOPICS) {
+      for (boolean postToDescendants : new boolean[] { false, true }) {
+        byte[] msg = messageV1(0, postToDescendants, writerTopic, "data");
+
+        for (String topic1 : TOPICS) {
+          for (String topic2 : TOPICS) {
+            for (int hd = 0; hd < 4; hd++) {
+              boolean hd1 = (hd & 1) != 0;
+              boolean hd2 = (hd & 2) != 0;
+              ArrayList<String> received = new ArrayList<>();
+              ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+              channelReaders.add(channelReader(topic1, hd1, 0, received));
+              channelReaders.add(channelReader(topic2, hd2, 0, received));
+
+              int expected = (TopicMsgDeserializer.topicMatches(topic1, hd1, writerTopic, postToDescendants) ? 1 : 0)
+                  + (TopicMsgDeserializer.topicMatches(topic2, hd2, writerTopic, postToDescendants) ? 1 : 0);
+
+              assertEquals(expected, new TopicIndex(channelReaders).dispatch(msg, msg.length),
+                  topic1 + (hd1 ? "/*" : "") + " " + topic2 + (hd2 ? "/*" : "") + " " + writerTopic
+                      + (postToDescendants ? " posted to descendants" : ""));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void hashFilterRejectsByHash() {
+    ArrayList<String> received = new ArrayList<>();
+    ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+    channelReaders.add(channelReader("/a/b", false, 0, received));
+    channelReaders.add(channelReader("/x", true, 0, received));
+    TopicIndex index = new TopicIndex(channelReaders);
+
+    byte[] msg = messageV1(0, false, "/a/b", "data");
+    assertEquals(1, index.dispatch(msg, msg.length));
+
+    // the topic bytes match but the hash does not, so the trie is not walked
+    msg[12] ^= 1;
+    assertEquals(0, index.dispatch(msg, msg.length));
+
+    msg = messageV1(0, false, "/x/y", "data");
+    assertEquals(1, index.dispatch(msg, msg.length));
+    msg[TopicMsgSerializer.HEADER_V1_SIZE] ^= 1; // ancestor /x
+    assertEquals(0, index.dispatch(msg, msg.length));
+  }
+
+  @Test
+  void hashFilterMoreAncestorsThanHeader() {
+    StringBuilder topic = new StringBuilder();
+    for (int i = 0; i < EncodedTopic.MAX_ANCESTORS + 10; i++) {
+      topic.append("/x");
+    }
+    String deep = topic.toString();
+    byte[] msg = messageV1(0, false, deep + "/y", "data");
+
+    for (String readerTopic : new String[] { deep, "/x/x", deep + "/x" }) {
+      ArrayList<String> received = new ArrayList<>();
+      ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+      channelReaders.add(channelReader(readerTopic, true, 0, received));
+
+      assertEquals(TopicMsgDeserializer.topicMatches(readerTopic, true, deep + "/y", false) ? 1 : 0,
+          new TopicIndex(channelReaders).dispatch(msg, msg.length));
+    }
+  }
+
+  @Test
+  void truncated() {
+    ArrayList<String> received = new ArrayList<>();
+    ArrayList<ChannelReader> channelReaders = new ArrayList<>();
+    channelReaders.add(channelReader("", true, 0, received));
+    TopicIndex index = new TopicIndex(channelReaders);
+
+    for (byte[] msg : new byte[][] { message(0, false, "/a/b", ""), messageV1(0, false, "/a/b", "") }) {
+      assertEquals(1, index.dispatch(msg, msg.length));
+
+      // cut in the header, the ancestor hashes or the topic
+      for (int length = 0; length < msg.length; length++) {
+        byte[] truncated = Arrays.copyOf(msg, length);
+        assertEquals(0, index.dispatch(truncated, length), "length " + length);
+      }
+    }
+    assertEquals(2, received.size());
+  }
+}
@@ -5,14 +5,17 @@
 
 package com.toroni.tp.detail;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.Test;
 
+import com.vmware.toroni.tp.detail.EncodedTopic;
 import com.vmware.toroni.tp.detail.TopicMsgDeserializer;
 import com.vmware.toroni.tp.detail.TopicMsgSerializer;
 
@@ -110,6 +113,136 @@ class TopicMessageTest {
                 assertTrue(deserialized.result);
         }
 
+        private static final String[] TOPICS = { "", "/", "/a", "/a/", "/a/b1", "/a/b2", "/a/b1/c", "/ab", "/b",
+                        "a/b" };
+
+        private byte[] messageV1(long readerGen, boolean postToDescendants, String topic, String data) {
+                EncodedTopic channel = new EncodedTopic(topic);
+                byte[] binary = new byte[TopicMsgSerializer.sizeOf(channel, data.length())];
+                TopicMsgSerializer.serialize(binary, readerGen, postToDescendants, channel, data.getBytes());
+                return binary;
+        }
+
+        private static byte[] hex(String s) {
+                byte[] result = new byte[s.length() / 2];
+                for (int i = 0; i < result.length; i++) {
+                        result[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+                }
+                return result;
+        }
+
+        @Test
+        void serializeV1Layout() {
+                // same bytes as the C++ TopicMsg.SerializeV1Layout test
+                byte[] binary = messageV1(5, true, "/a/b", "ab");
+
+                assertArrayEquals(hex(
+                                "0500000000000000" // readerGen
+                                                + "11" // version 1, postToDescendants
+                                                + "01" // ancestorCount
+                                                + "0400" // channelName length
+                                                + "cce08eb39c283e36" // hash of /a/b
+                                                + "2dd99cb40767d607" // hash of /a
+                                                + "2f612f62" // /a/b
+                                                + "6162"), // ab
+                                binary);
+                assertEquals(1, TopicMsgDeserializer.version(binary));
+        }
+
+        @Test
+        void v1SameAsTopicMatches() {
+                for (String writerTopic : TOPICS) {
+                        for (boolean postToDescendants : new boolean[] { false, true }) {
+                                byte[] binary = messageV1(5, postToDescendants, writerTopic, "ab");
+
+                                for (String readerTopic : TOPICS) {
+                                        for (boolean handleDescendants : new boolean[] { false, true }) {
+                                                boolean expected = TopicMsgDeserializer.topicMatches(readerTopic,
+                                                                handleDescendants, writerTopic, postToDescendants);
+                                                String what = readerTopic + (handleDescendants ? "/*" : "") + " "
+                                                                + writerTopic + (postToDescendants ? "/*" : "");
+
+                                                assertEquals(expected, TopicMsgDeserializer.topicMatches(
+                                                                new EncodedTopic(readerTopic), handleDescendants, binary), what);
+
+                                                TopicMsgDeserializer.ResultMessagePair deserialized = TopicMsgDeserializer
+                                                                .deserializeAndFilter(binary, binary.length, 5, readerTopic,
+                                                                                handleDescendants);
+                                                assertEquals(expected, deserialized.result, what);
+                                                if (expected) {
+                                                        assertEquals("ab", StandardCharsets.UTF_8.decode(deserialized.message)
+                                                                        .toString());
+                                                }
+                                        }
+                                }
+                        }
+                }
+        }
+
+        @Test
+        void v1DeserializeEncodedTopic() {
+                byte[] binary = messageV1(5, false, "/a/b", "ab");
+
+                TopicMsgDeserializer.ResultMessagePair deserialized = TopicMsgDeserializer.deserializeAndFilter(
+                                binary, binary.length, 5, new EncodedTopic("/a"), true);
+                assertTrue(deserialized.result);
+                assertEquals("ab", StandardCharsets.UTF_8.decode(deserialized.message).toString());
+
+                assertFalse(TopicMsgDeserializer.deserializeAndFilter(
+                                binary, binary.length, 7, new EncodedTopic("/a"), true).result);
+                assertFalse(TopicMsgDeserializer.deserializeAndFilter(
+                                binary, binary.length, 5, new EncodedTopic("/a/c"), true).result);
+
+                // version 0 messages are matched too
+                byte[] binaryV0 = new byte[TopicMsgSerializer.sizeOf("/a/b", 2)];
+                TopicMsgSerializer.serialize(binaryV0, 5, false, "/a/b", "ab".getBytes());
+                assertTrue(TopicMsgDeserializer.deserializeAndFilter(
+                                binaryV0, binaryV0.length, 5, new EncodedTopic("/a"), true).result);
+        }
+
+        @Test
+        void v1MoreAncestorsThanHeader() {
+                StringBuilder topic = new StringBuilder();
+                for (int i = 0; i < EncodedTopic.MAX_ANCESTORS + 10; i++) {
+                        topic.append("/x");
+                }
+                String deep = topic.toString();
+                EncodedTopic channel = new EncodedTopic(deep + "/y");
+                assertEquals(EncodedTopic.MAX_ANCESTORS, channel.ancestorCount());
+
+                byte[] binary = messageV1(0, false, deep + "/y", "ab");
+                assertTrue(TopicMsgDeserializer.topicMatches(new EncodedTopic(deep), true, binary));
+                assertTrue(TopicMsgDeserializer.topicMatches(new EncodedTopic("/x/x"), true, binary));
+                assertFalse(TopicMsgDeserializer.topicMatches(new EncodedTopic(deep + "/x"), true, binary));
+        }
+
+        @Test
+        void v1Truncated() {
+                byte[] binary = messageV1(5, false, "/a/b", "");
+                assertTrue(TopicMsgDeserializer.isValid(binary, binary.length));
+
+                // cut in the header, the ancestor hashes or the topic
+                for (int length = 0; length < binary.length; length++) {
+                        byte[] truncated = Arrays.copyOf(binary, length);
+
+                        assertFalse(TopicMsgDeserializer.isValid(truncated, length), "length " + length);
+                        assertFalse(TopicMsgDeserializer.deserializeAndFilter(
+                                        truncated, length, 5, new EncodedTopic("/a"), true).result);
+                        assertFalse(TopicMsgDeserializer.deserializeAndFilter(
+                                        truncated, length, 5, "/a", true).result);
+                }
+
+                byte[] unknownVersion = binary.clone();
+                unknownVersion[8] = 0x20;
+                assertFalse(TopicMsgDeserializer.isValid(unknownVersion, unknownVersion.length));
+
+                // version 0 without the zero after the topic
+                byte[] binaryV0 = new byte[TopicMsgSerializer.sizeOf("/a/b", 0)];
+                TopicMsgSerializer.serialize(binaryV0, 5, false, "/a/b", new byte[0]);
+                assertTrue(TopicMsgDeserializer.isValid(binaryV0, binaryV0.length));
+                assertFalse(TopicMsgDeserializer.isValid(binaryV0, binaryV0.length - 1));
+        }
+
         @Test
         void assertOrInvalid() {
                 /**
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.vmware.toroni.traits.BackoffIdleStrategy;
+import com.vmware.toroni.traits.IdleStrategy;
+import com.vmware.toroni.traits.Notification;
+
+class BackoffIdleStrategyTest {
+
+  private Notification mockNotification = Mockito.mock(Notification.class);
+  private IdleStrategy.AvailableFn mockAvailableFn = Mockito.mock(IdleStrategy.AvailableFn.class);
+
+  @Test
+  void availableRightAway() {
+    BackoffIdleStrategy idle = new BackoffIdleStrategy(mockNotification, mockAvailableFn, 10, 10, 1000, 1000);
+    when(mockAvailableFn.run()).thenReturn(true);
+
+    idle.idle();
+
+    verify(mockNotification, times(0)).waitForNotification();
+    assertEquals(0, idle.getSpins());
+    assertEquals(1, idle.getSpinWakeups());
+  }
+
+  @Test
+  void wakeupPerPhase() {
+    BackoffIdleStrategy idle = new BackoffIdleStrategy(mockNotification, mockAvailableFn, 2, 2, 1000, 2000);
+
+    // available after 1 spin
+    when(mockAvailableFn.run()).thenReturn(false, true);
+    idle.idle();
+    // after 2 spins and 1 yield
+    when(mockAvailableFn.run()).thenReturn(false, false, false, true);
+    idle.idle();
+    // after 2 spins, 2 yields and 1 park
+    when(mockAvailableFn.run()).thenReturn(false, false, false, false, false, true);
+    idle.idle();
+    // after 2 spins, 2 yields, 2 parks and the notification
+    when(mockAvailableFn.run()).thenReturn(false);
+    idle.idle();
+
+    verify(mockNotification, times(1)).waitForNotification();
+    assertEquals(1, idle.getSpinWakeups());
+    assertEquals(1, idle.getYieldWakeups());
+    assertEquals(1, idle.getParkWakeups());
+    assertEquals(1, idle.getNotificationWakeups());
+    assertEquals(1 + 2 + 2 + 2, idle.getSpins());
+    assertEquals(1 + 2 + 2, idle.getYields());
+    assertEquals(1 + 2, idle.getParks());
+  }
+
+  @Test
+  void blockRightAway() {
+    BackoffIdleStrategy idle = new BackoffIdleStrategy(mockNotification, mockAvailableFn, 0, 0, 0, 0);
+    when(mockAvailableFn.run()).thenReturn(false);
+
+    idle.idle();
+    idle.idle();
+
+    verify(mockNotification, times(2)).waitForNotification();
+    verify(mockAvailableFn, times(2)).run();
+    assertEquals(2, idle.getNotificationWakeups());
+    assertEquals(0, idle.getSpins() + idle.getYields() + idle.getParks());
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.vmware.toroni.traits.DatagramChannelNotification;
+import com.vmware.toroni.traits.NotificationSelector;
+
+class DatagramChannelNotificationTest {
+
+  private DatagramChannelNotification un;
+  private DatagramChannelNotification other;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void init() {
+    try {
+      un = new DatagramChannelNotification("226.1.1.3", (short) 3336, "127.0.0.1");
+      other = new DatagramChannelNotification("226.1.1.4", (short) 3337, "127.0.0.1");
+    } catch (Exception e) {
+      throw new Error(e);
+    }
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterEach
+  void destroy() {
+    executor.shutdownNow();
+    un.close();
+    other.close();
+  }
+
+  private Future<Void> submitWait() {
+    return executor.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() throws Exception {
+        un.waitForNotification();
+        return null;
+      }
+
+    });
+  }
+
+  private void awaitDelivery() throws InterruptedException {
+    // multicast loopback is asynchronous
+    Thread.sleep(50);
+  }
+
+  @Test
+  void coalesceNotifications() throws Exception {
+    un.sendNotification();
+    un.sendNotification();
+    un.sendNotification();
+    awaitDelivery();
+
+    Assertions.assertDoesNotThrow(() -> {
+      submitWait().get(100, TimeUnit.MILLISECONDS);
+    });
+
+    Future<Void> future = submitWait();
+    Assertions.assertThrows(Exception.class, () -> {
+      future.get(100, TimeUnit.MILLISECONDS);
+    });
+  }
+
+  @Test
+  void testWaitBlock() {
+    for (int i = 0; i < 5; i++) {
+      Future<Void> future = submitWait();
+
+      Assertions.assertThrows(Exception.class, () -> {
+        future.get(100, TimeUnit.MILLISECONDS);
+      });
+
+      un.sendNotification();
+
+      Assertions.assertDoesNotThrow(() -> {
+        future.get(100, TimeUnit.MILLISECONDS);
+      });
+    }
+  }
+
+  @Test
+  void drain() throws Exception {
+    Assertions.assertEquals(0, un.drain());
+
+    un.sendNotification();
+    un.sendNotification();
+    awaitDelivery();
+
+    Assertions.assertEquals(2, un.drain());
+    Assertions.assertEquals(0, un.drain());
+  }
+
+  @Test
+  void selectMany() throws Exception {
+    Runnable unHandler = Mockito.mock(Runnable.class);
+    Runnable otherHandler = Mockito.mock(Runnable.class);
+    NotificationSelector selector = new NotificationSelector();
+    selector.register(un, unHandler);
+    selector.register(other, otherHandler);
+
+    Assertions.assertEquals(0, selector.selectNow());
+
+    un.sendNotification();
+    un.sendNotification();
+    awaitDelivery();
+    Assertions.assertEquals(1, selector.select());
+    verify(unHandler, times(1)).run();
+    verify(otherHandler, times(0)).run();
+
+    un.sendNotification();
+    other.sendNotification();
+    awaitDelivery();
+    Assertions.assertEquals(2, selector.select());
+    verify(unHandler, times(2)).run();
+    verify(otherHandler, times(1)).run();
+
+    selector.unregister(other);
+    other.sendNotification();
+    awaitDelivery();
+    Assertions.assertEquals(0, selector.selectNow());
+    verify(otherHandler, times(1)).run();
+
+    selector.close();
+  }
+
+  @Test
+  void selectWakeup() throws Exception {
+    NotificationSelector selector = new NotificationSelector();
+    selector.register(un, Mockito.mock(Runnable.class));
+
+    Future<Integer> future = executor.submit(new Callable<Integer>() {
+
+      @Override
+      public Integer call() throws Exception {
+        return selector.select();
+      }
+
+    });
+
+    Assertions.assertThrows(Exception.class, () -> {
+      future.get(100, TimeUnit.MILLISECONDS);
+    });
+
+    selector.wakeup();
+    Assertions.assertEquals(0, future.get(100, TimeUnit.MILLISECONDS));
+    selector.close();
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vmware.toroni.traits.concurrent.BoundedMpscMessageQueue;
+import com.vmware.toroni.traits.concurrent.BoundedMpscMessageQueue.EnqueueResult;
+
+class BoundedMpscMessageQueueTest {
+  private BoundedMpscMessageQueue<Integer> mq;
+
+  @BeforeEach
+  void init() {
+    mq = new BoundedMpscMessageQueue<Integer>(2);
+  }
+
+  @Test
+  void capacityPowerOfTwo() {
+    assertEquals(2, mq.capacity());
+    assertThrows(IllegalArgumentException.class, () -> new BoundedMpscMessageQueue<Integer>(3));
+    assertThrows(IllegalArgumentException.class, () -> new BoundedMpscMessageQueue<Integer>(0));
+  }
+
+  @Test
+  void enqueueDrainControlAndData() {
+    assertEquals(EnqueueResult.START_DRAINER, mq.tryEnqueue(1));
+    assertEquals(EnqueueResult.ENQUEUED, mq.tryEnqueue(2));
+    Assertions.assertArrayEquals(new Integer[] { 1, 2 }, mq.drain().toArray());
+    assertEquals(EnqueueResult.ENQUEUED, mq.tryEnqueue(3));
+    Assertions.assertArrayEquals(new Integer[] { 3 }, mq.drain().toArray());
+    Assertions.assertArrayEquals(new Integer[] {}, mq.drain().toArray());
+    assertEquals(EnqueueResult.START_DRAINER, mq.tryEnqueue(4));
+  }
+
+  @Test
+  void enqueueFull() {
+    assertEquals(EnqueueResult.START_DRAINER, mq.tryEnqueue(1));
+    assertEquals(EnqueueResult.ENQUEUED, mq.tryEnqueue(2));
+    assertEquals(EnqueueResult.FULL, mq.tryEnqueue(3));
+
+    Assertions.assertArrayEquals(new Integer[] { 1, 2 }, mq.drain().toArray());
+
+    // wraps around the ring array
+    assertEquals(EnqueueResult.ENQUEUED, mq.tryEnqueue(4));
+    assertEquals(EnqueueResult.ENQUEUED, mq.tryEnqueue(5));
+    assertEquals(EnqueueResult.FULL, mq.tryEnqueue(6));
+    Assertions.assertArrayEquals(new Integer[] { 4, 5 }, mq.drain().toArray());
+    Assertions.assertArrayEquals(new Integer[] {}, mq.drain().toArray());
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vmware.toroni.traits.concurrent.ExecutorSerialWorkItemQueue;
+import com.vmware.toroni.traits.concurrent.SerialWorkItemQueue;
+
+class ExecutorSerialWorkItemQueueTest {
+  private ExecutorService pool;
+
+  @BeforeEach
+  void init() {
+    pool = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void destroy() {
+    pool.shutdownNow();
+  }
+
+  Runnable add(ArrayList<Integer> arrList, int i) {
+    return new Runnable() {
+
+      @Override
+      public void run() {
+        arrList.add(i);
+      }
+
+    };
+  }
+
+  @Test
+  void orderManyQueuesSharedPool() {
+    ArrayList<ArrayList<Integer>> arrLists = new ArrayList<>();
+    ArrayList<ExecutorSerialWorkItemQueue> wqs = new ArrayList<>();
+
+    for (int q = 0; q < 8; q++) {
+      arrLists.add(new ArrayList<>());
+      wqs.add(ExecutorSerialWorkItemQueue.create(pool, 16, ExecutorSerialWorkItemQueue.OverflowPolicy.BLOCK, 4,
+          ExecutorSerialWorkItemQueue.UNCAUGHT_EXCEPTION_HANDLER));
+    }
+
+    for (int i = 0; i < 100; i++) {
+      for (int q = 0; q < wqs.size(); q++) {
+        assertTrue(wqs.get(q).enqueue(add(arrLists.get(q), i)));
+      }
+    }
+
+    for (int q = 0; q < wqs.size(); q++) {
+      wqs.get(q).stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+
+      assertEquals(100, arrLists.get(q).size());
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i, arrLists.get(q).get(i));
+      }
+      assertEquals(100, wqs.get(q).getStatCompletedCount());
+      assertEquals(0, wqs.get(q).getDepth());
+    }
+  }
+
+  @Test
+  void overflowPolicy() throws InterruptedException {
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Runnable block = new Runnable() {
+
+      @Override
+      public void run() {
+        blocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new Error(e);
+        }
+      }
+
+    };
+
+    ExecutorSerialWorkItemQueue dropWq = ExecutorSerialWorkItemQueue.create(pool, 2,
+        ExecutorSerialWorkItemQueue.OverflowPolicy.DROP, 2, ExecutorSerialWorkItemQueue.UNCAUGHT_EXCEPTION_HANDLER);
+    ArrayList<Integer> arrList = new ArrayList<>();
+
+    assertTrue(dropWq.enqueue(block));
+    blocked.await();
+    assertTrue(dropWq.enqueue(add(arrList, 1)));
+    assertTrue(dropWq.enqueue(add(arrList, 2)));
+    assertEquals(false, dropWq.enqueue(add(arrList, 3)));
+    assertEquals(2, dropWq.getDepth());
+    assertEquals(1, dropWq.getStatRejectedCount());
+
+    ExecutorSerialWorkItemQueue rejectWq = ExecutorSerialWorkItemQueue.create(pool, 1,
+        ExecutorSerialWorkItemQueue.OverflowPolicy.REJECT, 1, ExecutorSerialWorkItemQueue.UNCAUGHT_EXCEPTION_HANDLER);
+    CountDownLatch rejectBlocked = new CountDownLatch(1);
+    assertTrue(rejectWq.enqueue(new Runnable() {
+
+      @Override
+      public void run() {
+        rejectBlocked.countDown();
+        block.run();
+      }
+
+    }));
+    rejectBlocked.await();
+    ArrayList<Integer> rejectArrList = new ArrayList<>();
+    assertTrue(rejectWq.enqueue(add(rejectArrList, 4)));
+    assertThrows(RejectedExecutionException.class, () -> rejectWq.enqueue(add(rejectArrList, 5)));
+
+    release.countDown();
+    dropWq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+    rejectWq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+
+    Assertions.assertArrayEquals(new Integer[] { 1, 2 }, arrList.toArray());
+    Assertions.assertArrayEquals(new Integer[] { 4 }, rejectArrList.toArray());
+    assertEquals(false, dropWq.enqueue(add(arrList, 6)));
+  }
+
+  @Test
+  void exceptionsReportedAndNextItemsRun() {
+    ArrayList<Integer> arrList = new ArrayList<>();
+    ArrayList<RuntimeException> reported = new ArrayList<>();
+
+    ExecutorSerialWorkItemQueue wq = ExecutorSerialWorkItemQueue.create(pool, 4,
+        ExecutorSerialWorkItemQueue.OverflowPolicy.BLOCK, 4, new ExecutorSerialWorkItemQueue.ExceptionHandler() {
+
+          @Override
+          public void run(Runnable wi, RuntimeException e) {
+            reported.add(e);
+          }
+
+        });
+
+    wq.enqueue(add(arrList, 1));
+    wq.enqueue(new Runnable() {
+
+      @Override
+      public void run() {
+        throw new IllegalStateException("failed");
+      }
+
+    });
+    wq.enqueue(add(arrList, 2));
+    wq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+
+    Assertions.assertArrayEquals(new Integer[] { 1, 2 }, arrList.toArray());
+    assertEquals(1, reported.size());
+    assertEquals("failed", reported.get(0).getMessage());
+    assertEquals(3, wq.getStatCompletedCount());
+    assertEquals(1, wq.getStatFailedCount());
+  }
+
+  @Test
+  void waitAndRunTime() {
+    ExecutorSerialWorkItemQueue wq = ExecutorSerialWorkItemQueue.create(pool, 4);
+
+    wq.enqueue(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          throw new Error(e);
+        }
+      }
+
+    });
+    wq.enqueue(add(new ArrayList<>(), 0));
+    wq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+
+    assertTrue(wq.getStatMaxRunNs() >= 5_000_000);
+    assertTrue(wq.getStatRunNs() >= wq.getStatMaxRunNs());
+    // the second item waited for the first one to run
+    assertTrue(wq.getStatMaxWaitNs() >= 5_000_000);
+    assertTrue(wq.getStatWaitNs() >= wq.getStatMaxWaitNs());
+  }
+
+  @Test
+  void executorRejectsDrainTask() {
+    pool.shutdown();
+    ExecutorSerialWorkItemQueue wq = ExecutorSerialWorkItemQueue.create(pool, 4);
+
+    assertThrows(RejectedExecutionException.class, () -> wq.enqueue(add(new ArrayList<>(), 0)));
+
+    // no drain task is counted as running
+    Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+        () -> wq.stop(SerialWorkItemQueue.StopPolicy.ALWAYS));
+  }
+
+  @Test
+  void enqueueAfterRejection() {
+    AtomicBoolean reject = new AtomicBoolean(true);
+    Executor executor = new Executor() {
+
+      @Override
+      public void execute(Runnable command) {
+        if (reject.get()) {
+          throw new RejectedExecutionException("rejected");
+        }
+        pool.execute(command);
+      }
+
+    };
+    ExecutorSerialWorkItemQueue wq = ExecutorSerialWorkItemQueue.create(executor, 4);
+    ArrayList<Integer> arrList = new ArrayList<>();
+
+    assertThrows(RejectedExecutionException.class, () -> wq.enqueue(add(arrList, 1)));
+    assertThrows(RejectedExecutionException.class, () -> wq.enqueue(add(arrList, 2)));
+
+    // the executor accepts work again, the next enqueue starts the drain task
+    reject.set(false);
+    assertTrue(wq.enqueue(add(arrList, 3)));
+    assertTrue(wq.enqueue(add(arrList, 4)));
+    wq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+
+    Assertions.assertArrayEquals(new Integer[] { 1, 2, 3, 4 }, arrList.toArray());
+    assertEquals(0, wq.getDepth());
+  }
+
+  @Test
+  void stopRunsItemsLeftByRejection() {
+    pool.shutdown();
+    ExecutorSerialWorkItemQueue wq = ExecutorSerialWorkItemQueue.create(pool, 4);
+    ArrayList<Integer> arrList = new ArrayList<>();
+
+    assertThrows(RejectedExecutionException.class, () -> wq.enqueue(add(arrList, 1)));
+    wq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+
+    Assertions.assertArrayEquals(new Integer[] { 1 }, arrList.toArray());
+  }
+
+  @Test
+  void exceptionHandlerThrows() {
+    ArrayList<Integer> arrList = new ArrayList<>();
+    ExecutorSerialWorkItemQueue wq = ExecutorSerialWorkItemQueue.create(pool, 4,
+        ExecutorSerialWorkItemQueue.OverflowPolicy.BLOCK, 4, new ExecutorSerialWorkItemQueue.ExceptionHandler() {
+
+          @Override
+          public void run(Runnable wi, RuntimeException e) {
+            throw e;
+          }
+
+        });
+
+    wq.enqueue(add(arrList, 1));
+    wq.enqueue(new Runnable() {
+
+      @Override
+      public void run() {
+        throw new IllegalStateException("failed");
+      }
+
+    });
+    wq.enqueue(add(arrList, 2));
+
+    // a new drain task runs the items left and the ones enqueued later
+    Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      while (wq.getStatCompletedCount() < 3) {
+        Thread.sleep(1);
+      }
+      wq.enqueue(add(arrList, 3));
+      wq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+    });
+
+    Assertions.assertArrayEquals(new Integer[] { 1, 2, 3 }, arrList.toArray());
+    assertEquals(1, wq.getStatFailedCount());
+  }
+
+  @Test
+  void noItemRunsAfterStop() throws InterruptedException {
+    for (int i = 0; i < 200; i++) {
+      ExecutorSerialWorkItemQueue wq = ExecutorSerialWorkItemQueue.create(pool, 4,
+          ExecutorSerialWorkItemQueue.OverflowPolicy.DROP, 4, ExecutorSerialWorkItemQueue.UNCAUGHT_EXCEPTION_HANDLER);
+      AtomicBoolean stopped = new AtomicBoolean();
+      AtomicBoolean ranAfterStop = new AtomicBoolean();
+      Runnable wi = new Runnable() {
+
+        @Override
+        public void run() {
+          if (stopped.get()) {
+            ranAfterStop.set(true);
+          }
+        }
+
+      };
+
+      Thread enqueuer = new Thread(new Runnable() {
+
+        @Override
+        public void run() {
+          while (!stopped.get()) {
+            wq.enqueue(wi);
+          }
+        }
+
+      });
+      enqueuer.start();
+      wq.stop(SerialWorkItemQueue.StopPolicy.IF_EMPTY);
+      stopped.set(true);
+      enqueuer.join();
+      Thread.sleep(1); // let a drain task started after stop run
+
+      assertEquals(false, ranAfterStop.get());
+    }
+  }
+}
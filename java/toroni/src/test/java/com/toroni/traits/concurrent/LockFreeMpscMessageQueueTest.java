@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vmware.toroni.traits.concurrent.LockFreeMpscMessageQueue;
+
+class LockFreeMpscMessageQueueTest {
+  private LockFreeMpscMessageQueue<Integer> mq;
+
+  @BeforeEach
+  void init() {
+    mq = new LockFreeMpscMessageQueue<Integer>();
+  }
+
+  @Test
+  void enqueueSingleDrainer() {
+    assertEquals(true, mq.enqueue(1));
+    assertEquals(false, mq.enqueue(2));
+    assertEquals(false, mq.enqueue(3));
+  }
+
+  @Test
+  void drainEmpty() {
+    Assertions.assertArrayEquals(new Integer[] {}, mq.drain().toArray());
+    Assertions.assertArrayEquals(new Integer[] {}, mq.drain().toArray());
+  }
+
+  @Test
+  void enqueueDrainControlAndData() {
+    assertEquals(true, mq.enqueue(1));
+    assertEquals(false, mq.enqueue(2));
+    Assertions.assertArrayEquals(new Integer[] { 1, 2 }, mq.drain().toArray());
+    assertEquals(false, mq.enqueue(3));
+    Assertions.assertArrayEquals(new Integer[] { 3 }, mq.drain().toArray());
+    Assertions.assertArrayEquals(new Integer[] {}, mq.drain().toArray());
+    assertEquals(true, mq.enqueue(4));
+  }
+
+  @Test
+  void drainToConsumer() {
+    ArrayList<Integer> drained = new ArrayList<>();
+
+    assertEquals(true, mq.enqueue(1));
+    assertEquals(false, mq.enqueue(2));
+    assertEquals(2, mq.drain(drained::add));
+    assertEquals(false, mq.enqueue(3));
+    assertEquals(1, mq.drainTo(drained));
+    assertEquals(0, mq.drain(drained::add));
+    assertEquals(true, mq.enqueue(4));
+
+    Assertions.assertArrayEquals(new Integer[] { 1, 2, 3 }, drained.toArray());
+  }
+
+  @Test
+  void concurrentEnqueuersSingleDrainer() throws InterruptedException {
+    final int enqueuers = 4;
+    final int msgsPerEnqueuer = 100000;
+
+    AtomicInteger runningDrainers = new AtomicInteger();
+    AtomicInteger maxRunningDrainers = new AtomicInteger();
+    ArrayList<Thread> drainers = new ArrayList<>();
+    int[] nextMsg = new int[enqueuers];
+    AtomicInteger drainedCount = new AtomicInteger();
+
+    Runnable drainer = new Runnable() {
+      @Override
+      public void run() {
+        maxRunningDrainers.accumulateAndGet(runningDrainers.incrementAndGet(), Math::max);
+
+        ArrayList<Integer> batch = new ArrayList<>();
+        while (true) {
+          batch.clear();
+          if (mq.drainTo(batch) == 0) {
+            break;
+          }
+
+          for (int msg : batch) {
+            // per enqueuer FIFO
+            int enqueuer = msg / msgsPerEnqueuer;
+            assertEquals(nextMsg[enqueuer]++, msg % msgsPerEnqueuer);
+          }
+          drainedCount.addAndGet(batch.size());
+        }
+
+        runningDrainers.decrementAndGet();
+      }
+    };
+
+    ArrayList<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < enqueuers; i++) {
+      final int enqueuer = i;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < msgsPerEnqueuer; j++) {
+            if (mq.enqueue(enqueuer * msgsPerEnqueuer + j)) {
+              Thread t = new Thread(drainer);
+              synchronized (drainers) {
+                drainers.add(t);
+              }
+              t.start();
+            }
+          }
+        }
+      }));
+    }
+
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    while (true) {
+      Thread[] toJoin;
+      synchronized (drainers) {
+        toJoin = drainers.toArray(new Thread[0]);
+      }
+      for (Thread t : toJoin) {
+        t.join();
+      }
+      synchronized (drainers) {
+        if (toJoin.length == drainers.size()) {
+          break;
+        }
+      }
+    }
+
+    assertEquals(enqueuers * msgsPerEnqueuer, drainedCount.get());
+    assertEquals(1, maxRunningDrainers.get());
+    assertEquals(true, mq.enqueue(-1));
+  }
+
+  @Test
+  void drainerHandoffAcrossThreads() {
+    final int msgs = 200000;
+
+    // every new drainer runs on the other thread than the previous one
+    ExecutorService[] drainerThreads = { Executors.newSingleThreadExecutor(),
+        Executors.newSingleThreadExecutor() };
+    int[] nextDrainerThread = { 0 };
+    AtomicInteger drainedCount = new AtomicInteger();
+
+    Runnable drainer = new Runnable() {
+      @Override
+      public void run() {
+        // drain one at a time so that every release has drained messages
+        while (mq.drain(msg -> drainedCount.incrementAndGet(), 1) != 0) {
+        }
+      }
+    };
+
+    Assertions.assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+      for (int i = 0; i < msgs; i++) {
+        if (mq.enqueue(i)) {
+          drainerThreads[nextDrainerThread[0]++ % 2].execute(drainer);
+        }
+      }
+
+      for (ExecutorService e : drainerThreads) {
+        e.shutdown();
+        e.awaitTermination(60, TimeUnit.SECONDS);
+      }
+    });
+
+    assertEquals(msgs, drainedCount.get());
+    assertEquals(true, mq.enqueue(-1));
+  }
+}
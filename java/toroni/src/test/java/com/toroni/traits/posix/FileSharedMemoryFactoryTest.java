@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits.posix;
+
+import static com.sun.jna.platform.linux.Fcntl.S_IRUSR;
+import static com.sun.jna.platform.linux.Fcntl.S_IWUSR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.vmware.toroni.traits.SharedMemory;
+import com.vmware.toroni.traits.posix.FileSharedMemoryFactory;
+import com.vmware.toroni.traits.posix.PosixSharedMemoryFactory;
+import com.vmware.toroni.traits.posix.SharedMemoryBackends;
+
+class FileSharedMemoryFactoryTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  void openNonExistingThrows() {
+    FileSharedMemoryFactory factory = new FileSharedMemoryFactory(dir.toString(), 0);
+
+    Assertions.assertThrows(Exception.class, () -> {
+      factory.open("OpenNonExistingThrows", 10);
+    });
+  }
+
+  @Test
+  void transferData() throws Exception {
+    FileSharedMemoryFactory factory = new FileSharedMemoryFactory(dir.toString(), PosixSharedMemoryFactory.PRE_TOUCH);
+
+    SharedMemory shm1 = factory.createOrOpen("TransferData", 16, S_IRUSR | S_IWUSR);
+    SharedMemory shm2 = factory.createOrOpen("TransferData", 16, S_IRUSR | S_IWUSR);
+    assertTrue(shm1.isCreator());
+    assertFalse(shm2.isCreator());
+    assertEquals(16, Files.size(Path.of(factory.path("TransferData"))));
+
+    shm1.ptr().setInt(0, 20);
+    assertEquals(20, shm2.ptr().getInt(0));
+
+    shm1.unlink();
+    assertFalse(Files.exists(Path.of(factory.path("TransferData"))));
+    Assertions.assertThrows(Exception.class, () -> {
+      shm2.unlink();
+    });
+
+    shm1.unmap();
+    shm2.unmap();
+  }
+
+  @Test
+  void lengthRoundedToPageSize() throws Exception {
+    FileSharedMemoryFactory factory = new FileSharedMemoryFactory(dir.toString(), 0, 4096);
+
+    SharedMemory shm = factory.createOrOpen("LengthRoundedToPageSize", 10, S_IRUSR | S_IWUSR);
+    assertEquals(4096, Files.size(Path.of(factory.path("LengthRoundedToPageSize"))));
+
+    shm.unlink();
+    shm.unmap();
+  }
+
+  @Test
+  void hugetlbfs() throws Exception {
+    Path mount = Path.of("/dev/hugepages");
+    Assumptions.assumeTrue(Files.isWritable(mount), "no hugetlbfs mount");
+    Assumptions.assumeTrue(Long.parseLong(Files.readString(Path.of("/proc/sys/vm/nr_hugepages")).trim()) > 0,
+        "no huge pages");
+
+    FileSharedMemoryFactory factory = (FileSharedMemoryFactory) SharedMemoryBackends
+        .create(SharedMemoryBackends.HUGETLBFS + mount, PosixSharedMemoryFactory.POPULATE);
+    SharedMemory shm = factory.createOrOpen("toroni-test-hugetlbfs", 100, S_IRUSR | S_IWUSR);
+
+    shm.ptr().setLong(SharedMemoryBackends.hugePageSize() - Long.BYTES, 42);
+    assertEquals(42, shm.ptr().getLong(SharedMemoryBackends.hugePageSize() - Long.BYTES));
+
+    shm.unlink();
+    shm.unmap();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits.posix;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.vmware.toroni.rmp.ByteRingBuffer;
+import com.vmware.toroni.traits.Notification;
+import com.vmware.toroni.traits.posix.DirectPthreadRobustMutex;
+import com.vmware.toroni.traits.posix.FutexNotification;
+
+class FutexNotificationTest {
+
+  private ByteRingBuffer ringBuf;
+  private Notification writer;
+  private Notification reader;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void init() {
+    long bufSize = 64;
+    Pointer ringBufPointer = new Memory(ByteRingBuffer.size(bufSize, DirectPthreadRobustMutex.getSize()));
+    ringBuf = new ByteRingBuffer(ringBufPointer, bufSize, new DirectPthreadRobustMutex());
+    ringBuf.initialize();
+
+    writer = new FutexNotification(ringBuf.getNotificationSeqPointer());
+    reader = new FutexNotification(ringBuf.getNotificationSeqPointer());
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterEach
+  void destroy() {
+    writer.sendNotification(); // unblock a waiting reader
+    executor.shutdown();
+  }
+
+  private Future<Void> submitWait(Notification notification) {
+    return executor.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() throws Exception {
+        notification.waitForNotification();
+        return null;
+      }
+
+    });
+  }
+
+  @Test
+  void sendNotificationIncrementsSeq() {
+    ringBuf.getNotificationSeqPointer().setInt(0, -1);
+    writer.sendNotification();
+
+    Assertions.assertEquals(0, ringBuf.getNotificationSeqPointer().getInt(0));
+    Assertions.assertEquals(true, ringBuf.getInitialized());
+  }
+
+  @Test
+  void coalesceNotifications() {
+    writer.sendNotification();
+    writer.sendNotification();
+
+    Assertions.assertDoesNotThrow(() -> {
+      submitWait(reader).get(100, TimeUnit.MILLISECONDS);
+    });
+
+    Future<Void> future = submitWait(reader);
+    Assertions.assertThrows(Exception.class, () -> {
+      future.get(100, TimeUnit.MILLISECONDS);
+    });
+  }
+
+  @Test
+  void testWaitBlock() {
+    for (int i = 0; i < 5; i++) {
+      Future<Void> future = submitWait(reader);
+
+      Assertions.assertThrows(Exception.class, () -> {
+        future.get(100, TimeUnit.MILLISECONDS);
+      });
+
+      writer.sendNotification();
+
+      Assertions.assertDoesNotThrow(() -> {
+        future.get(100, TimeUnit.MILLISECONDS);
+      });
+    }
+  }
+
+  @Test
+  void notifyAllReaders() throws Exception {
+    Notification otherReader = new FutexNotification(ringBuf.getNotificationSeqPointer());
+    ExecutorService otherExecutor = Executors.newSingleThreadExecutor();
+
+    Future<Void> future = submitWait(reader);
+    Future<Void> otherFuture = otherExecutor.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() throws Exception {
+        otherReader.waitForNotification();
+        return null;
+      }
+
+    });
+
+    Assertions.assertThrows(Exception.class, () -> {
+      future.get(100, TimeUnit.MILLISECONDS);
+    });
+
+    writer.sendNotification();
+
+    Assertions.assertDoesNotThrow(() -> {
+      future.get(100, TimeUnit.MILLISECONDS);
+      otherFuture.get(100, TimeUnit.MILLISECONDS);
+    });
+    otherExecutor.shutdown();
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits.posix;
+
+import static com.sun.jna.platform.linux.Fcntl.S_IRUSR;
+import static com.sun.jna.platform.linux.Fcntl.S_IWUSR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.vmware.toroni.traits.SharedMemory;
+import com.vmware.toroni.traits.posix.MemfdSharedMemoryFactory;
+import com.vmware.toroni.traits.posix.MemfdSharedMemoryFactory.MemfdSharedMemory;
+import com.vmware.toroni.traits.posix.PosixSharedMemoryFactory;
+
+class MemfdSharedMemoryFactoryTest {
+  @Test
+  void createAlwaysCreates() throws Exception {
+    MemfdSharedMemoryFactory factory = new MemfdSharedMemoryFactory(0);
+
+    MemfdSharedMemory shm1 = (MemfdSharedMemory) factory.createOrOpen("CreateAlwaysCreates", 16, S_IRUSR | S_IWUSR);
+    MemfdSharedMemory shm2 = (MemfdSharedMemory) factory.createOrOpen("CreateAlwaysCreates", 16, S_IRUSR | S_IWUSR);
+    assertTrue(shm1.isCreator());
+    assertTrue(shm2.isCreator());
+    Assertions.assertNotEquals(shm1.getPath(), shm2.getPath());
+
+    shm1.ptr().setInt(0, 20);
+    assertEquals(0, shm2.ptr().getInt(0));
+
+    shm1.unlink();
+    shm2.unlink();
+    shm1.unmap();
+    shm2.unmap();
+  }
+
+  @Test
+  void openByPath() throws Exception {
+    MemfdSharedMemoryFactory factory = new MemfdSharedMemoryFactory(PosixSharedMemoryFactory.POPULATE);
+
+    MemfdSharedMemory shm1 = (MemfdSharedMemory) factory.createOrOpen("OpenByPath", 4096, S_IRUSR | S_IWUSR);
+    SharedMemory shm2 = factory.open(shm1.getPath(), 4096);
+    assertFalse(shm2.isCreator());
+    assertNull(((MemfdSharedMemory) shm2).getPath());
+
+    shm1.ptr().setInt(100, 20);
+    assertEquals(20, shm2.ptr().getInt(100));
+
+    // no longer opened once unlinked, but still mapped
+    String path = shm1.getPath();
+    shm1.unlink();
+    Assertions.assertThrows(Exception.class, () -> {
+      factory.open(path, 4096);
+    });
+    Assertions.assertThrows(Exception.class, () -> {
+      shm2.unlink();
+    });
+
+    shm2.ptr().setInt(100, 30);
+    assertEquals(30, shm1.ptr().getInt(100));
+
+    shm1.unmap();
+    shm2.unmap();
+  }
+}
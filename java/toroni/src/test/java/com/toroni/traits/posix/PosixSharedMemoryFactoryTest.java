@@ -7,7 +7,11 @@ package com.toroni.traits.posix;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
 import com.vmware.toroni.traits.SharedMemory;
@@ -128,4 +132,60 @@ class PosixSharedMemoryFactoryTest {
       assert (false);
     }
   }
+
+  @Test
+  void mapOptionsKeepData() throws Exception {
+    int[] options = { PosixSharedMemoryFactory.POPULATE, PosixSharedMemoryFactory.PRE_TOUCH,
+        PosixSharedMemoryFactory.LOCK, PosixSharedMemoryFactory.POPULATE | PosixSharedMemoryFactory.LOCK };
+    long length = 1024 * 1024;
+
+    SharedMemory shm = PosixSharedMemoryFactory.createOrOpen("MapOptionsKeepData", length, S_IRUSR | S_IWUSR);
+    for (long offset = 0; offset < length; offset += 4096) {
+      shm.ptr().setInt(offset, (int) offset + 1);
+    }
+
+    for (int option : options) {
+      SharedMemory other = PosixSharedMemoryFactory.open("MapOptionsKeepData", length, option);
+
+      for (long offset = 0; offset < length; offset += 4096) {
+        assertEquals((int) offset + 1, other.ptr().getInt(offset));
+      }
+
+      other.ptr().setInt(0, 42);
+      assertEquals(42, shm.ptr().getInt(0));
+      shm.ptr().setInt(0, 1);
+      other.unmap();
+    }
+
+    shm.unlink();
+    shm.unmap();
+  }
+
+  @Test
+  void createWithMapOptions() throws Exception {
+    SharedMemory shm = PosixSharedMemoryFactory.createOrOpen("CreateWithMapOptions", 64 * 1024,
+        S_IRUSR | S_IWUSR, PosixSharedMemoryFactory.PRE_TOUCH | PosixSharedMemoryFactory.LOCK);
+
+    assertEquals(true, shm.isCreator());
+    assertEquals(0, shm.ptr().getLong(64 * 1024 - Long.BYTES));
+
+    shm.unlink();
+    shm.unmap();
+  }
+
+  @Test
+  void hugePages() throws Exception {
+    Path shmemEnabled = Path.of("/sys/kernel/mm/transparent_hugepage/shmem_enabled");
+    Assumptions.assumeTrue(Files.exists(shmemEnabled), "no transparent huge pages");
+
+    long length = 4 * 1024 * 1024;
+    SharedMemory shm = PosixSharedMemoryFactory.createOrOpen("HugePages", length, S_IRUSR | S_IWUSR,
+        PosixSharedMemoryFactory.HUGE_PAGES | PosixSharedMemoryFactory.POPULATE);
+
+    shm.ptr().setLong(length - Long.BYTES, 42);
+    assertEquals(42, shm.ptr().getLong(length - Long.BYTES));
+
+    shm.unlink();
+    shm.unmap();
+  }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 VMware, Inc.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.toroni.traits.posix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.vmware.toroni.traits.posix.FileSharedMemoryFactory;
+import com.vmware.toroni.traits.posix.MemfdSharedMemoryFactory;
+import com.vmware.toroni.traits.posix.SharedMemoryBackends;
+import com.vmware.toroni.traits.posix.ShmSharedMemoryFactory;
+
+class SharedMemoryBackendsTest {
+  @Test
+  void create() {
+    assertTrue(SharedMemoryBackends.create("shm", 0) instanceof ShmSharedMemoryFactory);
+    assertTrue(SharedMemoryBackends.create("memfd", 0) instanceof MemfdSharedMemoryFactory);
+    assertTrue(SharedMemoryBackends.create("memfd-hugetlb", 0) instanceof MemfdSharedMemoryFactory);
+
+    FileSharedMemoryFactory file = (FileSharedMemoryFactory) SharedMemoryBackends.create("file:/var/tmp", 0);
+    assertEquals("/var/tmp/rb", file.path("rb"));
+
+    FileSharedMemoryFactory hugetlbfs = (FileSharedMemoryFactory) SharedMemoryBackends
+        .create("hugetlbfs:/dev/hugepages", 0);
+    assertEquals("/dev/hugepages/rb", hugetlbfs.path("rb"));
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> {
+      SharedMemoryBackends.create("tmpfs", 0);
+    });
+  }
+
+  @Test
+  void hugePageSize() {
+    long size = SharedMemoryBackends.hugePageSize();
+    assertTrue(size > 0 && (size & (size - 1)) == 0);
+  }
+}